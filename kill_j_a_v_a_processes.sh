@@ -1,11 +1,11 @@
 #!/bin/bash
 #
 # 1. gets list of current java process ids that this user is running
-# 2. filters out the process id supplied as a command line argument to the script ($1)
+# 2. filters out the process ids supplied as command line arguments to the script ($@)
 # 3. does a kill -9 on each of the non-filtered process ids
 #
 # Usage:
-# ./kill_java_processes.sh 32423
+# ./kill_java_processes.sh 32423 [32424 ...]
 
 if [ -z "$1" ]
 then
@@ -13,11 +13,18 @@ then
 else
     # TODO: someone with some shell-foo needs to do some refactoring.
 
+    # a whole-line pattern for each pid to ignore
+    IGNORED_PIDS=""
+    for PID in "$@"
+    do
+        IGNORED_PIDS="$IGNORED_PIDS -e $PID"
+    done
+
     echo "Process list:"
     ps auwx | grep `whoami` | grep java | grep -v grep
     echo "Killing these pids:"
-    ps auwx | grep `whoami` | grep java | grep -v grep | awk '{print $2}' | grep -v $1
+    ps auwx | grep `whoami` | grep java | grep -v grep | awk '{print $2}' | grep -v -x $IGNORED_PIDS
 
     # Actually kill the pids:
-    ps auwx | grep `whoami` | grep java | grep -v grep | awk '{print $2}' | grep -v $1 | xargs kill -9
+    ps auwx | grep `whoami` | grep java | grep -v grep | awk '{print $2}' | grep -v -x $IGNORED_PIDS | xargs kill -9
 fi
@@ -1,2 +0,0 @@
-cd $1
-$2 1> $3 2> $4
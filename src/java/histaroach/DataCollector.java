@@ -1,28 +1,40 @@
 package histaroach;
 
+import histaroach.algorithm.AdaptiveIntermediateRevisionAnalysis;
 import histaroach.algorithm.IntermediateRevisionAnalysis;
 import histaroach.algorithm.IntermediateRevisionGenerator;
+import histaroach.algorithm.TestSelector;
+import histaroach.buildstrategy.AntBuildStrategy;
+import histaroach.buildstrategy.DaemonBuildStrategy;
 import histaroach.buildstrategy.IBuildStrategy;
+import histaroach.buildstrategy.IncrementalBuildStrategy;
 import histaroach.buildstrategy.JodatimeBuildStrateygy;
 import histaroach.buildstrategy.VoldemortBuildStrategy;
 import histaroach.model.GitRepository;
 import histaroach.model.HistoryGraph;
 import histaroach.model.IRepository;
+import histaroach.model.InProcessGitRepository;
 import histaroach.model.IntermediateRevision;
+import histaroach.model.ResultCache;
+import histaroach.util.HistoryGraphBinaryReader;
+import histaroach.util.HistoryGraphBinaryWriter;
+import histaroach.util.HistoryGraphStreamingXMLWriter;
 import histaroach.util.HistoryGraphXMLReader;
-import histaroach.util.HistoryGraphXMLWriter;
+import histaroach.util.IntermediateRevisionIndexedFile;
+import histaroach.util.IntermediateRevisionIndexedWriter;
+import histaroach.util.IntermediateRevisionStreamingXMLWriter;
 import histaroach.util.IntermediateRevisionXMLReader;
-import histaroach.util.IntermediateRevisionXMLWriter;
+import histaroach.util.Pair;
 import histaroach.util.Util;
 import histaroach.util.XMLReader;
-import histaroach.util.XMLWriter;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
+import javax.xml.stream.XMLStreamException;
 
 import plume.Option;
 import plume.OptionGroup;
@@ -44,6 +56,15 @@ public class DataCollector {
     
     public static final String XML_EXTENSION = ".xml";
     public static final String TXT_EXTENSION = ".txt";
+    public static final String JOURNAL_EXTENSION = ".journal";
+    
+    // Suffix of working tree directories created for parallel workers.
+    public static final String WORKER_SUFFIX = "_worker";
+    
+    // Suffix of output files of delta debugging.
+    public static final String ADAPTIVE_SUFFIX = "_adaptive";
+    
+    private static final String HEAD = "HEAD";
     
     // project subjects of study
     public static final String VOLDEMORT = "voldemort";
@@ -94,6 +115,52 @@ public class DataCollector {
     @Option(value = "-b Build command (Optional)")
     public static String buildCommand = "ant";
     
+    /**
+     * The number of workers that compile and run tests in parallel, 
+     * each in its own working tree(s). Default is 1.
+     */
+    @Option(value = "-w Number of parallel workers (Optional)")
+    public static int numWorkers = 1;
+    
+    /**
+     * Whether to read the git object database in-process, 
+     * instead of running git. Default is false.
+     */
+    @Option(value = "-g Read git objects in-process instead of running git (Optional)")
+    public static boolean inProcessGit = false;
+    
+    /**
+     * Whether to recompile only the source files changed since the last 
+     * successful build and the classes that depend on them. Default is false.
+     */
+    @Option(value = "-u Recompile only changed files and their dependents (Optional)")
+    public static boolean incrementalBuild = false;
+    
+    /**
+     * Whether to run tests, all or selected, in a long-lived JVM per 
+     * worker, which loads the compiled classes of each run in a fresh 
+     * class loader, instead of running ant or forking a JVM for each run. 
+     * Default is false.
+     */
+    @Option(value = "-W Run tests in a warm test-runner JVM (Optional)")
+    public static boolean warmTestRunner = false;
+    
+    /**
+     * The directory of the cache of build and test results, which is 
+     * consulted before compiling and running tests on a source tree. 
+     * Default is no cache.
+     */
+    @Option(value = "-C <filename> Build and test result cache directory (Optional)")
+    public static File resultCacheDir = null;
+    
+    /**
+     * The directory under which the output of each build and test run 
+     * is archived, gzip-compressed, in a directory of its own. 
+     * Default is no archive.
+     */
+    @Option(value = "-L <filename> Build and test log archive directory (Optional)")
+    public static File logArchiveDir = null;
+    
     /**
      * The commit ID where HistoryGraph analysis begins.
      */
@@ -108,23 +175,42 @@ public class DataCollector {
     public static String endCommitID = null;
     
     /**
-	 * Cloned repository directory.
+     * HistoryGraph file, xml or binary (.hgb), to extend with the commits 
+     * from startCommitID to endCommitID. Only the commits that are not in 
+     * it are built and tested. The range must not reach below the file's 
+     * HistoryGraph, ie. include parents of its commits. If null, a new 
+     * HistoryGraph is built.
+     */
+    @Option(value = "-E <filename> HistoryGraph xml or binary (.hgb) file to extend (Optional)")
+    public static File extendHistoryGraph = null;
+    
+    /**
+	 * Cloned repository directory. If null, the files of a delta are 
+	 * written from the successor commit instead of being copied from 
+	 * a checkout of it.
 	 */
     @OptionGroup("IntermediateRevision Options")
-	@Option(value = "-c <filename> Cloned repository directory")
+	@Option(value = "-c <filename> Cloned repository directory (Optional)")
 	public static File clonedRepoDir = null;
     
     /**
-     * HistoryGraph xml file.
+     * HistoryGraph xml file, or binary file with extension .hgb.
      */
-    @Option(value = "-H <filename> HistoryGraph xml file")
+    @Option(value = "-H <filename> HistoryGraph xml or binary (.hgb) file")
     public static File historyGraphXML = null;
     
     /**
-     * IntermediateRevision xml file.
+     * Whether to write IntermediateRevisions to an indexed binary file 
+     * with extension .irx instead of an xml file. Default is false.
+     */
+    @Option(value = "-X Write IntermediateRevisions to an indexed (.irx) file (Optional)")
+    public static boolean indexIntermediateRevisions = false;
+    
+    /**
+     * IntermediateRevision xml file, or indexed file with extension .irx.
      */
     @OptionGroup("IntermediateRevision (run tests) Options")
-    @Option(value = "-I <filename> IntermediateRevision xml file")
+    @Option(value = "-I <filename> IntermediateRevision xml or indexed (.irx) file")
     public static File intermediateRevisionXML = null;
     
     /**
@@ -138,6 +224,43 @@ public class DataCollector {
      */
     @Option(value = "-n Number of IntermediateRevisions to analyze (Optional)")
     public static int numIntermediateRevisions = 0;
+    
+    /**
+     * Whether to journal the results of IntermediateRevisions as they 
+     * complete, and resume from the journal left by an interrupted run. 
+     * Default is false.
+     */
+    @Option(value = "-j Journal results and resume an interrupted run (Optional)")
+    public static boolean journal = false;
+    
+    /**
+     * Whether to search each Flip of the HistoryGraph for a minimal 
+     * failure-inducing delta by delta debugging, generating only the 
+     * IntermediateRevisions the search tests, instead of running tests 
+     * on the IntermediateRevisions of an IntermediateRevision file. 
+     * Default is false.
+     */
+    @Option(value = "-A Delta debug each Flip instead of running all IntermediateRevisions (Optional)")
+    public static boolean adaptive = false;
+    
+    /**
+     * Whether to run only the tests that flip between the base and 
+     * successor Revisions of an IntermediateRevision, and numControlTests 
+     * other tests, rather than all tests. Default is false.
+     */
+    @Option(value = "-S Run only flipped tests and control tests (Optional)")
+    public static boolean selectTests = false;
+    
+    /**
+     * The number of tests that do not flip to run, picked at random, 
+     * if selectTests is set. Default is 10.
+     */
+    @Option(value = "Number of control tests to run with -S (Optional)")
+    public static int numControlTests = 10;
+
+	// the DaemonBuildStrategies created, whose daemons are stopped at the end
+	private static final List<DaemonBuildStrategy> daemonBuildStrategies = 
+		Collections.synchronizedList(new ArrayList<DaemonBuildStrategy>());
 
 	/** One line synopsis of usage */
 	public static final String usage_string = "DataCollector [mode option] [common options]"
@@ -166,60 +289,86 @@ public class DataCollector {
             return;
         }
 	    
+	    AntBuildStrategy.setLogArchiveDir(logArchiveDir);
+	    
+	    try {
+	    	runPhase(plumeOptions);
+	    } finally {
+	    	stopDaemonBuildStrategies();
+	    }
+	}
+	
+	/**
+	 * Runs the phase chosen by the mode options.
+	 * 
+	 * @throws Exception
+	 */
+	private static void runPhase(Options plumeOptions) throws Exception {
 	    if (phaseI) {
 	    	if (startCommitID == null || endCommitID == null) {
 	            plumeOptions.print_usage();
 	            return;
 	        }
 	        	        
-	        IBuildStrategy buildStrategy;
+	        IBuildStrategy buildStrategy = createBuildStrategy(repoDir);
 	        
-	        if (projectName.equals(VOLDEMORT)) {
-	        	buildStrategy = new VoldemortBuildStrategy(repoDir, buildCommand);
-	        } else if (projectName.equals(JODA_TIME)) {
-	        	buildStrategy = new JodatimeBuildStrateygy(repoDir, buildCommand);
-	        } else {
+	        if (buildStrategy == null) {
 	        	plumeOptions.print_usage("projectName must be either " 
 	        			+ VOLDEMORT + " or " + JODA_TIME);
 	            return;
 	        }
 	        
-	        IRepository repository = new GitRepository(repoDir, buildStrategy);
+	        IRepository repository = createRepository(repoDir, buildStrategy);
 	        
 	        String timeStamp = Util.getCurrentTimeStamp();
-	        HistoryGraph historyGraph = repository.buildHistoryGraph(startCommitID, endCommitID);
+	        HistoryGraph historyGraph = new HistoryGraph();
+	        
+	        if (extendHistoryGraph != null) {
+	        	historyGraph = readHistoryGraph(extendHistoryGraph);
+	        }
+	        
+	        if (numWorkers > 1) {
+	        	// workers must not kill each other's processes
+	        	Util.setKillOtherJavaProcesses(false);
+	        	
+	        	List<IRepository> workingTrees = createWorkingTrees(repository);
+	        	historyGraph = repository.buildHistoryGraph(historyGraph, startCommitID, 
+	        			endCommitID, workingTrees);
+	        } else {
+	        	historyGraph = repository.buildHistoryGraph(historyGraph, startCommitID, 
+	        			endCommitID);
+	        }
 	        
 	        saveHistoryGraph(historyGraph, timeStamp);
 	    	
 	    } else if (phaseII || phaseIII) {
-	    	if (clonedRepoDir == null || historyGraphXML == null) {
+	    	if (historyGraphXML == null) {
 		    	plumeOptions.print_usage();
 		    	return;
 		    }
 	    	
-	    	IBuildStrategy buildStrategy;
-	        IBuildStrategy clonedBuildStrategy;
+	    	IBuildStrategy buildStrategy = createBuildStrategy(repoDir);
 	        
-	        if (projectName.equals(VOLDEMORT)) {
-	        	buildStrategy = new VoldemortBuildStrategy(repoDir, buildCommand);
-	        	clonedBuildStrategy = new VoldemortBuildStrategy(clonedRepoDir, buildCommand);
-	        } else if (projectName.equals(JODA_TIME)) {
-	        	buildStrategy = new JodatimeBuildStrateygy(repoDir, buildCommand);
-	        	clonedBuildStrategy = new JodatimeBuildStrateygy(clonedRepoDir, buildCommand);
-	        } else {
+	        if (buildStrategy == null) {
 	        	plumeOptions.print_usage("projectName must be either " 
 	        			+ VOLDEMORT + " or " + JODA_TIME);
 	            return;
 	        }
 	        
-	        IRepository repository = new GitRepository(repoDir, buildStrategy);
-	        IRepository clonedRepository = new GitRepository(clonedRepoDir, clonedBuildStrategy);
+	        IRepository repository = createRepository(repoDir, buildStrategy);
+	        IRepository clonedRepository = null;
 	        
-	        XMLReader<HistoryGraph> reader = new HistoryGraphXMLReader(historyGraphXML);
-		    HistoryGraph historyGraph = reader.read();
+	        if (clonedRepoDir != null) {
+	        	clonedRepository = createRepository(clonedRepoDir, 
+	        			createBuildStrategy(clonedRepoDir));
+	        }
+	        
+		    HistoryGraph historyGraph = readHistoryGraph(historyGraphXML);
 	    	
 		    if (phaseII) {
 		    	createIntermediateRevisions(historyGraph, repository, clonedRepository);
+	        } else if (adaptive) {
+	        	runAdaptiveAnalysis(historyGraph, repository, clonedRepository);
 	        } else {
 	        	if (intermediateRevisionXML == null) {
 			    	plumeOptions.print_usage();
@@ -233,14 +382,127 @@ public class DataCollector {
 	    }
 	}
 
+	/**
+	 * Kills the daemons of the DaemonBuildStrategies created by 
+	 * createBuildStrategy(), rather than leaving them to end when 
+	 * this JVM does.
+	 */
+	private static void stopDaemonBuildStrategies() {
+		synchronized (daemonBuildStrategies) {
+			for (DaemonBuildStrategy daemonBuildStrategy : daemonBuildStrategies) {
+				daemonBuildStrategy.stop();
+			}
+			
+			daemonBuildStrategies.clear();
+		}
+	}
+
+	/**
+	 * Creates a BuildStrategy of projectName for the project in directory, 
+	 * which builds incrementally if incrementalBuild is set, and runs 
+	 * tests in a WarmTestRunner if warmTestRunner is set.
+	 * 
+	 * @return a BuildStrategy, or null if projectName is unknown.
+	 */
+	public static IBuildStrategy createBuildStrategy(File directory) {
+		if (projectName.equals(VOLDEMORT)) {
+			IBuildStrategy buildStrategy = new VoldemortBuildStrategy(directory, 
+					buildCommand);
+			
+			if (incrementalBuild) {
+				buildStrategy = new IncrementalBuildStrategy(buildStrategy, directory, 
+						VoldemortBuildStrategy.SOURCE_DIRS, 
+						VoldemortBuildStrategy.CLASS_DIRS);
+			}
+			
+			if (warmTestRunner) {
+				DaemonBuildStrategy daemonBuildStrategy = new DaemonBuildStrategy(
+						buildStrategy, directory, VoldemortBuildStrategy.TEST_CLASSPATH);
+				daemonBuildStrategies.add(daemonBuildStrategy);
+				buildStrategy = daemonBuildStrategy;
+			}
+			
+			return buildStrategy;
+		} else if (projectName.equals(JODA_TIME)) {
+			IBuildStrategy buildStrategy = new JodatimeBuildStrateygy(directory, 
+					buildCommand);
+			
+			if (incrementalBuild) {
+				buildStrategy = new IncrementalBuildStrategy(buildStrategy, directory, 
+						JodatimeBuildStrateygy.SOURCE_DIRS, 
+						JodatimeBuildStrateygy.CLASS_DIRS);
+			}
+			
+			if (warmTestRunner) {
+				DaemonBuildStrategy daemonBuildStrategy = new DaemonBuildStrategy(
+						buildStrategy, directory, JodatimeBuildStrateygy.TEST_CLASSPATH);
+				daemonBuildStrategies.add(daemonBuildStrategy);
+				buildStrategy = daemonBuildStrategy;
+			}
+			
+			return buildStrategy;
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Creates a Repository of the git working tree in directory, 
+	 * which reads git objects in-process if inProcessGit is set, 
+	 * and caches results in resultCacheDir if it is set.
+	 * 
+	 * @return a Repository associated with directory and buildStrategy.
+	 */
+	public static IRepository createRepository(File directory, IBuildStrategy buildStrategy) {
+		ResultCache resultCache = null;
+		
+		if (resultCacheDir != null) {
+			resultCache = new ResultCache(resultCacheDir, projectName 
+					+ Util.SINGLE_SPACE_CHAR + buildCommand);
+		}
+		
+		if (inProcessGit) {
+			return new InProcessGitRepository(directory, buildStrategy, resultCache);
+		}
+		
+		return new GitRepository(directory, buildStrategy, resultCache);
+	}
+	
+	/**
+	 * Creates the private working trees of repository used by the 
+	 * parallel workers, besides repository itself. The working tree 
+	 * of worker k is placed next to repository's directory, in 
+	 * a directory with suffix "_worker" + k.
+	 * 
+	 * @return a list of numWorkers Repositories, starting with repository.
+	 * @throws Exception
+	 */
+	public static List<IRepository> createWorkingTrees(IRepository repository) 
+			throws Exception {
+		List<IRepository> workingTrees = new ArrayList<IRepository>();
+		workingTrees.add(repository);
+		
+		File dir = repository.getDirectory().getAbsoluteFile();
+		
+		for (int k = 1; k < numWorkers; k++) {
+			File workingTreeDir = new File(dir.getParentFile(), 
+					dir.getName() + WORKER_SUFFIX + k);
+			IRepository workingTree = repository.createWorkingTree(workingTreeDir, 
+					createBuildStrategy(workingTreeDir));
+			workingTrees.add(workingTree);
+		}
+		
+		return workingTrees;
+	}
+
 	/**
      * Writes historyGraph to an xml file.
      * 
-     * @throws ParserConfigurationException 
-     * @throws TransformerException 
+     * @throws IOException 
+     * @throws XMLStreamException 
      */
     public static void saveHistoryGraph(HistoryGraph historyGraph, String timeStamp) 
-    		throws ParserConfigurationException, TransformerException {
+    		throws IOException, XMLStreamException {
     	String fileName = HISTORYGRAPH_PREFIX + "_" + startCommitID + "-" + endCommitID 
     			+ "_" + timeStamp + XML_EXTENSION;
     	File dir = new File(DATA_PATH + File.separatorChar + startCommitID 
@@ -252,34 +514,99 @@ public class DataCollector {
     	
     	File xmlFile = new File(dir, fileName);
     	
-    	XMLWriter writer = new HistoryGraphXMLWriter(xmlFile, historyGraph);
-    	writer.buildDocument();
+    	HistoryGraphStreamingXMLWriter.write(xmlFile, historyGraph);
+    }
+    
+    /**
+     * Reads a HistoryGraph from file, which is a binary file if it has 
+     * the extension of one, or an xml file otherwise.
+     * 
+     * @return the HistoryGraph.
+     * @throws IOException
+     */
+    public static HistoryGraph readHistoryGraph(File file) throws IOException {
+    	if (HistoryGraphBinaryWriter.isBinaryFile(file)) {
+    		return new HistoryGraphBinaryReader(file).read();
+    	}
+    	
+    	return new HistoryGraphXMLReader(file).read();
     }
     
     /**
 	 * Creates a list of IntermediateRevisions from all TO_FAIL and BOTH flips 
-	 * in historyGraph, and writes them to an xml file.
+	 * in historyGraph, and writes them to an xml file, or an indexed file 
+	 * if indexIntermediateRevisions is set. Each IntermediateRevision 
+	 * is written as soon as it is generated.
 	 * 
-	 * @throws ParserConfigurationException
-	 * @throws TransformerException
+	 * @throws XMLStreamException
      * @throws InterruptedException 
      * @throws IOException 
 	 */
 	public static void createIntermediateRevisions(HistoryGraph historyGraph, 
 			IRepository repository, IRepository clonedRepository) 
-			throws ParserConfigurationException, TransformerException, 
-			IOException, InterruptedException {
+			throws XMLStreamException, IOException, InterruptedException {
     	IntermediateRevisionGenerator generator = new IntermediateRevisionGenerator(
     			historyGraph, repository, clonedRepository);
-    	List<IntermediateRevision> intermediateRevisions = 
-    		generator.generateIntermediateRevisions();
     	
-    	String filename = historyGraphXML.getName().replaceFirst(
+    	String filename = getBaseName(historyGraphXML).replaceFirst(
     			HISTORYGRAPH_PREFIX, INTERMEDIATE_REVISION_PREFIX);
-    	File xmlFile = new File(historyGraphXML.getParentFile(), filename);
     	
-    	XMLWriter writer = new IntermediateRevisionXMLWriter(xmlFile, intermediateRevisions);
-    	writer.buildDocument();
+    	if (indexIntermediateRevisions) {
+    		File indexedFile = new File(historyGraphXML.getParentFile(), 
+    				filename + IntermediateRevisionIndexedWriter.INDEXED_EXTENSION);
+    		IntermediateRevisionIndexedWriter writer = 
+    			new IntermediateRevisionIndexedWriter(indexedFile);
+    		
+    		for (IntermediateRevision intermediateRevision : generator) {
+    			writer.writeIntermediateRevision(intermediateRevision);
+    		}
+    		
+    		writer.close();
+    		return;
+    	}
+    	
+    	File xmlFile = new File(historyGraphXML.getParentFile(), filename + XML_EXTENSION);
+    	
+    	IntermediateRevisionStreamingXMLWriter writer = 
+    		new IntermediateRevisionStreamingXMLWriter(xmlFile);
+    	
+    	for (IntermediateRevision intermediateRevision : generator) {
+    		writer.writeIntermediateRevision(intermediateRevision);
+    	}
+    	
+    	writer.close();
+	}
+	
+	/**
+	 * Reads the IntermediateRevisions in intermediateRevisionXML. An indexed 
+	 * file is mapped rather than read, and only the IntermediateRevisions 
+	 * requested from the list are constructed.
+	 * 
+	 * @return the list of IntermediateRevisions.
+	 * @throws Exception
+	 */
+	public static List<IntermediateRevision> readIntermediateRevisions(
+			HistoryGraph historyGraph, IRepository repository, 
+			IRepository clonedRepository) throws Exception {
+		if (IntermediateRevisionIndexedWriter.isIndexedFile(intermediateRevisionXML)) {
+			return new IntermediateRevisionIndexedFile(intermediateRevisionXML, 
+					repository, clonedRepository, historyGraph);
+		}
+		
+		XMLReader<List<IntermediateRevision>> reader = new IntermediateRevisionXMLReader(
+    			intermediateRevisionXML, repository, clonedRepository, historyGraph);
+		
+		return reader.read();
+	}
+	
+	/**
+	 * @return the name of file without its extension.
+	 */
+	private static String getBaseName(File file) {
+		String filename = file.getName();
+		int dot = filename.lastIndexOf('.');
+		
+		return dot < 0 ? filename : filename.substring(0, dot);
 	}
 	
 	/**
@@ -292,11 +619,10 @@ public class DataCollector {
 	public static void runTestOnIntermediateRevisions(HistoryGraph historyGraph, 
 			IRepository repository, IRepository clonedRepository) 
 			throws Exception {
-		XMLReader<List<IntermediateRevision>> reader = new IntermediateRevisionXMLReader(
-    			intermediateRevisionXML, repository, clonedRepository, historyGraph);
-    	List<IntermediateRevision> intermediateRevisions = reader.read();
+		List<IntermediateRevision> intermediateRevisions = readIntermediateRevisions(
+				historyGraph, repository, clonedRepository);
     	
-    	String xmlFilename = intermediateRevisionXML.getName();
+    	String baseName = getBaseName(intermediateRevisionXML);
     	String suffix;
     	
     	if (numIntermediateRevisions > 0) {
@@ -306,14 +632,76 @@ public class DataCollector {
     		suffix = TXT_EXTENSION;
     	}
     	
-    	String filename1 = xmlFilename.replaceFirst(XML_EXTENSION, suffix);
-		String filename2 = xmlFilename.replaceFirst(XML_EXTENSION, "_totalDelta" + suffix);
+    	String filename1 = baseName + suffix;
+		String filename2 = baseName + "_totalDelta" + suffix;
 		
     	File txtFile1 = new File(intermediateRevisionXML.getParentFile(), filename1);
     	File txtFile2 = new File(intermediateRevisionXML.getParentFile(), filename2);
+    	File journalFile = null;
+    	
+    	if (journal) {
+    		journalFile = new File(intermediateRevisionXML.getParentFile(), 
+    				filename1 + JOURNAL_EXTENSION);
+    		
+    		if (journalFile.exists()) {
+    			// print progress to stdout
+    			System.out.println("Resuming from " + journalFile);
+    		}
+    	}
     	
     	IntermediateRevisionAnalysis analysis = new IntermediateRevisionAnalysis(
-    			intermediateRevisions, txtFile1, txtFile2);
+    			intermediateRevisions, txtFile1, txtFile2, journalFile, 
+    			createTestSelector());
+    	
+    	if (numWorkers > 1) {
+    		// same range as the serial runs below
+    		int first = numIntermediateRevisions > 0 ? startIndex : 0;
+    		int numElements = numIntermediateRevisions > 0 ? numIntermediateRevisions 
+    				: intermediateRevisions.size();
+    		
+    		// workers must not kill each other's processes
+    		Util.setKillOtherJavaProcesses(false);
+    		
+    		List<IRepository> workingTrees = createWorkingTrees(repository);
+    		List<IRepository> clonedWorkingTrees = null;
+    		
+    		if (clonedRepository != null) {
+    			clonedWorkingTrees = createWorkingTrees(clonedRepository);
+    		}
+    		
+    		if (journal) {
+    			restoreWorkingTrees(workingTrees);
+    			
+    			if (clonedWorkingTrees != null) {
+    				restoreWorkingTrees(clonedWorkingTrees);
+    			}
+    		}
+    		
+    		List<Pair<IRepository, IRepository>> workingTreePairs = 
+    			new ArrayList<Pair<IRepository, IRepository>>();
+    		
+    		for (int k = 0; k < numWorkers; k++) {
+    			IRepository clonedWorkingTree = clonedWorkingTrees == null ? null 
+    					: clonedWorkingTrees.get(k);
+    			workingTreePairs.add(new Pair<IRepository, IRepository>(
+    					workingTrees.get(k), clonedWorkingTree));
+    		}
+    		
+    		analysis.runTestOnIntermediateRevisions(first, numElements, 
+    				workingTreePairs);
+    		return;
+    	}
+    	
+    	if (journal) {
+    		List<IRepository> workingTrees = new ArrayList<IRepository>();
+    		workingTrees.add(repository);
+    		
+    		if (clonedRepository != null) {
+    			workingTrees.add(clonedRepository);
+    		}
+    		
+    		restoreWorkingTrees(workingTrees);
+    	}
     	
     	if (numIntermediateRevisions > 0) {
 	    	analysis.runTestOnIntermediateRevisions(startIndex, numIntermediateRevisions);
@@ -321,4 +709,56 @@ public class DataCollector {
     		analysis.runTestOnIntermediateRevisions();
     	}
 	}
+	
+	/**
+	 * For each target Flip in historyGraph, of any number of DiffFiles, 
+	 * searches for a minimal failure-inducing delta by delta debugging, 
+	 * and records the IntermediateRevisions tested and the deltas found 
+	 * to output files next to historyGraphXML.
+	 * 
+	 * @throws Exception
+	 */
+	public static void runAdaptiveAnalysis(HistoryGraph historyGraph, 
+			IRepository repository, IRepository clonedRepository) throws Exception {
+		IntermediateRevisionGenerator generator = new IntermediateRevisionGenerator(
+    			historyGraph, repository, clonedRepository);
+		
+		String baseName = getBaseName(historyGraphXML).replaceFirst(
+    			HISTORYGRAPH_PREFIX, INTERMEDIATE_REVISION_PREFIX) + ADAPTIVE_SUFFIX;
+		File directory = historyGraphXML.getParentFile();
+		
+		File txtFile1 = new File(directory, baseName + TXT_EXTENSION);
+		File txtFile2 = new File(directory, baseName + "_totalDelta" + TXT_EXTENSION);
+		File txtFile3 = new File(directory, baseName + "_minimalDelta" + TXT_EXTENSION);
+		
+		AdaptiveIntermediateRevisionAnalysis analysis = 
+			new AdaptiveIntermediateRevisionAnalysis(generator, 
+					generator.getTargetFlips(Integer.MAX_VALUE), 
+					txtFile1, txtFile2, txtFile3, createTestSelector());
+		analysis.runTestOnFlips();
+	}
+	
+	/**
+	 * @return a TestSelector of numControlTests if selectTests is set, 
+	 *         or null otherwise.
+	 */
+	private static TestSelector createTestSelector() {
+		return selectTests ? new TestSelector(numControlTests) : null;
+	}
+	
+	/**
+	 * Restores each working tree to its HEAD commit, discarding the changes 
+	 * and untracked files that an interrupted run may have left behind.
+	 * 
+	 * @throws Exception if a working tree cannot be restored.
+	 */
+	public static void restoreWorkingTrees(List<IRepository> workingTrees) 
+			throws Exception {
+		for (IRepository workingTree : workingTrees) {
+			if (!workingTree.checkoutCommit(HEAD)) {
+				throw new Exception("git checkout " + HEAD + " in " 
+						+ workingTree.getDirectory() + " unsuccessful");
+			}
+		}
+	}
 }
@@ -4,9 +4,12 @@ import histaroach.buildstrategy.IBuildStrategy;
 import histaroach.buildstrategy.VoldemortBuildStrategy;
 import histaroach.model.GitRepository;
 import histaroach.model.IRepository;
-import histaroach.util.Util;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 import plume.Option;
 import plume.OptionGroup;
@@ -64,7 +67,8 @@ public class ExploreTestNondeterminism {
 	}
 	
 	/**
-	 * Determines if a version of a test is deterministic. 
+	 * Determines if a version of a test is deterministic, by building 
+	 * the version once and running the test REPEAT times in one JVM. 
 	 * Prints the result to standard out.
 	 * 
 	 * @throws Exception
@@ -75,14 +79,20 @@ public class ExploreTestNondeterminism {
 			throw new Exception("check out commit " + version + " unsuccessful");
 		}
 		
-		boolean initResult = buildStrategy.runSingleTest(test);
-			
-		for (int i = 1; i < REPEAT; i++) {
-			// clean up processes from previous run
-			Util.killOtherJavaProcesses();
-			boolean result = buildStrategy.runSingleTest(test);
-			if (result != initResult) {
+		if (buildStrategy.build() != Compilable.YES) {
+			throw new Exception("build commit " + version + " unsuccessful");
+		}
+		
+		List<String> tests = new ArrayList<String>();
+		tests.add(test);
+		
+		List<TestResult> results = buildStrategy.runTests(tests, REPEAT);
+		boolean initResult = results.get(0).pass(test);
+		
+		for (TestResult result : results) {
+			if (result.pass(test) != initResult) {
 				System.out.println("Test " + test + " is nondeterministic.");
+				return;
 			}
 		}
 		
@@ -0,0 +1,93 @@
+package histaroach;
+
+import histaroach.model.HistoryGraph;
+import histaroach.util.HistoryGraphBinaryWriter;
+import histaroach.util.HistoryGraphStreamingXMLWriter;
+
+import java.io.File;
+
+import plume.Option;
+import plume.OptionGroup;
+import plume.Options;
+
+
+/**
+ * HistoryGraphConverter converts a HistoryGraph xml file to a binary
+ * (.hgb) file, or a binary file back to an xml file.
+ */
+public class HistoryGraphConverter {
+
+	/**
+     * Print a help message.
+     */
+    @OptionGroup("General Options")
+    @Option(value="-h Print a help message", aliases={"-help"})
+    public static boolean help;
+
+    /**
+     * HistoryGraph file to convert, xml or binary (.hgb).
+     */
+    @Option(value = "-i <filename> HistoryGraph xml or binary (.hgb) file to convert")
+    public static File inputFile = null;
+
+    /**
+     * Converted file. Default is inputFile with the other extension.
+     */
+    @Option(value = "-o <filename> Converted file (Optional)")
+    public static File outputFile = null;
+
+    /** One line synopsis of usage */
+	public static final String usage_string = "HistoryGraphConverter [options]";
+
+	/**
+	 * Initial program entrance -- converts inputFile to outputFile.
+	 *
+	 * @param args - command line arguments.
+	 * @throws Exception
+	 */
+	public static void main(String[] args) throws Exception {
+		Options plumeOptions = new Options(usage_string, HistoryGraphConverter.class);
+	    plumeOptions.parse_or_usage(args);
+
+	    // Display the help screen.
+	    if (help) {
+	        plumeOptions.print_usage();
+	        return;
+	    }
+
+	    if (inputFile == null) {
+	    	plumeOptions.print_usage();
+	    	return;
+	    }
+
+	    boolean toBinary = !HistoryGraphBinaryWriter.isBinaryFile(inputFile);
+
+	    if (outputFile == null) {
+	    	outputFile = new File(inputFile.getParentFile(),
+	    			getConvertedFilename(inputFile.getName(), toBinary));
+	    }
+
+	    HistoryGraph historyGraph = DataCollector.readHistoryGraph(inputFile);
+
+	    if (toBinary) {
+	    	new HistoryGraphBinaryWriter(outputFile, historyGraph).write();
+	    } else {
+	    	HistoryGraphStreamingXMLWriter.write(outputFile, historyGraph);
+	    }
+
+	    // print progress to stdout
+	    System.out.println("Converted " + inputFile + " to " + outputFile);
+	}
+
+	/**
+	 * @return filename with its extension replaced by the binary extension
+	 *         if toBinary, or by the xml extension otherwise.
+	 */
+	private static String getConvertedFilename(String filename, boolean toBinary) {
+		int dot = filename.lastIndexOf('.');
+		String name = dot < 0 ? filename : filename.substring(0, dot);
+
+		return name + (toBinary ? HistoryGraphBinaryWriter.BINARY_EXTENSION
+				: DataCollector.XML_EXTENSION);
+	}
+}
@@ -0,0 +1,238 @@
+package histaroach.algorithm;
+
+import histaroach.algorithm.DeltaDebugger.Outcome;
+import histaroach.model.DiffFile;
+import histaroach.model.Flip;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+import histaroach.util.Pair;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * AdaptiveIntermediateRevisionAnalysis searches each target Flip for 
+ * a minimal subset of its non-test delta that makes its to-fail tests 
+ * fail, by delta debugging, instead of running tests on all subsets. 
+ * 
+ * IntermediateRevisions are generated one at a time, each chosen by 
+ * the results of those before it, and created as IntermediateRevisionAnalysis 
+ * creates a group: base and successor Revisions of a Flip are checked 
+ * out once, and each delta is applied on top of the previous one. 
+ * A Flip whose failure is caused by a few of its 50 or more changed 
+ * files takes a few dozen builds, so Flips are not limited in size. 
+ * 
+ * The first 2 output files are in the format of IntermediateRevisionAnalysis, 
+ * for the IntermediateRevisions that were tested. The third has the 
+ * minimal delta of each Flip and the number of IntermediateRevisions 
+ * tested to find it. 
+ * 
+ * If a TestSelector is given, only the tests it selects for a Flip are 
+ * run on its IntermediateRevisions; they include all to-fail tests.
+ */
+public class AdaptiveIntermediateRevisionAnalysis {
+	
+	private static final String HEADER3 = 
+		"parentCommitID;childCommitID;minimalDelta;numIntermediateRevisions\n";
+	
+	private final IntermediateRevisionGenerator generator;
+	private final List<Flip> flips;
+	private final BufferedWriter out1;
+	private final BufferedWriter out2;
+	private final BufferedWriter out3;
+	private final /*@Nullable*/ TestSelector testSelector;
+	
+	// IID of the next IntermediateRevision tested
+	private int nextIID;
+	
+	public AdaptiveIntermediateRevisionAnalysis(IntermediateRevisionGenerator generator, 
+			List<Flip> flips, File outputFile1, File outputFile2, File outputFile3) 
+			throws IOException {
+		this(generator, flips, outputFile1, outputFile2, outputFile3, null);
+	}
+	
+	public AdaptiveIntermediateRevisionAnalysis(IntermediateRevisionGenerator generator, 
+			List<Flip> flips, File outputFile1, File outputFile2, File outputFile3, 
+			/*@Nullable*/ TestSelector testSelector) throws IOException {
+		this.generator = generator;
+		this.flips = flips;
+		out1 = new BufferedWriter(new FileWriter(outputFile1));
+		out2 = new BufferedWriter(new FileWriter(outputFile2));
+		out3 = new BufferedWriter(new FileWriter(outputFile3));
+		this.testSelector = testSelector;
+		nextIID = 0;
+	}
+	
+	/**
+	 * For each Flip, searches for a minimal failure-inducing delta and 
+	 * records the IntermediateRevisions tested and the delta found to 
+	 * the output files.
+	 * 
+	 * @throws Exception
+	 */
+	public void runTestOnFlips() throws Exception {
+		try {
+			out1.write(IntermediateRevisionAnalysis.HEADER1);
+			out2.write(IntermediateRevisionAnalysis.HEADER2);
+			out3.write(HEADER3);
+			
+			for (Flip flip : flips) {
+				runTestOnFlip(flip);
+			}
+		} finally {
+			out1.close();
+			out2.close();
+			out3.close();
+		}
+	}
+	
+	/**
+	 * Delta debugs the non-test delta of flip, and restores base 
+	 * Revision at the end.
+	 * 
+	 * @throws Exception
+	 */
+	private void runTestOnFlip(Flip flip) throws Exception {
+		Pair<Set<DiffFile>, Set<DiffFile>> res = generator.separateTestFromNonTest(
+				flip.getDiffFiles());
+		List<DiffFile> nonTestDelta = new ArrayList<DiffFile>(res.getFirst());
+		
+		FlipTester tester = new FlipTester(flip, res.getSecond());
+		DeltaDebugger<DiffFile> deltaDebugger = new DeltaDebugger<DiffFile>(tester);
+		List<DiffFile> minimalDelta;
+		
+		try {
+			minimalDelta = deltaDebugger.minimize(nonTestDelta);
+		} finally {
+			tester.restoreBaseRevision();
+		}
+		
+		String commitIDs = flip.getParentRevision().getCommitID() 
+			+ IntermediateRevisionAnalysis.COLUMN_SEPARATOR 
+			+ flip.getChildRevision().getCommitID() 
+			+ IntermediateRevisionAnalysis.COLUMN_SEPARATOR;
+		
+		out2.write(commitIDs + IntermediateRevisionAnalysis.getLineDelta(
+				flip.getDiffFiles()) + "\n");
+		out3.write(commitIDs + IntermediateRevisionAnalysis.getLineDelta(
+				new HashSet<DiffFile>(minimalDelta)) 
+				+ IntermediateRevisionAnalysis.COLUMN_SEPARATOR 
+				+ deltaDebugger.getNumTests() + "\n");
+		out3.flush();
+	}
+	
+	/**
+	 * FlipTester creates the IntermediateRevision of a Flip with a subset 
+	 * of its non-test delta and all its test delta, runs tests on it and 
+	 * records the results to the first output file.
+	 */
+	private class FlipTester implements IDeltaTester<DiffFile> {
+		
+		private final Flip flip;
+		private final Set<DiffFile> testDelta;
+		// tests to run, or null to run all tests
+		private final /*@Nullable*/ Set<String> selectedTests;
+		
+		// the IntermediateRevision whose delta is applied, or null if none is
+		private /*@Nullable*/ IntermediateRevision previous;
+		
+		private FlipTester(Flip flip, Set<DiffFile> testDelta) {
+			this.flip = flip;
+			this.testDelta = testDelta;
+			selectedTests = testSelector == null ? null 
+					: testSelector.selectTests(flip.getParentRevision(), 
+							flip.getChildRevision());
+			previous = null;
+		}
+		
+		@Override
+		public Outcome test(List<DiffFile> subset) throws Exception {
+			Set<DiffFile> delta = new HashSet<DiffFile>(subset);
+			delta.addAll(testDelta); // use the latest tests
+			
+			IntermediateRevision intermediateRevision;
+			
+			if (previous == null) {
+				intermediateRevision = new IntermediateRevision(flip.getParentRevision(), 
+						flip.getChildRevision(), generator.getRepository(), 
+						generator.getClonedRepository());
+				intermediateRevision.setDelta(delta);
+				intermediateRevision.checkoutBaseSuccessorRevisions();
+				intermediateRevision.applyDelta(new HashSet<DiffFile>());
+			} else {
+				intermediateRevision = previous.makeSibling(delta);
+				intermediateRevision.applyDelta(previous.getDelta());
+			}
+			
+			previous = intermediateRevision;
+			
+			if (selectedTests == null) {
+				intermediateRevision.runTest();
+				out1.write(IntermediateRevisionAnalysis.analyzeIntermediateRevision(
+						intermediateRevision, nextIID));
+			} else {
+				intermediateRevision.runTest(selectedTests);
+				out1.write(IntermediateRevisionAnalysis.analyzeIntermediateRevision(
+						intermediateRevision, nextIID, selectedTests));
+			}
+			
+			out1.flush();
+			nextIID++;
+			
+			return getOutcome(intermediateRevision);
+		}
+		
+		/**
+		 * @return FAIL if all to-fail tests of flip fail, PASS if all of them 
+		 *         pass, or UNRESOLVED otherwise.
+		 */
+		private Outcome getOutcome(IntermediateRevision intermediateRevision) {
+			if (intermediateRevision.isCompilable() != Compilable.YES 
+					|| intermediateRevision.hasTestAborted()) {
+				return Outcome.UNRESOLVED;
+			}
+			
+			TestResult testResult = intermediateRevision.getTestResult();
+			int numFailed = 0;
+			int numPassed = 0;
+			
+			for (String test : flip.getToFailTests()) {
+				if (testResult.fail(test)) {
+					numFailed++;
+				} else if (testResult.pass(test)) {
+					numPassed++;
+				}
+			}
+			
+			int numToFailTests = flip.getToFailTests().size();
+			
+			if (numFailed == numToFailTests) {
+				return Outcome.FAIL;
+			} else if (numPassed == numToFailTests) {
+				return Outcome.PASS;
+			}
+			
+			return Outcome.UNRESOLVED;
+		}
+		
+		/**
+		 * Restores base Revision, if a delta is applied.
+		 * 
+		 * @throws Exception
+		 */
+		private void restoreBaseRevision() throws Exception {
+			if (previous != null) {
+				previous.restoreBaseRevision();
+				previous = null;
+			}
+		}
+	}
+}
@@ -1,6 +1,5 @@
 package histaroach.algorithm;
 
-import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -14,19 +13,16 @@ import java.util.Set;
  * the total number of elements in the set, and r is the number of elements 
  * to choose from the set.
  * 
+ * The combinations are enumerated by an IndexCombinationGenerator, and 
+ * each is boxed into a new Set only when next() returns it.
+ * 
  * CombinationGenerator ignores the following edge cases: when a set is empty, 
  * and when r = 0.
  */
 public class CombinationGenerator<T> implements Iterable<Set<T>>, Iterator<Set<T>> {
 	
-	private final int numAll;
-	private final int numChoose;
-	
 	private final List<T> elements;
-	private final int[] indexArray;
-	
-	private final BigInteger numTotalCombinations;
-	private BigInteger numCombinationsGenerated;
+	private final IndexCombinationGenerator indexCombinations;
 	
 	public CombinationGenerator(Set<T> collection, int numChoose) {
 		if (numChoose > collection.size() || numChoose < 1 || 
@@ -34,38 +30,24 @@ public class CombinationGenerator<T> implements Iterable<Set<T>>, Iterator<Set<T
 			throw new IllegalArgumentException();
 		}
 		
-		numAll = collection.size();
-		this.numChoose = numChoose;
-		
 		elements = new ArrayList<T>(collection);
-		indexArray = new int[numChoose];
-		
-		for (int i = 0; i < indexArray.length; i++) {
-			indexArray[i] = i;
-		}
-		
-		BigInteger numAllFact = getFactorial(numAll);
-		BigInteger numChooseFact = getFactorial(numChoose);
-		BigInteger numNotChooseFact = getFactorial(numAll - numChoose);
-		
-		// C(n, r) = n!/(r!(n - r)!)
-		numTotalCombinations = numAllFact.divide(
-				numChooseFact.multiply(numNotChooseFact));
-		numCombinationsGenerated = BigInteger.ZERO;
+		indexCombinations = new IndexCombinationGenerator(elements.size(), numChoose);
 	}
 	
 	/**
-	 * @return a factorial of num.
+	 * @return the elements, in the order of the indices of 
+	 *         getIndexCombinations().
 	 */
-	private static BigInteger getFactorial(int num) {
-		BigInteger fact = BigInteger.ONE;
-		
-		for (int i = num; i > 1; i--) {
-			BigInteger bigI = new BigInteger(Integer.toString(i));
-			fact = fact.multiply(bigI);
-		}
-		
-		return fact;
+	public List<T> getElements() {
+		return elements;
+	}
+	
+	/**
+	 * @return the IndexCombinationGenerator that this steps through. 
+	 *         Advancing it advances this.
+	 */
+	public IndexCombinationGenerator getIndexCombinations() {
+		return indexCombinations;
 	}
 	
 	@Override
@@ -75,33 +57,19 @@ public class CombinationGenerator<T> implements Iterable<Set<T>>, Iterator<Set<T
 
 	@Override
 	public boolean hasNext() {
-		return numCombinationsGenerated.compareTo(numTotalCombinations) == -1;
+		return indexCombinations.hasNext();
 	}
 
 	@Override
 	public Set<T> next() {
-		if (numCombinationsGenerated.compareTo(BigInteger.ZERO) == 1) {
-			int i = numChoose - 1;
-			
-			while (indexArray[i] == numAll - numChoose + i) {
-				i--;
-			}
-			
-			indexArray[i]++;
-			
-			for (int j = i + 1; j < numChoose; j++) {
-				indexArray[j] = indexArray[i] + j - i;
-			}
-		}
-		
-		numCombinationsGenerated = numCombinationsGenerated.add(BigInteger.ONE);
+		indexCombinations.next();
 		return getCombination();
 	}
 	
 	private Set<T> getCombination() {
 		Set<T> combination = new HashSet<T>();
 		
-		for (int index : indexArray) {
+		for (int index : indexCombinations.getIndices()) {
 			T element = elements.get(index);
 			combination.add(element);
 		}
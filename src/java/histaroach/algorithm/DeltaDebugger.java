@@ -0,0 +1,132 @@
+package histaroach.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * DeltaDebugger finds a minimal failure-inducing subset of a list of 
+ * changes by the ddmin algorithm of Zeller and Hildebrandt. 
+ * 
+ * The changes are split into n parts, starting with n = 2. If a part, 
+ * or else the complement of a part, reproduces the failure, the search 
+ * continues on it; otherwise the changes are split into twice as many 
+ * parts, until each part is a single change. Each subset is tested at 
+ * most once, and the next subset to test depends on the outcomes so far, 
+ * so that a failure caused by few changes is found in O(n log n) tests 
+ * rather than the 2^n of testing all subsets. 
+ * 
+ * DeltaDebugger assumes that all changes reproduce the failure and that 
+ * no change passes, and tests neither.
+ */
+public class DeltaDebugger<T> {
+	
+	public enum Outcome {
+		PASS, 
+		FAIL, 
+		UNRESOLVED
+	}
+	
+	private final IDeltaTester<T> tester;
+	// map: subset tested -> its outcome
+	private final Map<Set<T>, Outcome> outcomes;
+	
+	public DeltaDebugger(IDeltaTester<T> tester) {
+		this.tester = tester;
+		outcomes = new HashMap<Set<T>, Outcome>();
+	}
+	
+	/**
+	 * @requires changes have no duplicates.
+	 * @return a 1-minimal subset of changes that reproduces the failure: 
+	 *         removing any single change from it does not. The changes 
+	 *         are in their order in changes.
+	 * @throws Exception
+	 */
+	public List<T> minimize(List<T> changes) throws Exception {
+		List<T> failing = new ArrayList<T>(changes);
+		int numParts = 2;
+		
+		while (failing.size() >= 2) {
+			List<List<T>> parts = split(failing, numParts);
+			List<T> reduced = null;
+			
+			for (List<T> part : parts) {
+				if (test(part) == Outcome.FAIL) {
+					reduced = part;
+					numParts = 2;
+					break;
+				}
+			}
+			
+			// with 2 parts, complements are the parts themselves
+			if (reduced == null && numParts > 2) {
+				for (List<T> part : parts) {
+					List<T> complement = new ArrayList<T>(failing);
+					complement.removeAll(part);
+					
+					if (test(complement) == Outcome.FAIL) {
+						reduced = complement;
+						numParts = numParts - 1;
+						break;
+					}
+				}
+			}
+			
+			if (reduced != null) {
+				failing = reduced;
+			} else if (numParts < failing.size()) {
+				numParts = Math.min(2 * numParts, failing.size());
+			} else {
+				break;
+			}
+		}
+		
+		return failing;
+	}
+	
+	/**
+	 * @return the number of subsets tested.
+	 */
+	public int getNumTests() {
+		return outcomes.size();
+	}
+	
+	/**
+	 * @return the outcome of subset, testing it unless it has been tested.
+	 * @throws Exception
+	 */
+	private Outcome test(List<T> subset) throws Exception {
+		Set<T> key = new HashSet<T>(subset);
+		Outcome outcome = outcomes.get(key);
+		
+		if (outcome == null) {
+			outcome = tester.test(subset);
+			outcomes.put(key, outcome);
+		}
+		
+		return outcome;
+	}
+	
+	/**
+	 * @requires 2 <= numParts <= changes.size()
+	 * @return changes split into numParts parts of nearly equal size, 
+	 *         in order.
+	 */
+	private static <T> List<List<T>> split(List<T> changes, int numParts) {
+		List<List<T>> parts = new ArrayList<List<T>>();
+		int start = 0;
+		
+		for (int i = 0; i < numParts; i++) {
+			int end = start + (changes.size() - start) / (numParts - i);
+			parts.add(new ArrayList<T>(changes.subList(start, end)));
+			start = end;
+		}
+		
+		return parts;
+	}
+}
@@ -0,0 +1,21 @@
+package histaroach.algorithm;
+
+import histaroach.algorithm.DeltaDebugger.Outcome;
+
+import java.util.List;
+
+
+/**
+ * IDeltaTester tests a subset of changes for DeltaDebugger.
+ */
+public interface IDeltaTester<T> {
+
+	/**
+	 * @return FAIL if the failure is reproduced with subset applied, 
+	 *         PASS if it is not, or UNRESOLVED if it cannot be told, 
+	 *         eg. subset does not compile.
+	 * @throws Exception
+	 */
+	public Outcome test(List<T> subset) throws Exception;
+	
+}
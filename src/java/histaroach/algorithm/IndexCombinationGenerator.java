@@ -0,0 +1,155 @@
+package histaroach.algorithm;
+
+import java.util.NoSuchElementException;
+
+
+/**
+ * IndexCombinationGenerator generates combinations C(n, r) of the indices 
+ * 0 to n - 1, in lexicographic order, without allocating per combination. 
+ * 
+ * The current combination is an array of r ascending indices that is 
+ * updated in place by next(), or a bitmask with bit i set for each 
+ * chosen index i. Callers that need the elements themselves, such as 
+ * CombinationGenerator, map the indices to them.
+ * 
+ * IndexCombinationGenerator ignores the same edge cases as 
+ * CombinationGenerator: when n = 0, and when r = 0.
+ */
+public class IndexCombinationGenerator {
+	
+	private final int numAll;
+	private final int numChoose;
+	
+	private final int[] indexArray;
+	private boolean started;
+	
+	/**
+	 * @throws IllegalArgumentException unless 1 <= numChoose <= numAll.
+	 */
+	public IndexCombinationGenerator(int numAll, int numChoose) {
+		if (numChoose > numAll || numChoose < 1) {
+			throw new IllegalArgumentException();
+		}
+		
+		this.numAll = numAll;
+		this.numChoose = numChoose;
+		
+		indexArray = new int[numChoose];
+		started = false;
+	}
+	
+	/**
+	 * @return C(numAll, numChoose).
+	 * @throws ArithmeticException if it does not fit in a long.
+	 */
+	public static long getNumCombinations(int numAll, int numChoose) {
+		if (numChoose < 0 || numChoose > numAll) {
+			return 0;
+		}
+		
+		int k = Math.min(numChoose, numAll - numChoose);
+		long count = 1;
+		
+		// C(n, i) = C(n, i - 1) * (n - i + 1) / i, which is exact
+		for (int i = 1; i <= k; i++) {
+			long factor = numAll - i + 1;
+			long gcd = gcd(count, i);
+			long divided = count / gcd;
+			long rest = i / gcd;
+			
+			if (divided > Long.MAX_VALUE / factor) {
+				throw new ArithmeticException("C(" + numAll + ", " + numChoose 
+						+ ") does not fit in a long");
+			}
+			
+			// rest divides factor, since gcd(divided, rest) = 1
+			count = divided * (factor / rest);
+		}
+		
+		return count;
+	}
+	
+	private static long gcd(long a, long b) {
+		while (b != 0) {
+			long t = a % b;
+			a = b;
+			b = t;
+		}
+		
+		return a;
+	}
+	
+	public boolean hasNext() {
+		// the last combination is numAll - numChoose, ..., numAll - 1
+		return !started || indexArray[0] != numAll - numChoose;
+	}
+	
+	/**
+	 * Advances to the next combination.
+	 * 
+	 * @modifies this
+	 * @throws NoSuchElementException if there is none.
+	 */
+	public void next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		
+		if (!started) {
+			for (int i = 0; i < numChoose; i++) {
+				indexArray[i] = i;
+			}
+			
+			started = true;
+			return;
+		}
+		
+		int i = numChoose - 1;
+		
+		while (indexArray[i] == numAll - numChoose + i) {
+			i--;
+		}
+		
+		indexArray[i]++;
+		
+		for (int j = i + 1; j < numChoose; j++) {
+			indexArray[j] = indexArray[i] + j - i;
+		}
+	}
+	
+	/**
+	 * @requires next() has been called.
+	 * @return the indices of the current combination, in ascending order. 
+	 *         The array is updated by next() and must not be modified.
+	 */
+	public int[] getIndices() {
+		return indexArray;
+	}
+	
+	/**
+	 * @requires next() has been called, and numAll <= 64.
+	 * @return the current combination as a bitmask, with bit i set 
+	 *         for each chosen index i.
+	 */
+	public long getMask() {
+		if (numAll > Long.SIZE) {
+			throw new IllegalStateException(numAll + " indices do not fit in a mask");
+		}
+		
+		long mask = 0;
+		
+		for (int index : indexArray) {
+			mask |= 1L << index;
+		}
+		
+		return mask;
+	}
+	
+	public int getNumAll() {
+		return numAll;
+	}
+	
+	public int getNumChoose() {
+		return numChoose;
+	}
+}
@@ -1,6 +1,7 @@
 package histaroach.algorithm;
 
 import histaroach.model.DiffFile;
+import histaroach.model.IRepository;
 import histaroach.model.IntermediateRevision;
 import histaroach.model.Revision;
 import histaroach.model.Revision.Compilable;
@@ -11,10 +12,25 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
@@ -24,27 +40,65 @@ import java.util.Set;
  */
 public class IntermediateRevisionAnalysis {
 		
-	private static final String COLUMN_SEPARATOR = ";";
+	static final String COLUMN_SEPARATOR = ";";
 	private static final String FILE_SEPARATOR = ",";
 	
-	private static final String HEADER1 = 
+	static final String HEADER1 = 
 		"IID;parentCommitID;childCommitID;delta;" + 
 		"compilable;testAborted;test;intermediateTestResult;parentTestResult;childTestResult\n";
-	private static final String HEADER2 = "parentCommitID;childCommitID;totalDelta\n";
+	static final String HEADER2 = "parentCommitID;childCommitID;totalDelta\n";
 	
 	private static final String TRUE = "1";
 	private static final String FALSE = "0";
 	private static final String NONE = "n";
+	
+	// bits in a delta mask for orderByGrayCode
+	private static final int MAX_GRAY_CODE_BITS = Long.SIZE - 1;
 
 	private final List<IntermediateRevision> intermediateRevisions;
 	private final BufferedWriter out1;
 	private final BufferedWriter out2;
+	private final /*@Nullable*/ ResultJournal journal;
+	private final /*@Nullable*/ TestSelector testSelector;
 	
 	public IntermediateRevisionAnalysis(List<IntermediateRevision> intermediateRevisions, 
 			File outputFile1, File outputFile2) throws IOException {
+		this(intermediateRevisions, outputFile1, outputFile2, null);
+	}
+	
+	/**
+	 * Creates an IntermediateRevisionAnalysis that records each result in 
+	 * journalFile as soon as it is known. If journalFile exists, the results 
+	 * recorded in it by an interrupted run are written to the output file 
+	 * without running those IntermediateRevisions again. journalFile is 
+	 * deleted once the run completes.
+	 * 
+	 * @requires journalFile, if it exists, was written by a run over 
+	 *           the same IntermediateRevisions.
+	 */
+	public IntermediateRevisionAnalysis(List<IntermediateRevision> intermediateRevisions, 
+			File outputFile1, File outputFile2, /*@Nullable*/ File journalFile) 
+			throws IOException {
+		this(intermediateRevisions, outputFile1, outputFile2, journalFile, null);
+	}
+	
+	/**
+	 * Creates an IntermediateRevisionAnalysis that, if testSelector is 
+	 * not null, runs only the tests it selects for each base-successor 
+	 * pair, and records a line for each of them rather than for each 
+	 * test of successor Revision. 
+	 * 
+	 * @requires journalFile, if it exists, was written by a run over 
+	 *           the same IntermediateRevisions with the same tests.
+	 */
+	public IntermediateRevisionAnalysis(List<IntermediateRevision> intermediateRevisions, 
+			File outputFile1, File outputFile2, /*@Nullable*/ File journalFile, 
+			/*@Nullable*/ TestSelector testSelector) throws IOException {
 		this.intermediateRevisions = intermediateRevisions;
 		out1 = new BufferedWriter(new FileWriter(outputFile1));
 		out2 = new BufferedWriter(new FileWriter(outputFile2));
+		journal = journalFile == null ? null : new ResultJournal(journalFile);
+		this.testSelector = testSelector;
 	}
 	
 	/**
@@ -61,18 +115,123 @@ public class IntermediateRevisionAnalysis {
 	/**
 	 * For a specified range of IntermediateRevisions, creates actual 
 	 * intermediate revisions on the file system, runs tests on them 
-	 * and records the results to the output file.
+	 * and records the results to the output file. 
+	 * 
+	 * IntermediateRevisions of the same base-successor pair are created 
+	 * one after another, checking out the pair only once; see 
+	 * runTestOnGroup. The rows of the output file are in the order of 
+	 * IntermediateRevisions regardless.
 	 * 
 	 * @throws Exception
 	 */
 	public void runTestOnIntermediateRevisions(int startIndex, int numElements) 
 			throws Exception {
+		List<List<Integer>> groups = groupByBaseSuccessor(startIndex, numElements);
+		OrderedResultWriter resultWriter = new OrderedResultWriter(out1, startIndex);
+		boolean completed = false;
+		
+		try {
+			for (List<Integer> group : groups) {
+				runTestOnGroup(group, null, resultWriter);
+			}
+			
+			completed = true;
+		} finally {
+			out1.close();
+			closeJournal(completed);
+		}
+	}
+	
+	/**
+	 * For a specified range of IntermediateRevisions, creates actual 
+	 * intermediate revisions on the file system, runs tests on them 
+	 * and records the results to the output file, using one worker 
+	 * per pair of working trees in workingTrees. 
+	 * 
+	 * Each worker takes all IntermediateRevisions of the next base-successor 
+	 * pair in the range, and creates them in its own (repository, 
+	 * clonedRepository) pair as runTestOnGroup does. The output files are 
+	 * the same as those of runTestOnIntermediateRevisions(startIndex, numElements).
+	 * 
+	 * @requires no two pairs in workingTrees share a working directory.
+	 * @throws Exception
+	 */
+	public void runTestOnIntermediateRevisions(int startIndex, int numElements, 
+			List<Pair<IRepository, IRepository>> workingTrees) throws Exception {
+		List<List<Integer>> groups = groupByBaseSuccessor(startIndex, numElements);
+		
+		OrderedResultWriter resultWriter = new OrderedResultWriter(out1, startIndex);
+		AtomicInteger nextGroup = new AtomicInteger(0);
+		AtomicBoolean failed = new AtomicBoolean(false);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(workingTrees.size());
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		
+		for (Pair<IRepository, IRepository> workingTree : workingTrees) {
+			Worker worker = new Worker(workingTree, groups, nextGroup, failed, 
+					resultWriter);
+			futures.add(executor.submit(worker));
+		}
+		
+		executor.shutdown();
+		
+		boolean completed = false;
+		
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+			
+			completed = true;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			
+			throw e;
+		} finally {
+			out1.close();
+			closeJournal(completed);
+		}
+	}
+	
+	/**
+	 * Deletes the journal if the run has completed, otherwise 
+	 * keeps it for the next run to resume from.
+	 * 
+	 * @throws IOException
+	 */
+	private void closeJournal(boolean completed) throws IOException {
+		if (journal == null) {
+			return;
+		}
+		
+		if (completed) {
+			journal.delete();
+		} else {
+			journal.close();
+		}
+	}
+	
+	/**
+	 * Writes the headers of both output files, and the totalDelta of each 
+	 * base-successor pair in the range to the second output file. 
+	 * 
+	 * @return indices of the IntermediateRevisions in the range, grouped by 
+	 *         base-successor pair in order of first appearance, each group 
+	 *         in the order returned by orderByGrayCode.
+	 * @throws IOException
+	 */
+	private List<List<Integer>> groupByBaseSuccessor(int startIndex, int numElements) 
+			throws IOException {
 		out1.write(HEADER1);
 		out1.flush();
 		out2.write(HEADER2);
-		out2.flush();
 		
-		Set<Pair<Revision, Revision>> pairs = new HashSet<Pair<Revision,Revision>>();
+		Map<Pair<Revision, Revision>, List<Integer>> pairToIndices = 
+			new LinkedHashMap<Pair<Revision, Revision>, List<Integer>>();
 		
 		for (int i = startIndex; i < startIndex + numElements; i++) {
 			// intermediateRevision already has its delta set
@@ -83,29 +242,217 @@ public class IntermediateRevisionAnalysis {
 			
 			Pair<Revision, Revision> pair = new Pair<Revision, Revision>(
 					base, successor);
+			List<Integer> indices = pairToIndices.get(pair);
 			
-			if (!pairs.contains(pair)) {
-				pairs.add(pair);
+			if (indices == null) {
+				indices = new ArrayList<Integer>();
+				pairToIndices.put(pair, indices);
+				
 				String line = base.getCommitID() + COLUMN_SEPARATOR + 
 					successor.getCommitID() + COLUMN_SEPARATOR + 
 					getLineDelta(intermediateRevision.getTotalDelta()) + "\n";
 				out2.write(line);
-				out2.flush();
 			}
 			
-			intermediateRevision.checkoutBaseSuccessorRevisions();
-			intermediateRevision.applyDelta();
-			intermediateRevision.runTest();
+			indices.add(i);
+		}
+		
+		out2.close();
+		
+		List<List<Integer>> groups = new ArrayList<List<Integer>>();
+		
+		for (List<Integer> indices : pairToIndices.values()) {
+			groups.add(orderByGrayCode(indices));
+		}
+		
+		return groups;
+	}
+	
+	/**
+	 * Orders IntermediateRevisions of the same base-successor pair so that 
+	 * consecutive deltas differ in few files. Each delta is seen as a bit 
+	 * mask over the files that are in some but not all of the deltas, and 
+	 * the masks are sorted by their rank in the reflected binary Gray code, 
+	 * where consecutive codes differ in a single file. The empty mask, 
+	 * ie. base Revision, has rank 0.
+	 * 
+	 * @return indices in Gray code order, or indices itself if the deltas 
+	 *         differ in more files than a mask can hold.
+	 */
+	private List<Integer> orderByGrayCode(List<Integer> indices) {
+		Set<DiffFile> commonFiles = null;
+		Set<DiffFile> allFiles = new LinkedHashSet<DiffFile>();
+		
+		for (int i : indices) {
+			Set<DiffFile> delta = intermediateRevisions.get(i).getDelta();
+			allFiles.addAll(delta);
+			
+			if (commonFiles == null) {
+				commonFiles = new HashSet<DiffFile>(delta);
+			} else {
+				commonFiles.retainAll(delta);
+			}
+		}
+		
+		List<DiffFile> varyingFiles = new ArrayList<DiffFile>(allFiles);
+		varyingFiles.removeAll(commonFiles);
+		
+		if (varyingFiles.size() > MAX_GRAY_CODE_BITS) {
+			return indices;
+		}
+		
+		final Map<Integer, Long> ranks = new HashMap<Integer, Long>();
+		
+		for (int i : indices) {
+			Set<DiffFile> delta = intermediateRevisions.get(i).getDelta();
+			long mask = 0;
+			
+			for (int k = 0; k < varyingFiles.size(); k++) {
+				if (delta.contains(varyingFiles.get(k))) {
+					mask |= 1L << k;
+				}
+			}
+			
+			ranks.put(i, getGrayCodeRank(mask));
+		}
+		
+		List<Integer> orderedIndices = new ArrayList<Integer>(indices);
+		Collections.sort(orderedIndices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				int cmp = ranks.get(a).compareTo(ranks.get(b));
+				return cmp != 0 ? cmp : a.compareTo(b);
+			}
+		});
+		
+		return orderedIndices;
+	}
+	
+	/**
+	 * @return the position of code in the reflected binary Gray code.
+	 */
+	private static long getGrayCodeRank(long code) {
+		long rank = code;
+		
+		for (int shift = 1; shift < Long.SIZE; shift <<= 1) {
+			rank ^= rank >>> shift;
+		}
+		
+		return rank;
+	}
+	
+	/**
+	 * Creates the IntermediateRevisions at indices, which share the same 
+	 * base-successor pair, one after another: base and successor Revisions 
+	 * are checked out once, and each delta is applied on top of the 
+	 * previous one, touching only the files in which the two differ. 
+	 * Runs tests on each of them, or the tests testSelector selects for 
+	 * the pair if it is set, and hands the results to resultWriter, 
+	 * after recording them in the journal, if any. IntermediateRevisions 
+	 * that the journal already has results of are skipped. 
+	 * Base Revision is restored at the end.
+	 * 
+	 * @param workingTree the (repository, clonedRepository) pair in which 
+	 *        to create the IntermediateRevisions, or null to create each 
+	 *        in its own.
+	 * @throws Exception
+	 */
+	private void runTestOnGroup(List<Integer> indices, 
+			/*@Nullable*/ Pair<IRepository, IRepository> workingTree, 
+			OrderedResultWriter resultWriter) throws Exception {
+		IntermediateRevision previous = null;
+		Set<String> selectedTests = null;
+		
+		for (int i : indices) {
+			String lines = journal == null ? null : journal.getResult(i);
+			
+			if (lines != null) {
+				// recorded by an interrupted run
+				resultWriter.write(i, lines);
+				continue;
+			}
+			
+			IntermediateRevision intermediateRevision = intermediateRevisions.get(i);
 			
-			String lines = analyzeIntermediateRevision(intermediateRevision, i);
-			out1.write(lines);
-			out1.flush();
+			if (workingTree != null) {
+				intermediateRevision = intermediateRevision.makeCopy(
+						workingTree.getFirst(), workingTree.getSecond());
+			}
+			
+			if (previous == null) {
+				intermediateRevision.checkoutBaseSuccessorRevisions();
+				intermediateRevision.applyDelta(new HashSet<DiffFile>());
+			} else {
+				intermediateRevision.applyDelta(previous.getDelta());
+			}
 			
-			intermediateRevision.restoreBaseRevision();
+			if (testSelector == null) {
+				intermediateRevision.runTest();
+				lines = analyzeIntermediateRevision(intermediateRevision, i);
+			} else {
+				if (selectedTests == null) {
+					selectedTests = testSelector.selectTests(
+							intermediateRevision.getBaseRevision(), 
+							intermediateRevision.getSuccessorRevision());
+				}
+				
+				intermediateRevision.runTest(selectedTests);
+				lines = analyzeIntermediateRevision(intermediateRevision, i, selectedTests);
+			}
+			
+			if (journal != null) {
+				journal.record(i, lines);
+			}
+			
+			resultWriter.write(i, lines);
+			
+			previous = intermediateRevision;
 		}
 		
-		out1.close();
-		out2.close();
+		if (previous != null) {
+			previous.restoreBaseRevision();
+		}
+	}
+	
+	/**
+	 * Worker repeatedly takes the next group of IntermediateRevisions, 
+	 * creates them in its own pair of working trees, runs tests on them 
+	 * and hands the results to the OrderedResultWriter.
+	 */
+	private class Worker implements Callable<Void> {
+		
+		private final Pair<IRepository, IRepository> workingTree;
+		private final List<List<Integer>> groups;
+		private final AtomicInteger nextGroup;
+		private final AtomicBoolean failed;
+		private final OrderedResultWriter resultWriter;
+		
+		private Worker(Pair<IRepository, IRepository> workingTree, 
+				List<List<Integer>> groups, AtomicInteger nextGroup, 
+				AtomicBoolean failed, OrderedResultWriter resultWriter) {
+			this.workingTree = workingTree;
+			this.groups = groups;
+			this.nextGroup = nextGroup;
+			this.failed = failed;
+			this.resultWriter = resultWriter;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			int g;
+			
+			while (!failed.get() && (g = nextGroup.getAndIncrement()) < groups.size()) {
+				try {
+					runTestOnGroup(groups.get(g), workingTree, resultWriter);
+				} catch (Exception e) {
+					// stop the other workers from taking more work
+					failed.set(true);
+					throw e;
+				}
+			}
+			
+			return null;
+		}
 	}
 	
 	/**
@@ -115,8 +462,23 @@ public class IntermediateRevisionAnalysis {
 	 * @throws InterruptedException 
 	 * @throws IOException 
 	 */
-	public String analyzeIntermediateRevision(IntermediateRevision intermediateRevision, 
+	public static String analyzeIntermediateRevision(IntermediateRevision intermediateRevision, 
 			int iid) throws IOException, InterruptedException {
+		return analyzeIntermediateRevision(intermediateRevision, iid, 
+				intermediateRevision.getSuccessorRevision().getTestResult().getAllTests());
+	}
+	
+	/**
+	 * Records data of intermediateRevision, which ran the tests in 
+	 * selectedTests: there is a line for each of them, rather than 
+	 * for each test of successor Revision.
+	 * 
+	 * @return a String representation of data of intermediateRevision.
+	 * @throws InterruptedException 
+	 * @throws IOException 
+	 */
+	public static String analyzeIntermediateRevision(IntermediateRevision intermediateRevision, 
+			int iid, Collection<String> selectedTests) throws IOException, InterruptedException {
 		String lines = "";
 		
 		Revision parent = intermediateRevision.getBaseRevision();
@@ -137,7 +499,7 @@ public class IntermediateRevisionAnalysis {
 			TestResult intermediateTestResult = intermediateRevision.getTestResult();
 			assert intermediateTestResult != null;
 		
-			for (String test : childTestResult.getAllTests()) {
+			for (String test : selectedTests) {
 				lines += getFullLine(lineHeader, lineDelta, test, 
 						intermediateTestResult, parentTestResult, childTestResult);
 			}
@@ -153,7 +515,7 @@ public class IntermediateRevisionAnalysis {
 	 * IID parentCommitID childCommitID delta 
 	 * compilable testAborted test intermediateTestResult parentTestResult childTestResult
 	 */
-	private String getFullLine(String lineHeader, String lineDelta, 
+	private static String getFullLine(String lineHeader, String lineDelta, 
 			String test, TestResult intermediateTestResult, 
 			TestResult parentTestResult, TestResult childTestResult) {
 		String line = "";
@@ -176,7 +538,7 @@ public class IntermediateRevisionAnalysis {
 	 * IID parentCommitID childCommitID delta 
 	 * compilable testAborted n n n n
 	 */
-	private String getFullLineNoTestResult(String lineHeader, 
+	private static String getFullLineNoTestResult(String lineHeader, 
 			String lineDelta, IntermediateRevision intermediateRevision) {
 		String line = "";
 		
@@ -202,7 +564,7 @@ public class IntermediateRevisionAnalysis {
 	/**
 	 * Format: ?file1,?file2,...,?fileN
 	 */
-	private String getLineDelta(Set<DiffFile> delta) {
+	static String getLineDelta(Set<DiffFile> delta) {
 		String res = "";
 		Iterator<DiffFile> iter = delta.iterator();
 		
@@ -221,7 +583,7 @@ public class IntermediateRevisionAnalysis {
 	/**
 	 * Format: test intermediateTestResult parentTestResult childTestResult
 	 */
-	private String getLineTestResults(String test, TestResult intermediateTestResult, 
+	private static String getLineTestResults(String test, TestResult intermediateTestResult, 
 			TestResult parentTestResult, TestResult childTestResult) {
 		String testResults = test + COLUMN_SEPARATOR + 
 					intermediateTestResult.encodeAsString(test) + COLUMN_SEPARATOR + 
@@ -12,7 +12,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 
@@ -22,8 +24,12 @@ import java.util.Set;
  * A newly generated IntermediateRevision does not know its Compilable state 
  * nor its TestResult (ie. Compilable = UNKNOWN and TestResult = null). 
  * It only knows its base-successor Revisions and delta.
+ * 
+ * Iterating over an IntermediateRevisionGenerator generates the 
+ * IntermediateRevisions lazily, so that their number is not bounded 
+ * by memory.
  */
-public class IntermediateRevisionGenerator {
+public class IntermediateRevisionGenerator implements Iterable<IntermediateRevision> {
 		
 	private static final int MAX_NUM_DIFF_FILES = 7;
 	
@@ -38,6 +44,14 @@ public class IntermediateRevisionGenerator {
 		this.clonedRepository = clonedRepository;
 	}
 	
+	public IRepository getRepository() {
+		return repository;
+	}
+	
+	public IRepository getClonedRepository() {
+		return clonedRepository;
+	}
+	
 	/**
 	 * @return a list of all possible IntermediateRevisions from all target Flips 
 	 *         in historyGraph.
@@ -46,10 +60,24 @@ public class IntermediateRevisionGenerator {
 	 */
 	public List<IntermediateRevision> generateIntermediateRevisions() 
 			throws IOException, InterruptedException {
+		return generateIntermediateRevisions(getTargetFlips());
+	}
+	
+	/**
+	 * @return a list of the Flips in historyGraph that IntermediateRevisions 
+	 *         are generated from, in the order they are generated.
+	 */
+	public List<Flip> getTargetFlips() {
+		return getTargetFlips(MAX_NUM_DIFF_FILES);
+	}
+	
+	/**
+	 * @return a list of the Flips in historyGraph that have more than 1 and 
+	 *         at most maxNumDiffFiles non-test DiffFiles, in ascending order.
+	 */
+	public List<Flip> getTargetFlips(int maxNumDiffFiles) {
 		Set<Flip> flips = historyGraph.getToFailFlips();
-		List<Flip> targetFlips = filterAndSort(flips);
-		
-		return generateIntermediateRevisions(targetFlips);
+		return filterAndSort(flips, maxNumDiffFiles);
 	}
 	
 	/**
@@ -86,35 +114,48 @@ public class IntermediateRevisionGenerator {
 		List<IntermediateRevision> intermediateRevisions = 
 			new ArrayList<IntermediateRevision>();
 		
-		Pair<Set<DiffFile>, Set<DiffFile>> res = separateTestFromNonTest(flip.getDiffFiles());
-		Set<DiffFile> nonTestDelta = res.getFirst();
-		Set<DiffFile> testDelta = res.getSecond();
-				
-		for (int r = 1; r < nonTestDelta.size(); r++) {			
-			CombinationGenerator<DiffFile> combinations = 
-				new CombinationGenerator<DiffFile>(nonTestDelta, r);
-						
-			for (Set<DiffFile> combination : combinations) {
-				combination.addAll(testDelta); // use the latest tests
-				IntermediateRevision intermediateRevision = new IntermediateRevision(
-						flip.getParentRevision(), flip.getChildRevision(), 
-						repository, clonedRepository);
-				intermediateRevision.setDelta(combination);
-				
-				intermediateRevisions.add(intermediateRevision);
-			}
+		FlipIterator flipIterator = new FlipIterator(flip);
+		
+		while (flipIterator.hasNext()) {
+			intermediateRevisions.add(flipIterator.next());
 		}
 		
 		return intermediateRevisions;
 	}
 	
 	/**
-	 * Filters out Flips that have non-test delta of size <= 1 or > MAX_NUM_DIFF_FILES, 
+	 * @return an iterator over all possible IntermediateRevisions from all 
+	 *         target Flips in historyGraph, in the order of 
+	 *         generateIntermediateRevisions().
+	 */
+	@Override
+	public Iterator<IntermediateRevision> iterator() {
+		return iterator(getTargetFlips());
+	}
+	
+	/**
+	 * Unlike generateIntermediateRevisions(flips), the IntermediateRevisions 
+	 * are generated one at a time as they are requested, so that they need 
+	 * not all be held in memory. The total delta of each Flip is computed 
+	 * once, when its first IntermediateRevision is generated, and shared 
+	 * by all its IntermediateRevisions.
+	 * 
+	 * @return an iterator over all possible IntermediateRevisions from 
+	 *         a list of Flips, in the order of generateIntermediateRevisions(flips). 
+	 *         Its next() throws IllegalStateException if the total delta 
+	 *         of a Flip cannot be computed.
+	 */
+	public Iterator<IntermediateRevision> iterator(List<Flip> flips) {
+		return new IntermediateRevisionIterator(flips);
+	}
+	
+	/**
+	 * Filters out Flips that have non-test delta of size <= 1 or > maxNumDiffFiles, 
 	 * and sorts the remaining Flips into ascending order.
 	 * 
 	 * @return a list of target Flips.
 	 */
-	private List<Flip> filterAndSort(Set<Flip> flips) {
+	private List<Flip> filterAndSort(Set<Flip> flips, int maxNumDiffFiles) {
 		List<Flip> targetFlips = new ArrayList<Flip>();
 		
 		for (Flip flip : flips) {
@@ -122,7 +163,7 @@ public class IntermediateRevisionGenerator {
 					flip.getDiffFiles()).getFirst();
 			
 			if (nonTestDelta.size() > 1 
-					&& nonTestDelta.size() <= MAX_NUM_DIFF_FILES) {
+					&& nonTestDelta.size() <= maxNumDiffFiles) {
 				targetFlips.add(flip);
 			}
 		}
@@ -137,7 +178,7 @@ public class IntermediateRevisionGenerator {
 	 * 
 	 * @return (non-test delta, test delta)
 	 */
-	private Pair<Set<DiffFile>, Set<DiffFile>> separateTestFromNonTest(Set<DiffFile> totalDelta) {
+	Pair<Set<DiffFile>, Set<DiffFile>> separateTestFromNonTest(Set<DiffFile> totalDelta) {
 		Set<DiffFile> nonTestDelta = new HashSet<DiffFile>();
 		Set<DiffFile> testDelta = new HashSet<DiffFile>();
 		IBuildStrategy buildStrategy = repository.getBuildStrategy();
@@ -153,4 +194,119 @@ public class IntermediateRevisionGenerator {
 		
 		return new Pair<Set<DiffFile>, Set<DiffFile>>(nonTestDelta, testDelta);
 	}
+	
+	/**
+	 * IntermediateRevisionIterator generates the IntermediateRevisions of 
+	 * a list of Flips, one Flip after another.
+	 */
+	private class IntermediateRevisionIterator implements Iterator<IntermediateRevision> {
+		
+		private final Iterator<Flip> flips;
+		private FlipIterator flipIterator;
+		
+		public IntermediateRevisionIterator(List<Flip> flips) {
+			this.flips = flips.iterator();
+			flipIterator = null;
+		}
+		
+		@Override
+		public boolean hasNext() {
+			// a target Flip has at least 2 non-test DiffFiles, 
+			// but a Flip given by the caller may have none
+			while (flipIterator == null || !flipIterator.hasNext()) {
+				if (!flips.hasNext()) {
+					return false;
+				}
+				
+				flipIterator = new FlipIterator(flips.next());
+			}
+			
+			return true;
+		}
+		
+		@Override
+		public IntermediateRevision next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			
+			try {
+				return flipIterator.next();
+			} catch (IOException e) {
+				throw new IllegalStateException("generate IntermediateRevision unsuccessful", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("generate IntermediateRevision unsuccessful", e);
+			}
+		}
+		
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	
+	/**
+	 * FlipIterator generates the IntermediateRevisions of a single Flip: 
+	 * for each r from 1 to n - 1, where n is the number of non-test DiffFiles, 
+	 * all combinations of r non-test DiffFiles, each with all test DiffFiles. 
+	 * 
+	 * The first IntermediateRevision is constructed, computing the total 
+	 * delta, and the others are its siblings.
+	 */
+	private class FlipIterator {
+		
+		private final Flip flip;
+		private final Set<DiffFile> nonTestDelta;
+		private final Set<DiffFile> testDelta;
+		
+		private int numChoose;
+		private /*@Nullable*/ CombinationGenerator<DiffFile> combinations;
+		private /*@Nullable*/ IntermediateRevision first;
+		
+		public FlipIterator(Flip flip) {
+			this.flip = flip;
+			
+			Pair<Set<DiffFile>, Set<DiffFile>> res = separateTestFromNonTest(flip.getDiffFiles());
+			nonTestDelta = res.getFirst();
+			testDelta = res.getSecond();
+			
+			numChoose = 0;
+			combinations = null;
+			first = null;
+		}
+		
+		public boolean hasNext() {
+			while (combinations == null || !combinations.hasNext()) {
+				if (numChoose + 1 >= nonTestDelta.size()) {
+					return false;
+				}
+				
+				numChoose++;
+				combinations = new CombinationGenerator<DiffFile>(nonTestDelta, numChoose);
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * @requires hasNext()
+		 */
+		public IntermediateRevision next() throws IOException, InterruptedException {
+			hasNext();
+			
+			Set<DiffFile> combination = combinations.next();
+			combination.addAll(testDelta); // use the latest tests
+			
+			if (first == null) {
+				first = new IntermediateRevision(flip.getParentRevision(), 
+						flip.getChildRevision(), repository, clonedRepository);
+				first.setDelta(combination);
+				
+				return first;
+			}
+			
+			return first.makeSibling(combination);
+		}
+	}
 }
@@ -0,0 +1,51 @@
+package histaroach.algorithm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * OrderedResultWriter accepts results of IntermediateRevisions in any
+ * order and writes them to the output in the order of their indices.
+ *
+ * A result is held back until the results of all IntermediateRevisions
+ * with smaller indices have been written.
+ *
+ * OrderedResultWriter is thread-safe.
+ */
+class OrderedResultWriter {
+
+	private final Writer out;
+	// map: index of IntermediateRevision -> its result not yet written
+	private final Map<Integer, String> pendingResults;
+	private int nextIndex;
+
+	/**
+	 * Creates an OrderedResultWriter whose first result is at startIndex.
+	 */
+	OrderedResultWriter(Writer out, int startIndex) {
+		this.out = out;
+		pendingResults = new HashMap<Integer, String>();
+		nextIndex = startIndex;
+	}
+
+	/**
+	 * Accepts the result of the IntermediateRevision at index, and writes
+	 * out all results that are now in order.
+	 *
+	 * @modifies this, output
+	 * @throws IOException
+	 */
+	synchronized void write(int index, String result) throws IOException {
+		pendingResults.put(index, result);
+
+		while (pendingResults.containsKey(nextIndex)) {
+			out.write(pendingResults.remove(nextIndex));
+			nextIndex++;
+		}
+
+		out.flush();
+	}
+}
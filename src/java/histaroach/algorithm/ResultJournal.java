@@ -0,0 +1,157 @@
+package histaroach.algorithm;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * ResultJournal durably records the result of each IntermediateRevision
+ * as soon as it is known, so that an interrupted run can be resumed
+ * without running the recorded IntermediateRevisions again.
+ *
+ * Each record is the index of an IntermediateRevision, followed by
+ * the length and the UTF-8 bytes of its result, and is forced to disk
+ * before record returns. A record cut short by a crash, or whose
+ * length runs past the end of the journal, is discarded when the
+ * journal is opened again.
+ *
+ * ResultJournal is thread-safe.
+ */
+class ResultJournal {
+
+	private static final String CHARSET = "UTF-8";
+
+	private final File file;
+	// map: index of IntermediateRevision -> its recorded result
+	private final Map<Integer, String> results;
+	private final FileOutputStream fileOut;
+	private final DataOutputStream out;
+
+	/**
+	 * Opens the journal in file, reading the results recorded in it
+	 * if it exists, or creates an empty journal.
+	 *
+	 * @throws IOException
+	 */
+	ResultJournal(File file) throws IOException {
+		this.file = file;
+		results = new HashMap<Integer, String>();
+
+		long validLength = 0;
+
+		if (file.exists()) {
+			validLength = readRecords();
+
+			// drop an incomplete last record
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+			try {
+				raf.setLength(validLength);
+			} finally {
+				raf.close();
+			}
+		}
+
+		fileOut = new FileOutputStream(file, true);
+		out = new DataOutputStream(fileOut);
+	}
+
+	/**
+	 * Reads the complete records of the journal into results.
+	 *
+	 * @modifies this
+	 * @return the length of the complete records.
+	 * @throws IOException
+	 */
+	private long readRecords() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+		long fileLength = file.length();
+		long validLength = 0;
+
+		try {
+			while (true) {
+				int index = in.readInt();
+				int length = in.readInt();
+
+				// a record cut short, or garbled, by a crash: its
+				// length is not to be allocated
+				if (length < 0 || length > fileLength - validLength - 8) {
+					break;
+				}
+
+				byte[] bytes = new byte[length];
+				in.readFully(bytes);
+
+				results.put(index, new String(bytes, CHARSET));
+				validLength += 8 + bytes.length;
+			}
+		} catch (EOFException e) {
+			// end of the journal, or a record cut short
+		} finally {
+			in.close();
+		}
+
+		return validLength;
+	}
+
+	/**
+	 * @return the recorded result of the IntermediateRevision at index,
+	 *         or null if there is none.
+	 */
+	synchronized String getResult(int index) {
+		return results.get(index);
+	}
+
+	/**
+	 * Records the result of the IntermediateRevision at index, and forces
+	 * the journal to disk.
+	 *
+	 * @modifies this, file system
+	 * @throws IOException
+	 */
+	synchronized void record(int index, String result) throws IOException {
+		byte[] bytes = result.getBytes(CHARSET);
+
+		out.writeInt(index);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+		out.flush();
+		fileOut.getFD().sync();
+
+		results.put(index, result);
+	}
+
+	/**
+	 * Closes the journal.
+	 *
+	 * @throws IOException
+	 */
+	synchronized void close() throws IOException {
+		out.close();
+	}
+
+	/**
+	 * Closes and deletes the journal, once all results are in the
+	 * output file.
+	 *
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	synchronized void delete() throws IOException {
+		close();
+
+		if (!file.delete()) {
+			throw new IOException("delete " + file + " unsuccessful");
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package histaroach.algorithm;
+
+import histaroach.model.Revision;
+import histaroach.model.TestResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+
+/**
+ * TestSelector selects the tests to run on the IntermediateRevisions 
+ * of a base-successor pair: the tests that flip between base and 
+ * successor, which are all that Histaroach analysis needs, and a number 
+ * of control tests that do not flip, to catch changes in delta that 
+ * break tests other than the flipped ones. 
+ * 
+ * Control tests are picked at random, seeded by the commit IDs of 
+ * the pair, so that the IntermediateRevisions of a pair run the same 
+ * tests in every run. 
+ * 
+ * TestSelector is immutable.
+ */
+public class TestSelector {
+	
+	private final int numControlTests;
+	
+	/**
+	 * @requires numControlTests >= 0
+	 */
+	public TestSelector(int numControlTests) {
+		this.numControlTests = numControlTests;
+	}
+	
+	/**
+	 * @requires base and successor have TestResults.
+	 * @return the tests of successor that flip between base and successor, 
+	 *         in order, followed by at most numControlTests other tests 
+	 *         of successor, in order.
+	 */
+	public Set<String> selectTests(Revision base, Revision successor) {
+		TestResult baseResult = base.getTestResult();
+		TestResult successorResult = successor.getTestResult();
+		
+		Set<String> flippedTests = new TreeSet<String>(
+				successorResult.getToFailTests(baseResult));
+		flippedTests.addAll(successorResult.getToPassTests(baseResult));
+		
+		List<String> otherTests = new ArrayList<String>(
+				new TreeSet<String>(successorResult.getAllTests()));
+		otherTests.removeAll(flippedTests);
+		
+		long seed = 31L * base.getCommitID().hashCode() 
+			+ successor.getCommitID().hashCode();
+		Collections.shuffle(otherTests, new Random(seed));
+		
+		int numControls = Math.min(numControlTests, otherTests.size());
+		Set<String> controlTests = new TreeSet<String>(
+				otherTests.subList(0, numControls));
+		
+		Set<String> selectedTests = new LinkedHashSet<String>(flippedTests);
+		selectedTests.addAll(controlTests);
+		
+		return selectedTests;
+	}
+	
+	public int getNumControlTests() {
+		return numControlTests;
+	}
+}
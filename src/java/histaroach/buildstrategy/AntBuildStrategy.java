@@ -1,16 +1,21 @@
 package histaroach.buildstrategy;
 
 import histaroach.model.Revision.Compilable;
+import histaroach.model.TestCaseResult;
 import histaroach.model.TestResult;
-import histaroach.util.Pair;
+import histaroach.util.GzipLineArchiver;
+import histaroach.util.JUnitXMLReportReader;
+import histaroach.util.LineMatcher;
+import histaroach.util.LineProcessor;
 import histaroach.util.Util;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 
@@ -31,13 +36,27 @@ public abstract class AntBuildStrategy implements IBuildStrategy, Serializable {
 	 */
 	private static final long serialVersionUID = 5365077245485076752L;
 	
-	private static final String BUILD_SUCCESSFUL_PATTERN = "BUILD SUCCESSFUL";
-	private static final String BUILD_FAILED_PATTERN = "BUILD FAILED";
+	private static final Pattern BUILD_SUCCESSFUL_PATTERN = Pattern.compile("BUILD SUCCESSFUL");
+	private static final Pattern BUILD_FAILED_PATTERN = Pattern.compile("BUILD FAILED");
 	
-	private static final String RUN_COMMAND_SH = "./run_command.sh";
-	private static final String OUTPUT_PATH = "output";
-	private static final String RUN_COMMAND_STDOUT = "run_command_stdout";
-	private static final String RUN_COMMAND_STDERR = "run_command_stderr";
+	private static final Pattern TEST_PATTERN = 
+		Pattern.compile("\\s*\\[junit\\] Running (\\S+)");
+	private static final Pattern FAILED_TEST_PATTERN = 
+		Pattern.compile("\\s*\\[junit\\] Test (\\S+) FAILED");
+	
+	private static final String CLASS_EXTENSION = ".class";
+	
+	private static final String STDOUT_LOG = "stdout" + GzipLineArchiver.GZIP_EXTENSION;
+	private static final String STDERR_LOG = "stderr" + GzipLineArchiver.GZIP_EXTENSION;
+	
+	/**
+	 * The directory under which the output of each run of ant is archived, 
+	 * or null if it is not archived.
+	 */
+	private static volatile File logArchiveDir = null;
+	
+	// distinguishes run directories created in the same second
+	private static final AtomicInteger runCounter = new AtomicInteger();
 	
 	private final File directory;
 	private final String buildCommand;
@@ -61,27 +80,19 @@ public abstract class AntBuildStrategy implements IBuildStrategy, Serializable {
 	
 	@Override
 	public Compilable build() throws IOException, InterruptedException {
-		Pair<List<String>, List<String>> result = run(buildCommand);
-		List<String> outputStreamContent = result.getFirst();
-		List<String> errorStreamContent = result.getSecond();
-		
-		Pattern buildSuccessfulPattern = Pattern.compile(BUILD_SUCCESSFUL_PATTERN);
-	    Pattern buildFailedPattern = Pattern.compile(BUILD_FAILED_PATTERN);
-	
-	    for (String line : outputStreamContent) {
-	        Matcher buildSuccessfulMatcher = buildSuccessfulPattern.matcher(line);
-	        if (buildSuccessfulMatcher.find()) {
-	            return Compilable.YES;
-	        }
-	    }
-	
-	    for (String line : errorStreamContent) {
-	        Matcher buildFailedMatcher = buildFailedPattern.matcher(line);
-	        if (buildFailedMatcher.find()) {
-	            return Compilable.NO;
-	        }
-	    }
-	
+		LineMatcher buildSuccessfulMatcher = new LineMatcher(BUILD_SUCCESSFUL_PATTERN);
+		LineMatcher buildFailedMatcher = new LineMatcher(BUILD_FAILED_PATTERN);
+		
+		run(buildCommand, buildSuccessfulMatcher, buildFailedMatcher);
+		
+		if (buildSuccessfulMatcher.hasMatched()) {
+			return Compilable.YES;
+		}
+		
+		if (buildFailedMatcher.hasMatched()) {
+			return Compilable.NO;
+		}
+		
 	    return Compilable.NO_BUILD_FILE;		
 	}
 	
@@ -91,7 +102,12 @@ public abstract class AntBuildStrategy implements IBuildStrategy, Serializable {
 	}
 	
 	/**
-	 * Runs arbitrary test(s) using testCommand.
+	 * Runs arbitrary test(s) using testCommand. 
+	 * 
+	 * The TestResult is derived from the XML reports that testCommand 
+	 * writes to getTestReportDir(), if any, and otherwise from the 
+	 * lines of its output that ant's junit task prints for each test 
+	 * class, which are matched as they are read.
 	 * 
 	 * @return a TestResult.
 	 * @throws IOException
@@ -99,52 +115,242 @@ public abstract class AntBuildStrategy implements IBuildStrategy, Serializable {
 	 */
 	protected TestResult runTest(String testCommand) throws IOException, 
 			InterruptedException {
-		Pair<List<String>, List<String>> result = run(testCommand);
-		List<String> outputStreamContent = result.getFirst();
-		List<String> errorStreamContent = result.getSecond();
+		File reportDir = getReportDir();
+		
+		if (reportDir != null) {
+			JUnitXMLReportReader.deleteReports(reportDir);
+		}
+		
+		LineMatcher testMatcher = new LineMatcher(TEST_PATTERN);
+		LineMatcher failedTestMatcher = new LineMatcher(FAILED_TEST_PATTERN);
 		
-		return getTestResult(outputStreamContent, errorStreamContent);
+		run(testCommand, testMatcher, failedTestMatcher);
+		
+		if (reportDir != null && JUnitXMLReportReader.listReports(reportDir).length > 0) {
+			return JUnitXMLReportReader.toTestResult(
+					JUnitXMLReportReader.readReports(reportDir));
+		}
+		
+		return new TestResult(testMatcher.getGroups(), failedTestMatcher.getGroups());
 	}
 	
 	/**
-	 * Parses test result(s) from output and error streams.
+	 * Reads the XML reports of the last run of the test target, or of 
+	 * runSingleTest() if it runs a test target.
 	 * 
-	 * @return a TestResult.
+	 * @return a TestCaseResult of each test method run, with its duration 
+	 *         and failure type; an empty list if the project writes no 
+	 *         XML reports.
+	 * @throws IOException
 	 */
-	protected abstract TestResult getTestResult(List<String> outputStreamContent, 
-			List<String> errorStreamContent);
-
+	public List<TestCaseResult> getTestCaseResults() throws IOException {
+		File reportDir = getReportDir();
+		
+		if (reportDir == null) {
+			return new ArrayList<TestCaseResult>();
+		}
+		
+		return JUnitXMLReportReader.readReports(reportDir);
+	}
+	
+	private File getReportDir() {
+		String testReportDir = getTestReportDir();
+		return testReportDir == null ? null : new File(directory, testReportDir);
+	}
+	
+	/**
+	 * Runs the tests in testNames in one JVM, forked with the classpath 
+	 * of getTestClasspath(), rather than with the test target.
+	 */
+	@Override
+	public TestResult runTests(Collection<String> testNames) throws IOException, 
+			InterruptedException {
+		return runTests(testNames, 1).get(0);
+	}
+	
+	/**
+	 * Runs the tests in testNames repetitions times in one JVM, forked 
+	 * in directory by JUnitBatchRunner with the classpath of 
+	 * getTestClasspath(), so that neither ant nor a JVM is started per 
+	 * test or repetition. 
+	 * 
+	 * @requires the project has been built.
+	 */
+	@Override
+	public List<TestResult> runTests(Collection<String> testNames, int repetitions) 
+			throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(new File(new File(System.getProperty("java.home"), "bin"), 
+				"java").getPath());
+		command.add("-cp");
+		command.add(JUnitBatchRunner.getClasspath(directory, getTestClasspath()));
+		command.add(JUnitBatchRunner.class.getName());
+		command.add(Integer.toString(repetitions));
+		command.addAll(testNames);
+		
+		BatchResults batchResults = new BatchResults(repetitions);
+		Util.runProcess(command.toArray(new String[command.size()]), directory, 
+				batchResults, null);
+		
+		return batchResults.getTestResults();
+	}
+	
+	/**
+	 * @return the directories and jar files, relative to the project 
+	 *         directory, of the compiled classes and tests of the project 
+	 *         and of their dependencies. An entry may end in "*" for all 
+	 *         jar files in a directory.
+	 */
+	protected abstract String[] getTestClasspath();
+	
+	/**
+	 * @return the directory, relative to the project directory, that 
+	 *         the test target writes JUnit XML reports to, or null if 
+	 *         it writes none.
+	 */
+	protected abstract String getTestReportDir();
+	
+	/**
+	 * @return the directory, relative to the project directory, that 
+	 *         the build target compiles the tests into.
+	 */
+	protected abstract String getTestClassDir();
+	
+	/**
+	 * @return true if the class of simpleName, compiled into 
+	 *         getTestClassDir(), is a test class the test target runs.
+	 */
+	protected abstract boolean isTestClass(String simpleName);
+	
+	/**
+	 * Finds the test classes in getTestClassDir(), leaving out 
+	 * nested classes.
+	 */
+	@Override
+	public List<String> getTestNames() {
+		List<String> testNames = new ArrayList<String>();
+		findTestClasses(new File(directory, getTestClassDir()), "", testNames);
+		
+		return testNames;
+	}
+	
 	/**
-	 * Runs the command.
+	 * Finds the test classes in dir, whose names start with packagePrefix.
+	 * 
+	 * @modifies testNames
+	 */
+	private void findTestClasses(File dir, String packagePrefix, 
+			Collection<String> testNames) {
+		File[] files = dir.listFiles();
+		
+		if (files == null) {
+			return;
+		}
+		
+		for (File file : files) {
+			String name = file.getName();
+			
+			if (file.isDirectory()) {
+				findTestClasses(file, packagePrefix + name + ".", testNames);
+			} else if (name.endsWith(CLASS_EXTENSION) && name.indexOf('$') < 0) {
+				String simpleName = name.substring(0, 
+						name.length() - CLASS_EXTENSION.length());
+				
+				if (isTestClass(simpleName)) {
+					testNames.add(packagePrefix + simpleName);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Runs command in directory, feeding its output and error streams 
+	 * to outputProcessor and errorProcessor as they are read, and 
+	 * archiving them if logArchiveDir is set.
 	 * 
-	 * @return outputStreamContent and errorStreamContent of the command.
 	 * @throws IOException
 	 * @throws InterruptedException
 	 */
-	private Pair<List<String>, List<String>> run(String command) 
-			throws IOException, InterruptedException {
-    	File workingDir = new File(System.getProperty("user.dir"));
-    	File outputDir = new File(workingDir, OUTPUT_PATH);
-    	outputDir.mkdir();
-    	
-    	File stdOutFile = new File(outputDir, RUN_COMMAND_STDOUT);
-    	File stdErrFile = new File(outputDir, RUN_COMMAND_STDERR);
-    	stdOutFile.createNewFile();
-    	stdErrFile.createNewFile();
-    	
-    	String[] runScriptCommand = new String[] { RUN_COMMAND_SH, directory.getPath(), 
-    			command, stdOutFile.getPath(), stdErrFile.getPath(), };
-    	    	
-        Util.runProcess(runScriptCommand, workingDir);
-        
-        FileInputStream stdOutStream = new FileInputStream(stdOutFile);
-        FileInputStream stdErrStream = new FileInputStream(stdErrFile);
-        
-        List<String> outputStreamContent = Util.getInputStreamContent(stdOutStream);
-        List<String> errorStreamContent = Util.getInputStreamContent(stdErrStream);
-        
-        return new Pair<List<String>, List<String>>(outputStreamContent, 
-        		errorStreamContent);
+	private void run(String command, LineProcessor outputProcessor, 
+			LineProcessor errorProcessor) throws IOException, InterruptedException {
+		String[] commandArray = command.split(Util.SINGLE_SPACE_CHAR);
+		File archiveDir = logArchiveDir;
+		
+		if (archiveDir == null) {
+			Util.runProcess(commandArray, directory, outputProcessor, errorProcessor);
+			return;
+		}
+		
+		File runDir = createRunDir(archiveDir);
+		GzipLineArchiver outputArchiver = new GzipLineArchiver(new File(runDir, STDOUT_LOG));
+		GzipLineArchiver errorArchiver = null;
+		
+		try {
+			errorArchiver = new GzipLineArchiver(new File(runDir, STDERR_LOG));
+			
+			Util.runProcess(commandArray, directory, 
+					tee(outputProcessor, outputArchiver), 
+					tee(errorProcessor, errorArchiver));
+		} finally {
+			outputArchiver.close();
+			
+			if (errorArchiver != null) {
+				errorArchiver.close();
+			}
+		}
+	}
+	
+	/**
+	 * Creates a directory of its own under archiveDir for the logs of 
+	 * a run, named after the project directory, the time and a counter.
+	 * 
+	 * @return the directory.
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	private File createRunDir(File archiveDir) throws IOException {
+		archiveDir.mkdirs();
+		
+		String prefix = directory.getAbsoluteFile().getName() + "_" 
+			+ Util.getCurrentTimeStamp() + "_";
+		
+		// mkdir() fails if another run, maybe of another process, made it
+		while (true) {
+			File runDir = new File(archiveDir, prefix + runCounter.incrementAndGet());
+			
+			if (runDir.mkdir()) {
+				return runDir;
+			}
+			
+			if (!archiveDir.isDirectory()) {
+				throw new IOException("create " + archiveDir + " unsuccessful");
+			}
+		}
+	}
+	
+	/**
+	 * @return a LineProcessor that feeds each line to first and second.
+	 */
+	private static LineProcessor tee(final LineProcessor first, 
+			final LineProcessor second) {
+		return new LineProcessor() {
+			@Override
+			public boolean processLine(String line) {
+				boolean continueFirst = first.processLine(line);
+				boolean continueSecond = second.processLine(line);
+				
+				return continueFirst && continueSecond;
+			}
+		};
+	}
+	
+	/**
+	 * Sets the directory under which the output and error streams of 
+	 * each run of ant are archived, gzip-compressed, in a directory of 
+	 * their own; null to not archive them.
+	 */
+	public static void setLogArchiveDir(File dir) {
+		logArchiveDir = dir;
 	}
 	
 	@Override
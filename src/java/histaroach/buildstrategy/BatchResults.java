@@ -0,0 +1,73 @@
+package histaroach.buildstrategy;
+
+import histaroach.model.TestResult;
+import histaroach.util.LineProcessor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * BatchResults collects the result lines that JUnitBatchRunner prints 
+ * into a TestResult of each repetition. Other lines are ignored.
+ */
+class BatchResults implements LineProcessor {
+	
+	private final List<Set<String>> allTests;
+	private final List<Set<String>> failedTests;
+	
+	BatchResults(int repetitions) {
+		allTests = new ArrayList<Set<String>>();
+		failedTests = new ArrayList<Set<String>>();
+		
+		for (int r = 0; r < repetitions; r++) {
+			allTests.add(new HashSet<String>());
+			failedTests.add(new HashSet<String>());
+		}
+	}
+	
+	/**
+	 * @return true if line is a result line of JUnitBatchRunner.
+	 */
+	static boolean isResultLine(String line) {
+		return line.startsWith(JUnitBatchRunner.RESULT_PREFIX + " ");
+	}
+	
+	@Override
+	public boolean processLine(String line) {
+		if (!isResultLine(line)) {
+			return true;
+		}
+		
+		// RESULT_PREFIX repetition PASS|FAIL testName
+		String[] fields = line.split(" ");
+		
+		if (fields.length != 4) {
+			return true;
+		}
+		
+		int r = Integer.parseInt(fields[1]);
+		allTests.get(r).add(fields[3]);
+		
+		if (fields[2].equals(JUnitBatchRunner.FAIL)) {
+			failedTests.get(r).add(fields[3]);
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return a TestResult of each repetition, in order.
+	 */
+	List<TestResult> getTestResults() {
+		List<TestResult> testResults = new ArrayList<TestResult>();
+		
+		for (int r = 0; r < allTests.size(); r++) {
+			testResults.add(new TestResult(allTests.get(r), failedTests.get(r)));
+		}
+		
+		return testResults;
+	}
+}
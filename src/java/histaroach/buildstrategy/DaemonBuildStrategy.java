@@ -0,0 +1,134 @@
+package histaroach.buildstrategy;
+
+import histaroach.model.DiffFile;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * DaemonBuildStrategy wraps the BuildStrategy of a project to run 
+ * tests in a WarmTestRunner, whose JVM is started once and loads the 
+ * compiled classes of each request in a fresh class loader, rather 
+ * than in a JVM forked for each request. 
+ * 
+ * Building is left to the wrapped BuildStrategy, which also finds 
+ * the test classes to run when all tests are run. 
+ * 
+ * The WarmTestRunner of DaemonBuildStrategy is not serialized.
+ */
+public class DaemonBuildStrategy implements IBuildStrategy, Serializable {
+	
+	/**
+	 * serial version ID
+	 */
+	private static final long serialVersionUID = -3954150457204335169L;
+	
+	private final IBuildStrategy buildStrategy;
+	private final File directory;
+	private final String[] testClasspath;
+	
+	private transient WarmTestRunner testRunner;
+	
+	/**
+	 * Creates a DaemonBuildStrategy.
+	 * 
+	 * @param buildStrategy - BuildStrategy of the project in directory.
+	 * @param testClasspath - directories and jar files, relative to 
+	 *        directory, that the tests run with. An entry ending in "*" 
+	 *        stands for the jar files in its directory.
+	 */
+	public DaemonBuildStrategy(IBuildStrategy buildStrategy, File directory, 
+			String[] testClasspath) {
+		this.buildStrategy = buildStrategy;
+		this.directory = directory;
+		this.testClasspath = testClasspath;
+	}
+	
+	@Override
+	public Compilable build() throws IOException, InterruptedException {
+		return buildStrategy.build();
+	}
+	
+	/**
+	 * Runs the test classes of the wrapped BuildStrategy in the 
+	 * WarmTestRunner, rather than its test target.
+	 * 
+	 * @requires the project has been built.
+	 */
+	@Override
+	public TestResult runTest() throws IOException, InterruptedException {
+		return runTests(getTestNames());
+	}
+	
+	@Override
+	public List<String> getTestNames() throws IOException {
+		return buildStrategy.getTestNames();
+	}
+	
+	@Override
+	public TestResult runTests(Collection<String> testNames) throws IOException, 
+			InterruptedException {
+		return runTests(testNames, 1).get(0);
+	}
+	
+	/**
+	 * @requires the project has been built.
+	 */
+	@Override
+	public synchronized List<TestResult> runTests(Collection<String> testNames, 
+			int repetitions) throws IOException, InterruptedException {
+		if (testRunner == null) {
+			testRunner = new WarmTestRunner(directory);
+		}
+		
+		return testRunner.runTests(testClasspath, testNames, repetitions);
+	}
+	
+	@Override
+	public boolean runSingleTest(String testname) throws IOException, 
+			InterruptedException {
+		TestResult testResult = runTests(Collections.singleton(testname));
+		return testResult.pass(testname);
+	}
+	
+	@Override
+	public boolean isTestFile(DiffFile diffFile) {
+		return buildStrategy.isTestFile(diffFile);
+	}
+	
+	/**
+	 * Kills the daemon of the WarmTestRunner, if it is running.
+	 */
+	public synchronized void stop() {
+		if (testRunner != null) {
+			testRunner.stop();
+		}
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || !other.getClass().equals(this.getClass())) {
+            return false;
+        }
+		
+		DaemonBuildStrategy buildStrategy = (DaemonBuildStrategy) other;
+		
+        return this.buildStrategy.equals(buildStrategy.buildStrategy) 
+        		&& directory.equals(buildStrategy.directory) 
+        		&& Arrays.equals(testClasspath, buildStrategy.testClasspath);
+	}
+	
+	@Override
+	public int hashCode() {
+		return 11 * buildStrategy.hashCode() + 13 * directory.hashCode() 
+			+ 17 * Arrays.hashCode(testClasspath);
+	}
+}
@@ -5,6 +5,8 @@ import histaroach.model.Revision.Compilable;
 import histaroach.model.TestResult;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -31,6 +33,38 @@ public interface IBuildStrategy {
      */
 	public TestResult runTest() throws IOException, InterruptedException;
 	
+	/**
+	 * Finds the test classes of the project, as they are named when 
+	 * passed to runTests(testNames).
+	 * 
+	 * @requires the project has been built.
+	 * @return the names of the test classes.
+	 * @throws IOException 
+	 */
+	public List<String> getTestNames() throws IOException;
+	
+	/**
+	 * Runs the tests in testNames, rather than all tests, and parses 
+	 * the test results. Tests not in testNames may be run as well, 
+	 * if the project cannot run them separately.
+	 * 
+	 * @return a TestResult.
+	 * @throws InterruptedException 
+	 * @throws IOException 
+	 */
+	public TestResult runTests(Collection<String> testNames) 
+			throws IOException, InterruptedException;
+	
+	/**
+	 * Runs the tests in testNames repetitions times, in a single process.
+	 * 
+	 * @return a TestResult of each repetition, in order.
+	 * @throws InterruptedException 
+	 * @throws IOException 
+	 */
+	public List<TestResult> runTests(Collection<String> testNames, int repetitions) 
+			throws IOException, InterruptedException;
+	
 	/**
 	 * Runs a single test.
 	 * 
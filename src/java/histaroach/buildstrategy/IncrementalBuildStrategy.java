@@ -0,0 +1,392 @@
+package histaroach.buildstrategy;
+
+import histaroach.model.DiffFile;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+import histaroach.util.ClassFile;
+import histaroach.util.GitDirectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+
+/**
+ * IncrementalBuildStrategy wraps the BuildStrategy of a project whose
+ * compiler only compiles source files that are newer than their class
+ * files, like ant's javac task.
+ *
+ * It keeps the compiled output of the last successful build in the
+ * class directories, along with the source files it was compiled from
+ * and the classes each class extends, implements and refers to. On the
+ * next build, it deletes the class files of the source files changed
+ * since then, and of their subtypes at any depth, whose inherited
+ * members may have changed, and of the classes that refer to any of
+ * those, so that the wrapped BuildStrategy recompiles only those.
+ * Files are compared by content, since their modification times may
+ * not tell apart changes made within the same second. Without this information, ie. on the first
+ * build or after a failed full build, it deletes all class files and
+ * lets the wrapped BuildStrategy compile everything.
+ *
+ * As with ant's depend task, compile-time constants inlined into
+ * other classes are not tracked.
+ *
+ * The state of IncrementalBuildStrategy is not serialized.
+ */
+public class IncrementalBuildStrategy implements IBuildStrategy, Serializable {
+
+	/**
+	 * serial version ID
+	 */
+	private static final long serialVersionUID = 2718020443934870761L;
+
+	private static final String SOURCE_EXTENSION = ".java";
+
+	private final IBuildStrategy buildStrategy;
+	private final File directory;
+	private final String[] sourceDirs;
+	private final String[] classDirs;
+
+	// source path relative to a source directory -> content fingerprint,
+	// as of the last successful build; null if unknown
+	private transient Map<String, String> sourceFingerprints;
+	// class file path relative to directory -> ClassRecord,
+	// as of the last successful build; null if unknown
+	private transient Map<String, ClassRecord> classRecords;
+
+	/**
+	 * Creates an IncrementalBuildStrategy.
+	 *
+	 * @param buildStrategy - BuildStrategy of the project in directory.
+	 * @param sourceDirs - directories of source files, relative to directory.
+	 * @param classDirs - directories the source files are compiled into,
+	 *        relative to directory.
+	 */
+	public IncrementalBuildStrategy(IBuildStrategy buildStrategy, File directory,
+			String[] sourceDirs, String[] classDirs) {
+		this.buildStrategy = buildStrategy;
+		this.directory = directory;
+		this.sourceDirs = sourceDirs;
+		this.classDirs = classDirs;
+	}
+
+	@Override
+	public Compilable build() throws IOException, InterruptedException {
+		if (sourceFingerprints == null || classRecords == null) {
+			return fullBuild();
+		}
+
+		Map<String, String> fingerprints = getSourceFingerprints();
+
+		Set<String> changedSources = new HashSet<String>();
+
+		for (Map.Entry<String, String> entry : fingerprints.entrySet()) {
+			if (!entry.getValue().equals(sourceFingerprints.get(entry.getKey()))) {
+				changedSources.add(entry.getKey());
+			}
+		}
+
+		for (String source : sourceFingerprints.keySet()) {
+			if (!fingerprints.containsKey(source)) {
+				changedSources.add(source);
+			}
+		}
+
+		Set<String> staleClassFiles = new HashSet<String>();
+
+		// class files that are not as the last successful build left them,
+		// eg. written by a failed build since
+		for (Map.Entry<String, File> entry : getClassFiles().entrySet()) {
+			ClassRecord record = classRecords.get(entry.getKey());
+
+			if (record == null || !record.isUpToDate(entry.getValue())) {
+				staleClassFiles.add(entry.getKey());
+			}
+		}
+
+		Set<String> changedClassNames = new HashSet<String>();
+
+		Map<String, Set<String>> subtypeClassFiles = new HashMap<String, Set<String>>();
+		Queue<String> queue = new LinkedList<String>();
+
+		for (Map.Entry<String, ClassRecord> entry : classRecords.entrySet()) {
+			ClassFile classFile = entry.getValue().classFile;
+
+			if (changedSources.contains(classFile.getSourcePath())) {
+				staleClassFiles.add(entry.getKey());
+				changedClassNames.add(classFile.getClassName());
+				queue.add(classFile.getClassName());
+			}
+
+			for (String supertypeName : classFile.getSupertypeNames()) {
+				Set<String> subtypes = subtypeClassFiles.get(supertypeName);
+
+				if (subtypes == null) {
+					subtypes = new HashSet<String>();
+					subtypeClassFiles.put(supertypeName, subtypes);
+				}
+
+				subtypes.add(entry.getKey());
+			}
+		}
+
+		// a subtype inherits the changes of its supertypes,
+		// eg. a new abstract method, without naming them
+		while (!queue.isEmpty()) {
+			Set<String> subtypes = subtypeClassFiles.get(queue.remove());
+
+			if (subtypes == null) {
+				continue;
+			}
+
+			for (String subtype : subtypes) {
+				String className = classRecords.get(subtype).classFile.getClassName();
+
+				if (changedClassNames.add(className)) {
+					staleClassFiles.add(subtype);
+					queue.add(className);
+				}
+			}
+		}
+
+		for (Map.Entry<String, ClassRecord> entry : classRecords.entrySet()) {
+			Set<String> referencedClassNames =
+				entry.getValue().classFile.getReferencedClassNames();
+
+			for (String className : changedClassNames) {
+				if (referencedClassNames.contains(className)) {
+					staleClassFiles.add(entry.getKey());
+					break;
+				}
+			}
+		}
+
+		for (String classFile : staleClassFiles) {
+			new File(directory, classFile).delete();
+		}
+
+		Compilable compilable = buildStrategy.build();
+
+		// otherwise, the next build starts over from the last successful one
+		if (compilable == Compilable.YES) {
+			record(fingerprints);
+		}
+
+		return compilable;
+	}
+
+	/**
+	 * Deletes all class files and compiles the project from scratch.
+	 *
+	 * @return a Compilable state.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private Compilable fullBuild() throws IOException, InterruptedException {
+		Map<String, String> fingerprints = getSourceFingerprints();
+
+		for (File classFile : getClassFiles().values()) {
+			classFile.delete();
+		}
+
+		Compilable compilable = buildStrategy.build();
+
+		if (compilable == Compilable.YES) {
+			record(fingerprints);
+		} else {
+			sourceFingerprints = null;
+			classRecords = null;
+		}
+
+		return compilable;
+	}
+
+	/**
+	 * Records fingerprints and the class files of a successful build,
+	 * reading only the class files that have changed since the last record.
+	 *
+	 * @modifies this
+	 * @throws IOException
+	 */
+	private void record(Map<String, String> fingerprints) throws IOException {
+		Map<String, ClassRecord> records = new HashMap<String, ClassRecord>();
+
+		for (Map.Entry<String, File> entry : getClassFiles().entrySet()) {
+			File file = entry.getValue();
+			ClassRecord record = classRecords == null ? null
+					: classRecords.get(entry.getKey());
+
+			if (record == null || !record.isUpToDate(file)) {
+				record = new ClassRecord(file, ClassFile.read(file));
+
+				if (record.classFile.getSourcePath() == null) {
+					// compiled without debug information,
+					// classes cannot be traced to their source files
+					sourceFingerprints = null;
+					classRecords = null;
+					return;
+				}
+			}
+
+			records.put(entry.getKey(), record);
+		}
+
+		sourceFingerprints = fingerprints;
+		classRecords = records;
+	}
+
+	/**
+	 * @return a map from path relative to a source directory to
+	 *         fingerprint of the content, of all source files.
+	 * @throws IOException
+	 */
+	private Map<String, String> getSourceFingerprints() throws IOException {
+		Map<String, File> sourceFiles = new HashMap<String, File>();
+		Map<String, String> fingerprints = new HashMap<String, String>();
+
+		for (String sourceDir : sourceDirs) {
+			sourceFiles.clear();
+			listFiles(new File(directory, sourceDir), "", SOURCE_EXTENSION,
+					sourceFiles);
+
+			for (Map.Entry<String, File> entry : sourceFiles.entrySet()) {
+				File file = entry.getValue();
+				String fingerprint = GitDirectory.hashBlob(file);
+				String other = fingerprints.get(entry.getKey());
+
+				// the same path in several source directories
+				if (other != null) {
+					fingerprint = other + "," + fingerprint;
+				}
+
+				fingerprints.put(entry.getKey(), fingerprint);
+			}
+		}
+
+		return fingerprints;
+	}
+
+	/**
+	 * @return a map from path relative to directory to file,
+	 *         of all class files in the class directories.
+	 */
+	private Map<String, File> getClassFiles() {
+		Map<String, File> classFiles = new HashMap<String, File>();
+
+		for (String classDir : classDirs) {
+			listFiles(new File(directory, classDir), classDir + "/",
+					ClassFile.CLASS_EXTENSION, classFiles);
+		}
+
+		return classFiles;
+	}
+
+	/**
+	 * Adds the files in dir and its subdirectories whose names end with
+	 * extension, keyed by their path relative to dir, prefixed with prefix.
+	 *
+	 * @modifies files
+	 */
+	private static void listFiles(File dir, String prefix, String extension,
+			Map<String, File> files) {
+		File[] children = dir.listFiles();
+
+		if (children == null) {
+			return;
+		}
+
+		for (File child : children) {
+			String path = prefix + child.getName();
+
+			if (child.isDirectory()) {
+				listFiles(child, path + "/", extension, files);
+			} else if (child.getName().endsWith(extension)) {
+				files.put(path, child);
+			}
+		}
+	}
+
+	@Override
+	public TestResult runTest() throws IOException, InterruptedException {
+		return buildStrategy.runTest();
+	}
+
+	@Override
+	public List<String> getTestNames() throws IOException {
+		return buildStrategy.getTestNames();
+	}
+
+	@Override
+	public TestResult runTests(Collection<String> testNames) throws IOException,
+			InterruptedException {
+		return buildStrategy.runTests(testNames);
+	}
+
+	@Override
+	public List<TestResult> runTests(Collection<String> testNames, int repetitions)
+			throws IOException, InterruptedException {
+		return buildStrategy.runTests(testNames, repetitions);
+	}
+
+	@Override
+	public boolean runSingleTest(String testname) throws IOException,
+			InterruptedException {
+		return buildStrategy.runSingleTest(testname);
+	}
+
+	@Override
+	public boolean isTestFile(DiffFile diffFile) {
+		return buildStrategy.isTestFile(diffFile);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || !other.getClass().equals(this.getClass())) {
+            return false;
+        }
+
+		IncrementalBuildStrategy buildStrategy = (IncrementalBuildStrategy) other;
+
+        return this.buildStrategy.equals(buildStrategy.buildStrategy)
+        		&& directory.equals(buildStrategy.directory)
+        		&& Arrays.equals(sourceDirs, buildStrategy.sourceDirs)
+        		&& Arrays.equals(classDirs, buildStrategy.classDirs);
+	}
+
+	@Override
+	public int hashCode() {
+		return 11 * buildStrategy.hashCode() + 13 * directory.hashCode()
+			+ 17 * Arrays.hashCode(sourceDirs) + 19 * Arrays.hashCode(classDirs);
+	}
+
+	/**
+	 * ClassRecord is a class file as of the last successful build.
+	 */
+	private static final class ClassRecord {
+
+		private final String fingerprint;
+		private final ClassFile classFile;
+
+		ClassRecord(File file, ClassFile classFile) throws IOException {
+			this.fingerprint = GitDirectory.hashBlob(file);
+			this.classFile = classFile;
+		}
+
+		/**
+		 * @return true if the content of file has not changed since this record.
+		 * @throws IOException
+		 */
+		boolean isUpToDate(File file) throws IOException {
+			return fingerprint.equals(GitDirectory.hashBlob(file));
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package histaroach.buildstrategy;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.Request;
+import org.junit.runner.Result;
+
+
+/**
+ * JUnitBatchRunner runs test classes a number of times in the JVM it is 
+ * started in, which AntBuildStrategy forks with the classpath of 
+ * a project, so that the JVM is started and the classes are loaded once 
+ * for all tests and repetitions. TestRunnerDaemon runs it in a class 
+ * loader of the classpath instead. 
+ * 
+ * Command line usage: JUnitBatchRunner repetitions testName... 
+ * 
+ * For each repetition and each test class, a line 
+ * "RESULT_PREFIX repetition PASS|FAIL testName" is printed to the 
+ * standard output stream. Test classes that cannot be loaded, and 
+ * abstract ones, have no line.
+ */
+public class JUnitBatchRunner {
+	
+	/**
+	 * Starts the lines of results, to tell them from the output of tests.
+	 */
+	public static final String RESULT_PREFIX = "@@histaroach@@";
+	
+	public static final String PASS = "PASS";
+	public static final String FAIL = "FAIL";
+	
+	/**
+	 * Initial program entrance -- runs the tests.
+	 * 
+	 * @param args - repetitions followed by test names.
+	 */
+	public static void main(String[] args) {
+		int repetitions = Integer.parseInt(args[0]);
+		List<String> testNames = Arrays.asList(args).subList(1, args.length);
+		
+		runTests(repetitions, testNames, System.out);
+		
+		// tests may leave non-daemon threads running
+		System.exit(0);
+	}
+	
+	/**
+	 * Runs the test classes of testNames repetitions times, loading them 
+	 * with the class loader of JUnitBatchRunner, and prints a result 
+	 * line of each run to out.
+	 */
+	public static void runTests(int repetitions, List<String> testNames, 
+			PrintStream out) {
+		List<Class<?>> testClasses = new ArrayList<Class<?>>();
+		
+		for (String testName : testNames) {
+			try {
+				Class<?> testClass = Class.forName(testName);
+				
+				// base classes of tests, named as tests, cannot be run
+				if (Modifier.isAbstract(testClass.getModifiers())) {
+					System.err.println("test " + testName + " is abstract");
+					continue;
+				}
+				
+				testClasses.add(testClass);
+			} catch (ClassNotFoundException e) {
+				System.err.println("test " + testName + " not found");
+			} catch (LinkageError e) {
+				System.err.println("test " + testName + " cannot be loaded: " + e);
+			}
+		}
+		
+		JUnitCore core = new JUnitCore();
+		
+		for (int r = 0; r < repetitions; r++) {
+			for (Class<?> testClass : testClasses) {
+				Result result = core.run(Request.aClass(testClass));
+				
+				// out rather than System.out, which tests may replace
+				out.println(RESULT_PREFIX + " " + r + " " 
+						+ (result.wasSuccessful() ? PASS : FAIL) + " " 
+						+ testClass.getName());
+				out.flush();
+			}
+		}
+	}
+	
+	/**
+	 * @return the absolute paths of the entries of testClasspath, which are 
+	 *         relative to directory, followed by the locations of 
+	 *         JUnitBatchRunner and of JUnit, in case the project does not 
+	 *         have them, separated by File.pathSeparator.
+	 */
+	public static String getClasspath(File directory, String[] testClasspath) {
+		String classpath = "";
+		
+		for (String entry : testClasspath) {
+			classpath += new File(directory, entry).getAbsolutePath() + File.pathSeparator;
+		}
+		
+		classpath += getLocation(JUnitBatchRunner.class) + File.pathSeparator;
+		classpath += getLocation(JUnitCore.class);
+		
+		return classpath;
+	}
+	
+	/**
+	 * @return the directory or jar file that c was loaded from.
+	 */
+	static String getLocation(Class<?> c) {
+		try {
+			return new File(c.getProtectionDomain().getCodeSource().getLocation()
+					.toURI()).getPath();
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -1,16 +1,22 @@
 package histaroach.buildstrategy;
 
 import histaroach.model.DiffFile;
+import histaroach.model.Revision.Compilable;
 import histaroach.model.TestResult;
 import histaroach.util.Util;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 
 /**
  * JodatimeBuildStrateygy is for joda-time project.
+ * 
+ * The test target of joda-time runs its test suites with its own runner, 
+ * which prints neither ant's junit lines nor XML reports. The test 
+ * classes are run by JUnitBatchRunner instead, each reported on its own.
  */
 public class JodatimeBuildStrateygy extends AntBuildStrategy {
 
@@ -25,6 +31,28 @@ public class JodatimeBuildStrateygy extends AntBuildStrategy {
 	private static final String BUILD_TARGET_NAME = "compile.tests test.time";
 	private static final String TEST_TARGET_NAME = "test";
 	
+	private static final String TEST_DIR = "src/test/";
+	
+	// test classes are named Test*, and test suites TestAll*
+	private static final String TEST_CLASS_PREFIX = "Test";
+	private static final String TEST_SUITE_PREFIX = "TestAll";
+	
+	/**
+	 * Directories of source files and test files, for IncrementalBuildStrategy.
+	 */
+	public static final String[] SOURCE_DIRS = { "src/java", "src/test" };
+	
+	/**
+	 * Directories the build targets compile into, for IncrementalBuildStrategy.
+	 */
+	public static final String[] CLASS_DIRS = { "build/classes", "build/tests" };
+	
+	/**
+	 * Directories and jar files the tests run with, for DaemonBuildStrategy.
+	 */
+	public static final String[] TEST_CLASSPATH = { "build/classes", "build/tests", 
+		"src/test", "lib/*" };
+	
 	private final File directory;
 	
 	/**
@@ -36,20 +64,27 @@ public class JodatimeBuildStrateygy extends AntBuildStrategy {
 		this.directory = directory;
 	}
 	
+	/**
+	 * The build target runs test.time as well, whose failing tests 
+	 * must not fail the build.
+	 */
 	@Override
-	public TestResult runTest() throws IOException, InterruptedException {
+	public Compilable build() throws IOException, InterruptedException {
 		ensureNoHaltOnFailure();
-		TestResult testResult = super.runTest();
-		return testResult;
+		return super.build();
 	}
 	
+	/**
+	 * Runs every test class compiled into the test class directory, 
+	 * but not the test suites, which only run the other test classes.
+	 * 
+	 * @requires the project has been built.
+	 */
 	@Override
-	protected TestResult getTestResult(List<String> outputStreamContent, 
-			List<String> errorStreamContent) {
-		// TODO Auto-generated method stub
-		return null;
+	public TestResult runTest() throws IOException, InterruptedException {
+		return runTests(getTestNames());
 	}
-
+	
 	/**
 	 * Ensures haltonfailure="no" in build.xml.
 	 * 
@@ -66,15 +101,43 @@ public class JodatimeBuildStrateygy extends AntBuildStrategy {
 
 	@Override
 	public boolean isTestFile(DiffFile diffFile) {
-		// TODO Auto-generated method stub
-		return false;
+		return diffFile.getFileName().startsWith(TEST_DIR);
+	}
+
+	@Override
+	protected String[] getTestClasspath() {
+		return TEST_CLASSPATH;
+	}
+
+	/**
+	 * The test target is not run, see runTest().
+	 */
+	@Override
+	protected String getTestReportDir() {
+		return null;
 	}
 
+	@Override
+	protected String getTestClassDir() {
+		return CLASS_DIRS[1];
+	}
+
+	@Override
+	protected boolean isTestClass(String simpleName) {
+		return simpleName.startsWith(TEST_CLASS_PREFIX) 
+			&& !simpleName.startsWith(TEST_SUITE_PREFIX);
+	}
+
+	/**
+	 * Runs testname in a JVM of its own, as the test target runs all tests.
+	 */
 	@Override
 	public boolean runSingleTest(String testname) throws IOException,
 			InterruptedException {
-		// TODO Auto-generated method stub
-		return false;
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(testname);
+		
+		return runTests(testNames, 1).get(0).pass(testname);
 	}
 
 }
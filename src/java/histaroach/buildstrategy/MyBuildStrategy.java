@@ -1,15 +1,11 @@
 package histaroach.buildstrategy;
 
 import histaroach.model.DiffFile;
-import histaroach.model.TestResult;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
@@ -22,56 +18,57 @@ public class MyBuildStrategy extends AntBuildStrategy {
 	 */
 	private static final long serialVersionUID = -5588843108793112280L;
 	
-	private static final String TEST_PATTERN = "\\s*\\[junit\\] Running (\\S+)";
-	private static final String FAILED_TEST_PATTERN = "\\s*\\[junit\\] Test (\\S+) FAILED";
-	
 	private static final String BUILD_TARGET_NAME = "build";
 	private static final String TEST_TARGET_NAME = "junit";
 	
 	private static final String TEST_FILE_SUFFIX = "Test.java";
+	private static final String TEST_CLASS_SUFFIX = "Test";
+	
+	// where the test target writes JUnit XML reports
+	private static final String TEST_REPORT_DIR = "junit_output";
+	
+	/**
+	 * Directories and jar files the tests run with, for DaemonBuildStrategy. 
+	 * JUnit is added by runTests.
+	 */
+	public static final String[] TEST_CLASSPATH = { "bin" };
 	
 	public MyBuildStrategy(File directory, String antCommand) {
 		super(directory, antCommand, BUILD_TARGET_NAME, TEST_TARGET_NAME);
 	}
 
 	@Override
-	protected TestResult getTestResult(List<String> outputStreamContent, 
-			List<String> errorStreamContent) {
-		Set<String> allTests = new HashSet<String>();
-		Set<String> failedTests = new HashSet<String>();
-		
-		Pattern testPattern = Pattern.compile(TEST_PATTERN);
-		Pattern failedTestPattern = Pattern.compile(FAILED_TEST_PATTERN);
-		
-		for (String line : outputStreamContent) {
-			Matcher testMatcher = testPattern.matcher(line);
-	        if (testMatcher.find()) {
-	            allTests.add(testMatcher.group(1));
-	        }
-		}
-		
-		for (String line : errorStreamContent) {
-			Matcher failedTestMatcher = failedTestPattern.matcher(line);
-	        if (failedTestMatcher.find()) {
-	            failedTests.add(failedTestMatcher.group(1));
-	        }
-		}
-		
-		TestResult testResult = new TestResult(allTests, failedTests);
-		
-		return testResult;
+	public boolean isTestFile(DiffFile diffFile) {
+		return diffFile.getFileName().endsWith(TEST_FILE_SUFFIX);
 	}
 
 	@Override
-	public boolean isTestFile(DiffFile diffFile) {
-		return diffFile.getFileName().endsWith(TEST_FILE_SUFFIX);
+	protected String[] getTestClasspath() {
+		return TEST_CLASSPATH;
+	}
+
+	@Override
+	protected String getTestReportDir() {
+		return TEST_REPORT_DIR;
+	}
+
+	@Override
+	protected String getTestClassDir() {
+		return TEST_CLASSPATH[0];
+	}
+
+	@Override
+	protected boolean isTestClass(String simpleName) {
+		return simpleName.endsWith(TEST_CLASS_SUFFIX);
 	}
 
 	@Override
 	public boolean runSingleTest(String testname) throws IOException,
 			InterruptedException {
-		// TODO Auto-generated method stub
-		return false;
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(testname);
+		
+		return runTests(testNames, 1).get(0).pass(testname);
 	}
 
 }
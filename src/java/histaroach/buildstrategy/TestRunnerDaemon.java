@@ -0,0 +1,156 @@
+package histaroach.buildstrategy;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * TestRunnerDaemon is a long-lived JVM, started by WarmTestRunner, that 
+ * runs JUnitBatchRunner for a request at a time, so that a JVM is not 
+ * started for each request. 
+ * 
+ * A request is a line on the standard input stream, of tab-separated 
+ * fields: repetitions, a classpath separated by File.pathSeparator and 
+ * the test names. For each request, the classpath is loaded in a fresh 
+ * class loader, whose parent does not see the classes of the daemon, 
+ * so that no class or static state is shared with an earlier request. 
+ * The result lines of JUnitBatchRunner are printed to the standard 
+ * output stream, followed by END_LINE. Before any request, the daemon 
+ * prints PID_PREFIX followed by its PID. 
+ * 
+ * Tests that leave threads running or call System.exit() are not 
+ * contained: WarmTestRunner restarts the daemon when it ends or does 
+ * not answer in time.
+ */
+public class TestRunnerDaemon {
+	
+	/**
+	 * Ends the results of a request.
+	 */
+	public static final String END_LINE = JUnitBatchRunner.RESULT_PREFIX + " END";
+	
+	/**
+	 * Starts the line of the daemon's PID.
+	 */
+	public static final String PID_PREFIX = JUnitBatchRunner.RESULT_PREFIX + " PID ";
+	
+	public static final String FIELD_SEPARATOR = "\t";
+	
+	private static final String WILDCARD = "*";
+	private static final String JAR_EXTENSION = ".jar";
+	
+	/**
+	 * Initial program entrance -- serves requests until the standard 
+	 * input stream is closed.
+	 * 
+	 * @param args - not used.
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		// tests may replace System.out
+		PrintStream out = System.out;
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		
+		// as Util.getOwnPID() does, whose dependencies are not on the classpath
+		String jvmName = ManagementFactory.getRuntimeMXBean().getName();
+		out.println(PID_PREFIX + jvmName.split("@")[0]);
+		out.flush();
+		
+		String request;
+		
+		while ((request = in.readLine()) != null) {
+			String[] fields = request.split(FIELD_SEPARATOR);
+			
+			int repetitions = Integer.parseInt(fields[0]);
+			String classpath = fields[1];
+			List<String> testNames = Arrays.asList(fields).subList(2, fields.length);
+			
+			try {
+				runTests(repetitions, classpath, testNames, out);
+			} catch (Exception e) {
+				// the request has no results
+				e.printStackTrace();
+			}
+			
+			out.println(END_LINE);
+			out.flush();
+		}
+		
+		System.exit(0);
+	}
+	
+	/**
+	 * Runs JUnitBatchRunner.runTests() in a class loader of classpath.
+	 * 
+	 * @throws Exception
+	 */
+	private static void runTests(int repetitions, String classpath, 
+			List<String> testNames, PrintStream out) throws Exception {
+		ClassLoader classLoader = new URLClassLoader(getURLs(classpath), 
+				ClassLoader.getSystemClassLoader().getParent());
+		
+		Thread thread = Thread.currentThread();
+		ClassLoader contextClassLoader = thread.getContextClassLoader();
+		thread.setContextClassLoader(classLoader);
+		
+		try {
+			Class<?> runnerClass = classLoader.loadClass(JUnitBatchRunner.class.getName());
+			Method runTests = runnerClass.getMethod("runTests", int.class, List.class, 
+					PrintStream.class);
+			
+			runTests.invoke(null, repetitions, testNames, out);
+		} catch (InvocationTargetException e) {
+			throw new Exception("run tests unsuccessful", e.getCause());
+		} finally {
+			// classLoader is left for the garbage collector
+			thread.setContextClassLoader(contextClassLoader);
+		}
+	}
+	
+	/**
+	 * @return the URLs of the entries of classpath, with an entry 
+	 *         ending in "*" replaced by the jar files in its directory, 
+	 *         as the java command does.
+	 * @throws MalformedURLException
+	 */
+	static URL[] getURLs(String classpath) throws MalformedURLException {
+		List<URL> urls = new ArrayList<URL>();
+		
+		for (String entry : classpath.split(File.pathSeparator)) {
+			if (entry.endsWith(WILDCARD)) {
+				File[] files = new File(entry.substring(0, 
+						entry.length() - WILDCARD.length())).listFiles();
+				
+				if (files == null) {
+					continue;
+				}
+				
+				Arrays.sort(files);
+				
+				for (File file : files) {
+					if (file.getName().endsWith(JAR_EXTENSION)) {
+						urls.add(file.toURI().toURL());
+					}
+				}
+			} else if (!entry.isEmpty()) {
+				// toURI() ends the URL of a directory in "/", 
+				// which URLClassLoader needs to search it for classes
+				urls.add(new File(entry).toURI().toURL());
+			}
+		}
+		
+		return urls.toArray(new URL[urls.size()]);
+	}
+}
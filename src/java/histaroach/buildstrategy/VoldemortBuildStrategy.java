@@ -6,11 +6,6 @@ import histaroach.util.Util;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 
 /**
@@ -23,14 +18,32 @@ public class VoldemortBuildStrategy extends AntBuildStrategy {
 	 */
 	private static final long serialVersionUID = -4473334473853444036L;
 	
-	private static final String TEST_PATTERN = "\\s*\\[junit\\] Running (\\S+)";
-	private static final String FAILED_TEST_PATTERN = "\\s*\\[junit\\] Test (\\S+) FAILED";
-	
 	private static final String BUILD_TARGET_NAME = "build buildtest";
 	private static final String TEST_TARGET_NAME = "junit";
 	private static final String SINGLE_TEST_TARGET_NAME = "junit-test -Dtest.name=";
 	
 	private static final String TEST_FILE_SUFFIX = "Test.java";
+	private static final String TEST_CLASS_SUFFIX = "Test";
+	
+	// where the test target writes JUnit XML reports
+	private static final String TEST_REPORT_DIR = "dist/junit-reports";
+	
+	/**
+	 * Directories of source files and test files, for IncrementalBuildStrategy.
+	 */
+	public static final String[] SOURCE_DIRS = { "src/java", "test/common", 
+		"test/unit", "test/integration" };
+	
+	/**
+	 * Directories the build target compiles into, for IncrementalBuildStrategy.
+	 */
+	public static final String[] CLASS_DIRS = { "dist/classes", "dist/testclasses" };
+	
+	/**
+	 * Directories and jar files the tests run with, for DaemonBuildStrategy.
+	 */
+	public static final String[] TEST_CLASSPATH = { "dist/classes", "dist/testclasses", 
+		"src/java", "lib/*" };
 	
 	private final String antCommand;
 	
@@ -51,36 +64,28 @@ public class VoldemortBuildStrategy extends AntBuildStrategy {
 	}
 
 	@Override
-	public boolean isTestFile(DiffFile diffFile) {
-		return diffFile.getFileName().endsWith(TEST_FILE_SUFFIX);
+	protected String[] getTestClasspath() {
+		return TEST_CLASSPATH;
+	}
+
+	@Override
+	protected String getTestReportDir() {
+		return TEST_REPORT_DIR;
+	}
+
+	@Override
+	protected String getTestClassDir() {
+		return CLASS_DIRS[1];
+	}
+
+	@Override
+	protected boolean isTestClass(String simpleName) {
+		return simpleName.endsWith(TEST_CLASS_SUFFIX);
 	}
 
 	@Override
-	protected TestResult getTestResult(List<String> outputStreamContent, 
-			List<String> errorStreamContent) {
-		Set<String> allTests = new HashSet<String>();
-		Set<String> failedTests = new HashSet<String>();
-		
-		Pattern testPattern = Pattern.compile(TEST_PATTERN);
-		Pattern failedTestPattern = Pattern.compile(FAILED_TEST_PATTERN);
-		
-		for (String line : outputStreamContent) {
-			Matcher testMatcher = testPattern.matcher(line);
-	        if (testMatcher.find()) {
-	            allTests.add(testMatcher.group(1));
-	        }
-		}
-		
-		for (String line : errorStreamContent) {
-			Matcher failedTestMatcher = failedTestPattern.matcher(line);
-	        if (failedTestMatcher.find()) {
-	            failedTests.add(failedTestMatcher.group(1));
-	        }
-		}
-		
-		TestResult testResult = new TestResult(allTests, failedTests);
-		
-		return testResult;
+	public boolean isTestFile(DiffFile diffFile) {
+		return diffFile.getFileName().endsWith(TEST_FILE_SUFFIX);
 	}
 
 }
@@ -0,0 +1,249 @@
+package histaroach.buildstrategy;
+
+import histaroach.model.TestResult;
+import histaroach.util.LineProcessor;
+import histaroach.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * WarmTestRunner runs tests in a TestRunnerDaemon, which it starts on 
+ * the first request and keeps running between requests, so that a JVM 
+ * is started once rather than for each request. 
+ * 
+ * The daemon is killed, and started again on the next request, if 
+ * a request does not complete within the timeout, if the daemon ends, 
+ * or after MAX_REQUESTS requests, so that classes, threads and open 
+ * files that tests leave behind do not pile up. While it runs, the 
+ * daemon is spared by Util.killOtherJavaProcesses(). 
+ * 
+ * A WarmTestRunner is used by one worker, and runs a request at a time.
+ */
+public class WarmTestRunner {
+	
+	/**
+	 * The number of requests a daemon serves before it is restarted.
+	 */
+	public static final int MAX_REQUESTS = 100;
+	
+	// pushed by the reader thread when the daemon's output ends
+	private static final String EOF_LINE = JUnitBatchRunner.RESULT_PREFIX + " EOF";
+	
+	private final File directory;
+	private final int timeout;
+	
+	private Process process;
+	private String pid;
+	private Writer requestWriter;
+	private BlockingQueue<String> resultLines;
+	private int numRequests;
+	
+	/**
+	 * Creates a WarmTestRunner.
+	 * 
+	 * @param directory - directory the daemon runs in.
+	 * @param timeout - seconds a request may take before the daemon 
+	 *        is killed.
+	 */
+	public WarmTestRunner(File directory, int timeout) {
+		this.directory = directory;
+		this.timeout = timeout;
+		
+		process = null;
+	}
+	
+	/**
+	 * Creates a WarmTestRunner with the timeout of Util.runProcess().
+	 */
+	public WarmTestRunner(File directory) {
+		this(directory, Util.TIMEOUT);
+	}
+	
+	/**
+	 * Runs the tests in testNames repetitions times in the daemon, in 
+	 * a fresh class loader of the classpath of JUnitBatchRunner.getClasspath().
+	 * 
+	 * @return a TestResult of each repetition, in order.
+	 * @throws IOException
+	 * @throws InterruptedException if the request did not complete 
+	 *         within the timeout, or the daemon ended.
+	 */
+	public synchronized List<TestResult> runTests(String[] testClasspath, 
+			Collection<String> testNames, int repetitions) 
+			throws IOException, InterruptedException {
+		if (!isRunning()) {
+			// a daemon that ended between requests is started again
+			stop();
+			start();
+		}
+		
+		StringBuilder request = new StringBuilder();
+		request.append(repetitions);
+		request.append(TestRunnerDaemon.FIELD_SEPARATOR);
+		request.append(JUnitBatchRunner.getClasspath(directory, testClasspath));
+		
+		for (String testName : testNames) {
+			request.append(TestRunnerDaemon.FIELD_SEPARATOR);
+			request.append(testName);
+		}
+		
+		request.append('\n');
+		
+		try {
+			requestWriter.write(request.toString());
+			requestWriter.flush();
+		} catch (IOException e) {
+			stop();
+			throw e;
+		}
+		
+		BatchResults batchResults = new BatchResults(repetitions);
+		long deadline = System.currentTimeMillis() + timeout * 1000L;
+		
+		while (true) {
+			long remaining = deadline - System.currentTimeMillis();
+			String line = remaining > 0 ? resultLines.poll(remaining, 
+					TimeUnit.MILLISECONDS) : null;
+			
+			if (line == null || line.equals(EOF_LINE)) {
+				stop();
+				throw new InterruptedException(line == null 
+						? "Process had to be killed" : "Process ended");
+			}
+			
+			if (line.equals(TestRunnerDaemon.END_LINE)) {
+				break;
+			}
+			
+			batchResults.processLine(line);
+		}
+		
+		numRequests++;
+		
+		if (numRequests >= MAX_REQUESTS) {
+			stop();
+		}
+		
+		return batchResults.getTestResults();
+	}
+	
+	/**
+	 * @return true if the daemon has been started and has not ended.
+	 */
+	synchronized boolean isRunning() {
+		if (process == null) {
+			return false;
+		}
+		
+		try {
+			process.exitValue();
+			return false;
+		} catch (IllegalThreadStateException e) {
+			return true;
+		}
+	}
+	
+	/**
+	 * Starts the daemon, with threads that read its output and 
+	 * error streams, and spares it from Util.killOtherJavaProcesses().
+	 * 
+	 * @modifies this
+	 * @throws IOException
+	 * @throws InterruptedException if the daemon did not print its PID 
+	 *         within the timeout.
+	 */
+	private void start() throws IOException, InterruptedException {
+		String[] command = { 
+				new File(new File(System.getProperty("java.home"), "bin"), 
+						"java").getPath(), 
+				"-cp", JUnitBatchRunner.getLocation(TestRunnerDaemon.class), 
+				TestRunnerDaemon.class.getName() };
+		
+		ProcessBuilder pBuilder = new ProcessBuilder(command);
+		pBuilder.directory(directory);
+		
+		final Process p = pBuilder.start();
+		final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+		
+		Thread outputThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Util.processLines(p.getInputStream(), new LineProcessor() {
+						@Override
+						public boolean processLine(String line) {
+							// the output of tests is not kept
+							if (BatchResults.isResultLine(line)) {
+								queue.add(line);
+							}
+							
+							return true;
+						}
+					});
+				} catch (IOException e) {
+					// the stream is closed when the daemon is killed
+				}
+				
+				queue.add(EOF_LINE);
+			}
+		});
+		
+		Thread errorThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					Util.processLines(p.getErrorStream(), null);
+				} catch (IOException e) {
+					// the stream is closed when the daemon is killed
+				}
+			}
+		});
+		
+		outputThread.setDaemon(true);
+		errorThread.setDaemon(true);
+		outputThread.start();
+		errorThread.start();
+		
+		process = p;
+		requestWriter = new OutputStreamWriter(p.getOutputStream());
+		resultLines = queue;
+		numRequests = 0;
+		
+		String line = queue.poll(timeout, TimeUnit.SECONDS);
+		
+		if (line == null || !line.startsWith(TestRunnerDaemon.PID_PREFIX)) {
+			stop();
+			throw new InterruptedException("Process did not start");
+		}
+		
+		pid = line.substring(TestRunnerDaemon.PID_PREFIX.length());
+		Util.spareJavaProcess(pid);
+	}
+	
+	/**
+	 * Kills the daemon, if it is running. It is started again 
+	 * on the next request.
+	 * 
+	 * @modifies this
+	 */
+	public synchronized void stop() {
+		if (process != null) {
+			process.destroy();
+			process = null;
+		}
+		
+		if (pid != null) {
+			Util.unspareJavaProcess(pid);
+			pid = null;
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package histaroach.model;
+
+import histaroach.buildstrategy.IBuildStrategy;
+import histaroach.model.Revision.Compilable;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+
+
+/**
+ * BuildTestResult represents the outcome of compiling a project and
+ * running its tests: a Compilable state, whether the process that
+ * runs the tests has been aborted, and a TestResult.
+ *
+ * BuildTestResult is immutable.
+ */
+public class BuildTestResult implements Serializable {
+	/**
+	 * serial version ID
+	 */
+	private static final long serialVersionUID = -1960125562874350925L;
+
+	private final Compilable compilable;
+	private final boolean testAborted;
+	private final /*@Nullable*/ TestResult testResult;
+
+	/**
+	 * Creates a BuildTestResult.
+	 */
+	public BuildTestResult(Compilable compilable, boolean testAborted,
+			TestResult testResult) {
+		this.compilable = compilable;
+		this.testAborted = testAborted;
+		this.testResult = testResult;
+	}
+
+	/**
+	 * Compiles the project in the working directory of repository,
+	 * runs tests and parses the test results.
+	 *
+	 * @return a BuildTestResult of the project as it currently is
+	 *         in the working directory.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static BuildTestResult evaluate(IRepository repository)
+			throws IOException, InterruptedException {
+		IBuildStrategy buildStrategy = repository.getBuildStrategy();
+
+		Compilable compilable = buildStrategy.build();
+
+		if (compilable != Compilable.YES) {
+			return new BuildTestResult(compilable, false, null);
+		}
+
+		try {
+			TestResult testResult = buildStrategy.runTest();
+			return new BuildTestResult(compilable, false, testResult);
+		} catch (InterruptedException e) {
+			// the process was killed forcibly
+			return new BuildTestResult(compilable, true, null);
+		}
+	}
+
+	/**
+	 * Compiles the project in the working directory of repository,
+	 * runs the tests in testNames and parses the test results.
+	 *
+	 * @return a BuildTestResult of the project as it currently is
+	 *         in the working directory, whose TestResult has only
+	 *         the tests run.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static BuildTestResult evaluate(IRepository repository,
+			Collection<String> testNames) throws IOException, InterruptedException {
+		IBuildStrategy buildStrategy = repository.getBuildStrategy();
+
+		Compilable compilable = buildStrategy.build();
+
+		if (compilable != Compilable.YES) {
+			return new BuildTestResult(compilable, false, null);
+		}
+
+		try {
+			TestResult testResult = buildStrategy.runTests(testNames);
+			return new BuildTestResult(compilable, false, testResult);
+		} catch (InterruptedException e) {
+			// the process was killed forcibly
+			return new BuildTestResult(compilable, true, null);
+		}
+	}
+
+	/**
+	 * Compiles commit, which is checked out in the working directory 
+	 * of repository, runs tests and parses the test results, unless 
+	 * the result cache of repository already has a result of commit.
+	 *
+	 * @return a BuildTestResult of commit.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public static BuildTestResult evaluate(IRepository repository, String commitID)
+			throws IOException, InterruptedException {
+		ResultCache resultCache = repository.getResultCache();
+
+		if (resultCache == null) {
+			return evaluate(repository);
+		}
+
+		return resultCache.evaluate(repository, resultCache.getKey(repository, commitID));
+	}
+
+	public Compilable isCompilable() {
+		return compilable;
+	}
+
+	/**
+	 * @return true if the process that runs tests has been aborted.
+	 *         If true, getTestResult() returns null.
+	 */
+	public boolean hasTestAborted() {
+		return testAborted;
+	}
+
+	/**
+	 * @return a TestResult; null if not compilable or test aborted.
+	 */
+	public TestResult getTestResult() {
+		return testResult;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || !other.getClass().equals(this.getClass())) {
+			return false;
+		}
+
+		BuildTestResult result = (BuildTestResult) other;
+
+		return compilable == result.compilable && testAborted == result.testAborted
+				&& ((testResult == null && result.testResult == null) ||
+						(testResult != null && testResult.equals(result.testResult)));
+	}
+
+	@Override
+	public int hashCode() {
+		int code = 11 * compilable.hashCode();
+
+		if (testAborted) {
+			code += 13;
+		}
+
+		if (testResult != null) {
+			code += 17 * testResult.hashCode();
+		}
+
+		return code;
+	}
+
+	@Override
+	public String toString() {
+		String result = "Compilable: " + compilable + "\n";
+
+		if (compilable == Compilable.YES) {
+
+			if (testAborted) {
+				result += "Test Aborted\n";
+			} else {
+				result += testResult.toString();
+			}
+		}
+
+		return result;
+	}
+}
@@ -2,17 +2,35 @@ package histaroach.model;
 
 import histaroach.buildstrategy.IBuildStrategy;
 import histaroach.model.DiffFile.DiffType;
+import histaroach.util.LineProcessor;
 import histaroach.util.Util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
 
 
 /**
@@ -27,9 +45,17 @@ public class GitRepository implements IRepository, Serializable {
 	 */
 	private static final long serialVersionUID = -3708734056581889395L;
 
-	private static final int HASH_LENGTH = 7;
+	protected static final int HASH_LENGTH = 7;
+	private static final String GIT_DIR = ".git";
 	private static final String[] LOG_COMMAND = 
 		{ "git", "log", "--pretty=format:%h %p", "--date-order" };
+	private static final String[] LOG_PARENTS_COMMAND = 
+		{ "git", "log", "--no-walk", "--pretty=format:%h %p" };
+	private static final String LOG_HEADER_MARKER = "\u0001";
+	private static final String BLOB_TYPE = "blob";
+	private static final String EXECUTABLE_MODE = "100755";
+	private static final String[] LOG_DIFF_COMMAND = 
+		{ "git", "log", "--name-status", "-m", "--pretty=format:%x01%h %p", "--date-order" };
 	private static final String[] CLEAN_TRACKED_CHANGES = 
 		{ "git", "checkout", "--", "./" };
 	private static final String[] CLEAN_UNTRACKED_FILES = 	
@@ -37,13 +63,24 @@ public class GitRepository implements IRepository, Serializable {
 
 	private final File directory;
 	private final IBuildStrategy buildStrategy;
+	private final transient /*@Nullable*/ ResultCache resultCache;
 	
 	/**
 	 * Creates a GitRepository.
 	 */
 	public GitRepository(File directory, IBuildStrategy buildStrategy) {
+		this(directory, buildStrategy, null);
+	}
+	
+	/**
+	 * Creates a GitRepository whose BuildTestResults are looked up in, 
+	 * and added to, resultCache.
+	 */
+	public GitRepository(File directory, IBuildStrategy buildStrategy, 
+			ResultCache resultCache) {
 		this.directory = directory;
 		this.buildStrategy = buildStrategy;
+		this.resultCache = resultCache;
 	}
 	
 	@Override
@@ -55,6 +92,11 @@ public class GitRepository implements IRepository, Serializable {
 	public IBuildStrategy getBuildStrategy() {
 		return buildStrategy;
 	}
+	
+	@Override
+	public ResultCache getResultCache() {
+		return resultCache;
+	}
 
 	@Override
 	public boolean checkoutCommit(String commitID) throws IOException,
@@ -81,6 +123,93 @@ public class GitRepository implements IRepository, Serializable {
 	    return !file.exists() || checkoutProcess.exitValue() == 0;
 	}
 
+	/**
+	 * Writes the file as "git checkout" would: the blob goes through the 
+	 * eol and smudge filters of the attributes of filename, and the file 
+	 * is executable if its mode in the commit is. As with "git checkout" 
+	 * on a file system without symbolic links, a symbolic link is written 
+	 * as a file containing the link target.
+	 */
+	@Override
+	public boolean materializeFile(String commitID, String filename) 
+			throws IOException, InterruptedException {
+		final List<String> entries = new ArrayList<String>();
+		
+		// formatted as {mode} {type} {object id}\t{path}, NUL-terminated
+		LineProcessor treeProcessor = new LineProcessor() {
+			@Override
+			public boolean processLine(String line) {
+				entries.add(line);
+				return true;
+			}
+		};
+		
+		Process lsTreeProcess = Util.runProcess(new String[] { "git", "ls-tree", "-z", 
+				commitID, "--", filename }, directory, treeProcessor, null);
+		
+		if (lsTreeProcess.exitValue() != 0 || entries.size() != 1) {
+			return false;
+		}
+		
+		String[] tokens = entries.get(0).substring(0, entries.get(0).indexOf('\t')).split(" ");
+		String mode = tokens[0];
+		
+		if (!tokens[1].equals(BLOB_TYPE)) {
+			return false;
+		}
+		
+		File file = new File(directory.getPath() + File.separatorChar + filename);
+		FileUtils.forceMkdir(file.getParentFile());
+		
+		// "git cat-file" streams the blob, which may not fit in the pipe
+		OutputStream out = new FileOutputStream(file);
+		Process catFileProcess;
+		
+		try {
+			catFileProcess = Util.runProcess(new String[] { "git", "cat-file", 
+					"--filters", "--path=" + filename, tokens[2] }, directory, out);
+		} finally {
+			out.close();
+		}
+		
+		if (catFileProcess.exitValue() != 0) {
+			FileUtils.deleteQuietly(file);
+			return false;
+		}
+		
+		file.setExecutable(mode.equals(EXECUTABLE_MODE), false);
+		
+		return true;
+	}
+
+	@Override
+	public Map<String, String> getFileObjectIDs(String commitID) 
+			throws IOException, InterruptedException {
+		Map<String, String> files = new HashMap<String, String>();
+		
+		// paths are not quoted with -z, as the object database has them
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Process lsTreeProcess = Util.runProcess(new String[] { "git", "ls-tree", 
+				"-r", "-z", "--full-tree", commitID }, directory, out);
+		
+		if (lsTreeProcess.exitValue() != 0) {
+			throw new IOException("git ls-tree " + commitID + " unsuccessful");
+		}
+		
+		// each entry is formatted as {mode} {type} {object id}\t{path}\0
+		for (String entry : out.toString("UTF-8").split("\0")) {
+			if (entry.length() == 0) {
+				continue;
+			}
+			
+			int tab = entry.indexOf('\t');
+			String[] tokens = entry.substring(0, tab).split(" ");
+			files.put(entry.substring(tab + 1), tokens[0] + " " + tokens[2]);
+		}
+		
+		return files;
+	}
+
 	@Override
 	public Set<DiffFile> getDiffFiles(String referenceCommitID,
 			String otherCommitID) throws IOException, InterruptedException {
@@ -92,33 +221,297 @@ public class GitRepository implements IRepository, Serializable {
         List<String> lines = Util.getInputStreamContent(diffProcess.getInputStream());
 
         for (String line : lines) {
-            String[] tokens = line.split("\\s");
-
-            DiffType type;
-            if (tokens[0].equals("A")) {
-                type = DiffType.ADDED;
-            } else if (tokens[0].equals("M")) {
-                type = DiffType.MODIFIED;
-            } else {
-                type = DiffType.DELETED;
-            }
+            diffFiles.add(parseDiffFile(line));
+        }
 
-            DiffFile diffFile = new DiffFile(type, tokens[1]);
+        return diffFiles;
+	}
+	
+	/**
+	 * Parses a line of "git diff --name-status" output, formatted as 
+	 * {status letter}{optional score} {path} ...
+	 * 
+	 * @return a DiffFile of the line.
+	 */
+	private DiffFile parseDiffFile(String line) {
+		String[] tokens = line.split("\\s");
 
-            diffFiles.add(diffFile);
+        DiffType type;
+        if (tokens[0].equals("A")) {
+            type = DiffType.ADDED;
+        } else if (tokens[0].equals("M")) {
+            type = DiffType.MODIFIED;
+        } else {
+            type = DiffType.DELETED;
         }
 
-        return diffFiles;
+        return new DiffFile(type, tokens[1]);
+	}
+
+	@Override
+	public IRepository createWorkingTree(File workingTreeDir, IBuildStrategy buildStrategy) 
+			throws Exception {
+		File gitFile = new File(workingTreeDir, GIT_DIR);
+		
+		if (!gitFile.exists()) {
+			Process worktreeProcess = Util.runProcess(new String[] { "git", "worktree", 
+					"add", "--detach", workingTreeDir.getAbsolutePath() }, directory);
+			
+			if (worktreeProcess.exitValue() != 0) {
+				throw new Exception("git worktree add " + workingTreeDir + " unsuccessful");
+			}
+		}
+		
+		return new GitRepository(workingTreeDir, buildStrategy, resultCache);
 	}
 
 	@Override
 	public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID) 
 			throws Exception {
+		return buildHistoryGraph(new HistoryGraph(), startCommitID, endCommitID);
+	}
+	
+	@Override
+	public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID, 
+			List<IRepository> workingTrees) throws Exception {
+		return buildHistoryGraph(new HistoryGraph(), startCommitID, endCommitID, 
+				workingTrees);
+	}
+	
+	@Override
+	public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID, 
+			String endCommitID) throws Exception {
+		return extendHistoryGraph(hGraph, startCommitID, endCommitID, null);
+	}
+	
+	@Override
+	public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID, 
+			String endCommitID, List<IRepository> workingTrees) throws Exception {
+		return extendHistoryGraph(hGraph, startCommitID, endCommitID, workingTrees);
+	}
+	
+	/**
+	 * Builds a HistoryGraph containing the Revisions of hGraph and Revisions 
+	 * of the commits from startCommit to endCommit that are not in hGraph. 
+	 * 
+	 * If workingTrees is null, each of those commits is compiled and tested 
+	 * in this Repository when its Revision is created. Otherwise, they are 
+	 * all evaluated in parallel first, one worker per working tree in 
+	 * workingTrees, and the Revisions are assembled afterwards.
+	 * 
+	 * The Revisions of hGraph are shared with the HistoryGraph built, 
+	 * so none of them can be given a new parent. Ranges that would give 
+	 * one are rejected before any commit is evaluated.
+	 * 
+	 * @return a HistoryGraph containing the Revisions of hGraph and 
+	 *         Revisions from startCommit to endCommit.
+	 * @throws Exception if a commit in the range that is not in hGraph 
+	 *         is a parent of a commit in hGraph.
+	 */
+	private HistoryGraph extendHistoryGraph(HistoryGraph hGraph, String startCommitID, 
+			String endCommitID, /*@Nullable*/ List<IRepository> workingTrees) 
+			throws Exception {
+		Map<String, List<String>> commitIDToParentsIDs = readCommitGraph(
+				startCommitID, endCommitID);
+		List<String> orderedCommitIDs = getTopologicalOrder(commitIDToParentsIDs);
+		Map<String, Map<String, Set<DiffFile>>> commitIDToParentDiffFiles = 
+			readParentDiffFiles(startCommitID, commitIDToParentsIDs);
+		
+		// commits in the range that are not in hGraph, in topological order
+		List<String> newCommitIDs = new ArrayList<String>();
+		
+		for (String commitID : orderedCommitIDs) {
+			if (hGraph.lookUpRevision(commitID) == null) {
+				newCommitIDs.add(commitID);
+			}
+		}
+		
+		checkNoNewParents(hGraph, commitIDToParentsIDs, newCommitIDs);
+		
+		Map<String, BuildTestResult> results = null;
+		
+		if (workingTrees != null) {
+			results = evaluateCommits(newCommitIDs, workingTrees);
+		}
+		
+		// parents before children; the parents in hGraph are already there
+		HistoryGraph extendedHGraph = new HistoryGraph(hGraph);
+		
+		for (String commitID : newCommitIDs) {
+			Map<Revision, Set<DiffFile>> parentToDiffFiles = new HashMap<Revision, Set<DiffFile>>();
+			Map<String, Set<DiffFile>> parentDiffFiles = commitIDToParentDiffFiles.get(commitID);
+			
+			// parentDiffFiles only has parents in the range [startCommitID, endCommitID]
+			for (Map.Entry<String, Set<DiffFile>> entry : parentDiffFiles.entrySet()) {
+				Revision parent = extendedHGraph.lookUpRevision(entry.getKey());
+				parentToDiffFiles.put(parent, entry.getValue());
+			}
+			
+			// parents outside the range that are in hGraph
+			for (String parentID : commitIDToParentsIDs.get(commitID)) {
+				Revision parent = hGraph.lookUpRevision(parentID);
+				
+				if (!commitIDToParentsIDs.containsKey(parentID) && parent != null) {
+					parentToDiffFiles.put(parent, getDiffFiles(parentID, commitID));
+				}
+			}
+			
+			Revision revision;
+			
+			if (results == null) {
+				// print progress to stdout
+				System.out.println("Processing commit " + commitID);
+				
+				revision = new Revision(this, commitID, parentToDiffFiles);
+				
+				// print progress to stdout
+				System.out.println("Finished processing commit " + commitID);
+			} else {
+				revision = new Revision(commitID, parentToDiffFiles, 
+						results.get(commitID));
+			}
+			
+			extendedHGraph.addRevision(revision);
+		}
+		
+		return extendedHGraph;
+	}
+	
+	/**
+	 * Checks that no commit in newCommitIDs is a parent of a commit in 
+	 * hGraph, ie. that the range does not extend hGraph backwards.
+	 * 
+	 * @throws Exception if a commit in newCommitIDs is a parent of 
+	 *         a commit in hGraph.
+	 */
+	private void checkNoNewParents(HistoryGraph hGraph, 
+			Map<String, List<String>> commitIDToParentsIDs, List<String> newCommitIDs) 
+			throws Exception {
+		if (newCommitIDs.isEmpty()) {
+			return;
+		}
+		
+		// the parents of the commits of hGraph outside the range are not read yet
+		List<String> outsideCommitIDs = new ArrayList<String>();
+		
+		for (Revision revision : hGraph) {
+			if (!commitIDToParentsIDs.containsKey(revision.getCommitID())) {
+				outsideCommitIDs.add(revision.getCommitID());
+			}
+		}
+		
+		Map<String, List<String>> outsideCommitIDToParentsIDs = 
+			readParentsIDs(outsideCommitIDs);
+		Set<String> newCommitIDSet = new HashSet<String>(newCommitIDs);
+		
+		for (Revision revision : hGraph) {
+			String commitID = revision.getCommitID();
+			List<String> parentsIDs = commitIDToParentsIDs.get(commitID);
+			
+			if (parentsIDs == null) {
+				parentsIDs = outsideCommitIDToParentsIDs.get(commitID);
+			}
+			
+			if (parentsIDs == null) {
+				continue;
+			}
+			
+			for (String parentID : parentsIDs) {
+				if (newCommitIDSet.contains(parentID)) {
+					throw new Exception("commit " + parentID + " is a parent of commit " 
+							+ commitID + " of the HistoryGraph to extend; " 
+							+ "a HistoryGraph cannot be extended backwards");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Checks out each commit in commitIDs into one of workingTrees, 
+	 * compiles it, runs tests and parses the test results. Each working 
+	 * tree is used by its own worker thread, which repeatedly takes 
+	 * the next commit that no worker has taken yet.
+	 * 
+	 * @requires no two Repositories in workingTrees share a working directory.
+	 * @return a map from commit ID to its BuildTestResult.
+	 * @throws Exception
+	 */
+	private Map<String, BuildTestResult> evaluateCommits(final List<String> commitIDs, 
+			List<IRepository> workingTrees) throws Exception {
+		final Map<String, BuildTestResult> results = 
+			new ConcurrentHashMap<String, BuildTestResult>();
+		final AtomicInteger nextIndex = new AtomicInteger(0);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(workingTrees.size());
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		
+		for (final IRepository workingTree : workingTrees) {
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					int i;
+					
+					while ((i = nextIndex.getAndIncrement()) < commitIDs.size()) {
+						String commitID = commitIDs.get(i);
+						
+						// print progress to stdout
+						System.out.println("Processing commit " + commitID);
+						
+						try {
+							if (!workingTree.checkoutCommit(commitID)) {
+								throw new Exception("git checkout commit " + commitID + 
+										" from " + workingTree.getDirectory() + " unsuccessful");
+							}
+							
+							results.put(commitID, BuildTestResult.evaluate(workingTree, commitID));
+						} catch (Exception e) {
+							// stop the other workers from taking more commits
+							nextIndex.set(commitIDs.size());
+							throw e;
+						}
+						
+						// print progress to stdout
+						System.out.println("Finished processing commit " + commitID);
+					}
+					
+					return null;
+				}
+			}));
+		}
+		
+		executor.shutdown();
+		
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			
+			throw e;
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Checks out startCommit and reads the revision history of HEAD 
+	 * back to endCommit.
+	 * 
+	 * @return a map from commit ID to the list of its parents' IDs, 
+	 *         for each commit in the range [startCommitID, endCommitID], 
+	 *         iterating in "git log --date-order" order.
+	 * @throws Exception
+	 */
+	protected Map<String, List<String>> readCommitGraph(String startCommitID, 
+			String endCommitID) throws Exception {
 		String shortStartCommitID = startCommitID.substring(0, HASH_LENGTH);
 		String shortEndCommitID = endCommitID.substring(0, HASH_LENGTH);
 		
-		HistoryGraph hGraph = new HistoryGraph();
-		
 		// check out startCommit, which will be the new HEAD
 		boolean checkoutCommitSuccessful = checkoutCommit(shortStartCommitID);
 		
@@ -147,98 +540,259 @@ public class GitRepository implements IRepository, Serializable {
          * 
          * This graph will not be modified.
          */
-        Map<String, List<String>> commitIDToParentsIDs = getCommitIDToParentsIDs(lines, shortEndCommitID);
-        
-        /*
+        return getCommitIDToParentsIDs(lines, shortEndCommitID);
+	}
+	
+	/**
+	 * Reads the parents of each commit in commitIDs from a single 
+	 * "git log --no-walk" process.
+	 * 
+	 * @return a map from commit ID to the list of its parents' IDs, 
+	 *         for each commit in commitIDs.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	protected Map<String, List<String>> readParentsIDs(Collection<String> commitIDs) 
+			throws IOException, InterruptedException {
+		if (commitIDs.isEmpty()) {
+			return new HashMap<String, List<String>>();
+		}
+		
+		List<String> command = new ArrayList<String>(Arrays.asList(LOG_PARENTS_COMMAND));
+		command.addAll(commitIDs);
+		
+		Process logProcess = Util.runProcess(command.toArray(new String[command.size()]), 
+				directory);
+		List<String> lines = Util.getInputStreamContent(logProcess.getInputStream());
+		
+		if (logProcess.exitValue() != 0) {
+			throw new IOException("git log of " + commitIDs.size() 
+					+ " commits unsuccessful, exit value " + logProcess.exitValue());
+		}
+		
+		// the lines are formatted as those of LOG_COMMAND
+		return getCommitIDToParentsIDs(lines, null);
+	}
+	
+	/**
+	 * Reads the DiffFiles of every parent edge in the commitIDToParentsIDs 
+	 * graph from a single "git log --name-status -m" process, whose output 
+	 * is parsed while it is being produced. The process is stopped as soon 
+	 * as it has moved past the commits in the graph.
+	 * 
+	 * "git log -m" omits a merge commit's entry for a parent it does not 
+	 * differ from; the DiffFiles of such a merge commit are computed 
+	 * pairwise with getDiffFiles instead.
+	 * 
+	 * @requires commitIDToParentsIDs is a prefix of startCommit's history 
+	 *           in "git log --date-order" order.
+	 * @return a map from commit ID to a map from each of its parents' IDs, 
+	 *         within the range [startCommitID, endCommitID], to the 
+	 *         DiffFiles between the parent and the commit.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	protected Map<String, Map<String, Set<DiffFile>>> readParentDiffFiles(
+			String startCommitID, Map<String, List<String>> commitIDToParentsIDs) 
+			throws IOException, InterruptedException {
+		String shortStartCommitID = startCommitID.substring(0, HASH_LENGTH);
+		
+		String[] command = new String[LOG_DIFF_COMMAND.length + 1];
+		System.arraycopy(LOG_DIFF_COMMAND, 0, command, 0, LOG_DIFF_COMMAND.length);
+		command[LOG_DIFF_COMMAND.length] = shortStartCommitID;
+		
+		DiffLogProcessor logProcessor = new DiffLogProcessor(commitIDToParentsIDs.keySet());
+		Process logProcess = Util.runProcess(command, directory, logProcessor, null);
+		
+		// a process stopped by logProcessor has moved past the range, 
+		// otherwise it must have listed the whole history
+		if (!logProcessor.hasMovedPastRange() && logProcess.exitValue() != 0) {
+			throw new IOException("git log of " + shortStartCommitID 
+					+ " unsuccessful, exit value " + logProcess.exitValue());
+		}
+		
+		Map<String, Map<String, Set<DiffFile>>> commitIDToParentDiffFiles = 
+			new HashMap<String, Map<String, Set<DiffFile>>>();
+		
+		for (Map.Entry<String, List<String>> entry : commitIDToParentsIDs.entrySet()) {
+			String commitID = entry.getKey();
+			List<String> parentsIDs = entry.getValue();
+			List<Set<DiffFile>> logEntries = logProcessor.getEntries(commitID);
+			
+			Map<String, Set<DiffFile>> parentDiffFiles = new HashMap<String, Set<DiffFile>>();
+			
+			for (int i = 0; i < parentsIDs.size(); i++) {
+				String parentID = parentsIDs.get(i);
+				
+				if (!commitIDToParentsIDs.containsKey(parentID)) {
+					// parentID is not in the range [startCommitID, endCommitID]
+					continue;
+				}
+				
+				if (logEntries.size() == parentsIDs.size()) {
+					// "git log -m" lists entries in the order of parents
+					parentDiffFiles.put(parentID, logEntries.get(i));
+				} else {
+					parentDiffFiles.put(parentID, getDiffFiles(parentID, commitID));
+				}
+			}
+			
+			commitIDToParentDiffFiles.put(commitID, parentDiffFiles);
+		}
+		
+		return commitIDToParentDiffFiles;
+	}
+	
+	/**
+	 * DiffLogProcessor parses the output of LOG_DIFF_COMMAND line by line. 
+	 * 
+	 * Each entry starts with a header line, formatted as 
+	 * {LOG_HEADER_MARKER}{commit id} {parent1's commit id} ... {parentN's commit id}, 
+	 * followed by "git diff --name-status" lines. A merge commit has one 
+	 * entry per parent it differs from.
+	 */
+	private final class DiffLogProcessor implements LineProcessor {
+		
+		private final Set<String> commitIDs;
+		// map: commit id -> DiffFiles of its entries, in output order
+		private final Map<String, List<Set<DiffFile>>> commitIDToEntries;
+		private /*@Nullable*/ Set<DiffFile> currentEntry;
+		private boolean movedPastRange;
+		
+		/**
+		 * @param commitIDs commits whose entries are kept
+		 */
+		DiffLogProcessor(Set<String> commitIDs) {
+			this.commitIDs = commitIDs;
+			commitIDToEntries = new HashMap<String, List<Set<DiffFile>>>();
+			currentEntry = null;
+			movedPastRange = false;
+		}
+		
+		@Override
+		public boolean processLine(String line) {
+			if (line.startsWith(LOG_HEADER_MARKER)) {
+				String commitID = line.substring(LOG_HEADER_MARKER.length()).split(" ")[0];
+				
+				if (!commitIDs.contains(commitID)) {
+					// all commits in the range come first in the output
+					movedPastRange = true;
+					return false;
+				}
+				
+				List<Set<DiffFile>> entries = commitIDToEntries.get(commitID);
+				
+				if (entries == null) {
+					entries = new ArrayList<Set<DiffFile>>();
+					commitIDToEntries.put(commitID, entries);
+				}
+				
+				currentEntry = new HashSet<DiffFile>();
+				entries.add(currentEntry);
+			} else if (!line.isEmpty() && currentEntry != null) {
+				currentEntry.add(parseDiffFile(line));
+			}
+			
+			return true;
+		}
+		
+		/**
+		 * @return true if the output reached a commit after the range, 
+		 *         and reading was stopped there.
+		 */
+		boolean hasMovedPastRange() {
+			return movedPastRange;
+		}
+		
+		/**
+		 * @return the DiffFiles of commitID's entries, in output order.
+		 */
+		List<Set<DiffFile>> getEntries(String commitID) {
+			List<Set<DiffFile>> entries = commitIDToEntries.get(commitID);
+			
+			if (entries == null) {
+				return new ArrayList<Set<DiffFile>>();
+			}
+			
+			return entries;
+		}
+	}
+	
+	/**
+	 * Orders the commit IDs in commitIDToParentsIDs such that every 
+	 * commit comes after all of its parents that are in the graph. 
+	 * 
+	 * The order is deterministic: among commits whose parents have all 
+	 * been ordered, the one that became ready first goes first, and the 
+	 * initially ready commits go in reverse "git log" order.
+	 * 
+	 * @requires commitIDToParentsIDs iterates in "git log" order.
+	 * @return a list of commit IDs in topological order from ancestor 
+	 *         to descendant.
+	 */
+	private List<String> getTopologicalOrder(Map<String, List<String>> commitIDToParentsIDs) {
+		List<String> orderedCommitIDs = new ArrayList<String>();
+		
+		/*
          * The parentEdgeCounter map maps a revision's commit id to a count 
          * of its parent edges. 
          * 
-         * To construct a Revision object, all of its parents must already exist. 
+         * A commit can be put in the order only after all of its parents. 
          * 
          * The parentEdgeCounter map is a counter of the remaining parent edges 
          * of each node in the commitIDToParentsIDs graph. A parent edge represents 
-         * a parent that has not been constructed. If a node has one or more parent- 
-         * edges, a Revision corresponding to that node cannot be constructed yet. 
-         * 
-         * This counter will be modified at each while-loop iteration in this method. 
-         * At each iteration, an entry in the counter that has 0 count will be removed, 
-         * and a Revision corresponding to the node in that entry will be constructed. 
+         * a parent that has not been ordered. If a node has one or more parent- 
+         * edges, it cannot be ordered yet. 
          * 
-         * Once a Revision is constructed, the decrementParentEdgeCounts function 
-         * searches over all remaining entries in the counter and decrements a count 
-         * of each node whose parent has just been constructed.
+         * Once a node is ordered, the count of each of its children is 
+         * decremented. A child whose count drops to 0 joins the readyCommitIDs 
+         * queue, from which nodes are taken in first-in first-out order.
          */
         Map<String, Integer> parentEdgeCounter = getParentEdgeCounter(commitIDToParentsIDs);
+        Map<String, List<String>> commitIDToChildrenIDs = getCommitIDToChildrenIDs(
+        		commitIDToParentsIDs);
+        Queue<String> readyCommitIDs = new LinkedList<String>();
         
-        /*
-         * The revisions map maps a revision's commit id to a corresponding 
-         * Revision object. 
-         * 
-         * This map is used, when constructing a Revision object, for getting 
-         * a parent Revision from a parent commit id string.
-         */
-        Map<String, Revision> revisions = new HashMap<String, Revision>();
+        List<String> commitIDs = new ArrayList<String>(commitIDToParentsIDs.keySet());
         
-        while (!parentEdgeCounter.isEmpty()) {
-        	// find a commit id node that has no parent edge
-        	String commitID = "";
+        for (int i = commitIDs.size() - 1; i >= 0; i--) {
+        	String commitID = commitIDs.get(i);
         	
-        	for (Map.Entry<String, Integer> entry : parentEdgeCounter.entrySet()) {
-        		if (entry.getValue() == 0) {
-        			commitID = entry.getKey();
-        			break;
-        		}
+        	if (parentEdgeCounter.get(commitID) == 0) {
+        		readyCommitIDs.add(commitID);
         	}
+        }
+        
+        while (!readyCommitIDs.isEmpty()) {
+        	String commitID = readyCommitIDs.remove();
+        	orderedCommitIDs.add(commitID);
         	
-        	assert !commitID.isEmpty();
-        	
-        	parentEdgeCounter.remove(commitID);
-        	
-        	// create a Revision object
-        	Map<Revision, Set<DiffFile>> parentToDiffFiles = new HashMap<Revision, Set<DiffFile>>();
-        	List<String> parentsIDs = commitIDToParentsIDs.get(commitID);
-        	
-        	for (String parentID : parentsIDs) {
+        	// update parentEdgeCounter
+        	for (String childID : commitIDToChildrenIDs.get(commitID)) {
+        		int parentEdgeCount = parentEdgeCounter.get(childID) - 1;
+        		parentEdgeCounter.put(childID, parentEdgeCount);
         		
-        		if (!revisions.containsKey(parentID)) {
-        			// parentID is not in the range [startCommitID, endCommitID]
-        			// ignore this parentID
-        			continue;
+        		if (parentEdgeCount == 0) {
+        			readyCommitIDs.add(childID);
         		}
-        		
-        		Revision parent = revisions.get(parentID);
-        		Set<DiffFile> diffFiles = getDiffFiles(parentID, commitID);
-        		
-        		parentToDiffFiles.put(parent, diffFiles);
         	}
-        	
-        	// print progress to stdout
-        	System.out.println("Processing commit " + commitID);
-        	
-        	Revision revision = new Revision(this, commitID, parentToDiffFiles);
-        	hGraph.addRevision(revision);
-        	
-        	// print progress to stdout
-        	System.out.println("Finished processing commit " + commitID);
-        	
-        	revisions.put(commitID, revision);
-        	
-        	// update parentEdgeCounter
-        	decrementParentEdgeCounts(commitIDToParentsIDs, commitID, parentEdgeCounter);
         }
-		
-		return hGraph;
+        
+        assert orderedCommitIDs.size() == commitIDToParentsIDs.size();
+        
+        return orderedCommitIDs;
 	}
 	
 	/**
 	 * Returns a graph where each node is a commit ID and each edge 
 	 * goes from child commit ID to parent commit ID.
 	 * 
-	 * @return a map from commit ID to the list of its parents' IDs.
+	 * @return a map from commit ID to the list of its parents' IDs, 
+	 *         iterating in the order of lines.
 	 */
 	private Map<String, List<String>> getCommitIDToParentsIDs(List<String> lines, 
 			String endCommitID) {
-        Map<String, List<String>> commitIDToParentsIDs = new HashMap<String, List<String>>();
+        Map<String, List<String>> commitIDToParentsIDs = new LinkedHashMap<String, List<String>>();
         
         for (String line : lines) {
         	String[] hashes = line.split(" ");
@@ -291,23 +845,31 @@ public class GitRepository implements IRepository, Serializable {
 	}
 	
 	/**
-	 * Decrements parent edge counts of commit ID nodes whose parent 
-	 * has just been added to HistoryGraph.
+	 * Returns the reverse of the commitIDToParentsIDs graph, restricted 
+	 * to commit IDs in the range [startCommitID, endCommitID].
 	 * 
-	 * @modifies parentEdgeCounter
+	 * @return a map from commit ID to the list of its children's IDs.
 	 */
-	private void decrementParentEdgeCounts(Map<String, List<String>> commitIDToParentsIDs, 
-			String removedParentEdge, 
-			Map<String, Integer> parentEdgeCounter) {
+	private Map<String, List<String>> getCommitIDToChildrenIDs(
+			Map<String, List<String>> commitIDToParentsIDs) {
+		Map<String, List<String>> commitIDToChildrenIDs = new HashMap<String, List<String>>();
 		
 		for (String commitID : commitIDToParentsIDs.keySet()) {
-			List<String> parentsIDs = commitIDToParentsIDs.get(commitID);
-			
-			if (parentsIDs.contains(removedParentEdge)) {
-				int parentEdgeCount = parentEdgeCounter.get(commitID);
-				parentEdgeCounter.put(commitID, parentEdgeCount - 1);
+			commitIDToChildrenIDs.put(commitID, new ArrayList<String>());
+		}
+		
+		for (Map.Entry<String, List<String>> entry : commitIDToParentsIDs.entrySet()) {
+			for (String parentID : entry.getValue()) {
+				List<String> childrenIDs = commitIDToChildrenIDs.get(parentID);
+				
+				// ignore parents that are not in the range [startCommitID, endCommitID]
+				if (childrenIDs != null) {
+					childrenIDs.add(entry.getKey());
+				}
 			}
 		}
+		
+		return commitIDToChildrenIDs;
 	}
 
 	@Override
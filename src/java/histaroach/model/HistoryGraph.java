@@ -4,12 +4,19 @@ import histaroach.model.Flip.FlipType;
 import histaroach.model.Revision.Compilable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 
 /**
@@ -24,11 +31,16 @@ import java.util.Set;
  */
 public class HistoryGraph implements Iterable<Revision> {
 	
+	// fewer Revisions are not worth a task of their own
+	private static final int MIN_REVISIONS_PER_TASK = 256;
+	private static final int TASKS_PER_THREAD = 4;
+	
 	// map: Revision's commit id -> Revision object
 	private final Map<String, Revision> revisions;
 	// for Revisions' topological ordering in iterator() and toString()
 	private final List<Revision> orderedRevisions;
-	private Set<Flip> allFlips;
+	// written once, by getAllFlips
+	private volatile Set<Flip> allFlips;
 	
 	/**
 	 * Creates an empty HistoryGraph.
@@ -38,15 +50,44 @@ public class HistoryGraph implements Iterable<Revision> {
         orderedRevisions = new ArrayList<Revision>();
         allFlips = null;
     }
+    
+    /**
+     * Creates a HistoryGraph with the Revisions of other, to which more 
+     * Revisions can be added without modifying other. The Flips of other, 
+     * if they have been found, are kept, so that only the Flips of added 
+     * Revisions are found.
+     */
+    public HistoryGraph(HistoryGraph other) {
+    	synchronized (other) {
+    		revisions = new HashMap<String, Revision>(other.revisions);
+    		orderedRevisions = new ArrayList<Revision>(other.orderedRevisions);
+    		
+    		if (other.allFlips == null) {
+    			allFlips = null;
+    		} else {
+    			Set<Flip> flips = Collections.newSetFromMap(
+    					new ConcurrentHashMap<Flip, Boolean>());
+    			flips.addAll(other.allFlips);
+    			allFlips = flips;
+    		}
+    	}
+    }
 
     /**
-     * Adds a Revision to this HistoryGraph.
+     * Adds a Revision to this HistoryGraph. If the Flips of this 
+     * HistoryGraph have been found, the Flips between revision and 
+     * its parents are added to them.
      * 
+     * @requires the parents of revision are in this HistoryGraph.
      * @modifies this
      */
-    public void addRevision(Revision revision) {
+    public synchronized void addRevision(Revision revision) {
         revisions.put(revision.getCommitID(), revision);
         orderedRevisions.add(revision);
+        
+        if (allFlips != null) {
+        	findFlips(revision, allFlips);
+        }
     }
     
     /**
@@ -59,47 +100,134 @@ public class HistoryGraph implements Iterable<Revision> {
     }
     
     /**
-     * Finds Flips of all types.
+     * Finds Flips of all types. The Revisions are divided among 
+     * threads, one per processor, the first time this is called, 
+     * and the result is kept for later calls.
      * 
      * @modifies this
 	 * @return a set of Flips of all types.
 	 */
 	public Set<Flip> getAllFlips() {
-		if (allFlips != null) {
-			return allFlips;
+		Set<Flip> flips = allFlips;
+		
+		if (flips != null) {
+			return flips;
 		}
 		
-	    allFlips = new HashSet<Flip>();
-	
-	    for (Revision revision : orderedRevisions) {
-	    	
-	        if (revision.isCompilable() != Compilable.YES ||
-	        		revision.hasTestAborted()) {
-	        	continue;
-	        }
-	        	
-	        Set<Revision> parents = revision.getParents();
+		synchronized (this) {
+			if (allFlips == null) {
+				allFlips = findAllFlips(Runtime.getRuntime().availableProcessors());
+			}
+			
+			return allFlips;
+		}
+	}
 	
-	        for (Revision parent : parents) {
-	            
-	            if (parent.isCompilable() != Compilable.YES ||
-	            		parent.hasTestAborted()) {
-	            	continue;
-	            }
-	            
-	            Set<String> toPassTests = new HashSet<String>();
-	            Set<String> toFailTests = new HashSet<String>();
+	/**
+	 * Finds Flips of all types using numThreads threads, each of which 
+	 * takes the next range of MIN_REVISIONS_PER_TASK or more Revisions 
+	 * and finds the Flips between them and their parents.
+	 * 
+	 * @return a thread-safe set of Flips of all types.
+	 */
+	Set<Flip> findAllFlips(int numThreads) {
+		final Set<Flip> flips = Collections.newSetFromMap(
+				new ConcurrentHashMap<Flip, Boolean>());
+		int numRevisions = orderedRevisions.size();
+		
+		if (numThreads <= 1 || numRevisions < 2 * MIN_REVISIONS_PER_TASK) {
+			findFlips(0, numRevisions, flips);
+			return flips;
+		}
+		
+		// several tasks per thread, so that threads finish together
+		int numRevisionsPerTask = Math.max(MIN_REVISIONS_PER_TASK, 
+				numRevisions / (TASKS_PER_THREAD * numThreads));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		
+		try {
+			for (int from = 0; from < numRevisions; from += numRevisionsPerTask) {
+				final int start = from;
+				final int end = Math.min(from + numRevisionsPerTask, numRevisions);
+				
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						findFlips(start, end, flips);
+						return null;
+					}
+				}));
+			}
+			
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while finding flips", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			
+			throw new IllegalStateException(cause);
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		return flips;
+	}
 	
-	            findFlippedTests(parent, revision, toPassTests, toFailTests);
-	            
-	            if (!toPassTests.isEmpty() || !toFailTests.isEmpty()) {
-	                Flip flip = new Flip(parent, revision, toPassTests, toFailTests);
-	                allFlips.add(flip);
-	            }
-	        }
+	/**
+	 * Finds Flips between each Revision in orderedRevisions[start, end) 
+	 * and its parents.
+	 * 
+	 * @modifies flips
+	 */
+	private void findFlips(int start, int end, Set<Flip> flips) {
+	    for (Revision revision : orderedRevisions.subList(start, end)) {
+	    	findFlips(revision, flips);
 	    }
+	}
 	
-	    return allFlips;
+	/**
+	 * Finds Flips between revision and its parents.
+	 * 
+	 * @modifies flips
+	 */
+	private void findFlips(Revision revision, Set<Flip> flips) {
+        if (revision.isCompilable() != Compilable.YES ||
+        		revision.hasTestAborted()) {
+        	return;
+        }
+        	
+        Set<Revision> parents = revision.getParents();
+
+        for (Revision parent : parents) {
+            
+            if (parent.isCompilable() != Compilable.YES ||
+            		parent.hasTestAborted()) {
+            	continue;
+            }
+            
+            Set<String> toPassTests = new HashSet<String>();
+            Set<String> toFailTests = new HashSet<String>();
+
+            findFlippedTests(parent, revision, toPassTests, toFailTests);
+            
+            if (!toPassTests.isEmpty() || !toFailTests.isEmpty()) {
+                Flip flip = new Flip(parent, revision, toPassTests, toFailTests);
+                flips.add(flip);
+            }
+        }
 	}
 	
 	/**
@@ -109,13 +237,9 @@ public class HistoryGraph implements Iterable<Revision> {
 	 * @return a set of Flips of types TO_FAIL and BOTH.
 	 */
 	public Set<Flip> getToFailFlips() {
-		if (allFlips == null) {
-			getAllFlips();
-		}
-		
 		Set<Flip> toFailFlips = new HashSet<Flip>();
 		
-		for (Flip flip : allFlips) {
+		for (Flip flip : getAllFlips()) {
 			if (flip.getFlipType() == FlipType.TO_FAIL
 					|| flip.getFlipType() == FlipType.BOTH) {
 				toFailFlips.add(flip);
@@ -136,15 +260,8 @@ public class HistoryGraph implements Iterable<Revision> {
 		TestResult childResult = child.getTestResult();
 		TestResult parentResult = parent.getTestResult();
 		
-		Set<String> allTests = childResult.getAllTests();
-		
-        for (String test : allTests) {
-            if (childResult.pass(test) && parentResult.fail(test)) {
-                toPassTests.add(test);
-            } else if (childResult.fail(test) && parentResult.pass(test)) {
-                toFailTests.add(test);
-            }
-        }
+		toPassTests.addAll(childResult.getToPassTests(parentResult));
+		toFailTests.addAll(childResult.getToFailTests(parentResult));
 	}
 
 	@Override
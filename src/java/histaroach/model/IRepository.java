@@ -4,6 +4,8 @@ import histaroach.buildstrategy.IBuildStrategy;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 
@@ -19,6 +21,12 @@ public interface IRepository {
 	
 	public IBuildStrategy getBuildStrategy();
 	
+	/**
+	 * @return the ResultCache of BuildTestResults obtained in this 
+	 *         Repository, or null if results are not cached.
+	 */
+	public ResultCache getResultCache();
+	
 	/**
      * Checks out a commit into the working directory.
      * 
@@ -38,6 +46,27 @@ public interface IRepository {
 	 */
 	public boolean discardFileChange(String filename) throws IOException, InterruptedException;
 	
+	/**
+	 * Writes the content that a file has in a commit into the working 
+	 * directory, without checking out the commit.
+	 * 
+	 * @return true if the method successfully wrote the file, 
+	 *         false if the commit does not have the file.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public boolean materializeFile(String commitID, String filename) 
+			throws IOException, InterruptedException;
+	
+	/**
+	 * @return a map from path to "{mode} {object id}" of all files 
+	 *         in commit, as in "git ls-tree -r".
+	 * @throws IOException if the commit cannot be read.
+	 * @throws InterruptedException
+	 */
+	public Map<String, String> getFileObjectIDs(String commitID) 
+			throws IOException, InterruptedException;
+	
 	/**
      * @return a set of DiffFiles between referenceCommit and otherCommit, 
      *         where the DiffType is from the point of view of referenceCommit.
@@ -47,6 +76,19 @@ public interface IRepository {
 	public Set<DiffFile> getDiffFiles(String referenceCommitID,
             String otherCommitID) throws IOException, InterruptedException;
 
+	/**
+	 * Creates a private working tree of this Repository in directory, 
+	 * or reuses the one that is already there. The returned Repository 
+	 * shares history with this Repository, but checking out a commit in 
+	 * one does not affect the other.
+	 * 
+	 * @requires buildStrategy builds the project in directory.
+	 * @return a Repository associated with the new working tree.
+	 * @throws Exception if the working tree cannot be created.
+	 */
+	public IRepository createWorkingTree(File directory, IBuildStrategy buildStrategy) 
+			throws Exception;
+
 	/**
 	 * Builds a HistoryGraph containing Revisions from startCommit 
 	 * to endCommit.
@@ -58,4 +100,58 @@ public interface IRepository {
 	 */
 	public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID) 
 			throws Exception;
+	
+	/**
+	 * Builds a HistoryGraph containing Revisions from startCommit 
+	 * to endCommit, compiling and running tests on the commits in 
+	 * parallel, one worker per working tree in workingTrees. 
+	 * 
+	 * All DiffFiles are computed first. The Revisions are assembled 
+	 * in topological order once all commits have been evaluated.
+	 * 
+	 * @requires startCommitID and endCommitID are each at least 7-character long, 
+	 *           no two Repositories in workingTrees share a working directory.
+	 * @return a HistoryGraph containing Revisions from startCommit 
+	 *         to endCommit.
+	 * @throws Exception
+	 */
+	public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID, 
+			List<IRepository> workingTrees) throws Exception;
+	
+	/**
+	 * Builds a HistoryGraph containing the Revisions of hGraph and 
+	 * Revisions of the commits from startCommit to endCommit that are 
+	 * not in hGraph. Only those commits are compiled and tested. Each 
+	 * of them has as parents the Revisions of its parent commits that 
+	 * are in the range or in hGraph. The Revisions of hGraph are kept 
+	 * as they are, and hGraph is not modified, so hGraph cannot be 
+	 * extended backwards: a range with a commit that is not in hGraph 
+	 * but is a parent of a commit in hGraph is rejected.
+	 * 
+	 * @requires startCommitID and endCommitID are each at least 7-character long, 
+	 *           the commit IDs of hGraph are abbreviated as this Repository 
+	 *           abbreviates them.
+	 * @return a HistoryGraph containing the Revisions of hGraph and 
+	 *         Revisions from startCommit to endCommit.
+	 * @throws Exception if a commit in the range that is not in hGraph 
+	 *         is a parent of a commit in hGraph.
+	 */
+	public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID, 
+			String endCommitID) throws Exception;
+	
+	/**
+	 * Builds a HistoryGraph as buildHistoryGraph(hGraph, startCommitID, 
+	 * endCommitID) does, compiling and running tests on the commits that 
+	 * are not in hGraph in parallel, one worker per working tree in 
+	 * workingTrees.
+	 * 
+	 * @requires the requirements of buildHistoryGraph(hGraph, startCommitID, 
+	 *           endCommitID), no two Repositories in workingTrees share 
+	 *           a working directory.
+	 * @return a HistoryGraph containing the Revisions of hGraph and 
+	 *         Revisions from startCommit to endCommit.
+	 * @throws Exception
+	 */
+	public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID, 
+			String endCommitID, List<IRepository> workingTrees) throws Exception;
 }
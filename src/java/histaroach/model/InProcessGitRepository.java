@@ -0,0 +1,856 @@
+package histaroach.model;
+
+import histaroach.buildstrategy.IBuildStrategy;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.util.GitDirectory;
+import histaroach.util.GitDirectory.Commit;
+import histaroach.util.GitDirectory.TreeEntry;
+import histaroach.util.GitIgnoreRules;
+import histaroach.util.Util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+
+
+/**
+ * InProcessGitRepository is for git version control, like GitRepository,
+ * but reads the git object database (loose objects and pack files)
+ * directly instead of running git: checking out a commit, discarding
+ * file changes, computing DiffFiles and reading the revision history
+ * do not fork any process.
+ *
+ * Checking out a commit rewrites only the files whose content differs,
+ * removes tracked files that the commit does not have and untracked
+ * files that are not ignored, and then updates HEAD and the index.
+ *
+ * InProcessGitRepository differs from GitRepository in that:
+ * - renamed files are a DELETED and an ADDED DiffFile,
+ * - only ".gitignore" files and info/exclude decide ignored files.
+ *
+ * InProcessGitRepository is immutable.
+ */
+public class InProcessGitRepository extends GitRepository {
+
+	/**
+	 * serial version ID
+	 */
+	private static final long serialVersionUID = 5132809127646011942L;
+
+	private transient GitDirectory gitDirectory;
+
+	/**
+	 * Creates an InProcessGitRepository.
+	 */
+	public InProcessGitRepository(File directory, IBuildStrategy buildStrategy) {
+		this(directory, buildStrategy, null);
+	}
+
+	/**
+	 * Creates an InProcessGitRepository whose BuildTestResults are
+	 * looked up in, and added to, resultCache.
+	 */
+	public InProcessGitRepository(File directory, IBuildStrategy buildStrategy,
+			ResultCache resultCache) {
+		super(directory, buildStrategy, resultCache);
+		gitDirectory = null;
+	}
+
+	/**
+	 * @return the GitDirectory of this repository, opened on first use.
+	 * @throws IOException
+	 */
+	protected synchronized GitDirectory getGitDirectory() throws IOException {
+		if (gitDirectory == null) {
+			gitDirectory = GitDirectory.open(getDirectory());
+		}
+
+		return gitDirectory;
+	}
+
+	@Override
+	public boolean checkoutCommit(String commitID) throws IOException,
+			InterruptedException {
+		GitDirectory git = getGitDirectory();
+		String id = git.resolveCommit(commitID);
+
+		if (id == null) {
+			return false;
+		}
+
+		Util.killOtherJavaProcesses();
+
+		String branch = git.isLocalBranch(commitID) ? commitID : null;
+		checkoutTree(git, id, branch);
+
+		return true;
+	}
+
+	/**
+	 * Makes the working directory, HEAD and the index match commitID.
+	 *
+	 * @modifies the working directory, HEAD and the index
+	 * @throws IOException
+	 */
+	private void checkoutTree(GitDirectory git, String commitID,
+			/*@Nullable*/ String branch) throws IOException {
+		Map<String, TreeEntry> files = git.readFlatTree(
+				git.readCommit(commitID).getTreeID());
+
+		// files tracked before the checkout
+		Map<String, TreeEntry> trackedFiles = new HashMap<String, TreeEntry>();
+		String headID = git.resolveCommit(GitDirectory.HEAD);
+
+		if (headID != null) {
+			trackedFiles = git.readFlatTree(git.readCommit(headID).getTreeID());
+		}
+
+		GitIgnoreRules rules = new GitIgnoreRules().extend("", git.getExcludeFile());
+		removeFiles(getDirectory(), "", files, trackedFiles, getDirectories(files.keySet()), 
+				getDirectories(trackedFiles.keySet()), rules);
+
+		for (Map.Entry<String, TreeEntry> entry : files.entrySet()) {
+			writeFile(git, entry.getKey(), entry.getValue());
+		}
+
+		git.writeIndex(files);
+		git.writeHead(commitID, branch);
+	}
+
+	/**
+	 * Removes files under dir that are neither in files nor ignored,
+	 * and directories left empty, the way checking out and
+	 * "git clean -f -d" do. Files that were tracked are removed
+	 * even if they are ignored.
+	 *
+	 * @param path the path of dir relative to the working directory,
+	 *        separated by '/' and ending with '/', or "" for the
+	 *        working directory.
+	 * @param directories every directory that contains a file in files.
+	 * @param trackedDirectories every directory that contains a file 
+	 *        in trackedFiles.
+	 * @modifies dir
+	 * @throws IOException
+	 */
+	private void removeFiles(File dir, String path, Map<String, TreeEntry> files,
+			Map<String, TreeEntry> trackedFiles, Set<String> directories,
+			Set<String> trackedDirectories, GitIgnoreRules rules) throws IOException {
+		rules = rules.extend(path, new File(dir, GitIgnoreRules.GITIGNORE));
+		File[] children = dir.listFiles();
+
+		if (children == null) {
+			return;
+		}
+
+		for (File child : children) {
+			String childPath = path + child.getName();
+
+			if (path.length() == 0 && child.getName().equals(GitDirectory.GIT_DIR)) {
+				continue;
+			}
+
+			if (child.isDirectory() && !isSymlink(child)) {
+				if (files.containsKey(childPath)
+						|| new File(child, GitDirectory.GIT_DIR).exists()) {
+					// a submodule or another repository
+					continue;
+				}
+
+				boolean hasFiles = directories.contains(childPath);
+
+				if (!hasFiles && !trackedDirectories.contains(childPath)
+						&& rules.isIgnored(childPath, true)) {
+					continue;
+				}
+
+				removeFiles(child, childPath + "/", files, trackedFiles, directories, 
+						trackedDirectories, rules);
+
+				String[] remaining = child.list();
+
+				if (!hasFiles && remaining != null && remaining.length == 0
+						&& !child.delete()) {
+					throw new IOException("cannot delete " + child);
+				}
+			} else if (!files.containsKey(childPath)
+					&& (trackedFiles.containsKey(childPath)
+							|| !rules.isIgnored(childPath, false))) {
+				if (!child.delete()) {
+					throw new IOException("cannot delete " + child);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the content of entry into the working directory at path,
+	 * unless the file there already has that content. A symbolic link
+	 * is created anew, pointing at the link target in entry.
+	 *
+	 * @modifies the file at path
+	 * @throws IOException
+	 */
+	private void writeFile(GitDirectory git, String path, TreeEntry entry)
+			throws IOException {
+		File file = new File(getDirectory(), path);
+
+		if (entry.isGitlink()) {
+			// submodules are not checked out
+			if (!file.isDirectory() && !file.mkdirs()) {
+				throw new IOException("cannot create " + file);
+			}
+
+			return;
+		}
+
+		// never write, or hash, through a link into its target
+		if (isSymlink(file)) {
+			if (!file.delete()) {
+				throw new IOException("cannot delete " + file);
+			}
+		} else if (file.isDirectory()) {
+			FileUtils.deleteDirectory(file);
+		}
+
+		if (entry.isSymlink()) {
+			createParentDirectory(file);
+			writeSymlink(file, new String(git.readObject(entry.getID()).getContent(), "UTF-8"));
+			return;
+		}
+
+		if (!file.isFile() || !GitDirectory.hashBlob(file).equals(entry.getID())) {
+			createParentDirectory(file);
+			OutputStream out = new FileOutputStream(file);
+
+			try {
+				out.write(git.readObject(entry.getID()).getContent());
+			} finally {
+				out.close();
+			}
+		}
+
+		if (file.canExecute() != entry.isExecutable()) {
+			file.setExecutable(entry.isExecutable(), false);
+		}
+	}
+
+	/**
+	 * Creates a symbolic link at file pointing at target, as is.
+	 *
+	 * @requires nothing exists at file.
+	 * @modifies file
+	 * @throws IOException
+	 */
+	private static void writeSymlink(File file, String target) throws IOException {
+		int exitValue;
+
+		try {
+			exitValue = Util.runProcess(new String[] { "ln", "-s", target, file.getName() }, 
+					file.getParentFile()).exitValue();
+		} catch (InterruptedException e) {
+			throw new IOException("cannot create symbolic link " + file + ": " + e.getMessage());
+		}
+
+		if (exitValue != 0) {
+			throw new IOException("cannot create symbolic link " + file);
+		}
+	}
+
+	/**
+	 * @return true if file is a symbolic link, dangling or not.
+	 * @throws IOException
+	 */
+	private static boolean isSymlink(File file) throws IOException {
+		File parent = file.getParentFile();
+
+		if (parent == null || !parent.isDirectory()) {
+			return false;
+		}
+
+		File unresolved = new File(parent.getCanonicalFile(), file.getName());
+
+		if (!unresolved.exists()) {
+			// a dangling link is listed, but does not exist
+			String[] names = parent.list();
+			return names != null && Arrays.asList(names).contains(file.getName());
+		}
+
+		return !unresolved.getCanonicalFile().equals(unresolved.getAbsoluteFile());
+	}
+
+	/**
+	 * Creates the parent directory of file, replacing files
+	 * that are in the way.
+	 *
+	 * @modifies the working directory
+	 * @throws IOException
+	 */
+	private void createParentDirectory(File file) throws IOException {
+		File parent = file.getParentFile();
+
+		if (parent.isDirectory()) {
+			return;
+		}
+
+		createParentDirectory(parent);
+
+		if (parent.isFile() && !parent.delete()) {
+			throw new IOException("cannot delete " + parent);
+		}
+
+		if (!parent.mkdir()) {
+			throw new IOException("cannot create " + parent);
+		}
+	}
+
+	/**
+	 * @return the paths of all directories that contain a path in paths.
+	 */
+	private static Set<String> getDirectories(Set<String> paths) {
+		Set<String> directories = new HashSet<String>();
+
+		for (String path : paths) {
+			int slash = path.lastIndexOf('/');
+
+			while (slash > 0 && directories.add(path.substring(0, slash))) {
+				slash = path.lastIndexOf('/', slash - 1);
+			}
+		}
+
+		return directories;
+	}
+
+	@Override
+	public boolean discardFileChange(String filename) throws IOException,
+			InterruptedException {
+		File file = new File(getDirectory().getPath() + File.separatorChar + filename);
+
+		GitDirectory git = getGitDirectory();
+		String headID = git.resolveCommit(GitDirectory.HEAD);
+		TreeEntry entry = null;
+
+		if (headID != null) {
+			entry = git.findTreeEntry(git.readCommit(headID).getTreeID(), filename);
+		}
+
+		if (entry == null) {
+			// filename is not tracked
+			return !file.exists();
+		}
+
+		if (entry.isTree()) {
+			for (Map.Entry<String, TreeEntry> fileEntry :
+					git.readFlatTree(entry.getID()).entrySet()) {
+				writeFile(git, filename + "/" + fileEntry.getKey(), fileEntry.getValue());
+			}
+		} else {
+			writeFile(git, filename, entry);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Reads the blob of filename from the object database.
+	 */
+	@Override
+	public boolean materializeFile(String commitID, String filename)
+			throws IOException, InterruptedException {
+		GitDirectory git = getGitDirectory();
+		String id = git.resolveCommit(commitID);
+
+		if (id == null) {
+			return false;
+		}
+
+		TreeEntry entry = git.findTreeEntry(git.readCommit(id).getTreeID(), filename);
+
+		if (entry == null || entry.isTree()) {
+			return false;
+		}
+
+		writeFile(git, filename, entry);
+
+		return true;
+	}
+
+	@Override
+	public Map<String, String> getFileObjectIDs(String commitID)
+			throws IOException, InterruptedException {
+		GitDirectory git = getGitDirectory();
+		String id = git.resolveCommit(commitID);
+
+		if (id == null) {
+			throw new IOException("cannot read commit " + commitID);
+		}
+
+		Map<String, String> files = new HashMap<String, String>();
+
+		for (Map.Entry<String, TreeEntry> entry :
+				git.readFlatTree(git.readCommit(id).getTreeID()).entrySet()) {
+			TreeEntry treeEntry = entry.getValue();
+			files.put(entry.getKey(), String.format("%06o", treeEntry.getMode())
+					+ " " + treeEntry.getID());
+		}
+
+		return files;
+	}
+
+	@Override
+	public Set<DiffFile> getDiffFiles(String referenceCommitID,
+			String otherCommitID) throws IOException, InterruptedException {
+		GitDirectory git = getGitDirectory();
+		String referenceID = git.resolveCommit(referenceCommitID);
+		String otherID = git.resolveCommit(otherCommitID);
+
+		if (referenceID == null || otherID == null) {
+			throw new IOException("cannot resolve commit "
+					+ (referenceID == null ? referenceCommitID : otherCommitID));
+		}
+
+		Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+
+		addDiffFiles(git, git.readCommit(referenceID).getTreeID(),
+				git.readCommit(otherID).getTreeID(), "", diffFiles);
+
+		return diffFiles;
+	}
+
+	/**
+	 * Adds the DiffFiles between the trees referenceTreeID and otherTreeID,
+	 * with their paths prefixed by prefix, to diffFiles. Subtrees with
+	 * the same id are skipped without being read.
+	 *
+	 * @param referenceTreeID a tree id, or null for an empty tree.
+	 * @param otherTreeID a tree id, or null for an empty tree.
+	 * @modifies diffFiles
+	 * @throws IOException
+	 */
+	private void addDiffFiles(GitDirectory git, /*@Nullable*/ String referenceTreeID,
+			/*@Nullable*/ String otherTreeID, String prefix, Set<DiffFile> diffFiles)
+			throws IOException {
+		if (referenceTreeID != null && referenceTreeID.equals(otherTreeID)) {
+			return;
+		}
+
+		Map<String, TreeEntry> referenceEntries = new HashMap<String, TreeEntry>();
+		Map<String, TreeEntry> otherEntries = new HashMap<String, TreeEntry>();
+
+		if (referenceTreeID != null) {
+			referenceEntries = git.readTree(referenceTreeID);
+		}
+
+		if (otherTreeID != null) {
+			otherEntries = git.readTree(otherTreeID);
+		}
+
+		Set<String> names = new TreeSet<String>(referenceEntries.keySet());
+		names.addAll(otherEntries.keySet());
+
+		for (String name : names) {
+			TreeEntry referenceEntry = referenceEntries.get(name);
+			TreeEntry otherEntry = otherEntries.get(name);
+			String path = prefix + name;
+
+			if (referenceEntry != null && referenceEntry.equals(otherEntry)) {
+				continue;
+			}
+
+			// a path may be a tree on one side and a file on the other
+			String referenceSubtreeID = referenceEntry != null && referenceEntry.isTree()
+					? referenceEntry.getID() : null;
+			String otherSubtreeID = otherEntry != null && otherEntry.isTree()
+					? otherEntry.getID() : null;
+
+			if (referenceSubtreeID != null || otherSubtreeID != null) {
+				addDiffFiles(git, referenceSubtreeID, otherSubtreeID, path + "/", diffFiles);
+			}
+
+			boolean referenceIsFile = referenceEntry != null && !referenceEntry.isTree();
+			boolean otherIsFile = otherEntry != null && !otherEntry.isTree();
+
+			if (referenceIsFile && otherIsFile) {
+				diffFiles.add(new DiffFile(DiffType.MODIFIED, path));
+			} else if (referenceIsFile) {
+				diffFiles.add(new DiffFile(DiffType.DELETED, path));
+			} else if (otherIsFile) {
+				diffFiles.add(new DiffFile(DiffType.ADDED, path));
+			}
+		}
+	}
+
+	@Override
+	public IRepository createWorkingTree(File workingTreeDir, IBuildStrategy buildStrategy)
+			throws Exception {
+		InProcessGitRepository workingTree = new InProcessGitRepository(workingTreeDir,
+				buildStrategy, getResultCache());
+
+		if (!new File(workingTreeDir, GitDirectory.GIT_DIR).exists()) {
+			GitDirectory git = getGitDirectory();
+			String headID = git.resolveCommit(GitDirectory.HEAD);
+
+			if (headID == null) {
+				throw new Exception("cannot create working tree " + workingTreeDir
+						+ " of a repository without commits");
+			}
+
+			git.addWorkingTree(workingTreeDir, headID);
+
+			GitDirectory workingTreeGit = workingTree.getGitDirectory();
+			workingTree.checkoutTree(workingTreeGit, headID, null);
+		}
+
+		return workingTree;
+	}
+
+	/**
+	 * Checks out startCommit and walks its history in the order of
+	 * "git log --date-order": a commit is shown only after all of its
+	 * children, and among the commits that may be shown next, the one
+	 * with the latest committer time goes first, ties going to the one
+	 * that became ready first.
+	 */
+	@Override
+	protected Map<String, List<String>> readCommitGraph(String startCommitID,
+			String endCommitID) throws Exception {
+		String shortStartCommitID = startCommitID.substring(0, HASH_LENGTH);
+		String shortEndCommitID = endCommitID.substring(0, HASH_LENGTH);
+
+		// check out startCommit, which will be the new HEAD
+		boolean checkoutCommitSuccessful = checkoutCommit(shortStartCommitID);
+
+		if (!checkoutCommitSuccessful) {
+			throw new Exception("git checkout commit " + shortStartCommitID + " unsuccessful");
+		}
+
+		GitDirectory git = getGitDirectory();
+		String startID = git.resolveCommit(GitDirectory.HEAD);
+
+		String endID = git.resolveCommit(shortEndCommitID);
+
+		if (endID == null) {
+			throw new Exception("commit " + shortEndCommitID + " not found");
+		}
+
+		// the commits "git log" may show up to endCommit
+		Map<String, Commit> commits = new RangeWalk(git).read(startID, endID);
+
+		/*
+		 * The childEdgeCounter map maps a commit id to the number of its
+		 * children that have not been shown. A commit becomes ready to be
+		 * shown when the count drops to 0. Parents outside of commits are
+		 * ancestors of endCommit, which are never shown before it.
+		 */
+		Map<String, Integer> childEdgeCounter = new HashMap<String, Integer>();
+
+		for (String id : commits.keySet()) {
+			childEdgeCounter.put(id, 0);
+		}
+
+		for (Commit commit : commits.values()) {
+			for (String parentID : commit.getParentIDs()) {
+				if (commits.containsKey(parentID)) {
+					childEdgeCounter.put(parentID, childEdgeCounter.get(parentID) + 1);
+				}
+			}
+		}
+
+		PriorityQueue<ReadyCommit> readyCommits = new PriorityQueue<ReadyCommit>(11,
+				new Comparator<ReadyCommit>() {
+			@Override
+			public int compare(ReadyCommit a, ReadyCommit b) {
+				if (a.commit.getCommitTime() != b.commit.getCommitTime()) {
+					return a.commit.getCommitTime() > b.commit.getCommitTime() ? -1 : 1;
+				}
+
+				return a.sequence < b.sequence ? -1 : (a.sequence > b.sequence ? 1 : 0);
+			}
+		});
+
+		int sequence = 0;
+		readyCommits.add(new ReadyCommit(commits.get(startID), sequence++));
+
+		Map<String, String> shortIDs = new HashMap<String, String>();
+		Map<String, List<String>> commitIDToParentsIDs = new LinkedHashMap<String, List<String>>();
+
+		while (!readyCommits.isEmpty()) {
+			Commit commit = readyCommits.remove().commit;
+			List<String> parentsIDs = new ArrayList<String>();
+
+			for (String parentID : commit.getParentIDs()) {
+				parentsIDs.add(abbreviate(git, parentID, shortIDs));
+			}
+
+			String commitID = abbreviate(git, commit.getID(), shortIDs);
+			commitIDToParentsIDs.put(commitID, parentsIDs);
+
+			if (commitID.equals(shortEndCommitID)) {
+				break;
+			}
+
+			for (String parentID : commit.getParentIDs()) {
+				if (!commits.containsKey(parentID)) {
+					continue;
+				}
+
+				int childEdgeCount = childEdgeCounter.get(parentID) - 1;
+				childEdgeCounter.put(parentID, childEdgeCount);
+
+				if (childEdgeCount == 0) {
+					readyCommits.add(new ReadyCommit(commits.get(parentID), sequence++));
+				}
+			}
+		}
+
+		return commitIDToParentsIDs;
+	}
+
+	/**
+	 * Reads the parents of each commit in commitIDs from its commit object.
+	 */
+	@Override
+	protected Map<String, List<String>> readParentsIDs(Collection<String> commitIDs)
+			throws IOException, InterruptedException {
+		GitDirectory git = getGitDirectory();
+
+		Map<String, String> shortIDs = new HashMap<String, String>();
+		Map<String, List<String>> commitIDToParentsIDs = new HashMap<String, List<String>>();
+
+		for (String commitID : commitIDs) {
+			String id = git.resolveCommit(commitID);
+
+			if (id == null) {
+				throw new IOException("commit " + commitID + " not found");
+			}
+
+			List<String> parentsIDs = new ArrayList<String>();
+
+			for (String parentID : git.readCommit(id).getParentIDs()) {
+				parentsIDs.add(abbreviate(git, parentID, shortIDs));
+			}
+
+			commitIDToParentsIDs.put(commitID, parentsIDs);
+		}
+
+		return commitIDToParentsIDs;
+	}
+
+	/**
+	 * @return the abbreviation of id, as "git log" shows it.
+	 * @modifies shortIDs
+	 * @throws IOException
+	 */
+	private static String abbreviate(GitDirectory git, String id,
+			Map<String, String> shortIDs) throws IOException {
+		String shortID = shortIDs.get(id);
+
+		if (shortID == null) {
+			shortID = git.abbreviate(id);
+			shortIDs.put(id, shortID);
+		}
+
+		return shortID;
+	}
+
+	/**
+	 * Computes the DiffFiles of each parent edge from the trees
+	 * of the commits.
+	 */
+	@Override
+	protected Map<String, Map<String, Set<DiffFile>>> readParentDiffFiles(
+			String startCommitID, Map<String, List<String>> commitIDToParentsIDs)
+			throws IOException, InterruptedException {
+		Map<String, Map<String, Set<DiffFile>>> commitIDToParentDiffFiles =
+			new HashMap<String, Map<String, Set<DiffFile>>>();
+
+		for (Map.Entry<String, List<String>> entry : commitIDToParentsIDs.entrySet()) {
+			String commitID = entry.getKey();
+			Map<String, Set<DiffFile>> parentDiffFiles = new HashMap<String, Set<DiffFile>>();
+
+			for (String parentID : entry.getValue()) {
+				// ignore parents that are not in the range [startCommitID, endCommitID]
+				if (commitIDToParentsIDs.containsKey(parentID)) {
+					parentDiffFiles.put(parentID, getDiffFiles(parentID, commitID));
+				}
+			}
+
+			commitIDToParentDiffFiles.put(commitID, parentDiffFiles);
+		}
+
+		return commitIDToParentDiffFiles;
+	}
+
+	/**
+	 * RangeWalk reads the commits reachable from a start commit that are
+	 * not ancestors of an end commit, and the end commit itself, which
+	 * are the commits that may be shown before the end commit in
+	 * "git log --date-order" order, as in "git rev-list start ^end^@".
+	 *
+	 * Commits are read newest first, from the start commit and from the
+	 * parents of the end commit at the same time, and the ancestors of
+	 * the end commit are marked as they are reached. The walk stops once
+	 * only ancestors are left to read and they are all older than every
+	 * other commit read, so that the history below the range is not
+	 * read. As in git, committer times are assumed not to decrease from
+	 * parent to child.
+	 */
+	private static final class RangeWalk {
+
+		private final GitDirectory git;
+		// map: commit id -> Commit, of all commits read
+		private final Map<String, Commit> commits;
+		private final Set<String> ancestorIDs;
+		private final Set<String> queuedIDs;
+		private final PriorityQueue<Commit> queue;
+		// number of queued commits that are not ancestors
+		private int numQueuedInRange;
+
+		RangeWalk(GitDirectory git) {
+			this.git = git;
+			commits = new HashMap<String, Commit>();
+			ancestorIDs = new HashSet<String>();
+			queuedIDs = new HashSet<String>();
+			queue = new PriorityQueue<Commit>(11, new Comparator<Commit>() {
+				@Override
+				public int compare(Commit a, Commit b) {
+					if (a.getCommitTime() != b.getCommitTime()) {
+						return a.getCommitTime() > b.getCommitTime() ? -1 : 1;
+					}
+
+					return a.getID().compareTo(b.getID());
+				}
+			});
+			numQueuedInRange = 0;
+		}
+
+		/**
+		 * @requires endID is reachable from startID.
+		 * @return a map from commit id to Commit, of the commits in range.
+		 * @throws IOException
+		 */
+		Map<String, Commit> read(String startID, String endID) throws IOException {
+			Commit end = git.readCommit(endID);
+			commits.put(endID, end);
+
+			for (String parentID : end.getParentIDs()) {
+				markAncestor(parentID);
+			}
+
+			if (!commits.containsKey(startID)) {
+				enqueue(git.readCommit(startID));
+			}
+
+			long oldestCommitTime = Long.MAX_VALUE;
+
+			while (!queue.isEmpty()) {
+				if (numQueuedInRange == 0
+						&& queue.peek().getCommitTime() < oldestCommitTime) {
+					break;
+				}
+
+				Commit commit = queue.remove();
+				queuedIDs.remove(commit.getID());
+
+				if (ancestorIDs.contains(commit.getID())) {
+					for (String parentID : commit.getParentIDs()) {
+						markAncestor(parentID);
+					}
+
+					continue;
+				}
+
+				numQueuedInRange--;
+				oldestCommitTime = Math.min(oldestCommitTime, commit.getCommitTime());
+
+				for (String parentID : commit.getParentIDs()) {
+					if (!commits.containsKey(parentID)) {
+						enqueue(git.readCommit(parentID));
+					}
+				}
+			}
+
+			Map<String, Commit> rangeCommits = new HashMap<String, Commit>();
+
+			for (Map.Entry<String, Commit> entry : commits.entrySet()) {
+				if (!ancestorIDs.contains(entry.getKey())) {
+					rangeCommits.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			return rangeCommits;
+		}
+
+		/**
+		 * Marks id as an ancestor of the end commit. If it has not been
+		 * read, it is read and queued; if it has been walked past, the
+		 * mark is carried down to its ancestors that have been read.
+		 *
+		 * @modifies this
+		 * @throws IOException
+		 */
+		private void markAncestor(String id) throws IOException {
+			LinkedList<String> pendingIDs = new LinkedList<String>();
+			pendingIDs.add(id);
+
+			while (!pendingIDs.isEmpty()) {
+				String pendingID = pendingIDs.removeLast();
+
+				if (!ancestorIDs.add(pendingID)) {
+					continue;
+				}
+
+				Commit commit = commits.get(pendingID);
+
+				if (commit == null) {
+					enqueue(git.readCommit(pendingID));
+				} else if (queuedIDs.contains(pendingID)) {
+					numQueuedInRange--;
+				} else {
+					// its parents have been read already
+					pendingIDs.addAll(commit.getParentIDs());
+				}
+			}
+		}
+
+		private void enqueue(Commit commit) {
+			commits.put(commit.getID(), commit);
+			queue.add(commit);
+			queuedIDs.add(commit.getID());
+
+			if (!ancestorIDs.contains(commit.getID())) {
+				numQueuedInRange++;
+			}
+		}
+	}
+
+	/**
+	 * ReadyCommit is a commit whose children have all been shown,
+	 * numbered in the order commits became ready.
+	 */
+	private static final class ReadyCommit {
+
+		private final Commit commit;
+		private final int sequence;
+
+		ReadyCommit(Commit commit, int sequence) {
+			this.commit = commit;
+			this.sequence = sequence;
+		}
+	}
+}
@@ -1,11 +1,11 @@
 package histaroach.model;
 
-import histaroach.buildstrategy.IBuildStrategy;
 import histaroach.model.DiffFile.DiffType;
 import histaroach.model.Revision.Compilable;
 import histaroach.util.Util;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.Set;
 
 
@@ -23,11 +23,17 @@ import java.util.Set;
  *  5. restoreBaseRevision(). 
  *  
  * To get a different IntermediateRevision of the same base-successor (ie. 
- * differs in delta), repeat steps 1-5 without calling checkoutBaseSuccessorRevisions().
+ * differs in delta), repeat steps 1-5 without calling checkoutBaseSuccessorRevisions(). 
+ * Alternatively, skip step 5 and apply the next delta with applyDelta(appliedDelta), 
+ * which only touches the files in which the two deltas differ.
+ * 
+ * The successor's version of each file in delta is either copied from 
+ * a checkout of successor in clonedRepository or, if clonedRepository 
+ * is null, written straight from successor's commit in repository.
  */
 public class IntermediateRevision {
 	private final IRepository repository;
-    private final IRepository clonedRepository;
+    private final /*@Nullable*/ IRepository clonedRepository;
     
     private final Revision base;
     private final Revision successor;
@@ -41,6 +47,9 @@ public class IntermediateRevision {
     /**
      * Create an empty IntermediateRevision.
      * 
+     * @param clonedRepository a clone of repository to check out successor 
+     *        into, or null to write the files of delta from successor's 
+     *        commit without checking it out.
      * @requires base and successor Revisions are compilable.
      * @throws InterruptedException 
      * @throws IOException 
@@ -64,6 +73,21 @@ public class IntermediateRevision {
         resetFields();
     }
     
+    /**
+     * Create an empty IntermediateRevision whose total delta is already known.
+     */
+    private IntermediateRevision(Revision base, Revision successor, Set<DiffFile> totalDelta, 
+    		IRepository repository, IRepository clonedRepository) {
+    	this.base = base;
+    	this.successor = successor;
+    	this.totalDelta = totalDelta;
+    	
+    	this.repository = repository;
+    	this.clonedRepository = clonedRepository;
+    	
+    	resetFields();
+    }
+    
     /**
 	 * Checks out base and successor Revisions into the working directories.
 	 * 
@@ -71,7 +95,10 @@ public class IntermediateRevision {
 	 */
 	public void checkoutBaseSuccessorRevisions() throws Exception {
 		checkoutRevision(base, repository);
-		checkoutRevision(successor, clonedRepository);
+		
+		if (clonedRepository != null) {
+			checkoutRevision(successor, clonedRepository);
+		}
 	}
 	
 	/**
@@ -90,55 +117,141 @@ public class IntermediateRevision {
 	 * @throws Exception
 	 */
 	public void applyDelta() throws Exception {
-		boolean checkoutCommitSuccessful = clonedRepository.checkoutCommit(
-				successor.getCommitID());
-    	
-    	if (!checkoutCommitSuccessful) {
-    		throw new Exception("check out commit " + successor.getCommitID() + 
-    				" from " + clonedRepository.getDirectory() + " unsuccessful");
-    	}
+		if (clonedRepository != null) {
+			checkoutRevision(successor, clonedRepository);
+		}
     	
     	for (DiffFile diffFile : delta) {
-    		String filename = diffFile.getFileName();
-    		DiffType type = diffFile.getDiffType();
-    		
-    		if (type == DiffType.ADDED || type == DiffType.MODIFIED) {
-    			Util.copyFile(filename, clonedRepository.getDirectory(), 
-    					repository.getDirectory());
-    		} else {
-    			Util.deleteFile(filename, repository.getDirectory());
-    		}        		
+    		applyDiffFile(diffFile);
     	}
 	}
+	
+	/**
+	 * Applies the set of changes to base Revision in the working directory, 
+	 * where appliedDelta is currently applied instead. Files in appliedDelta 
+	 * but not in delta are restored, and files in delta but not in 
+	 * appliedDelta are applied.
+	 * 
+	 * @requires appliedDelta and delta are subsets of the same totalDelta, 
+	 *           and base and successor Revisions have been checked out.
+	 * @modifies file system
+	 * @throws Exception
+	 */
+	public void applyDelta(Set<DiffFile> appliedDelta) throws Exception {
+		for (DiffFile diffFile : appliedDelta) {
+			if (!delta.contains(diffFile)) {
+				restoreDiffFile(diffFile);
+			}
+		}
+		
+		for (DiffFile diffFile : delta) {
+			if (!appliedDelta.contains(diffFile)) {
+				applyDiffFile(diffFile);
+			}
+		}
+	}
+	
+	/**
+	 * Applies a single change to base Revision.
+	 * 
+	 * @modifies file system
+	 * @throws Exception
+	 */
+	private void applyDiffFile(DiffFile diffFile) throws Exception {
+		String filename = diffFile.getFileName();
+		DiffType type = diffFile.getDiffType();
+		
+		if (type == DiffType.ADDED || type == DiffType.MODIFIED) {
+			copySuccessorFile(filename);
+		} else {
+			Util.deleteFile(filename, repository.getDirectory());
+		}
+	}
+
+	/**
+	 * Writes successor's version of filename into the working 
+	 * directory of repository.
+	 * 
+	 * @modifies file system
+	 * @throws Exception
+	 */
+	private void copySuccessorFile(String filename) throws Exception {
+		if (clonedRepository != null) {
+			Util.copyFile(filename, clonedRepository.getDirectory(), 
+					repository.getDirectory());
+		} else if (!repository.materializeFile(successor.getCommitID(), filename)) {
+			throw new Exception("write file " + filename + " of commit " + 
+					successor.getCommitID() + " in " + repository.getDirectory() + 
+					" unsuccessful");
+		}
+	}
 
 	/**
 	 * Compiles this IntermediateRevision, runs tests, and 
-	 * parses the test results.
+	 * parses the test results, unless the result cache of 
+	 * repository already has a result of the same source tree.
 	 * 
 	 * @modifies this
 	 * @throws Exception
 	 */
 	public void runTest() throws Exception {
-		IBuildStrategy buildStrategy = repository.getBuildStrategy();
+		ResultCache resultCache = repository.getResultCache();
+		BuildTestResult result;
 		
-	    compilable = buildStrategy.build();
-	    
-	    if (compilable == Compilable.YES) {
-	    	
-	    	try {
-	    		testResult = buildStrategy.runTest();
-	    		testAborted = false;
-	    	} catch (InterruptedException e) {
-	    		testResult = null;
-	    		testAborted = true;
-	    	}
-	    	
-	    } else {
-	    	testResult = null;
-	    	testAborted = false;
-	    }
+		if (resultCache == null) {
+			result = BuildTestResult.evaluate(repository);
+		} else {
+			String key = resultCache.getKey(repository, base.getCommitID(), 
+					successor.getCommitID(), delta);
+			result = resultCache.evaluate(repository, key);
+		}
+		
+	    compilable = result.isCompilable();
+	    testAborted = result.hasTestAborted();
+	    testResult = result.getTestResult();
 	}
 
+	/**
+	 * Like runTest(), but runs only the tests in testNames, so that 
+	 * the TestResult has no other tests, unless the project cannot 
+	 * run them separately.
+	 * 
+	 * @modifies this
+	 * @throws Exception
+	 */
+	public void runTest(Collection<String> testNames) throws Exception {
+		ResultCache resultCache = repository.getResultCache();
+		BuildTestResult result;
+		
+		if (resultCache == null) {
+			result = BuildTestResult.evaluate(repository, testNames);
+		} else {
+			String key = resultCache.getKey(repository, base.getCommitID(), 
+					successor.getCommitID(), delta);
+			key = resultCache.getKey(key, testNames);
+			result = resultCache.evaluate(repository, key, testNames);
+		}
+		
+	    compilable = result.isCompilable();
+	    testAborted = result.hasTestAborted();
+	    testResult = result.getTestResult();
+	}
+
+	/**
+	 * Creates an empty IntermediateRevision of the same base and successor 
+	 * Revisions and working directories as this, without computing their 
+	 * total delta again.
+	 * 
+	 * @return an IntermediateRevision with delta.
+	 */
+	public IntermediateRevision makeSibling(Set<DiffFile> delta) {
+		IntermediateRevision sibling = new IntermediateRevision(base, successor, 
+				totalDelta, repository, clonedRepository);
+		sibling.delta = delta;
+		
+		return sibling;
+	}
+	
 	/**
      * Makes a copy of this IntermediateRevision.
      * 
@@ -146,8 +259,20 @@ public class IntermediateRevision {
      * @throws Exception 
      */
     public IntermediateRevision makeCopy() throws Exception {
+    	return makeCopy(repository, clonedRepository);
+    }
+    
+    /**
+     * Makes a copy of this IntermediateRevision that creates the actual 
+     * intermediate revision in the working directories of repository 
+     * and clonedRepository instead.
+     * 
+     * @return a deep copy of this IntermediateRevision.
+     */
+    public IntermediateRevision makeCopy(IRepository repository, 
+    		IRepository clonedRepository) {
     	IntermediateRevision copy = new IntermediateRevision(base, successor, 
-    			repository, clonedRepository);
+    			totalDelta, repository, clonedRepository);
     	copy.delta = delta;
     	copy.compilable = compilable;
     	copy.testAborted = testAborted;
@@ -172,24 +297,34 @@ public class IntermediateRevision {
      */
     public void restoreBaseRevision() throws Exception {    		
 		for (DiffFile diffFile : delta) {
-			String filename = diffFile.getFileName();
-	    	DiffType type = diffFile.getDiffType();
-	    	
-	    	if (type == DiffType.DELETED || type == DiffType.MODIFIED) {
-	    		boolean restoreFileSuccessful = repository.discardFileChange(filename);
-	    		
-	    		if (!restoreFileSuccessful) {
-	    			throw new Exception("restore file " + filename + " in " + 
-	    					repository.getDirectory() + " unsuccessful");
-	    		}
-	    	} else {
-	    		Util.deleteFile(filename, repository.getDirectory());
-	    	}
+			restoreDiffFile(diffFile);
 		}
     	
     	resetFields();
     }
     
+    /**
+     * Restores a single changed file to its base Revision state.
+     * 
+     * @modifies file system
+     * @throws Exception
+     */
+    private void restoreDiffFile(DiffFile diffFile) throws Exception {
+    	String filename = diffFile.getFileName();
+    	DiffType type = diffFile.getDiffType();
+    	
+    	if (type == DiffType.DELETED || type == DiffType.MODIFIED) {
+    		boolean restoreFileSuccessful = repository.discardFileChange(filename);
+    		
+    		if (!restoreFileSuccessful) {
+    			throw new Exception("restore file " + filename + " in " + 
+    					repository.getDirectory() + " unsuccessful");
+    		}
+    	} else {
+    		Util.deleteFile(filename, repository.getDirectory());
+    	}
+    }
+    
     public Revision getBaseRevision() {
     	return base;
     }
@@ -0,0 +1,302 @@
+package histaroach.model;
+
+import histaroach.model.DiffFile.DiffType;
+import histaroach.util.GitDirectory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+
+
+/**
+ * ResultCache is a persistent cache of BuildTestResults, keyed by the
+ * contents of the source tree that was built and tested, and by a
+ * signature of the command that built and tested it.
+ *
+ * The contents of a source tree are the git object IDs of its tracked
+ * files, so a key is computed without reading the working directory:
+ * from a commit for a Revision, and from base and successor commits and
+ * a delta for an IntermediateRevision. Identical trees have the same
+ * key however they are reached.
+ *
+ * Each entry is a file in the cache directory named after its key.
+ * Entries are written atomically, so concurrent workers and processes
+ * may share a cache directory.
+ */
+public class ResultCache {
+
+	private static final String TEMP_PREFIX = "entry";
+	private static final String CHARSET = "UTF-8";
+
+	// commits whose files are kept in memory
+	private static final int MAX_CACHED_COMMITS = 16;
+
+	private final File directory;
+	private final String signature;
+
+	// map: commit id -> path -> object id, in access order
+	private final Map<String, Map<String, String>> commitIDToFiles;
+
+	/**
+	 * Creates a ResultCache.
+	 *
+	 * @param directory - directory of the cache entries,
+	 *        created if it does not exist.
+	 * @param signature - signature of the commands that build and test
+	 *        the project; entries of another signature are never returned.
+	 */
+	public ResultCache(File directory, String signature) {
+		this.directory = directory;
+		this.signature = signature;
+
+		commitIDToFiles = Collections.synchronizedMap(
+				new LinkedHashMap<String, Map<String, String>>(
+						MAX_CACHED_COMMITS, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, Map<String, String>> eldest) {
+				return size() > MAX_CACHED_COMMITS;
+			}
+		});
+	}
+
+	/**
+	 * @return the key of the source tree of commit.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public String getKey(IRepository repository, String commitID)
+			throws IOException, InterruptedException {
+		return getKey(getFiles(repository, commitID));
+	}
+
+	/**
+	 * @return the key of the source tree of base commit with delta
+	 *         applied, ie. with the files in delta as they are in
+	 *         successor commit.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public String getKey(IRepository repository, String baseCommitID,
+			String successorCommitID, Set<DiffFile> delta)
+			throws IOException, InterruptedException {
+		Map<String, String> files = new TreeMap<String, String>(
+				getFiles(repository, baseCommitID));
+		Map<String, String> successorFiles = getFiles(repository, successorCommitID);
+
+		for (DiffFile diffFile : delta) {
+			String filename = diffFile.getFileName();
+			String objectID = successorFiles.get(filename);
+
+			if (diffFile.getDiffType() == DiffType.DELETED || objectID == null) {
+				files.remove(filename);
+			} else {
+				files.put(filename, objectID);
+			}
+		}
+
+		return getKey(files);
+	}
+
+	/**
+	 * @return the key of the source tree of key, with only the tests
+	 *         in testNames run.
+	 */
+	public String getKey(String key, Collection<String> testNames) {
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+			digest.update((key + "\n").getBytes(CHARSET));
+
+			for (String testName : new TreeSet<String>(testNames)) {
+				digest.update((testName + "\n").getBytes(CHARSET));
+			}
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return GitDirectory.toHex(digest.digest(), 0);
+	}
+
+	/**
+	 * @return the cached BuildTestResult of key,
+	 *         or null if there is none.
+	 */
+	public BuildTestResult get(String key) {
+		File entry = getEntryFile(key);
+
+		if (!entry.isFile()) {
+			return null;
+		}
+
+		try {
+			ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+					new FileInputStream(entry)));
+
+			try {
+				return (BuildTestResult) in.readObject();
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			// an entry of an incompatible version, treated as missing
+			return null;
+		}
+	}
+
+	/**
+	 * Caches result under key, replacing any result there is.
+	 *
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	public void put(String key, BuildTestResult result) throws IOException {
+		File entry = getEntryFile(key);
+		File dir = entry.getParentFile();
+		FileUtils.forceMkdir(dir);
+
+		// written aside, then renamed into place
+		File tempFile = File.createTempFile(TEMP_PREFIX, null, dir);
+		ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+				new FileOutputStream(tempFile)));
+
+		try {
+			out.writeObject(result);
+		} finally {
+			out.close();
+		}
+
+		if (!tempFile.renameTo(entry)) {
+			FileUtils.deleteQuietly(tempFile);
+			throw new IOException("rename " + tempFile + " to " + entry + " unsuccessful");
+		}
+	}
+
+	/**
+	 * Returns the cached BuildTestResult of key if there is one.
+	 * Otherwise, compiles the project in the working directory of
+	 * repository, runs tests, and caches the result under key
+	 * unless the tests were aborted.
+	 *
+	 * @requires the working directory of repository has the source
+	 *           tree of key.
+	 * @return a BuildTestResult of the source tree of key.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public BuildTestResult evaluate(IRepository repository, String key)
+			throws IOException, InterruptedException {
+		BuildTestResult result = get(key);
+
+		if (result == null) {
+			result = BuildTestResult.evaluate(repository);
+
+			// an aborted run says nothing about the source tree
+			if (!result.hasTestAborted()) {
+				put(key, result);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the cached BuildTestResult of key if there is one.
+	 * Otherwise, compiles the project in the working directory of
+	 * repository, runs the tests in testNames, and caches the result
+	 * under key unless the tests were aborted.
+	 *
+	 * @requires the working directory of repository has the source
+	 *           tree of key, and key is getKey(treeKey, testNames).
+	 * @return a BuildTestResult of the tests in testNames.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public BuildTestResult evaluate(IRepository repository, String key,
+			Collection<String> testNames) throws IOException, InterruptedException {
+		BuildTestResult result = get(key);
+
+		if (result == null) {
+			result = BuildTestResult.evaluate(repository, testNames);
+
+			// an aborted run says nothing about the source tree
+			if (!result.hasTestAborted()) {
+				put(key, result);
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * @return a map from path to object ID of all files in commit.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private Map<String, String> getFiles(IRepository repository, String commitID)
+			throws IOException, InterruptedException {
+		Map<String, String> files = commitIDToFiles.get(commitID);
+
+		if (files == null) {
+			files = repository.getFileObjectIDs(commitID);
+			commitIDToFiles.put(commitID, files);
+		}
+
+		return files;
+	}
+
+	/**
+	 * @return SHA-1 of signature and files, sorted by path, in hex.
+	 */
+	private String getKey(Map<String, String> files) {
+		Map<String, String> sortedFiles = files instanceof TreeMap ? files
+				: new TreeMap<String, String>(files);
+
+		MessageDigest digest;
+
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+			digest.update((signature + "\n").getBytes(CHARSET));
+
+			for (Map.Entry<String, String> entry : sortedFiles.entrySet()) {
+				digest.update((entry.getKey() + "\0" + entry.getValue() + "\n")
+						.getBytes(CHARSET));
+			}
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+		return GitDirectory.toHex(digest.digest(), 0);
+	}
+
+	/**
+	 * @return the file of the entry of key, in a subdirectory named
+	 *         after the first two hex digits of key, like git objects.
+	 */
+	private File getEntryFile(String key) {
+		return new File(new File(directory, key.substring(0, 2)), key.substring(2));
+	}
+}
@@ -1,7 +1,5 @@
 package histaroach.model;
 
-import histaroach.buildstrategy.IBuildStrategy;
-
 import java.io.Serializable;
 import java.util.Map;
 import java.util.Set;
@@ -58,30 +56,11 @@ public class Revision implements Serializable {
         	throw new Exception("git checkout commit " + commitID + " unsuccessful");
         }
         
-    	IBuildStrategy buildStrategy = repository.getBuildStrategy();
-    	
-    	compilable = buildStrategy.build();
-	    
-	    if (compilable == Compilable.YES) {
-	    	TestResult testResult;
-	    	boolean testAborted;
-	    	
-	    	try {
-	    		testResult = buildStrategy.runTest();
-	    		testAborted = false;
-	    	} catch (InterruptedException e) {
-	    		// the process was killed forcibly
-	    		testResult = null;
-	    		testAborted = true;
-	    	}
-	    	
-	    	this.testResult = testResult;
-	    	this.testAborted = testAborted;
-	    	
-	    } else {
-	    	testResult = null;
-	    	testAborted = false;
-	    }
+        BuildTestResult result = BuildTestResult.evaluate(repository, commitID);
+        
+        compilable = result.isCompilable();
+        testAborted = result.hasTestAborted();
+        testResult = result.getTestResult();
     }
     
     /**
@@ -97,6 +76,16 @@ public class Revision implements Serializable {
     	this.parentToDiffFiles = parentToDiffFiles;
     }
     
+    /**
+     * Creates a Revision, whose Compilable state and 
+     * TestResult are given by result.
+     */
+    public Revision(String commitID, Map<Revision, Set<DiffFile>> parentToDiffFiles, 
+    		BuildTestResult result) {
+    	this(commitID, parentToDiffFiles, result.isCompilable(), 
+    			result.hasTestAborted(), result.getTestResult());
+    }
+    
     public String getCommitID() {
         return commitID;
     }
@@ -151,18 +140,17 @@ public class Revision implements Serializable {
         boolean boolTestAborted = testAborted == other.testAborted;
         
         // check equality of parents' IDs and DiffFiles
-        Set<Revision> parents = parentToDiffFiles.keySet();
-        Set<Revision> otherParents = other.parentToDiffFiles.keySet();
-                
-        for (Revision parent : parents) {
-        	String parentID = parent.commitID;
-        	Set<DiffFile> diffFiles = parentToDiffFiles.get(parent);
+        // (iterate over entries: looking up a parent would hash all its ancestors)
+        for (Map.Entry<Revision, Set<DiffFile>> entry : parentToDiffFiles.entrySet()) {
+        	String parentID = entry.getKey().commitID;
+        	Set<DiffFile> diffFiles = entry.getValue();
         	
         	boolean foundMatch = false;
         	
-        	for (Revision otherParent : otherParents) {
-        		String otherParentID = otherParent.commitID;
-        		Set<DiffFile> otherDiffFiles = other.parentToDiffFiles.get(otherParent);
+        	for (Map.Entry<Revision, Set<DiffFile>> otherEntry : 
+        			other.parentToDiffFiles.entrySet()) {
+        		String otherParentID = otherEntry.getKey().commitID;
+        		Set<DiffFile> otherDiffFiles = otherEntry.getValue();
         		
         		if (parentID.equals(otherParentID) && diffFiles.equals(otherDiffFiles)) {
         			foundMatch = true;
@@ -190,9 +178,9 @@ public class Revision implements Serializable {
         	code += 29;
         }
         
-        for (Revision parent : parentToDiffFiles.keySet()) {
-        	String parentID = parent.commitID;
-        	Set<DiffFile> diffFiles = parentToDiffFiles.get(parent);
+        for (Map.Entry<Revision, Set<DiffFile>> entry : parentToDiffFiles.entrySet()) {
+        	String parentID = entry.getKey().commitID;
+        	Set<DiffFile> diffFiles = entry.getValue();
         	
         	code += 19 * parentID.hashCode() + 23 * diffFiles.hashCode();
         }
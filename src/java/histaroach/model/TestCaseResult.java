@@ -0,0 +1,130 @@
+package histaroach.model;
+
+import java.io.Serializable;
+
+
+/**
+ * TestCaseResult represents the result of a test method, as recorded 
+ * in a JUnit XML report. 
+ * 
+ * TestCaseResult is immutable.
+ */
+public class TestCaseResult implements Serializable {
+	
+	/**
+	 * serial version ID
+	 */
+	private static final long serialVersionUID = -1722630498351617204L;
+	
+	public enum Status {
+		PASS, 
+		FAILURE, // an assertion failed
+		ERROR, // an unexpected exception was thrown
+		SKIPPED
+	}
+	
+	private final String className;
+	private final String methodName;
+	private final Status status;
+	private final double time;
+	private final String failureType;
+	
+	/**
+	 * Creates a TestCaseResult.
+	 * 
+	 * @param methodName - name of the test method, or null if the 
+	 *        result is of the test class as a whole, eg. if it 
+	 *        could not be initialized.
+	 * @param time - duration of the test, in seconds.
+	 * @param failureType - class name of the exception of a failure or 
+	 *        an error, or null if there is none or it is not recorded.
+	 */
+	public TestCaseResult(String className, String methodName, Status status, 
+			double time, String failureType) {
+		this.className = className;
+		this.methodName = methodName;
+		this.status = status;
+		this.time = time;
+		this.failureType = failureType;
+	}
+	
+	public String getClassName() {
+		return className;
+	}
+	
+	/**
+	 * @return name of the test method, or null if the result is of 
+	 *         the test class as a whole.
+	 */
+	public String getMethodName() {
+		return methodName;
+	}
+	
+	public Status getStatus() {
+		return status;
+	}
+	
+	/**
+	 * @return duration of the test, in seconds.
+	 */
+	public double getTime() {
+		return time;
+	}
+	
+	/**
+	 * @return class name of the exception of a failure or an error, 
+	 *         or null.
+	 */
+	public String getFailureType() {
+		return failureType;
+	}
+	
+	/**
+	 * @return true if the test failed or had an error.
+	 */
+	public boolean hasFailed() {
+		return status == Status.FAILURE || status == Status.ERROR;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		if (other == null || !other.getClass().equals(this.getClass())) {
+			return false;
+		}
+		
+		TestCaseResult result = (TestCaseResult) other;
+		
+		return className.equals(result.className) 
+				&& (methodName == null ? result.methodName == null 
+						: methodName.equals(result.methodName)) 
+				&& status == result.status 
+				&& Double.compare(time, result.time) == 0 
+				&& (failureType == null ? result.failureType == null 
+						: failureType.equals(result.failureType));
+	}
+	
+	@Override
+	public int hashCode() {
+		return 11 * className.hashCode() 
+			+ 13 * (methodName == null ? 0 : methodName.hashCode()) 
+			+ 17 * status.hashCode() 
+			+ 19 * (failureType == null ? 0 : failureType.hashCode());
+	}
+	
+	@Override
+	public String toString() {
+		String result = className;
+		
+		if (methodName != null) {
+			result += "." + methodName;
+		}
+		
+		result += "\t" + status + "\t" + time;
+		
+		if (failureType != null) {
+			result += "\t" + failureType;
+		}
+		
+		return result;
+	}
+}
@@ -0,0 +1,105 @@
+package histaroach.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * TestNameIndex numbers the test names of all TestResults, so that
+ * a TestResult is a set of bits rather than a set of names, and each
+ * test name is stored once however many TestResults have it.
+ *
+ * Numbers are assigned in order of first use, and are never reused
+ * in the life of the process. They are not persisted: a serialized
+ * TestResult holds test names.
+ *
+ * TestNameIndex is thread-safe.
+ */
+public class TestNameIndex {
+
+	private static final TestNameIndex INSTANCE = new TestNameIndex();
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	// map: test name -> its number
+	private final Map<String, Integer> indices;
+	// test names by number, replaced by a larger copy when it is full
+	private volatile String[] testNames;
+	// number of test names; written after testNames, read before it
+	private volatile int size;
+
+	private TestNameIndex() {
+		indices = new ConcurrentHashMap<String, Integer>();
+		testNames = new String[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * @return the TestNameIndex shared by all TestResults.
+	 */
+	public static TestNameIndex getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * @return the number of testName, assigning it the next number
+	 *         if it has none.
+	 */
+	public int getIndex(String testName) {
+		Integer index = indices.get(testName);
+
+		if (index != null) {
+			return index;
+		}
+
+		return addTestName(testName);
+	}
+
+	/**
+	 * @return the number of testName, or -1 if it has none.
+	 */
+	public int lookUpIndex(String testName) {
+		Integer index = indices.get(testName);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @requires 0 <= index < size()
+	 * @return the test name numbered index.
+	 */
+	public String getTestName(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+
+		return testNames[index];
+	}
+
+	/**
+	 * @return the number of test names numbered so far.
+	 */
+	public int size() {
+		return size;
+	}
+
+	private synchronized int addTestName(String testName) {
+		Integer index = indices.get(testName);
+
+		if (index != null) {
+			return index;
+		}
+
+		if (size == testNames.length) {
+			String[] newTestNames = new String[2 * size];
+			System.arraycopy(testNames, 0, newTestNames, 0, size);
+			testNames = newTestNames;
+		}
+
+		int newIndex = size;
+		testNames[newIndex] = testName;
+		size = newIndex + 1;
+		indices.put(testName, newIndex);
+
+		return newIndex;
+	}
+}
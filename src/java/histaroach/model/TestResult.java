@@ -1,13 +1,25 @@
 package histaroach.model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.BitSet;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 
 /**
  * TestResult represents results of all tests run on a Revision. 
  * 
+ * The tests are kept as bits over the shared TestNameIndex, so that 
+ * comparing two TestResults, as in finding flipped tests, is done 
+ * a word of tests at a time. The sets of test names are views.
+ * 
  * TestResult is immutable.
  */
 public class TestResult implements Serializable {
@@ -16,12 +28,25 @@ public class TestResult implements Serializable {
 	 */
 	private static final long serialVersionUID = 2210640650733708242L;
 	
+	/**
+	 * The serialized form is the sets of test names, as it was before 
+	 * tests were kept as bits, so that serialized TestResults can be 
+	 * read by another process and by older versions.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+		new ObjectStreamField("allTests", Set.class), 
+		new ObjectStreamField("failedTests", Set.class)
+	};
+	
 	private static final String TRUE = "1";
 	private static final String FALSE = "0";
 	private static final String NEITHER = "-1";
 	
-    private final Set<String> allTests;
-    private final Set<String> failedTests;
+	private static final TestNameIndex INDEX = TestNameIndex.getInstance();
+	
+	// not final only because readObject sets them
+    private BitSet allTests;
+    private BitSet failedTests;
 
     /**
      * Creates a TestResult.
@@ -29,24 +54,32 @@ public class TestResult implements Serializable {
      * @requires failedTests is a subset of allTests.
      */
     public TestResult(Set<String> allTests, Set<String> failedTests) {
-        this.allTests = allTests;
-        this.failedTests = failedTests;
+        this.allTests = toBitSet(allTests);
+        this.failedTests = toBitSet(failedTests);
     }
     
+    /**
+     * @return an unmodifiable view of the set of all tests.
+     */
     public Set<String> getAllTests() {
-        return allTests;
+        return new TestNameSet(allTests);
     }
     
+    /**
+     * @return an unmodifiable view of the set of failed tests.
+     */
     public Set<String> getFailedTests() {
-        return failedTests;
+        return new TestNameSet(failedTests);
     }
     
     public boolean pass(String test) {
-        return allTests.contains(test) && !failedTests.contains(test);
+    	int index = INDEX.lookUpIndex(test);
+        return index >= 0 && allTests.get(index) && !failedTests.get(index);
     }
     
     public boolean fail(String test) {
-        return failedTests.contains(test);
+    	int index = INDEX.lookUpIndex(test);
+        return index >= 0 && failedTests.get(index);
     }
     
     /**
@@ -56,11 +89,40 @@ public class TestResult implements Serializable {
      *         1 means pass, 0 means fail, and -1 means no result.
      */
     public String encodeAsString(String test) {
-    	if (!allTests.contains(test)) {
+    	int index = INDEX.lookUpIndex(test);
+    	
+    	if (index < 0 || !allTests.get(index)) {
     		return NEITHER;
     	}
     	
-    	return failedTests.contains(test) ? FALSE : TRUE;
+    	return failedTests.get(index) ? FALSE : TRUE;
+    }
+    
+    /**
+     * Finds tests of this that pass in this and fail in parentResult.
+     * 
+     * @return an unmodifiable set of tests that flip from fail to pass.
+     */
+    public Set<String> getToPassTests(TestResult parentResult) {
+    	BitSet toPass = (BitSet) allTests.clone();
+    	toPass.andNot(failedTests);
+    	toPass.and(parentResult.failedTests);
+    	
+    	return new TestNameSet(toPass);
+    }
+    
+    /**
+     * Finds tests of this that fail in this and pass in parentResult.
+     * 
+     * @return an unmodifiable set of tests that flip from pass to fail.
+     */
+    public Set<String> getToFailTests(TestResult parentResult) {
+    	BitSet toFail = (BitSet) allTests.clone();
+    	toFail.and(failedTests);
+    	toFail.and(parentResult.allTests);
+    	toFail.andNot(parentResult.failedTests);
+    	
+    	return new TestNameSet(toFail);
     }
     
     /**
@@ -69,21 +131,10 @@ public class TestResult implements Serializable {
      * @return a set of different tests between this and other.
      */
     public Set<String> diff(TestResult other) {
-    	Set<String> diff = new HashSet<String>();
-    	
-    	for (String test : this.allTests) {
-    		if (!other.allTests.contains(test)) {
-    			diff.add(test);
-    		}
-    	}
+    	BitSet diff = (BitSet) allTests.clone();
+    	diff.xor(other.allTests);
     	
-    	for (String test : other.allTests) {
-    		if (!this.allTests.contains(test)) {
-    			diff.add(test);
-    		}
-    	}
-    	
-    	return diff;
+    	return new HashSet<String>(new TestNameSet(diff));
     }
     
     /**
@@ -99,21 +150,39 @@ public class TestResult implements Serializable {
     		throw new Exception("other has a different set of tests");
     	}
     	
-    	Set<String> nondeterministic = new HashSet<String>();
+    	BitSet nondeterministic = (BitSet) failedTests.clone();
+    	nondeterministic.xor(other.failedTests);
     	
-    	for (String test : this.failedTests) {
-    		if (!other.failedTests.contains(test)) {
-    			nondeterministic.add(test);
-    		}
+    	return new HashSet<String>(new TestNameSet(nondeterministic));
+    }
+    
+    private static BitSet toBitSet(Set<String> tests) {
+    	if (tests instanceof TestNameSet) {
+    		return ((TestNameSet) tests).bits;
     	}
     	
-    	for (String test : other.failedTests) {
-    		if (!this.failedTests.contains(test)) {
-    			nondeterministic.add(test);
-    		}
+    	BitSet bits = new BitSet();
+    	
+    	for (String test : tests) {
+    		bits.set(INDEX.getIndex(test));
     	}
     	
-    	return nondeterministic;
+    	return bits;
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+    	ObjectOutputStream.PutField fields = out.putFields();
+    	fields.put("allTests", new HashSet<String>(getAllTests()));
+    	fields.put("failedTests", new HashSet<String>(getFailedTests()));
+    	out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream in) 
+    		throws IOException, ClassNotFoundException {
+    	ObjectInputStream.GetField fields = in.readFields();
+    	allTests = toBitSet((Set<String>) fields.get("allTests", null));
+    	failedTests = toBitSet((Set<String>) fields.get("failedTests", null));
     }
     
     @Override
@@ -136,15 +205,74 @@ public class TestResult implements Serializable {
     @Override
     public String toString() {
 		String result = "Tests: \n";
-        for (String test : allTests) {
+        for (String test : getAllTests()) {
             result += test + "\n";
         }
 
         result += "Failed Tests: \n";
-        for (String fail : failedTests) {
+        for (String fail : getFailedTests()) {
             result += fail + "\n";
         }
 
         return result;
     }
+
+    /**
+     * TestNameSet is an unmodifiable set of test names backed by bits 
+     * over the TestNameIndex. The bits are never modified.
+     */
+    private static class TestNameSet extends AbstractSet<String> {
+    	
+    	private final BitSet bits;
+    	
+    	TestNameSet(BitSet bits) {
+    		this.bits = bits;
+    	}
+    	
+    	@Override
+    	public boolean contains(Object o) {
+    		if (!(o instanceof String)) {
+    			return false;
+    		}
+    		
+    		int index = INDEX.lookUpIndex((String) o);
+    		return index >= 0 && bits.get(index);
+    	}
+    	
+    	@Override
+    	public int size() {
+    		return bits.cardinality();
+    	}
+    	
+    	@Override
+    	public boolean isEmpty() {
+    		return bits.isEmpty();
+    	}
+    	
+    	@Override
+    	public Iterator<String> iterator() {
+    		return new Iterator<String>() {
+    			private int next = bits.nextSetBit(0);
+    			
+    			public boolean hasNext() {
+    				return next >= 0;
+    			}
+    			
+    			public String next() {
+    				if (next < 0) {
+    					throw new NoSuchElementException();
+    				}
+    				
+    				String testName = INDEX.getTestName(next);
+    				next = bits.nextSetBit(next + 1);
+    				
+    				return testName;
+    			}
+    			
+    			public void remove() {
+    				throw new UnsupportedOperationException();
+    			}
+    		};
+    	}
+    }
 }
@@ -0,0 +1,268 @@
+package histaroach.util;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * ClassFile is the part of a compiled ".class" file needed to track
+ * dependencies between classes: its name, the source file it was
+ * compiled from, its direct supertypes and the classes it refers to.
+ *
+ * Class names are in internal form, eg. "histaroach/util/ClassFile".
+ *
+ * ClassFile is immutable.
+ */
+public class ClassFile {
+
+	public static final String CLASS_EXTENSION = ".class";
+
+	private static final int MAGIC = 0xCAFEBABE;
+
+	// constant pool tags
+	private static final int CONSTANT_UTF8 = 1;
+	private static final int CONSTANT_INTEGER = 3;
+	private static final int CONSTANT_FLOAT = 4;
+	private static final int CONSTANT_LONG = 5;
+	private static final int CONSTANT_DOUBLE = 6;
+	private static final int CONSTANT_CLASS = 7;
+	private static final int CONSTANT_STRING = 8;
+	private static final int CONSTANT_FIELDREF = 9;
+	private static final int CONSTANT_METHODREF = 10;
+	private static final int CONSTANT_INTERFACE_METHODREF = 11;
+	private static final int CONSTANT_NAME_AND_TYPE = 12;
+	private static final int CONSTANT_METHOD_HANDLE = 15;
+	private static final int CONSTANT_METHOD_TYPE = 16;
+	private static final int CONSTANT_DYNAMIC = 17;
+	private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+	private static final int CONSTANT_MODULE = 19;
+	private static final int CONSTANT_PACKAGE = 20;
+
+	private static final String SOURCE_FILE_ATTRIBUTE = "SourceFile";
+
+	// a class type in a field, method or generic signature
+	private static final Pattern CLASS_TYPE_PATTERN = Pattern.compile("L([^;<>:.\\[]+)[;<]");
+
+	private final String className;
+	private final /*@Nullable*/ String sourceFileName;
+	private final Set<String> supertypeNames;
+	private final Set<String> referencedClassNames;
+
+	private ClassFile(String className, String sourceFileName,
+			Set<String> supertypeNames, Set<String> referencedClassNames) {
+		this.className = className;
+		this.sourceFileName = sourceFileName;
+		this.supertypeNames = supertypeNames;
+		this.referencedClassNames = referencedClassNames;
+	}
+
+	/**
+	 * Reads the name, the source file, the supertypes and the
+	 * referenced classes of a ".class" file.
+	 *
+	 * @return a ClassFile of file.
+	 * @throws IOException if file is not a valid class file.
+	 */
+	public static ClassFile read(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)));
+
+		try {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a class file: " + file);
+			}
+
+			// minor and major version
+			in.readUnsignedShort();
+			in.readUnsignedShort();
+
+			int constantPoolCount = in.readUnsignedShort();
+			String[] utf8s = new String[constantPoolCount];
+			int[] classNameIndices = new int[constantPoolCount];
+
+			for (int i = 1; i < constantPoolCount; i++) {
+				int tag = in.readUnsignedByte();
+
+				switch (tag) {
+				case CONSTANT_UTF8:
+					utf8s[i] = in.readUTF();
+					break;
+				case CONSTANT_CLASS:
+					classNameIndices[i] = in.readUnsignedShort();
+					break;
+				case CONSTANT_STRING:
+				case CONSTANT_METHOD_TYPE:
+				case CONSTANT_MODULE:
+				case CONSTANT_PACKAGE:
+					in.readUnsignedShort();
+					break;
+				case CONSTANT_METHOD_HANDLE:
+					in.readUnsignedByte();
+					in.readUnsignedShort();
+					break;
+				case CONSTANT_INTEGER:
+				case CONSTANT_FLOAT:
+				case CONSTANT_FIELDREF:
+				case CONSTANT_METHODREF:
+				case CONSTANT_INTERFACE_METHODREF:
+				case CONSTANT_NAME_AND_TYPE:
+				case CONSTANT_DYNAMIC:
+				case CONSTANT_INVOKE_DYNAMIC:
+					in.readInt();
+					break;
+				case CONSTANT_LONG:
+				case CONSTANT_DOUBLE:
+					in.readLong();
+					// takes two entries
+					i++;
+					break;
+				default:
+					throw new IOException("bad constant pool tag " + tag + " in " + file);
+				}
+			}
+
+			// access flags
+			in.readUnsignedShort();
+			String className = utf8s[classNameIndices[in.readUnsignedShort()]];
+
+			// super class and interfaces, java/lang/Object has no super class
+			Set<String> supertypeNames = new HashSet<String>();
+			int superClassIndex = in.readUnsignedShort();
+
+			if (superClassIndex != 0) {
+				supertypeNames.add(utf8s[classNameIndices[superClassIndex]]);
+			}
+
+			int interfaceCount = in.readUnsignedShort();
+
+			for (int i = 0; i < interfaceCount; i++) {
+				supertypeNames.add(utf8s[classNameIndices[in.readUnsignedShort()]]);
+			}
+
+			// fields and methods
+			for (int k = 0; k < 2; k++) {
+				int count = in.readUnsignedShort();
+
+				for (int i = 0; i < count; i++) {
+					// access flags, name and descriptor
+					skip(in, 6);
+					skipAttributes(in);
+				}
+			}
+
+			String sourceFileName = null;
+			int attributeCount = in.readUnsignedShort();
+
+			for (int i = 0; i < attributeCount; i++) {
+				String name = utf8s[in.readUnsignedShort()];
+				int length = in.readInt();
+
+				if (SOURCE_FILE_ATTRIBUTE.equals(name)) {
+					sourceFileName = utf8s[in.readUnsignedShort()];
+				} else {
+					skip(in, length);
+				}
+			}
+
+			Set<String> referencedClassNames = new HashSet<String>();
+
+			for (int i = 1; i < constantPoolCount; i++) {
+				if (classNameIndices[i] != 0) {
+					String name = utf8s[classNameIndices[i]];
+
+					if (name.startsWith("[")) {
+						// an array class
+						addClassTypes(name, referencedClassNames);
+					} else {
+						referencedClassNames.add(name);
+					}
+				} else if (utf8s[i] != null && utf8s[i].indexOf(';') >= 0) {
+					// descriptors and signatures are plain utf8 entries
+					addClassTypes(utf8s[i], referencedClassNames);
+				}
+			}
+
+			referencedClassNames.remove(className);
+
+			return new ClassFile(className, sourceFileName, supertypeNames,
+					referencedClassNames);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Adds the names of the class types in a descriptor or signature.
+	 *
+	 * @modifies classNames
+	 */
+	private static void addClassTypes(String descriptor, Set<String> classNames) {
+		Matcher matcher = CLASS_TYPE_PATTERN.matcher(descriptor);
+
+		while (matcher.find()) {
+			classNames.add(matcher.group(1));
+		}
+	}
+
+	private static void skipAttributes(DataInputStream in) throws IOException {
+		int count = in.readUnsignedShort();
+
+		for (int i = 0; i < count; i++) {
+			// name
+			in.readUnsignedShort();
+			skip(in, in.readInt());
+		}
+	}
+
+	private static void skip(DataInputStream in, int n) throws IOException {
+		in.readFully(new byte[n]);
+	}
+
+	public String getClassName() {
+		return className;
+	}
+
+	/**
+	 * @return name of the source file this class was compiled from,
+	 *         relative to its package directory, eg. "ClassFile.java";
+	 *         null if the class was compiled without debug information.
+	 */
+	public String getSourceFileName() {
+		return sourceFileName;
+	}
+
+	/**
+	 * @return path of the source file this class was compiled from,
+	 *         relative to a source directory, eg. "histaroach/util/ClassFile.java";
+	 *         null if the class was compiled without debug information.
+	 */
+	public String getSourcePath() {
+		if (sourceFileName == null) {
+			return null;
+		}
+
+		int slash = className.lastIndexOf('/');
+		return className.substring(0, slash + 1) + sourceFileName;
+	}
+
+	/**
+	 * @return names of the direct super class and interfaces of this class.
+	 */
+	public Set<String> getSupertypeNames() {
+		return supertypeNames;
+	}
+
+	/**
+	 * @return names of the classes this class refers to, besides itself.
+	 */
+	public Set<String> getReferencedClassNames() {
+		return referencedClassNames;
+	}
+}
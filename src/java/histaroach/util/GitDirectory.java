@@ -0,0 +1,1416 @@
+package histaroach.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+
+/**
+ * GitDirectory reads and writes the ".git" directory of a git working
+ * tree without running git: it reads objects (loose and packed),
+ * resolves refs, and writes HEAD and the index.
+ *
+ * A linked working tree (created by "git worktree add") is supported;
+ * its HEAD and index are private to it, and its objects and refs
+ * are shared with the main working tree.
+ *
+ * GitDirectory is thread-safe.
+ */
+public class GitDirectory {
+
+	public static final String GIT_DIR = ".git";
+	public static final String HEAD = "HEAD";
+
+	/**
+	 * object types, as numbered in pack files
+	 */
+	public static final int OBJ_COMMIT = 1;
+	public static final int OBJ_TREE = 2;
+	public static final int OBJ_BLOB = 3;
+	public static final int OBJ_TAG = 4;
+	private static final int OBJ_OFS_DELTA = 6;
+	private static final int OBJ_REF_DELTA = 7;
+	private static final String[] TYPE_NAMES =
+		{ null, "commit", "tree", "blob", "tag" };
+
+	/**
+	 * file modes of tree entries
+	 */
+	public static final int MODE_TREE = 040000;
+	public static final int MODE_FILE = 0100644;
+	public static final int MODE_EXECUTABLE = 0100755;
+	public static final int MODE_SYMLINK = 0120000;
+	public static final int MODE_GITLINK = 0160000;
+	private static final int MODE_TYPE_MASK = 0170000;
+
+	private static final int ID_LENGTH = 40;
+	private static final int RAW_ID_LENGTH = 20;
+	private static final int MIN_PREFIX_LENGTH = 4;
+	private static final int FALLBACK_ABBREV_LENGTH = 7;
+
+	private static final String GITDIR_PREFIX = "gitdir: ";
+	private static final String SYMREF_PREFIX = "ref: ";
+	private static final String REFS_PREFIX = "refs/";
+	private static final String HEADS_PREFIX = "refs/heads/";
+	private static final String PACKED_REFS = "packed-refs";
+	private static final String[] REF_RULES =
+		{ "%s", "refs/%s", "refs/tags/%s", "refs/heads/%s", "refs/remotes/%s",
+		"refs/remotes/%s/HEAD" };
+
+	private static final String INDEX = "index";
+	private static final String LOCK_SUFFIX = ".lock";
+	private static final int INDEX_SIGNATURE = 0x44495243; // "DIRC"
+	private static final int INDEX_VERSION = 2;
+	private static final int INDEX_ENTRY_FIXED_LENGTH = 62;
+	private static final int INDEX_MAX_NAME_LENGTH = 0xfff;
+
+	private static final int CACHE_SIZE = 256;
+	private static final int MAX_CACHED_OBJECT_SIZE = 1 << 20;
+
+	private final File workTree;
+	// HEAD and index of workTree
+	private final File gitDir;
+	// objects and refs, shared by all working trees
+	private final File commonDir;
+	private final File objectsDir;
+
+	// map: object id -> object, least recently used first
+	private final Map<String, GitObject> cache;
+	private /*@Nullable*/ List<PackFile> packFiles;
+	private int abbrevLength;
+
+	/**
+	 * Creates a GitDirectory.
+	 */
+	private GitDirectory(File workTree, File gitDir, File commonDir) {
+		this.workTree = workTree;
+		this.gitDir = gitDir;
+		this.commonDir = commonDir;
+		objectsDir = new File(commonDir, "objects");
+		cache = new LruCache<String, GitObject>(CACHE_SIZE);
+		packFiles = null;
+		abbrevLength = 0;
+	}
+
+	/**
+	 * Opens the ".git" directory of the working tree in workTree.
+	 *
+	 * @return a GitDirectory of workTree.
+	 * @throws IOException if workTree is not a git working tree.
+	 */
+	public static GitDirectory open(File workTree) throws IOException {
+		File dotGit = new File(workTree, GIT_DIR);
+		File gitDir = dotGit;
+
+		if (dotGit.isFile()) {
+			// a linked working tree: ".git" is a file pointing to its git directory
+			String line = readFirstLine(dotGit);
+
+			if (line == null || !line.startsWith(GITDIR_PREFIX)) {
+				throw new IOException("invalid " + dotGit);
+			}
+
+			gitDir = resolvePath(workTree, line.substring(GITDIR_PREFIX.length()).trim());
+		}
+
+		File commonDir = gitDir;
+		File commonDirFile = new File(gitDir, "commondir");
+
+		if (commonDirFile.isFile()) {
+			commonDir = resolvePath(gitDir, readFirstLine(commonDirFile).trim());
+		}
+
+		if (!new File(commonDir, "objects").isDirectory()) {
+			throw new IOException(workTree + " is not a git working tree");
+		}
+
+		return new GitDirectory(workTree, gitDir, commonDir);
+	}
+
+	public File getWorkTree() {
+		return workTree;
+	}
+
+	/**
+	 * @return the file of exclude patterns shared by all working trees.
+	 */
+	public File getExcludeFile() {
+		return new File(commonDir, "info" + File.separatorChar + "exclude");
+	}
+
+	/**
+	 * Reads an object.
+	 *
+	 * @return the object of id.
+	 * @throws IOException if the object does not exist or cannot be read.
+	 */
+	public synchronized GitObject readObject(String id) throws IOException {
+		GitObject object = cache.get(id);
+
+		if (object != null) {
+			return object;
+		}
+
+		object = readLooseObject(id);
+
+		if (object == null) {
+			object = readPackedObject(id);
+		}
+
+		if (object == null) {
+			// the repository may have been repacked
+			packFiles = null;
+			object = readPackedObject(id);
+		}
+
+		if (object == null) {
+			throw new IOException("object " + id + " not found in " + objectsDir);
+		}
+
+		if (object.getContent().length <= MAX_CACHED_OBJECT_SIZE) {
+			cache.put(id, object);
+		}
+
+		return object;
+	}
+
+	/**
+	 * Reads a commit object.
+	 *
+	 * @return the commit of id.
+	 * @throws IOException if id is not a commit.
+	 */
+	public Commit readCommit(String id) throws IOException {
+		GitObject object = readObject(id);
+
+		if (object.getType() != OBJ_COMMIT) {
+			throw new IOException(id + " is not a commit");
+		}
+
+		String treeID = null;
+		List<String> parentIDs = new ArrayList<String>();
+		long commitTime = 0;
+
+		for (String line : toString(object.getContent()).split("\n")) {
+			if (line.length() == 0) {
+				// end of the header
+				break;
+			}
+
+			if (line.startsWith("tree ")) {
+				treeID = line.substring("tree ".length());
+			} else if (line.startsWith("parent ")) {
+				parentIDs.add(line.substring("parent ".length()));
+			} else if (line.startsWith("committer ")) {
+				// committer {name} <{email}> {seconds since epoch} {time zone}
+				String[] tokens = line.substring(line.lastIndexOf('>') + 1).trim().split(" ");
+				commitTime = Long.parseLong(tokens[0]);
+			}
+		}
+
+		return new Commit(id, treeID, parentIDs, commitTime);
+	}
+
+	/**
+	 * Reads the entries of a tree object, without descending
+	 * into subtrees.
+	 *
+	 * @return a map from entry name to entry, in tree order.
+	 * @throws IOException if id is not a tree.
+	 */
+	public Map<String, TreeEntry> readTree(String id) throws IOException {
+		GitObject object = readObject(id);
+
+		if (object.getType() != OBJ_TREE) {
+			throw new IOException(id + " is not a tree");
+		}
+
+		Map<String, TreeEntry> entries = new LinkedHashMap<String, TreeEntry>();
+		byte[] content = object.getContent();
+		int pos = 0;
+
+		// each entry is {octal mode} {name}\0{20-byte id}
+		while (pos < content.length) {
+			int mode = 0;
+
+			while (content[pos] != ' ') {
+				mode = (mode << 3) + (content[pos++] - '0');
+			}
+
+			int nameStart = ++pos;
+
+			while (content[pos] != 0) {
+				pos++;
+			}
+
+			String name = new String(content, nameStart, pos - nameStart, "UTF-8");
+			pos++;
+
+			String entryID = toHex(content, pos);
+			pos += RAW_ID_LENGTH;
+
+			entries.put(name, new TreeEntry(mode, entryID));
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Reads all files of a tree object, descending into subtrees.
+	 *
+	 * @return a map from the path of each non-tree entry, relative
+	 *         to the tree and separated by '/', to the entry.
+	 * @throws IOException
+	 */
+	public Map<String, TreeEntry> readFlatTree(String id) throws IOException {
+		Map<String, TreeEntry> entries = new TreeMap<String, TreeEntry>();
+		readFlatTree(id, "", entries);
+		return entries;
+	}
+
+	/**
+	 * Adds the files of tree id to entries, with their paths
+	 * prefixed by prefix.
+	 *
+	 * @modifies entries
+	 * @throws IOException
+	 */
+	private void readFlatTree(String id, String prefix, Map<String, TreeEntry> entries)
+			throws IOException {
+		for (Map.Entry<String, TreeEntry> entry : readTree(id).entrySet()) {
+			String path = prefix + entry.getKey();
+			TreeEntry treeEntry = entry.getValue();
+
+			if (treeEntry.isTree()) {
+				readFlatTree(treeEntry.getID(), path + "/", entries);
+			} else {
+				entries.put(path, treeEntry);
+			}
+		}
+	}
+
+	/**
+	 * Looks up a path in a tree object.
+	 *
+	 * @return the entry at path, which is separated by '/',
+	 *         or null if there is none.
+	 * @throws IOException
+	 */
+	public TreeEntry findTreeEntry(String treeID, String path) throws IOException {
+		TreeEntry entry = new TreeEntry(MODE_TREE, treeID);
+
+		for (String name : path.split("/")) {
+			if (name.length() == 0) {
+				continue;
+			}
+
+			if (!entry.isTree()) {
+				return null;
+			}
+
+			entry = readTree(entry.getID()).get(name);
+
+			if (entry == null) {
+				return null;
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Resolves revision, which is either an object id, a unique
+	 * prefix of an object id, or a ref name, to a commit, peeling
+	 * annotated tags.
+	 *
+	 * @return the full id of the commit, or null if revision
+	 *         does not name a commit.
+	 * @throws IOException if revision is an ambiguous prefix.
+	 */
+	public String resolveCommit(String revision) throws IOException {
+		String id = resolve(revision);
+
+		while (id != null) {
+			GitObject object = readObject(id);
+
+			if (object.getType() == OBJ_COMMIT) {
+				return id;
+			} else if (object.getType() != OBJ_TAG) {
+				return null;
+			}
+
+			// an annotated tag starts with "object {id}"
+			String firstLine = toString(object.getContent()).split("\n")[0];
+			id = firstLine.substring("object ".length());
+		}
+
+		return null;
+	}
+
+	/**
+	 * Resolves revision, which is either an object id, a unique
+	 * prefix of an object id, or a ref name. As in git, a ref name
+	 * takes precedence over an object id prefix.
+	 *
+	 * @return the full id of the object, or null if revision
+	 *         does not name an object.
+	 * @throws IOException if revision is an ambiguous prefix.
+	 */
+	public String resolve(String revision) throws IOException {
+		if (revision.length() == ID_LENGTH && isHex(revision)
+				&& findObjectIDs(revision, 1).size() == 1) {
+			return revision;
+		}
+
+		for (String rule : REF_RULES) {
+			String id = readRef(String.format(rule, revision));
+
+			if (id != null) {
+				return id;
+			}
+		}
+
+		if (revision.length() >= MIN_PREFIX_LENGTH && isHex(revision)) {
+			Set<String> ids = findObjectIDs(revision, 2);
+
+			if (ids.size() > 1) {
+				throw new IOException("short object id " + revision + " is ambiguous");
+			}
+
+			if (ids.size() == 1) {
+				return ids.iterator().next();
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return true if name is a branch in refs/heads.
+	 * @throws IOException
+	 */
+	public boolean isLocalBranch(String name) throws IOException {
+		return !name.startsWith(REFS_PREFIX) && readRef(HEADS_PREFIX + name) != null;
+	}
+
+	/**
+	 * Reads a ref, following symbolic refs.
+	 *
+	 * @return the object id of refName, or null if refName does not exist.
+	 * @throws IOException
+	 */
+	private String readRef(String refName) throws IOException {
+		// refs are shared by all working trees, pseudo refs such as HEAD are not
+		File dir = refName.startsWith(REFS_PREFIX) ? commonDir : gitDir;
+		File refFile = new File(dir, refName.replace('/', File.separatorChar));
+
+		if (refFile.isFile()) {
+			String line = readFirstLine(refFile);
+
+			if (line == null) {
+				return null;
+			}
+
+			line = line.trim();
+
+			if (line.startsWith(SYMREF_PREFIX)) {
+				return readRef(line.substring(SYMREF_PREFIX.length()).trim());
+			}
+
+			return line.length() == ID_LENGTH && isHex(line) ? line : null;
+		}
+
+		if (!refName.startsWith(REFS_PREFIX)) {
+			return null;
+		}
+
+		File packedRefs = new File(commonDir, PACKED_REFS);
+
+		if (!packedRefs.isFile()) {
+			return null;
+		}
+
+		BufferedReader reader = new BufferedReader(new FileReader(packedRefs));
+
+		try {
+			String line;
+
+			// each line is "{id} {ref name}"; comments start with '#',
+			// peeled tags with '^'
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("#") || line.startsWith("^")) {
+					continue;
+				}
+
+				int space = line.indexOf(' ');
+
+				if (space > 0 && line.substring(space + 1).equals(refName)) {
+					return line.substring(0, space);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds objects whose ids start with prefix.
+	 *
+	 * @requires prefix is at least 2-character long.
+	 * @return ids of at most limit objects that start with prefix.
+	 * @throws IOException
+	 */
+	public synchronized Set<String> findObjectIDs(String prefix, int limit)
+			throws IOException {
+		Set<String> ids = new HashSet<String>();
+		prefix = prefix.toLowerCase();
+
+		File looseDir = new File(objectsDir, prefix.substring(0, 2));
+		String[] names = looseDir.list();
+
+		if (names != null) {
+			for (String name : names) {
+				String id = prefix.substring(0, 2) + name;
+
+				if (id.length() == ID_LENGTH && id.startsWith(prefix)) {
+					ids.add(id);
+
+					if (ids.size() >= limit) {
+						return ids;
+					}
+				}
+			}
+		}
+
+		for (PackFile packFile : getPackFiles()) {
+			packFile.findObjectIDs(prefix, limit, ids);
+
+			if (ids.size() >= limit) {
+				break;
+			}
+		}
+
+		return ids;
+	}
+
+	/**
+	 * Abbreviates an object id the way "git log --pretty=format:%h"
+	 * does: to the default abbreviation length, which grows with the
+	 * number of packed objects, or longer if needed to be unique.
+	 *
+	 * @return the shortest unique prefix of id that is at least
+	 *         as long as the default abbreviation length.
+	 * @throws IOException
+	 */
+	public synchronized String abbreviate(String id) throws IOException {
+		if (abbrevLength == 0) {
+			long count = 0;
+
+			for (PackFile packFile : getPackFiles()) {
+				count += packFile.getNumObjects();
+			}
+
+			// about 2^bits objects are expected to collide in bits / 2 bits,
+			// which is bits / 8 hex digits rounded up
+			int bits = 64 - Long.numberOfLeadingZeros(count);
+			abbrevLength = Math.max(FALLBACK_ABBREV_LENGTH, (bits + 1) / 2);
+		}
+
+		int length = abbrevLength;
+
+		while (length < id.length() && findObjectIDs(id.substring(0, length), 2).size() > 1) {
+			length++;
+		}
+
+		return id.substring(0, length);
+	}
+
+	/**
+	 * Computes the id that a file would have as a blob object.
+	 *
+	 * @return the blob id of the content of file.
+	 * @throws IOException
+	 */
+	public static String hashBlob(File file) throws IOException {
+		MessageDigest digest = getSHA1();
+		digest.update(("blob " + file.length() + "\0").getBytes("UTF-8"));
+
+		InputStream in = new FileInputStream(file);
+
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+
+		return toHex(digest.digest(), 0);
+	}
+
+	/**
+	 * Points HEAD of this working tree at commitID, detached,
+	 * or at a local branch if branch is not null.
+	 *
+	 * @modifies HEAD
+	 * @throws IOException
+	 */
+	public void writeHead(String commitID, /*@Nullable*/ String branch) throws IOException {
+		String content = branch == null ? commitID : SYMREF_PREFIX + HEADS_PREFIX + branch;
+		writeAtomically(new File(gitDir, HEAD), (content + "\n").getBytes("UTF-8"));
+	}
+
+	/**
+	 * Replaces the index of this working tree with entries, whose
+	 * files are in the working tree. Stat data is taken from the
+	 * files, so that "git status" agrees with the working tree.
+	 *
+	 * @requires the working tree file of every non-gitlink entry exists.
+	 * @modifies index
+	 * @throws IOException
+	 */
+	public void writeIndex(Map<String, TreeEntry> entries) throws IOException {
+		// index entries are sorted by the bytes of their paths
+		Map<byte[], TreeEntry> sortedEntries = new TreeMap<byte[], TreeEntry>(
+				new Comparator<byte[]>() {
+			@Override
+			public int compare(byte[] a, byte[] b) {
+				for (int i = 0; i < a.length && i < b.length; i++) {
+					if (a[i] != b[i]) {
+						return (a[i] & 0xff) - (b[i] & 0xff);
+					}
+				}
+
+				return a.length - b.length;
+			}
+		});
+
+		for (Map.Entry<String, TreeEntry> entry : entries.entrySet()) {
+			sortedEntries.put(entry.getKey().getBytes("UTF-8"), entry.getValue());
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(INDEX_SIGNATURE);
+		out.writeInt(INDEX_VERSION);
+		out.writeInt(sortedEntries.size());
+
+		for (Map.Entry<byte[], TreeEntry> entry : sortedEntries.entrySet()) {
+			byte[] path = entry.getKey();
+			TreeEntry treeEntry = entry.getValue();
+			File file = new File(workTree, new String(path, "UTF-8"));
+
+			// the stat data of a link would be that of its target; zero
+			// makes "git status" compare the link itself
+			boolean hasStat = !treeEntry.isGitlink() && !treeEntry.isSymlink();
+			long lastModified = hasStat ? file.lastModified() : 0;
+			int seconds = (int) (lastModified / 1000);
+			int nanoseconds = (int) (lastModified % 1000) * 1000000;
+
+			out.writeInt(seconds); // ctime
+			out.writeInt(nanoseconds);
+			out.writeInt(seconds); // mtime
+			out.writeInt(nanoseconds);
+			out.writeInt(0); // dev
+			out.writeInt(0); // ino
+			out.writeInt(treeEntry.getMode());
+			out.writeInt(0); // uid
+			out.writeInt(0); // gid
+			out.writeInt(hasStat ? (int) file.length() : 0);
+			out.write(fromHex(treeEntry.getID()));
+			out.writeShort(Math.min(path.length, INDEX_MAX_NAME_LENGTH));
+			out.write(path);
+
+			// 1 to 8 NUL bytes pad the entry to a multiple of 8 bytes
+			int entryLength = INDEX_ENTRY_FIXED_LENGTH + path.length;
+			int paddedLength = (entryLength + 8) / 8 * 8;
+			out.write(new byte[paddedLength - entryLength]);
+		}
+
+		out.flush();
+
+		byte[] content = bytes.toByteArray();
+		MessageDigest digest = getSHA1();
+		digest.update(content);
+		bytes.write(digest.digest());
+
+		writeAtomically(new File(gitDir, INDEX), bytes.toByteArray());
+	}
+
+	/**
+	 * Registers directory as a new linked working tree, detached
+	 * at commitID, the way "git worktree add --detach" does.
+	 * The files of commitID are not written.
+	 *
+	 * @modifies directory, the git directory
+	 * @throws IOException
+	 */
+	public void addWorkingTree(File directory, String commitID) throws IOException {
+		directory = directory.getAbsoluteFile();
+		File worktreesDir = new File(commonDir, "worktrees");
+
+		String name = directory.getName();
+		File adminDir = new File(worktreesDir, name);
+
+		for (int k = 1; adminDir.exists(); k++) {
+			adminDir = new File(worktreesDir, name + k);
+		}
+
+		if (!adminDir.mkdirs() || (!directory.isDirectory() && !directory.mkdirs())) {
+			throw new IOException("cannot create working tree " + directory);
+		}
+
+		File dotGit = new File(directory, GIT_DIR);
+
+		writeAtomically(new File(adminDir, "gitdir"),
+				(dotGit.getPath() + "\n").getBytes("UTF-8"));
+		writeAtomically(new File(adminDir, "commondir"),
+				("../..\n").getBytes("UTF-8"));
+		writeAtomically(new File(adminDir, HEAD),
+				(commitID + "\n").getBytes("UTF-8"));
+		writeAtomically(dotGit,
+				(GITDIR_PREFIX + adminDir.getAbsolutePath() + "\n").getBytes("UTF-8"));
+	}
+
+	/**
+	 * @return the loose object of id, or null if there is none.
+	 * @throws IOException
+	 */
+	private GitObject readLooseObject(String id) throws IOException {
+		File file = new File(objectsDir, id.substring(0, 2) + File.separatorChar
+				+ id.substring(2));
+
+		if (!file.isFile()) {
+			return null;
+		}
+
+		DataInputStream in = new DataInputStream(new InflaterInputStream(
+				new BufferedInputStream(new FileInputStream(file))));
+
+		try {
+			// header is "{type name} {size}\0"
+			StringBuilder header = new StringBuilder();
+			int c;
+
+			while ((c = in.read()) > 0) {
+				header.append((char) c);
+			}
+
+			String[] tokens = header.toString().split(" ");
+			int type = getType(tokens[0]);
+			byte[] content = new byte[Integer.parseInt(tokens[1])];
+			in.readFully(content);
+
+			return new GitObject(type, content);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @return the packed object of id, or null if there is none.
+	 * @throws IOException
+	 */
+	private GitObject readPackedObject(String id) throws IOException {
+		for (PackFile packFile : getPackFiles()) {
+			long offset = packFile.findOffset(id);
+
+			if (offset >= 0) {
+				return packFile.readObject(offset);
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * @return the pack files of this repository, opened on first use.
+	 * @throws IOException
+	 */
+	private List<PackFile> getPackFiles() throws IOException {
+		if (packFiles != null) {
+			return packFiles;
+		}
+
+		packFiles = new ArrayList<PackFile>();
+		File packDir = new File(objectsDir, "pack");
+		String[] names = packDir.list();
+
+		if (names != null) {
+			for (String name : names) {
+				if (!name.endsWith(".idx")) {
+					continue;
+				}
+
+				File packFile = new File(packDir,
+						name.substring(0, name.length() - ".idx".length()) + ".pack");
+
+				if (packFile.isFile()) {
+					packFiles.add(new PackFile(new File(packDir, name), packFile));
+				}
+			}
+		}
+
+		return packFiles;
+	}
+
+	/**
+	 * @return the object type numbered as in pack files.
+	 * @throws IOException if typeName is unknown.
+	 */
+	private static int getType(String typeName) throws IOException {
+		for (int type = OBJ_COMMIT; type <= OBJ_TAG; type++) {
+			if (TYPE_NAMES[type].equals(typeName)) {
+				return type;
+			}
+		}
+
+		throw new IOException("unknown object type " + typeName);
+	}
+
+	/**
+	 * Applies a git delta to base.
+	 *
+	 * @return the content that delta describes.
+	 * @throws IOException if delta is malformed or does not apply to base.
+	 */
+	private static byte[] applyDelta(byte[] base, byte[] delta) throws IOException {
+		int pos = 0;
+
+		// the delta starts with the sizes of base and result, as varints
+		long baseSize = 0;
+		int shift = 0;
+		int c;
+
+		do {
+			c = delta[pos++] & 0xff;
+			baseSize |= (long) (c & 0x7f) << shift;
+			shift += 7;
+		} while ((c & 0x80) != 0);
+
+		long resultSize = 0;
+		shift = 0;
+
+		do {
+			c = delta[pos++] & 0xff;
+			resultSize |= (long) (c & 0x7f) << shift;
+			shift += 7;
+		} while ((c & 0x80) != 0);
+
+		if (baseSize != base.length) {
+			throw new IOException("delta base size mismatch");
+		}
+
+		byte[] result = new byte[(int) resultSize];
+		int resultPos = 0;
+
+		while (pos < delta.length) {
+			int op = delta[pos++] & 0xff;
+
+			if ((op & 0x80) != 0) {
+				// copy from base; the low bits tell which offset and size bytes follow
+				int offset = 0;
+				int size = 0;
+
+				for (int i = 0; i < 4; i++) {
+					if ((op & (1 << i)) != 0) {
+						offset |= (delta[pos++] & 0xff) << (8 * i);
+					}
+				}
+
+				for (int i = 0; i < 3; i++) {
+					if ((op & (0x10 << i)) != 0) {
+						size |= (delta[pos++] & 0xff) << (8 * i);
+					}
+				}
+
+				if (size == 0) {
+					size = 0x10000;
+				}
+
+				System.arraycopy(base, offset, result, resultPos, size);
+				resultPos += size;
+			} else if (op != 0) {
+				// insert the next op bytes of delta
+				System.arraycopy(delta, pos, result, resultPos, op);
+				pos += op;
+				resultPos += op;
+			} else {
+				throw new IOException("invalid delta opcode");
+			}
+		}
+
+		if (resultPos != result.length) {
+			throw new IOException("delta result size mismatch");
+		}
+
+		return result;
+	}
+
+	/**
+	 * Writes content to file through a lock file, so that
+	 * readers never see a partially written file.
+	 *
+	 * @modifies file
+	 * @throws IOException
+	 */
+	private static void writeAtomically(File file, byte[] content) throws IOException {
+		File lockFile = new File(file.getPath() + LOCK_SUFFIX);
+		OutputStream out = new FileOutputStream(lockFile);
+
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+
+		if (!lockFile.renameTo(file) && !(file.delete() && lockFile.renameTo(file))) {
+			throw new IOException("cannot write " + file);
+		}
+	}
+
+	/**
+	 * @return the first line of file, or null if file is empty.
+	 * @throws IOException
+	 */
+	private static String readFirstLine(File file) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+
+		try {
+			return reader.readLine();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * @return path as a File, resolved against base if it is relative.
+	 */
+	private static File resolvePath(File base, String path) {
+		File file = new File(path);
+
+		if (!file.isAbsolute()) {
+			file = new File(base, path);
+		}
+
+		return file;
+	}
+
+	private static MessageDigest getSHA1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-1
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static String toString(byte[] content) throws UnsupportedEncodingException {
+		return new String(content, "UTF-8");
+	}
+
+	private static boolean isHex(String str) {
+		for (int i = 0; i < str.length(); i++) {
+			if (Character.digit(str.charAt(i), 16) < 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * @return the hex string of the 20-byte id at offset of bytes.
+	 */
+	public static String toHex(byte[] bytes, int offset) {
+		StringBuilder hex = new StringBuilder(ID_LENGTH);
+
+		for (int i = offset; i < offset + RAW_ID_LENGTH; i++) {
+			hex.append(Character.forDigit((bytes[i] >> 4) & 0xf, 16));
+			hex.append(Character.forDigit(bytes[i] & 0xf, 16));
+		}
+
+		return hex.toString();
+	}
+
+	/**
+	 * @return the 20 bytes of the hex string id.
+	 */
+	private static byte[] fromHex(String id) {
+		byte[] bytes = new byte[RAW_ID_LENGTH];
+
+		for (int i = 0; i < RAW_ID_LENGTH; i++) {
+			bytes[i] = (byte) ((Character.digit(id.charAt(2 * i), 16) << 4)
+					+ Character.digit(id.charAt(2 * i + 1), 16));
+		}
+
+		return bytes;
+	}
+
+	/**
+	 * GitObject is the type and content of an object.
+	 *
+	 * GitObject is immutable; its content must not be modified.
+	 */
+	public static final class GitObject {
+
+		private final int type;
+		private final byte[] content;
+
+		private GitObject(int type, byte[] content) {
+			this.type = type;
+			this.content = content;
+		}
+
+		/**
+		 * @return one of OBJ_COMMIT, OBJ_TREE, OBJ_BLOB and OBJ_TAG.
+		 */
+		public int getType() {
+			return type;
+		}
+
+		public byte[] getContent() {
+			return content;
+		}
+	}
+
+	/**
+	 * Commit is the part of a commit object that Histaroach uses.
+	 *
+	 * Commit is immutable.
+	 */
+	public static final class Commit {
+
+		private final String id;
+		private final String treeID;
+		private final List<String> parentIDs;
+		private final long commitTime;
+
+		private Commit(String id, String treeID, List<String> parentIDs, long commitTime) {
+			this.id = id;
+			this.treeID = treeID;
+			this.parentIDs = Collections.unmodifiableList(parentIDs);
+			this.commitTime = commitTime;
+		}
+
+		public String getID() {
+			return id;
+		}
+
+		public String getTreeID() {
+			return treeID;
+		}
+
+		/**
+		 * @return ids of the parents, in order.
+		 */
+		public List<String> getParentIDs() {
+			return parentIDs;
+		}
+
+		/**
+		 * @return the committer time in seconds since the epoch.
+		 */
+		public long getCommitTime() {
+			return commitTime;
+		}
+	}
+
+	/**
+	 * TreeEntry is a mode and an object id in a tree object.
+	 *
+	 * TreeEntry is immutable.
+	 */
+	public static final class TreeEntry {
+
+		private final int mode;
+		private final String id;
+
+		public TreeEntry(int mode, String id) {
+			this.mode = mode;
+			this.id = id;
+		}
+
+		public int getMode() {
+			return mode;
+		}
+
+		public String getID() {
+			return id;
+		}
+
+		public boolean isTree() {
+			return (mode & MODE_TYPE_MASK) == MODE_TREE;
+		}
+
+		public boolean isGitlink() {
+			return (mode & MODE_TYPE_MASK) == MODE_GITLINK;
+		}
+
+		public boolean isSymlink() {
+			return (mode & MODE_TYPE_MASK) == MODE_SYMLINK;
+		}
+
+		public boolean isExecutable() {
+			return mode == MODE_EXECUTABLE;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (other == null || !other.getClass().equals(this.getClass())) {
+				return false;
+			}
+
+			TreeEntry entry = (TreeEntry) other;
+
+			return mode == entry.mode && id.equals(entry.id);
+		}
+
+		@Override
+		public int hashCode() {
+			return 11 * mode + 13 * id.hashCode();
+		}
+	}
+
+	/**
+	 * LruCache is a map that holds at most capacity entries,
+	 * evicting the least recently used one.
+	 */
+	private static final class LruCache<K, V> extends LinkedHashMap<K, V> {
+
+		private static final long serialVersionUID = 2374581839150738914L;
+
+		private final int capacity;
+
+		LruCache(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	/**
+	 * PackFile reads objects of a pack file through its index
+	 * file (version 1 or 2).
+	 *
+	 * PackFile is not thread-safe; GitDirectory synchronizes access.
+	 */
+	private final class PackFile {
+
+		private static final int IDX_SIGNATURE = 0xff744f63; // "\377tOc"
+		private static final int FANOUT_LENGTH = 256 * 4;
+		private static final int HEADER_LENGTH = 32;
+		private static final int BUFFER_LENGTH = 8192;
+
+		private final MappedByteBuffer idx;
+		private final File packFile;
+		private /*@Nullable*/ RandomAccessFile pack;
+		private final int version;
+		private final int fanoutStart;
+		private final int numObjects;
+		// map: offset in pack file -> object, least recently used first
+		private final Map<Long, GitObject> deltaBaseCache;
+
+		PackFile(File idxFile, File packFile) throws IOException {
+			this.packFile = packFile;
+
+			RandomAccessFile idxAccess = new RandomAccessFile(idxFile, "r");
+
+			try {
+				// the mapping remains valid once the file is closed
+				idx = idxAccess.getChannel().map(FileChannel.MapMode.READ_ONLY,
+						0, idxAccess.length());
+			} finally {
+				idxAccess.close();
+			}
+
+			if (idx.getInt(0) == IDX_SIGNATURE) {
+				version = idx.getInt(4);
+				fanoutStart = 8;
+
+				if (version != 2) {
+					throw new IOException("unsupported pack index version " + version
+							+ " in " + idxFile);
+				}
+			} else {
+				version = 1;
+				fanoutStart = 0;
+			}
+
+			numObjects = idx.getInt(fanoutStart + FANOUT_LENGTH - 4);
+			pack = null;
+			deltaBaseCache = new LruCache<Long, GitObject>(CACHE_SIZE / 4);
+		}
+
+		int getNumObjects() {
+			return numObjects;
+		}
+
+		/**
+		 * @return the offset of object id in the pack file, or -1 if
+		 *         the pack does not contain it.
+		 */
+		long findOffset(String id) {
+			int i = lowerBound(id);
+
+			if (i < numObjects && comparePrefix(i, id) == 0) {
+				return getOffset(i);
+			}
+
+			return -1;
+		}
+
+		/**
+		 * Adds ids of objects in the pack that start with prefix to ids,
+		 * until ids has limit elements.
+		 *
+		 * @modifies ids
+		 */
+		void findObjectIDs(String prefix, int limit, Set<String> ids) {
+			for (int i = lowerBound(prefix); i < numObjects && ids.size() < limit
+					&& comparePrefix(i, prefix) == 0; i++) {
+				ids.add(getID(i));
+			}
+		}
+
+		/**
+		 * Reads the object at offset, resolving deltas.
+		 *
+		 * @return the object at offset.
+		 * @throws IOException
+		 */
+		GitObject readObject(long offset) throws IOException {
+			GitObject object = deltaBaseCache.get(offset);
+
+			if (object != null) {
+				return object;
+			}
+
+			byte[] header = new byte[HEADER_LENGTH];
+			read(offset, header);
+
+			// type and size: 3 type bits, then the size as a varint
+			int pos = 0;
+			int c = header[pos++] & 0xff;
+			int type = (c >> 4) & 7;
+			long size = c & 0xf;
+			int shift = 4;
+
+			while ((c & 0x80) != 0) {
+				c = header[pos++] & 0xff;
+				size |= (long) (c & 0x7f) << shift;
+				shift += 7;
+			}
+
+			if (type == OBJ_OFS_DELTA) {
+				// the base is at a negative offset, in a big-endian varint
+				// where each continuation adds one
+				c = header[pos++] & 0xff;
+				long baseOffset = c & 0x7f;
+
+				while ((c & 0x80) != 0) {
+					c = header[pos++] & 0xff;
+					baseOffset = ((baseOffset + 1) << 7) | (c & 0x7f);
+				}
+
+				GitObject base = readObject(offset - baseOffset);
+				byte[] delta = inflate(offset + pos, (int) size);
+				object = new GitObject(base.getType(), applyDelta(base.getContent(), delta));
+			} else if (type == OBJ_REF_DELTA) {
+				GitObject base = GitDirectory.this.readObject(toHex(header, pos));
+				pos += RAW_ID_LENGTH;
+				byte[] delta = inflate(offset + pos, (int) size);
+				object = new GitObject(base.getType(), applyDelta(base.getContent(), delta));
+			} else if (type >= OBJ_COMMIT && type <= OBJ_TAG) {
+				object = new GitObject(type, inflate(offset + pos, (int) size));
+			} else {
+				throw new IOException("invalid object type " + type + " at " + offset
+						+ " in " + packFile);
+			}
+
+			if (object.getContent().length <= MAX_CACHED_OBJECT_SIZE) {
+				deltaBaseCache.put(offset, object);
+			}
+
+			return object;
+		}
+
+		/**
+		 * @return size bytes inflated from the zlib stream at offset.
+		 * @throws IOException
+		 */
+		private byte[] inflate(long offset, int size) throws IOException {
+			byte[] result = new byte[size];
+			byte[] buffer = new byte[BUFFER_LENGTH];
+			Inflater inflater = new Inflater();
+
+			try {
+				int resultPos = 0;
+
+				while (resultPos < size) {
+					if (inflater.needsInput()) {
+						int n = read(offset, buffer);
+
+						if (n <= 0) {
+							throw new IOException("unexpected end of " + packFile);
+						}
+
+						offset += n;
+						inflater.setInput(buffer, 0, n);
+					}
+
+					int n = inflater.inflate(result, resultPos, size - resultPos);
+
+					if (n == 0 && (inflater.finished() || inflater.needsDictionary())) {
+						break;
+					}
+
+					resultPos += n;
+				}
+
+				if (resultPos != size) {
+					throw new IOException("corrupt object in " + packFile);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException("corrupt object in " + packFile, e);
+			} finally {
+				inflater.end();
+			}
+
+			return result;
+		}
+
+		/**
+		 * Reads up to buffer.length bytes of the pack file at offset.
+		 *
+		 * @return the number of bytes read, or -1 at end of file.
+		 * @throws IOException
+		 */
+		private int read(long offset, byte[] buffer) throws IOException {
+			if (pack == null) {
+				pack = new RandomAccessFile(packFile, "r");
+			}
+
+			pack.seek(offset);
+			return pack.read(buffer);
+		}
+
+		/**
+		 * @return the index of the first object whose id is not less
+		 *         than prefix.
+		 */
+		private int lowerBound(String prefix) {
+			int firstByte = Integer.parseInt(prefix.substring(0, 2), 16);
+			int low = firstByte == 0 ? 0 : idx.getInt(fanoutStart + 4 * (firstByte - 1));
+			int high = idx.getInt(fanoutStart + 4 * firstByte);
+
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+
+				if (comparePrefix(mid, prefix) < 0) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		/**
+		 * @return a negative number, zero, or a positive number as the
+		 *         id of object i is less than, starts with, or is
+		 *         greater than prefix.
+		 */
+		private int comparePrefix(int i, String prefix) {
+			int idStart = getIDStart(i);
+
+			for (int k = 0; k < prefix.length(); k++) {
+				int b = idx.get(idStart + k / 2) & 0xff;
+				int digit = k % 2 == 0 ? b >> 4 : b & 0xf;
+				int diff = digit - Character.digit(prefix.charAt(k), 16);
+
+				if (diff != 0) {
+					return diff;
+				}
+			}
+
+			return 0;
+		}
+
+		private String getID(int i) {
+			byte[] id = new byte[RAW_ID_LENGTH];
+			int idStart = getIDStart(i);
+
+			for (int k = 0; k < RAW_ID_LENGTH; k++) {
+				id[k] = idx.get(idStart + k);
+			}
+
+			return toHex(id, 0);
+		}
+
+		private int getIDStart(int i) {
+			if (version == 1) {
+				// each entry is a 4-byte offset followed by the id
+				return FANOUT_LENGTH + 24 * i + 4;
+			}
+
+			return fanoutStart + FANOUT_LENGTH + RAW_ID_LENGTH * i;
+		}
+
+		private long getOffset(int i) {
+			if (version == 1) {
+				return idx.getInt(FANOUT_LENGTH + 24 * i) & 0xffffffffL;
+			}
+
+			// ids are followed by CRC32s, then 4-byte offsets, then 8-byte
+			// offsets for packs over 2 GB
+			int offsetsStart = fanoutStart + FANOUT_LENGTH + (RAW_ID_LENGTH + 4) * numObjects;
+			int offset = idx.getInt(offsetsStart + 4 * i);
+
+			if ((offset & 0x80000000) != 0) {
+				int largeOffsetsStart = offsetsStart + 4 * numObjects;
+				return idx.getLong(largeOffsetsStart + 8 * (offset & 0x7fffffff));
+			}
+
+			return offset;
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package histaroach.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+
+/**
+ * GitIgnoreRules decides whether a path in a working tree is ignored,
+ * from patterns in the format of ".gitignore" files.
+ *
+ * Patterns read later take precedence, so the patterns of a directory's
+ * ".gitignore" file are added after those of its parent directories.
+ *
+ * GitIgnoreRules is immutable.
+ */
+public class GitIgnoreRules {
+
+	public static final String GITIGNORE = ".gitignore";
+
+	// in increasing order of precedence
+	private final List<Rule> rules;
+
+	/**
+	 * Creates a GitIgnoreRules that ignores nothing.
+	 */
+	public GitIgnoreRules() {
+		rules = new ArrayList<Rule>();
+	}
+
+	private GitIgnoreRules(List<Rule> rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Adds the patterns of patternFile, which apply to paths under
+	 * baseDir, to these rules.
+	 *
+	 * @param baseDir a directory relative to the working tree, separated
+	 *        by '/' and ending with '/', or "" for the working tree.
+	 * @return rules with the patterns of patternFile taking precedence
+	 *         over these rules; these rules if patternFile does not exist.
+	 * @throws IOException
+	 */
+	public GitIgnoreRules extend(String baseDir, File patternFile) throws IOException {
+		if (!patternFile.isFile()) {
+			return this;
+		}
+
+		List<Rule> extendedRules = new ArrayList<Rule>(rules);
+		BufferedReader reader = new BufferedReader(new FileReader(patternFile));
+
+		try {
+			String line;
+
+			while ((line = reader.readLine()) != null) {
+				Rule rule = parseRule(baseDir, line);
+
+				if (rule != null) {
+					extendedRules.add(rule);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		return new GitIgnoreRules(extendedRules);
+	}
+
+	/**
+	 * @param path a path relative to the working tree, separated by '/'.
+	 * @return true if the last pattern that matches path ignores it.
+	 */
+	public boolean isIgnored(String path, boolean isDirectory) {
+		for (int i = rules.size() - 1; i >= 0; i--) {
+			Rule rule = rules.get(i);
+
+			if (rule.matches(path, isDirectory)) {
+				return !rule.negated;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return a Rule of line, or null if line is blank or a comment.
+	 */
+	private static Rule parseRule(String baseDir, String line) {
+		if (line.length() == 0 || line.startsWith("#")) {
+			return null;
+		}
+
+		// trailing spaces are ignored unless escaped
+		while (line.endsWith(" ") && !line.endsWith("\\ ")) {
+			line = line.substring(0, line.length() - 1);
+		}
+
+		boolean negated = line.startsWith("!");
+
+		if (negated) {
+			line = line.substring(1);
+		} else if (line.startsWith("\\")) {
+			// an escaped leading '#' or '!'
+			line = line.substring(1);
+		}
+
+		boolean directoryOnly = line.endsWith("/");
+
+		if (directoryOnly) {
+			line = line.substring(0, line.length() - 1);
+		}
+
+		if (line.length() == 0) {
+			return null;
+		}
+
+		// a pattern with a slash is relative to baseDir,
+		// otherwise it matches a name at any depth
+		boolean anchored = line.contains("/");
+
+		if (line.startsWith("/")) {
+			line = line.substring(1);
+		}
+
+		return new Rule(baseDir, Pattern.compile(toRegex(line)), negated,
+				directoryOnly, anchored);
+	}
+
+	/**
+	 * @return a regular expression equivalent to glob.
+	 */
+	private static String toRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		int i = 0;
+
+		while (i < glob.length()) {
+			char c = glob.charAt(i);
+
+			if (glob.startsWith("**/", i)) {
+				// any number of leading directories
+				regex.append("(?:.*/)?");
+				i += 3;
+			} else if (glob.startsWith("**", i) && i + 2 == glob.length()) {
+				// everything inside
+				regex.append(".*");
+				i += 2;
+			} else if (c == '*') {
+				regex.append("[^/]*");
+				i++;
+			} else if (c == '?') {
+				regex.append("[^/]");
+				i++;
+			} else if (c == '[' && glob.indexOf(']', i + 1) > 0) {
+				int end = glob.indexOf(']', i + 2);
+				end = end < 0 ? glob.indexOf(']', i + 1) : end;
+				String charClass = glob.substring(i + 1, end);
+
+				if (charClass.startsWith("!")) {
+					charClass = "^" + charClass.substring(1);
+				}
+
+				regex.append('[').append(charClass.replace("\\", "\\\\")).append(']');
+				i = end + 1;
+			} else if (c == '\\' && i + 1 < glob.length()) {
+				regex.append(Pattern.quote(String.valueOf(glob.charAt(i + 1))));
+				i += 2;
+			} else {
+				regex.append(Pattern.quote(String.valueOf(c)));
+				i++;
+			}
+		}
+
+		return regex.toString();
+	}
+
+	/**
+	 * Rule is a single pattern of a ".gitignore" file.
+	 */
+	private static final class Rule {
+
+		private final String baseDir;
+		private final Pattern pattern;
+		private final boolean negated;
+		private final boolean directoryOnly;
+		private final boolean anchored;
+
+		Rule(String baseDir, Pattern pattern, boolean negated,
+				boolean directoryOnly, boolean anchored) {
+			this.baseDir = baseDir;
+			this.pattern = pattern;
+			this.negated = negated;
+			this.directoryOnly = directoryOnly;
+			this.anchored = anchored;
+		}
+
+		boolean matches(String path, boolean isDirectory) {
+			if (!path.startsWith(baseDir) || (directoryOnly && !isDirectory)) {
+				return false;
+			}
+
+			String relativePath = path.substring(baseDir.length());
+
+			if (!anchored) {
+				relativePath = relativePath.substring(relativePath.lastIndexOf('/') + 1);
+			}
+
+			return pattern.matcher(relativePath).matches();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package histaroach.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * GzipLineArchiver writes the output of a process to a gzip-compressed 
+ * file, line by line, as it is read. 
+ * 
+ * An error writing the file does not stop the process: the rest of 
+ * the output is discarded, and the error is thrown by close().
+ */
+public class GzipLineArchiver implements LineProcessor {
+	
+	public static final String GZIP_EXTENSION = ".gz";
+	
+	private final Writer writer;
+	private IOException exception;
+	
+	/**
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	public GzipLineArchiver(File file) throws IOException {
+		writer = new BufferedWriter(new OutputStreamWriter(
+				new GZIPOutputStream(new FileOutputStream(file))));
+		exception = null;
+	}
+	
+	@Override
+	public synchronized boolean processLine(String line) {
+		if (exception == null) {
+			try {
+				writer.write(line);
+				writer.write('\n');
+			} catch (IOException e) {
+				exception = e;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Finishes and closes the file.
+	 * 
+	 * @throws IOException if the file could not be written.
+	 */
+	public synchronized void close() throws IOException {
+		try {
+			writer.close();
+		} catch (IOException e) {
+			if (exception == null) {
+				exception = e;
+			}
+		}
+		
+		if (exception != null) {
+			throw exception;
+		}
+	}
+}
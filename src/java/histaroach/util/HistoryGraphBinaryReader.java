@@ -0,0 +1,185 @@
+package histaroach.util;
+
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.HistoryGraph;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * HistoryGraphBinaryReader reads a binary file written by
+ * HistoryGraphBinaryWriter and reconstructs the HistoryGraph instance.
+ *
+ * Test names and file names are read once, from the tables at the head
+ * of the file, and are shared by all Revisions.
+ */
+public class HistoryGraphBinaryReader {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+
+	public HistoryGraphBinaryReader(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Reconstructs the HistoryGraph instance from the binary file.
+	 *
+	 * @return the HistoryGraph.
+	 * @throws IOException if the file cannot be read, or is not
+	 *         a binary HistoryGraph file of this version.
+	 */
+	public HistoryGraph read() throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file), BUFFER_SIZE));
+
+		try {
+			return read(in);
+		} catch (EOFException e) {
+			throw new IOException(file + " is truncated", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(file + " is corrupt", e);
+		} finally {
+			in.close();
+		}
+	}
+
+	private HistoryGraph read(DataInputStream in) throws IOException {
+		if (in.readInt() != HistoryGraphBinaryWriter.MAGIC) {
+			throw new IOException(file + " is not a binary HistoryGraph file");
+		}
+
+		String[] testNames = readStrings(in);
+		String[] fileNames = readStrings(in);
+
+		int numRevisions = in.readInt();
+
+		String[] commitIDs = new String[numRevisions];
+		for (int i = 0; i < numRevisions; i++) {
+			commitIDs[i] = in.readUTF();
+		}
+
+		Compilable[] compilables = new Compilable[numRevisions];
+		for (int i = 0; i < numRevisions; i++) {
+			compilables[i] = Compilable.values()[in.readUnsignedByte()];
+		}
+
+		boolean[] testAborteds = new boolean[numRevisions];
+		for (int i = 0; i < numRevisions; i++) {
+			testAborteds[i] = in.readBoolean();
+		}
+
+		TestResult[] testResults = new TestResult[numRevisions];
+		for (int i = 0; i < numRevisions; i++) {
+			testResults[i] = readTestResult(in, testNames);
+		}
+
+		HistoryGraph hGraph = new HistoryGraph();
+		Revision[] revisions = new Revision[numRevisions];
+
+		for (int i = 0; i < numRevisions; i++) {
+			Map<Revision, Set<DiffFile>> parentToDiffFiles = readParents(in,
+					revisions, i, fileNames);
+
+			revisions[i] = new Revision(commitIDs[i], parentToDiffFiles,
+					compilables[i], testAborteds[i], testResults[i]);
+			hGraph.addRevision(revisions[i]);
+		}
+
+		return hGraph;
+	}
+
+	private static String[] readStrings(DataInputStream in) throws IOException {
+		String[] strings = new String[in.readInt()];
+
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = in.readUTF();
+		}
+
+		return strings;
+	}
+
+	/**
+	 * @return a TestResult, or null if none was written.
+	 */
+	private static TestResult readTestResult(DataInputStream in, String[] testNames)
+			throws IOException {
+		if (!in.readBoolean()) {
+			return null;
+		}
+
+		Set<String> allTests = readBitmap(in, testNames);
+		Set<String> failedTests = readBitmap(in, testNames);
+
+		return new TestResult(allTests, failedTests);
+	}
+
+	/**
+	 * @return the set of tests in a bitmap over testNames.
+	 */
+	private static Set<String> readBitmap(DataInputStream in, String[] testNames)
+			throws IOException {
+		Set<String> tests = new HashSet<String>();
+		int numWords = (testNames.length + 63) / 64;
+
+		for (int w = 0; w < numWords; w++) {
+			long word = in.readLong();
+
+			while (word != 0) {
+				int bit = Long.numberOfTrailingZeros(word);
+				tests.add(testNames[w * 64 + bit]);
+				word &= word - 1;
+			}
+		}
+
+		return tests;
+	}
+
+	/**
+	 * Reads the parents of the Revision at index.
+	 *
+	 * @requires revisions before index are read.
+	 */
+	private Map<Revision, Set<DiffFile>> readParents(DataInputStream in,
+			Revision[] revisions, int index, String[] fileNames) throws IOException {
+		Map<Revision, Set<DiffFile>> parentToDiffFiles = new HashMap<Revision, Set<DiffFile>>();
+		int numParents = in.readInt();
+
+		for (int p = 0; p < numParents; p++) {
+			int parentIndex = in.readInt();
+
+			if (parentIndex < 0 || parentIndex >= index) {
+				throw new IOException(file + " is corrupt: parent " + parentIndex
+						+ " of revision " + index);
+			}
+
+			Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+			int numDiffFiles = in.readInt();
+
+			for (int d = 0; d < numDiffFiles; d++) {
+				String fileName = fileNames[in.readInt()];
+				DiffType diffType = DiffType.values()[in.readUnsignedByte()];
+
+				diffFiles.add(new DiffFile(diffType, fileName));
+			}
+
+			parentToDiffFiles.put(revisions[parentIndex], diffFiles);
+		}
+
+		return parentToDiffFiles;
+	}
+}
@@ -0,0 +1,218 @@
+package histaroach.util;
+
+import histaroach.model.DiffFile;
+import histaroach.model.HistoryGraph;
+import histaroach.model.Revision;
+import histaroach.model.TestResult;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * HistoryGraphBinaryWriter writes a HistoryGraph to a compact binary file.
+ *
+ * Test names and the names of changed files are each written once, to
+ * a table at the head of the file, and are referred to by their index
+ * in the table. The Revisions follow, column by column: all commit IDs,
+ * then all compilable flags, all test aborted flags, all test results
+ * and all parents. A test result is a pair of bitmaps over the test name
+ * table, of all tests and of failed tests. A parent is the index of
+ * a Revision written earlier, with its DiffFiles.
+ *
+ * All numbers are big-endian, as written by DataOutputStream.
+ */
+public class HistoryGraphBinaryWriter {
+
+	public static final String BINARY_EXTENSION = ".hgb";
+
+	/**
+	 * The first 4 bytes of a file, "HGB" followed by the format version.
+	 */
+	public static final int MAGIC = 0x48474201;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final HistoryGraph historyGraph;
+
+	private final List<Revision> revisions;
+	// map: Revision -> its index in revisions
+	private final Map<Revision, Integer> revisionIndices;
+	private final List<String> testNames;
+	// map: test name -> its index in testNames
+	private final Map<String, Integer> testIndices;
+	private final List<String> fileNames;
+	// map: file name -> its index in fileNames
+	private final Map<String, Integer> fileIndices;
+
+	public HistoryGraphBinaryWriter(File file, HistoryGraph historyGraph) {
+		this.file = file;
+		this.historyGraph = historyGraph;
+
+		revisions = new ArrayList<Revision>();
+		revisionIndices = new HashMap<Revision, Integer>();
+		testNames = new ArrayList<String>();
+		testIndices = new HashMap<String, Integer>();
+		fileNames = new ArrayList<String>();
+		fileIndices = new HashMap<String, Integer>();
+	}
+
+	/**
+	 * @return true if file has the extension of a binary HistoryGraph file.
+	 */
+	public static boolean isBinaryFile(File file) {
+		return file.getName().endsWith(BINARY_EXTENSION);
+	}
+
+	/**
+	 * Writes historyGraph to file.
+	 *
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	public void write() throws IOException {
+		buildTables();
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+
+		try {
+			out.writeInt(MAGIC);
+
+			writeStrings(out, testNames);
+			writeStrings(out, fileNames);
+
+			out.writeInt(revisions.size());
+
+			for (Revision revision : revisions) {
+				out.writeUTF(revision.getCommitID());
+			}
+
+			for (Revision revision : revisions) {
+				out.writeByte(revision.isCompilable().ordinal());
+			}
+
+			for (Revision revision : revisions) {
+				out.writeBoolean(revision.hasTestAborted());
+			}
+
+			for (Revision revision : revisions) {
+				writeTestResult(out, revision.getTestResult());
+			}
+
+			for (Revision revision : revisions) {
+				writeParents(out, revision);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Numbers the Revisions, test names and file names of historyGraph.
+	 *
+	 * @modifies this
+	 * @throws IOException if a Revision comes before one of its parents.
+	 */
+	private void buildTables() throws IOException {
+		for (Revision revision : historyGraph) {
+			for (Revision parent : revision.getParents()) {
+				if (!revisionIndices.containsKey(parent)) {
+					throw new IOException("parent " + parent.getCommitID()
+							+ " of " + revision.getCommitID() + " is not written before it");
+				}
+
+				for (DiffFile diffFile : revision.getDiffFiles(parent)) {
+					addName(diffFile.getFileName(), fileNames, fileIndices);
+				}
+			}
+
+			TestResult testResult = revision.getTestResult();
+
+			if (testResult != null) {
+				for (String test : testResult.getAllTests()) {
+					addName(test, testNames, testIndices);
+				}
+
+				for (String test : testResult.getFailedTests()) {
+					addName(test, testNames, testIndices);
+				}
+			}
+
+			revisionIndices.put(revision, revisions.size());
+			revisions.add(revision);
+		}
+	}
+
+	private static void addName(String name, List<String> names,
+			Map<String, Integer> indices) {
+		if (!indices.containsKey(name)) {
+			indices.put(name, names.size());
+			names.add(name);
+		}
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings)
+			throws IOException {
+		out.writeInt(strings.size());
+
+		for (String s : strings) {
+			out.writeUTF(s);
+		}
+	}
+
+	private void writeTestResult(DataOutputStream out, TestResult testResult)
+			throws IOException {
+		out.writeBoolean(testResult != null);
+
+		if (testResult != null) {
+			writeBitmap(out, testResult.getAllTests());
+			writeBitmap(out, testResult.getFailedTests());
+		}
+	}
+
+	/**
+	 * Writes a bitmap of tests over testNames, as (testNames.size() + 63) / 64
+	 * words. Test i is bit (i % 64) of word (i / 64).
+	 */
+	private void writeBitmap(DataOutputStream out, Set<String> tests)
+			throws IOException {
+		long[] words = new long[(testNames.size() + 63) / 64];
+
+		for (String test : tests) {
+			int index = testIndices.get(test);
+			words[index / 64] |= 1L << (index % 64);
+		}
+
+		for (long word : words) {
+			out.writeLong(word);
+		}
+	}
+
+	private void writeParents(DataOutputStream out, Revision revision)
+			throws IOException {
+		Set<Revision> parents = revision.getParents();
+		out.writeInt(parents.size());
+
+		for (Revision parent : parents) {
+			Set<DiffFile> diffFiles = revision.getDiffFiles(parent);
+
+			out.writeInt(revisionIndices.get(parent));
+			out.writeInt(diffFiles.size());
+
+			for (DiffFile diffFile : diffFiles) {
+				out.writeInt(fileIndices.get(diffFile.getFileName()));
+				out.writeByte(diffFile.getDiffType().ordinal());
+			}
+		}
+	}
+}
@@ -0,0 +1,69 @@
+package histaroach.util;
+
+import histaroach.model.HistoryGraph;
+import histaroach.model.Revision;
+
+import java.io.File;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+
+/**
+ * HistoryGraphStreamingXMLWriter writes the Revisions of a HistoryGraph 
+ * to an XML file one at a time, in the format of HistoryGraphXMLWriter.
+ */
+public class HistoryGraphStreamingXMLWriter extends StreamingXMLWriter {
+
+	public HistoryGraphStreamingXMLWriter(File xmlFile) throws IOException, 
+			XMLStreamException {
+		super(xmlFile, HistoryGraphXMLWriter.HISTORY_GRAPH);
+	}
+	
+	/**
+	 * Writes historyGraph to xmlFile.
+	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public static void write(File xmlFile, HistoryGraph historyGraph) 
+			throws IOException, XMLStreamException {
+		HistoryGraphStreamingXMLWriter writer = new HistoryGraphStreamingXMLWriter(xmlFile);
+		
+		for (Revision revision : historyGraph) {
+			writer.writeRevision(revision);
+		}
+		
+		writer.close();
+	}
+	
+	/**
+	 * Writes a <Revision> element.
+	 * 
+	 * @requires the parents of revision have been written.
+	 * @throws XMLStreamException
+	 */
+	public void writeRevision(Revision revision) throws XMLStreamException {
+		startElement(HistoryGraphXMLWriter.REVISION);
+		
+		writeCommitID(revision.getCommitID());
+		writeCompilable(revision.isCompilable());
+		writeTestAborted(revision.hasTestAborted());
+		writeTestResult(revision.getTestResult());
+		
+		if (revision.getParents().isEmpty()) {
+			emptyElement(HistoryGraphXMLWriter.PARENTS);
+		} else {
+			startElement(HistoryGraphXMLWriter.PARENTS);
+			
+			for (Revision parent : revision.getParents()) {
+				writeDiffRecord(parent, revision.getDiffFiles(parent), 
+						HistoryGraphXMLWriter.PARENT);
+			}
+			
+			endElement();
+		}
+		
+		endElement();
+	}
+}
@@ -6,113 +6,224 @@ import histaroach.model.Revision;
 import histaroach.model.Revision.Compilable;
 import histaroach.model.TestResult;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
-import java.util.Iterator;
-import java.util.List;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Element;
-import org.xml.sax.SAXException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 
 /**
- * HistoryGraphXMLReader reads an XML file representing a HistoryGraph 
+ * HistoryGraphXMLReader reads an XML file representing a HistoryGraph
  * and reconstructs the HistoryGraph instance.
+ *
+ * The XML file is streamed rather than loaded into a DOM: each Revision
+ * is built as soon as its <Revision> element ends, so that memory used
+ * beyond the HistoryGraph itself does not grow with the size of the file.
+ * Test names, which repeat across Revisions, are shared between them.
  */
-public class HistoryGraphXMLReader extends XMLReader<HistoryGraph> {
-	
+public class HistoryGraphXMLReader {
+
+	private final File xmlFile;
 	private final Map<String, Revision> revisions;
-	
-	public HistoryGraphXMLReader(File xmlFile) throws ParserConfigurationException, 
-			SAXException, IOException {
-		super(xmlFile);
+	// map: test name -> the instance shared by all TestResults
+	private final Map<String, String> testNames;
+
+	public HistoryGraphXMLReader(File xmlFile) {
+		this.xmlFile = xmlFile;
 		revisions = new HashMap<String, Revision>();
+		testNames = new HashMap<String, String>();
 	}
-	
+
 	/**
 	 * Reconstructs the HistoryGraph instance from the XML file.
-	 * 
+	 *
 	 * @return the HistoryGraph.
+	 * @throws IOException if the XML file cannot be read or parsed.
 	 */
-	@Override
-	public HistoryGraph read() {
+	public HistoryGraph read() throws IOException {
 		HistoryGraph hGraph = new HistoryGraph();
-		
-		List<Element> revisionElements = traverseContainedElements(rootElement);
-		
-		for (Element revisionElement : revisionElements) { // <Revision>
-			Revision revision = parseRevisionElement(revisionElement);
-			hGraph.addRevision(revision);
-			
-			revisions.put(revision.getCommitID(), revision);
+
+		InputStream in = new BufferedInputStream(new FileInputStream(xmlFile));
+
+		try {
+			XMLStreamReader reader = XMLInputFactory.newInstance()
+				.createXMLStreamReader(in);
+
+			try {
+				nextElement(reader, HistoryGraphXMLWriter.HISTORY_GRAPH);
+
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+					Revision revision = parseRevisionElement(reader);
+					hGraph.addRevision(revision);
+
+					revisions.put(revision.getCommitID(), revision);
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("parse " + xmlFile + " unsuccessful", e);
+		} finally {
+			in.close();
 		}
-		
+
 		return hGraph;
 	}
-	
-	public Revision parseRevisionElement(Element revisionElement) { // <Revision>
-		Iterator<Element> iter = traverseContainedElements(revisionElement).iterator();
-		
-		Element commitIDElement = iter.next();		// <commitID>
-		Element compilableElement = iter.next();	// <Compilable>
-		Element testAbortedElement = iter.next();	// <testAborted>
-		Element testResultElement = iter.next();	// <TestResult>
-		Element parentsElement = iter.next();		// <Parents>
-		
-		String commitID = getString(commitIDElement);
-		Compilable compilable = parseCompilableElement(compilableElement);
-		boolean testAborted = parseTestAbortedElement(testAbortedElement);
-		TestResult testResult = null;
-		
-		if (compilable == Compilable.YES && !testAborted) {
-			testResult = parseTestResultElement(testResultElement);
+
+	/**
+	 * Parses a <Revision> element, from its start tag to its end tag.
+	 *
+	 * @requires reader is at the start tag of <Revision>.
+	 */
+	private Revision parseRevisionElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		reader.require(XMLStreamConstants.START_ELEMENT, null,
+				HistoryGraphXMLWriter.REVISION);
+
+		String commitID = readElementText(reader, XMLWriter.COMMIT_ID);
+		Compilable compilable = XMLReader.parseCompilable(
+				readElementText(reader, XMLWriter.COMPILABLE));
+		boolean testAborted = XMLReader.parseTestAborted(
+				readElementText(reader, XMLWriter.TEST_ABORTED));
+		TestResult testResult = parseTestResultElement(reader);
+
+		if (compilable != Compilable.YES || testAborted) {
+			testResult = null;
 		}
-		
-		Map<Revision, Set<DiffFile>> parentToDiffFiles = parseParentsElement(parentsElement);
-		
-		Revision revision = new Revision(commitID, parentToDiffFiles, compilable, 
+
+		Map<Revision, Set<DiffFile>> parentToDiffFiles = parseParentsElement(reader);
+
+		// </Revision>
+		reader.nextTag();
+
+		return new Revision(commitID, parentToDiffFiles, compilable,
 				testAborted, testResult);
-		
-		return revision;
 	}
-	
-	public Map<Revision, Set<DiffFile>> parseParentsElement(Element parentsElement) { // <Parents>
+
+	/**
+	 * Parses the next element, a <TestResult>.
+	 *
+	 * @return a TestResult, or null if the element is empty.
+	 */
+	private TestResult parseTestResultElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		nextElement(reader, XMLWriter.TEST_RESULT);
+
+		if (reader.nextTag() == XMLStreamConstants.END_ELEMENT) {
+			return null;
+		}
+
+		reader.require(XMLStreamConstants.START_ELEMENT, null, XMLWriter.TESTS);
+		Set<String> allTests = parseTestsElement(reader);
+
+		nextElement(reader, XMLWriter.FAILED_TESTS);
+		Set<String> failedTests = parseTestsElement(reader);
+
+		// </TestResult>
+		reader.nextTag();
+
+		return new TestResult(allTests, failedTests);
+	}
+
+	/**
+	 * Parses a <Tests> or <FailedTests> element, from its start tag
+	 * to its end tag.
+	 */
+	private Set<String> parseTestsElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		Set<String> tests = new HashSet<String>();
+
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) { // <testName>
+			String testName = reader.getElementText().trim();
+			String sharedTestName = testNames.get(testName);
+
+			if (sharedTestName == null) {
+				sharedTestName = testName;
+				testNames.put(testName, testName);
+			}
+
+			tests.add(sharedTestName);
+		}
+
+		return tests;
+	}
+
+	/**
+	 * Parses the next element, a <Parents>, up to its end tag.
+	 */
+	private Map<Revision, Set<DiffFile>> parseParentsElement(XMLStreamReader reader)
+			throws XMLStreamException {
 		Map<Revision, Set<DiffFile>> parentToDiffFiles = new HashMap<Revision, Set<DiffFile>>();
-		
-		List<Element> parentElements = traverseContainedElements(parentsElement);
-		
-		for (Element parentElement : parentElements) {
-			Pair<Revision, Set<DiffFile>> pair = parseParentElement(parentElement);
-			Revision parent = pair.getFirst();
-			Set<DiffFile> diffFiles = pair.getSecond();
-			
-			parentToDiffFiles.put(parent, diffFiles);
+
+		nextElement(reader, HistoryGraphXMLWriter.PARENTS);
+
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) { // <Parent>
+			String parentCommitID = readElementText(reader, XMLWriter.COMMIT_ID);
+			Set<DiffFile> diffFiles = parseDiffFilesElement(reader);
+
+			// </Parent>
+			reader.nextTag();
+
+			// because of topological ordering of Revisions in HistoryGraph
+			assert revisions.containsKey(parentCommitID);
+
+			parentToDiffFiles.put(revisions.get(parentCommitID), diffFiles);
 		}
-		
+
 		return parentToDiffFiles;
 	}
-	
-	public Pair<Revision, Set<DiffFile>> parseParentElement(Element parentElement) { // <Parent>
-		Iterator<Element> iter = traverseContainedElements(parentElement).iterator();
-		
-		Element commitIDElement = iter.next();	// <commitID>
-		Element diffFilesElement = iter.next();	// <DiffFiles>
-		
-		String parentCommitID = getString(commitIDElement);
-		Set<DiffFile> diffFiles = parseDiffFilesElement(diffFilesElement);
-		
-		// because of topological ordering of Revisions in HistoryGraph
-		assert revisions.containsKey(parentCommitID);
-		
-		Revision parent = revisions.get(parentCommitID);
-		
-		Pair<Revision, Set<DiffFile>> pair = new Pair<Revision, Set<DiffFile>>(parent, diffFiles);
-		
-		return pair;
+
+	/**
+	 * Parses the next element, a <DiffFiles>, up to its end tag.
+	 */
+	private Set<DiffFile> parseDiffFilesElement(XMLStreamReader reader)
+			throws XMLStreamException {
+		Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+
+		nextElement(reader, XMLWriter.DIFF_FILES);
+
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) { // <DiffFile>
+			String fileName = readElementText(reader, XMLWriter.FILE_NAME);
+			String diffTypeStr = readElementText(reader, XMLWriter.DIFF_TYPE);
+
+			// </DiffFile>
+			reader.nextTag();
+
+			diffFiles.add(new DiffFile(XMLReader.parseDiffType(diffTypeStr), fileName));
+		}
+
+		return diffFiles;
+	}
+
+	/**
+	 * Moves reader to the start tag of the next element,
+	 * which must be named localName.
+	 */
+	private static void nextElement(XMLStreamReader reader, String localName)
+			throws XMLStreamException {
+		reader.nextTag();
+		reader.require(XMLStreamConstants.START_ELEMENT, null, localName);
+	}
+
+	/**
+	 * Reads the next element, which must be named localName and
+	 * contain only text, leaving reader at its end tag.
+	 *
+	 * @return the text of the element, trimmed.
+	 */
+	private static String readElementText(XMLStreamReader reader, String localName)
+			throws XMLStreamException {
+		nextElement(reader, localName);
+		return reader.getElementText().trim();
 	}
 }
@@ -0,0 +1,193 @@
+package histaroach.util;
+
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.HistoryGraph;
+import histaroach.model.IRepository;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.Revision;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+
+
+/**
+ * IntermediateRevisionIndexedFile is the list of IntermediateRevisions
+ * in a file written by IntermediateRevisionIndexedWriter.
+ *
+ * The file is memory-mapped and only its header is read on construction.
+ * An IntermediateRevision is read and constructed each time it is
+ * requested, by looking up its record in the index, so that only the
+ * IntermediateRevisions in use are held in memory. IntermediateRevisions
+ * of a base-successor pair are made as siblings of a single empty one
+ * kept per pair, so that the total delta is computed at most once per pair.
+ *
+ * IntermediateRevisionIndexedFile is unmodifiable and thread-safe.
+ */
+public class IntermediateRevisionIndexedFile extends AbstractList<IntermediateRevision>
+		implements RandomAccess {
+
+	private final File file;
+	private final IRepository repository;
+	private final IRepository clonedRepository;
+	private final HistoryGraph historyGraph;
+
+	private final MappedByteBuffer buffer;
+	private final int size;
+	private final int indexOffset;
+
+	// map: (base, successor) commit IDs -> an empty IntermediateRevision of the pair
+	private final Map<Pair<String, String>, IntermediateRevision> pairToIntermediateRevision;
+
+	/**
+	 * Maps file, and reads its header.
+	 *
+	 * @throws IOException if file cannot be read, or is not an indexed
+	 *         IntermediateRevision file of this version.
+	 */
+	public IntermediateRevisionIndexedFile(File file, IRepository repository,
+			IRepository clonedRepository, HistoryGraph historyGraph) throws IOException {
+		this.file = file;
+		this.repository = repository;
+		this.clonedRepository = clonedRepository;
+		this.historyGraph = historyGraph;
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+		try {
+			// the mapping stays valid after the file is closed
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+		} finally {
+			raf.close();
+		}
+
+		if (buffer.capacity() < IntermediateRevisionIndexedWriter.HEADER_SIZE
+				|| buffer.getInt(0) != IntermediateRevisionIndexedWriter.MAGIC) {
+			throw new IOException(file + " is not an indexed IntermediateRevision file");
+		}
+
+		size = buffer.getInt(4);
+		indexOffset = buffer.getInt(8);
+
+		if (size < 0 || indexOffset < IntermediateRevisionIndexedWriter.HEADER_SIZE
+				|| indexOffset + 4L * size > buffer.capacity()) {
+			throw new IOException(file + " is truncated");
+		}
+
+		pairToIntermediateRevision = new HashMap<Pair<String, String>, IntermediateRevision>();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return a new IntermediateRevision at index.
+	 * @throws IllegalStateException if its record is corrupt, or its
+	 *         total delta cannot be computed.
+	 */
+	@Override
+	public synchronized IntermediateRevision get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+		}
+
+		try {
+			return readIntermediateRevision(index);
+		} catch (IOException e) {
+			throw new IllegalStateException("read IntermediateRevision " + index
+					+ " of " + file + " unsuccessful", e);
+		} catch (InterruptedException e) {
+			// keeps the interrupt for the caller to see
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("read IntermediateRevision " + index
+					+ " of " + file + " unsuccessful", e);
+		}
+	}
+
+	/**
+	 * Reads and constructs the IntermediateRevision at index.
+	 *
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private IntermediateRevision readIntermediateRevision(int index)
+			throws IOException, InterruptedException {
+		ByteBuffer record = buffer.duplicate();
+
+		String baseCommitID;
+		String successorCommitID;
+		Set<DiffFile> delta = new HashSet<DiffFile>();
+
+		try {
+			record.position(buffer.getInt(indexOffset + 4 * index));
+
+			baseCommitID = readString(record);
+			successorCommitID = readString(record);
+
+			int numDiffFiles = record.getInt();
+
+			for (int d = 0; d < numDiffFiles; d++) {
+				String fileName = readString(record);
+				DiffType diffType = DiffType.values()[record.get()];
+
+				delta.add(new DiffFile(diffType, fileName));
+			}
+		} catch (BufferUnderflowException e) {
+			throw new IOException(file + " is corrupt", e);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + " is corrupt", e);
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException(file + " is corrupt", e);
+		}
+
+		Pair<String, String> pair = new Pair<String, String>(baseCommitID, successorCommitID);
+		IntermediateRevision sibling = pairToIntermediateRevision.get(pair);
+
+		if (sibling == null) {
+			sibling = createIntermediateRevision(index, baseCommitID, successorCommitID);
+			pairToIntermediateRevision.put(pair, sibling);
+		}
+
+		return sibling.makeSibling(delta);
+	}
+
+	/**
+	 * @return an empty IntermediateRevision between the Revisions of
+	 *         baseCommitID and successorCommitID.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private IntermediateRevision createIntermediateRevision(int index,
+			String baseCommitID, String successorCommitID)
+			throws IOException, InterruptedException {
+		Revision base = historyGraph.lookUpRevision(baseCommitID);
+		Revision successor = historyGraph.lookUpRevision(successorCommitID);
+
+		if (base == null || successor == null) {
+			throw new IOException("IntermediateRevision " + index + " of " + file
+					+ " is not between Revisions of the HistoryGraph");
+		}
+
+		return new IntermediateRevision(base, successor, repository, clonedRepository);
+	}
+
+	private static String readString(ByteBuffer record) throws IOException {
+		byte[] bytes = new byte[record.getShort() & 0xffff];
+		record.get(bytes);
+
+		return new String(bytes, IntermediateRevisionIndexedWriter.CHARSET);
+	}
+}
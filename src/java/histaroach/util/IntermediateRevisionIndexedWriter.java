@@ -0,0 +1,164 @@
+package histaroach.util;
+
+import histaroach.model.DiffFile;
+import histaroach.model.IntermediateRevision;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * IntermediateRevisionIndexedWriter writes IntermediateRevisions to an
+ * indexed binary file, one at a time, as they are generated.
+ *
+ * The file starts with a header of 3 ints: MAGIC, the number of
+ * IntermediateRevisions and the offset of the index. The records of
+ * IntermediateRevisions follow, in order, and then the index, an int
+ * offset of each record. A record is the commit IDs of base and successor
+ * Revisions and the number of DiffFiles in the delta, each with its file
+ * name and the ordinal of its DiffType. A string is a short length
+ * followed by UTF-8 bytes.
+ *
+ * IntermediateRevisionIndexedFile reads any IntermediateRevision of
+ * the file without reading the others.
+ */
+public class IntermediateRevisionIndexedWriter {
+
+	public static final String INDEXED_EXTENSION = ".irx";
+
+	/**
+	 * The first 4 bytes of a file, "IRX" followed by the format version.
+	 */
+	public static final int MAGIC = 0x49525801;
+
+	static final int HEADER_SIZE = 12;
+	static final String CHARSET = "UTF-8";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private final DataOutputStream out;
+	// offset of each record written
+	private final List<Integer> offsets;
+
+	public IntermediateRevisionIndexedWriter(File file) throws IOException {
+		this.file = file;
+		out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file), BUFFER_SIZE));
+		offsets = new ArrayList<Integer>();
+
+		// count and index offset are filled in by close()
+		out.writeInt(MAGIC);
+		out.writeInt(0);
+		out.writeInt(0);
+	}
+
+	/**
+	 * @return true if file has the extension of an indexed
+	 *         IntermediateRevision file.
+	 */
+	public static boolean isIndexedFile(File file) {
+		return file.getName().endsWith(INDEXED_EXTENSION);
+	}
+
+	/**
+	 * Writes intermediateRevisions to file.
+	 *
+	 * @modifies file system
+	 * @throws IOException
+	 */
+	public static void write(File file, List<IntermediateRevision> intermediateRevisions)
+			throws IOException {
+		IntermediateRevisionIndexedWriter writer = new IntermediateRevisionIndexedWriter(file);
+
+		for (IntermediateRevision intermediateRevision : intermediateRevisions) {
+			writer.writeIntermediateRevision(intermediateRevision);
+		}
+
+		writer.close();
+	}
+
+	/**
+	 * Writes the record of intermediateRevision.
+	 *
+	 * @throws IOException if the file would be 2 GB or larger.
+	 */
+	public void writeIntermediateRevision(IntermediateRevision intermediateRevision)
+			throws IOException {
+		offsets.add(getPosition());
+
+		writeString(intermediateRevision.getBaseRevision().getCommitID());
+		writeString(intermediateRevision.getSuccessorRevision().getCommitID());
+
+		Set<DiffFile> delta = intermediateRevision.getDelta();
+		out.writeInt(delta.size());
+
+		for (DiffFile diffFile : delta) {
+			writeString(diffFile.getFileName());
+			out.writeByte(diffFile.getDiffType().ordinal());
+		}
+	}
+
+	/**
+	 * Writes the index, fills in the header and closes the file.
+	 *
+	 * @throws IOException
+	 */
+	public void close() throws IOException {
+		int indexOffset;
+
+		try {
+			indexOffset = getPosition();
+
+			for (int offset : offsets) {
+				out.writeInt(offset);
+			}
+
+			// fails if the index made the file too large
+			getPosition();
+		} finally {
+			out.close();
+		}
+
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+		try {
+			raf.seek(4);
+			raf.writeInt(offsets.size());
+			raf.writeInt(indexOffset);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return the number of bytes written.
+	 * @throws IOException if that is 2 GB or more.
+	 */
+	private int getPosition() throws IOException {
+		// DataOutputStream.size() stops at Integer.MAX_VALUE
+		if (out.size() == Integer.MAX_VALUE) {
+			throw new IOException(file + " is too large");
+		}
+
+		return out.size();
+	}
+
+	private void writeString(String s) throws IOException {
+		byte[] bytes = s.getBytes(CHARSET);
+
+		if (bytes.length > 0xffff) {
+			throw new IOException("string of " + bytes.length + " bytes is too long");
+		}
+
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+}
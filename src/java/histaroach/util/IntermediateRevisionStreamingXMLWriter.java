@@ -0,0 +1,57 @@
+package histaroach.util;
+
+import histaroach.model.IntermediateRevision;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+
+/**
+ * IntermediateRevisionStreamingXMLWriter writes IntermediateRevisions 
+ * to an XML file one at a time, as they are generated, in the format 
+ * of IntermediateRevisionXMLWriter.
+ */
+public class IntermediateRevisionStreamingXMLWriter extends StreamingXMLWriter {
+
+	public IntermediateRevisionStreamingXMLWriter(File xmlFile) throws IOException, 
+			XMLStreamException {
+		super(xmlFile, IntermediateRevisionXMLWriter.INTERMEDIATE_REVISIONS);
+	}
+	
+	/**
+	 * Writes intermediateRevisions to xmlFile.
+	 * 
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public static void write(File xmlFile, List<IntermediateRevision> intermediateRevisions) 
+			throws IOException, XMLStreamException {
+		IntermediateRevisionStreamingXMLWriter writer = 
+			new IntermediateRevisionStreamingXMLWriter(xmlFile);
+		
+		for (IntermediateRevision intermediateRevision : intermediateRevisions) {
+			writer.writeIntermediateRevision(intermediateRevision);
+		}
+		
+		writer.close();
+	}
+	
+	/**
+	 * Writes an <IntermediateRevision> element.
+	 * 
+	 * @throws XMLStreamException
+	 */
+	public void writeIntermediateRevision(IntermediateRevision intermediateRevision) 
+			throws XMLStreamException {
+		startElement(IntermediateRevisionXMLWriter.INTERMEDIATE_REVISION);
+		
+		writeCommitID(intermediateRevision.getBaseRevision().getCommitID());
+		writeCommitID(intermediateRevision.getSuccessorRevision().getCommitID());
+		writeDiffFiles(intermediateRevision.getDelta());
+		
+		endElement();
+	}
+}
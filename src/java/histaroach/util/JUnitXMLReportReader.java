@@ -0,0 +1,257 @@
+package histaroach.util;
+
+import histaroach.model.TestCaseResult;
+import histaroach.model.TestCaseResult.Status;
+import histaroach.model.TestResult;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+
+/**
+ * JUnitXMLReportReader reads the XML reports that ant's junit task 
+ * writes with <formatter type="xml"/>, one TEST-className.xml file 
+ * per test class, into a TestCaseResult of each test method. 
+ * 
+ * A report is streamed rather than loaded into a DOM, and the output 
+ * of tests that it records is skipped, so that memory does not grow 
+ * with the size of the report.
+ */
+public class JUnitXMLReportReader {
+	
+	public static final String REPORT_PREFIX = "TEST-";
+	public static final String REPORT_EXTENSION = ".xml";
+	
+	private static final String TESTSUITE = "testsuite";
+	private static final String TESTCASE = "testcase";
+	private static final String FAILURE = "failure";
+	private static final String ERROR = "error";
+	private static final String SKIPPED = "skipped";
+	
+	private static final String NAME = "name";
+	private static final String CLASSNAME = "classname";
+	private static final String TIME = "time";
+	private static final String TYPE = "type";
+	private static final String FAILURES = "failures";
+	private static final String ERRORS = "errors";
+	
+	private static final FileFilter REPORT_FILTER = new FileFilter() {
+		@Override
+		public boolean accept(File file) {
+			String name = file.getName();
+			return file.isFile() && name.startsWith(REPORT_PREFIX) 
+					&& name.endsWith(REPORT_EXTENSION);
+		}
+	};
+	
+	/**
+	 * @return the report files in reportDir, sorted by name; an empty 
+	 *         array if there are none or reportDir does not exist.
+	 */
+	public static File[] listReports(File reportDir) {
+		File[] reports = reportDir.listFiles(REPORT_FILTER);
+		
+		if (reports == null) {
+			return new File[0];
+		}
+		
+		Arrays.sort(reports);
+		
+		return reports;
+	}
+	
+	/**
+	 * Deletes the report files in reportDir, so that reports of 
+	 * an earlier run are not read as those of the next run.
+	 * 
+	 * @modifies file system
+	 */
+	public static void deleteReports(File reportDir) {
+		for (File report : listReports(reportDir)) {
+			report.delete();
+		}
+	}
+	
+	/**
+	 * Reads all report files in reportDir. A report that cannot be 
+	 * parsed, eg. because the run was killed while it was written, 
+	 * is read as an error of the test class named by its file name.
+	 * 
+	 * @return a TestCaseResult of each test method of the reports.
+	 * @throws IOException
+	 */
+	public static List<TestCaseResult> readReports(File reportDir) throws IOException {
+		List<TestCaseResult> results = new ArrayList<TestCaseResult>();
+		
+		for (File report : listReports(reportDir)) {
+			try {
+				results.addAll(read(report));
+			} catch (XMLStreamException e) {
+				String name = report.getName();
+				String className = name.substring(REPORT_PREFIX.length(), 
+						name.length() - REPORT_EXTENSION.length());
+				
+				results.add(new TestCaseResult(className, null, Status.ERROR, 0, null));
+			}
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Reads a report file, of a <testsuite> or of <testsuites>. 
+	 * A test suite that reports failures or errors that none of its 
+	 * test cases has, eg. of a class that could not be initialized, 
+	 * has an error of the test class as a whole.
+	 * 
+	 * @return a TestCaseResult of each test method of the report.
+	 * @throws IOException if the report cannot be read.
+	 * @throws XMLStreamException if the report cannot be parsed.
+	 */
+	public static List<TestCaseResult> read(File report) 
+			throws IOException, XMLStreamException {
+		List<TestCaseResult> results = new ArrayList<TestCaseResult>();
+		InputStream in = new BufferedInputStream(new FileInputStream(report));
+		
+		try {
+			XMLStreamReader reader = XMLInputFactory.newInstance()
+				.createXMLStreamReader(in);
+			
+			try {
+				String suiteName = null;
+				int numSuiteFailures = 0;
+				boolean suiteCaseFailed = false;
+				
+				// of the <testcase> being read, if any
+				String className = null;
+				String methodName = null;
+				double time = 0;
+				Status status = null;
+				String failureType = null;
+				
+				while (reader.hasNext()) {
+					int event = reader.next();
+					
+					if (event == XMLStreamConstants.START_ELEMENT) {
+						String localName = reader.getLocalName();
+						
+						if (localName.equals(TESTSUITE)) {
+							suiteName = reader.getAttributeValue(null, NAME);
+							numSuiteFailures = parseInt(reader.getAttributeValue(null, FAILURES)) 
+									+ parseInt(reader.getAttributeValue(null, ERRORS));
+							suiteCaseFailed = false;
+						} else if (localName.equals(TESTCASE)) {
+							className = reader.getAttributeValue(null, CLASSNAME);
+							
+							if (className == null) {
+								className = suiteName;
+							}
+							
+							methodName = reader.getAttributeValue(null, NAME);
+							time = parseTime(reader.getAttributeValue(null, TIME));
+							status = Status.PASS;
+							failureType = null;
+						} else if (status != null && localName.equals(FAILURE)) {
+							status = Status.FAILURE;
+							failureType = reader.getAttributeValue(null, TYPE);
+						} else if (status != null && localName.equals(ERROR)) {
+							status = Status.ERROR;
+							failureType = reader.getAttributeValue(null, TYPE);
+						} else if (status != null && localName.equals(SKIPPED)) {
+							status = Status.SKIPPED;
+						}
+					} else if (event == XMLStreamConstants.END_ELEMENT) {
+						String localName = reader.getLocalName();
+						
+						if (localName.equals(TESTCASE) && status != null) {
+							TestCaseResult result = new TestCaseResult(className, 
+									methodName, status, time, failureType);
+							results.add(result);
+							suiteCaseFailed |= result.hasFailed();
+							status = null;
+						} else if (localName.equals(TESTSUITE)) {
+							if (numSuiteFailures > 0 && !suiteCaseFailed 
+									&& suiteName != null) {
+								results.add(new TestCaseResult(suiteName, null, 
+										Status.ERROR, 0, null));
+							}
+							
+							suiteName = null;
+						}
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} finally {
+			in.close();
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Derives the TestResult of test classes, as the output of ant's 
+	 * junit task reports them: a test class fails if any of its test 
+	 * methods fails or has an error.
+	 * 
+	 * @return a TestResult of the test classes of results.
+	 */
+	public static TestResult toTestResult(Collection<TestCaseResult> results) {
+		Set<String> allTests = new HashSet<String>();
+		Set<String> failedTests = new HashSet<String>();
+		
+		for (TestCaseResult result : results) {
+			allTests.add(result.getClassName());
+			
+			if (result.hasFailed()) {
+				failedTests.add(result.getClassName());
+			}
+		}
+		
+		return new TestResult(allTests, failedTests);
+	}
+	
+	private static int parseInt(String value) {
+		if (value == null) {
+			return 0;
+		}
+		
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * @return the seconds of value, which some versions of ant write 
+	 *         with grouping separators, or 0 if it is not a number.
+	 */
+	private static double parseTime(String value) {
+		if (value == null) {
+			return 0;
+		}
+		
+		try {
+			return Double.parseDouble(value.replace(",", "").trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
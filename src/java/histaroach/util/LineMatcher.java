@@ -0,0 +1,55 @@
+package histaroach.util;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * LineMatcher finds a pattern in each line of the output of a process, 
+ * as the line is read, so that the output need not be kept. It keeps 
+ * whether any line matched, and the first group of each match, if 
+ * the pattern has a group.
+ */
+public class LineMatcher implements LineProcessor {
+	
+	private final Pattern pattern;
+	private final Set<String> groups;
+	private boolean matched;
+	
+	public LineMatcher(Pattern pattern) {
+		this.pattern = pattern;
+		groups = new HashSet<String>();
+		matched = false;
+	}
+	
+	@Override
+	public boolean processLine(String line) {
+		Matcher matcher = pattern.matcher(line);
+		
+		if (matcher.find()) {
+			matched = true;
+			
+			if (matcher.groupCount() > 0 && matcher.group(1) != null) {
+				groups.add(matcher.group(1));
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * @return true if a line matched the pattern.
+	 */
+	public boolean hasMatched() {
+		return matched;
+	}
+	
+	/**
+	 * @return the distinct first groups of the matches.
+	 */
+	public Set<String> getGroups() {
+		return groups;
+	}
+}
@@ -0,0 +1,17 @@
+package histaroach.util;
+
+
+/**
+ * LineProcessor consumes the output of a process line by line,
+ * while the process is still running.
+ */
+public interface LineProcessor {
+
+	/**
+	 * Processes the next line of output.
+	 *
+	 * @return true to continue reading, false to stop reading
+	 *         and terminate the process.
+	 */
+	public boolean processLine(String line);
+}
@@ -0,0 +1,179 @@
+package histaroach.util;
+
+import histaroach.model.DiffFile;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Set;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+
+/**
+ * StreamingXMLWriter contains common methods used by
+ * HistoryGraphStreamingXMLWriter and IntermediateRevisionStreamingXMLWriter.
+ *
+ * Unlike XMLWriter, it does not build a document in memory: elements
+ * are written to the XML file as they are given, indented like the
+ * output of XMLWriter, with the same tag names. The root element is
+ * started on construction and ended by close().
+ */
+public abstract class StreamingXMLWriter {
+
+	private static final String ENCODING = "UTF-8";
+	private static final String XML_VERSION = "1.0";
+	private static final String INDENT = "    ";
+
+	private final OutputStream out;
+	private final XMLStreamWriter writer;
+	// number of elements started and not ended
+	private int depth;
+
+	/**
+	 * Creates a StreamingXMLWriter that writes to xmlFile,
+	 * and starts the root element.
+	 *
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	protected StreamingXMLWriter(File xmlFile, String rootTagName)
+			throws IOException, XMLStreamException {
+		out = new BufferedOutputStream(new FileOutputStream(xmlFile));
+
+		try {
+			writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+			writer.writeStartDocument(ENCODING, XML_VERSION);
+			startElement(rootTagName);
+		} catch (XMLStreamException e) {
+			out.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Ends the root element and closes the XML file.
+	 *
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void close() throws IOException, XMLStreamException {
+		try {
+			endElement();
+			writer.writeCharacters("\n");
+			writer.writeEndDocument();
+			writer.close();
+		} finally {
+			out.close();
+		}
+	}
+
+	protected void startElement(String tagName) throws XMLStreamException {
+		newLine();
+		writer.writeStartElement(tagName);
+		depth++;
+	}
+
+	protected void endElement() throws XMLStreamException {
+		depth--;
+		newLine();
+		writer.writeEndElement();
+	}
+
+	protected void emptyElement(String tagName) throws XMLStreamException {
+		newLine();
+		writer.writeEmptyElement(tagName);
+	}
+
+	/**
+	 * Writes an element that contains only text, on a line of its own.
+	 */
+	protected void textElement(String tagName, String text) throws XMLStreamException {
+		newLine();
+		writer.writeStartElement(tagName);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	private void newLine() throws XMLStreamException {
+		writer.writeCharacters("\n");
+
+		for (int i = 0; i < depth; i++) {
+			writer.writeCharacters(INDENT);
+		}
+	}
+
+	public void writeCommitID(String commitID) throws XMLStreamException {
+		textElement(XMLWriter.COMMIT_ID, commitID);
+	}
+
+	public void writeCompilable(Compilable compilable) throws XMLStreamException {
+		textElement(XMLWriter.COMPILABLE, compilable.toString());
+	}
+
+	public void writeTestAborted(boolean testAborted) throws XMLStreamException {
+		textElement(XMLWriter.TEST_ABORTED, Boolean.toString(testAborted));
+	}
+
+	public void writeTestResult(TestResult testResult) throws XMLStreamException {
+		if (testResult == null) {
+			emptyElement(XMLWriter.TEST_RESULT);
+			return;
+		}
+
+		startElement(XMLWriter.TEST_RESULT);
+		writeTestNames(XMLWriter.TESTS, testResult.getAllTests());
+		writeTestNames(XMLWriter.FAILED_TESTS, testResult.getFailedTests());
+		endElement();
+	}
+
+	public void writeDiffRecord(Revision otherRevision, Collection<DiffFile> diffFiles,
+			String tagName) throws XMLStreamException {
+		startElement(tagName);
+		writeCommitID(otherRevision.getCommitID());
+		writeDiffFiles(diffFiles);
+		endElement();
+	}
+
+	public void writeDiffFiles(Collection<DiffFile> diffFiles) throws XMLStreamException {
+		if (diffFiles.isEmpty()) {
+			emptyElement(XMLWriter.DIFF_FILES);
+			return;
+		}
+
+		startElement(XMLWriter.DIFF_FILES);
+
+		for (DiffFile diffFile : diffFiles) {
+			startElement(XMLWriter.DIFF_FILE);
+			textElement(XMLWriter.FILE_NAME, diffFile.getFileName());
+			textElement(XMLWriter.DIFF_TYPE, diffFile.getDiffType().toString());
+			endElement();
+		}
+
+		endElement();
+	}
+
+	private void writeTestNames(String tagName, Set<String> tests)
+			throws XMLStreamException {
+		if (tests.isEmpty()) {
+			emptyElement(tagName);
+			return;
+		}
+
+		startElement(tagName);
+
+		for (String testName : tests) {
+			textElement(XMLWriter.TEST_NAME, testName);
+		}
+
+		endElement();
+	}
+}
@@ -10,14 +10,18 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.lang.management.ManagementFactory;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.xeustechnologies.jtar.TarEntry;
 import org.xeustechnologies.jtar.TarInputStream;
 
@@ -31,6 +35,19 @@ public class Util {
 	public static final int TIMEOUT = 3600;
 	public static final String KILL_JAVA_PROCESSES_SH = "./kill_j_a_v_a_processes.sh";
 	
+	/**
+	 * Whether killOtherJavaProcesses() is allowed to kill processes. 
+	 * Must be turned off when several workers build and run tests 
+	 * concurrently, otherwise one worker kills the others' processes.
+	 */
+	private static volatile boolean killOtherJavaProcessesEnabled = true;
+	
+	/**
+	 * PIDs of java processes started by this application that 
+	 * killOtherJavaProcesses() does not kill, guarded by itself.
+	 */
+	private static final Set<String> sparedPIDs = new HashSet<String>();
+	
 	/**
 	 * Creates a process that executes command in processDir.
 	 * The process will be forcibly terminated after 1 hour.
@@ -67,6 +84,137 @@ public class Util {
 		return p;
 	}
     
+	/**
+	 * Creates a process that executes command in processDir, and feeds 
+	 * its output and error streams, line by line, to outputProcessor and 
+	 * errorProcessor while the process runs. A null processor discards 
+	 * the lines of its stream. 
+	 * The process will be forcibly terminated after 1 hour, or as soon as 
+	 * outputProcessor asks to stop reading.
+	 * 
+	 * @return the process
+	 * @throws IOException 
+	 * @throws InterruptedException when the started process had to be killed forcibly
+	 */
+	public static Process runProcess(String[] command, File processDir, 
+			LineProcessor outputProcessor, LineProcessor errorProcessor) 
+			throws IOException, InterruptedException {
+		ProcessBuilder pBuilder = new ProcessBuilder(command);
+		pBuilder.directory(processDir);
+		
+		Process p = pBuilder.start();
+		
+		//timer setup
+		ProcessKillTimer pkt = new ProcessKillTimer(p, TIMEOUT);
+		Thread t = new Thread( pkt ); //timer thread for 1 hour
+		t.start();
+		
+		// the error stream is drained concurrently, so that the process 
+		// never blocks on a full pipe
+		StreamGobbler errorGobbler = new StreamGobbler(p.getErrorStream(), errorProcessor);
+		Thread errorThread = new Thread(errorGobbler);
+		errorThread.start();
+		
+		boolean stopped = !processLines(p.getInputStream(), outputProcessor);
+		
+		if (stopped) {
+			p.destroy();
+		}
+		
+		p.waitFor(); // make current thread waits until this process terminates
+		errorThread.join();
+		
+		//cleanup timer
+		if ( !pkt.killed ) {
+			t.interrupt();
+		} else {
+			//the process had to be killed by us, and thus this is a problem
+			throw new InterruptedException( "Process had to be killed" );
+		}
+		
+		// destroying the process closes its error stream under the gobbler
+		if (!stopped && errorGobbler.exception != null) {
+			throw errorGobbler.exception;
+		}
+		
+		return p;
+	}
+	
+	/**
+	 * Creates a process that executes command in processDir, and copies 
+	 * the bytes of its output stream to outputStream while the process 
+	 * runs. Its error stream is discarded. outputStream is not closed.
+	 * The process will be forcibly terminated after 1 hour.
+	 * 
+	 * @return the process
+	 * @throws IOException 
+	 * @throws InterruptedException when the started process had to be killed forcibly
+	 */
+	public static Process runProcess(String[] command, File processDir, 
+			OutputStream outputStream) throws IOException, InterruptedException {
+		ProcessBuilder pBuilder = new ProcessBuilder(command);
+		pBuilder.directory(processDir);
+		
+		Process p = pBuilder.start();
+		
+		//timer setup
+		ProcessKillTimer pkt = new ProcessKillTimer(p, TIMEOUT);
+		Thread t = new Thread( pkt ); //timer thread for 1 hour
+		t.start();
+		
+		StreamGobbler errorGobbler = new StreamGobbler(p.getErrorStream(), null);
+		Thread errorThread = new Thread(errorGobbler);
+		errorThread.start();
+		
+		InputStream inputStream = p.getInputStream();
+		
+		try {
+			IOUtils.copy(inputStream, outputStream);
+		} finally {
+			inputStream.close();
+		}
+		
+		p.waitFor(); // make current thread waits until this process terminates
+		errorThread.join();
+		
+		//cleanup timer
+		if ( !pkt.killed ) {
+			t.interrupt();
+		} else {
+			//the process had to be killed by us, and thus this is a problem
+			throw new InterruptedException( "Process had to be killed" );
+		}
+		
+		return p;
+	}
+	
+	/**
+	 * Feeds lines from inputStream to lineProcessor until the stream ends 
+	 * or lineProcessor asks to stop. A null lineProcessor discards the lines.
+	 * 
+	 * @return false if lineProcessor asked to stop, true otherwise.
+	 * @throws IOException
+	 */
+	public static boolean processLines(InputStream inputStream, 
+			LineProcessor lineProcessor) throws IOException {
+		BufferedReader bufferedReader = new BufferedReader(
+    			new InputStreamReader(inputStream));
+		
+		try {
+			String line;
+			
+			while ((line = bufferedReader.readLine()) != null) {
+				if (lineProcessor != null && !lineProcessor.processLine(line)) {
+					return false;
+				}
+			}
+			
+			return true;
+		} finally {
+			bufferedReader.close();
+		}
+	}
+    
     /**
      * Reads and caches content from inputStream.
      * 
@@ -166,13 +314,52 @@ public class Util {
 	}
 
 	/**
-	 * Kills all other java processes under the same user of this application.
+	 * Enables or disables killOtherJavaProcesses().
+	 */
+	public static void setKillOtherJavaProcesses(boolean enabled) {
+		killOtherJavaProcessesEnabled = enabled;
+	}
+
+	/**
+	 * Keeps killOtherJavaProcesses() from killing the java process of pid, 
+	 * until unspareJavaProcess(pid).
+	 */
+	public static void spareJavaProcess(String pid) {
+		synchronized (sparedPIDs) {
+			sparedPIDs.add(pid);
+		}
+	}
+	
+	/**
+	 * Lets killOtherJavaProcesses() kill the java process of pid again.
+	 */
+	public static void unspareJavaProcess(String pid) {
+		synchronized (sparedPIDs) {
+			sparedPIDs.remove(pid);
+		}
+	}
+
+	/**
+	 * Kills all other java processes under the same user of this application, 
+	 * except those spared by spareJavaProcess(). 
+	 * Does nothing if it has been disabled by setKillOtherJavaProcesses(false).
 	 */
 	public static void killOtherJavaProcesses() {
+		if (!killOtherJavaProcessesEnabled) {
+			return;
+		}
+		
+		List<String> command = new ArrayList<String>();
+		command.add(Util.KILL_JAVA_PROCESSES_SH);
+		command.add(Util.getOwnPID());
+		
+		synchronized (sparedPIDs) {
+			command.addAll(sparedPIDs);
+		}
+		
 		Process p;
 		try {
-			String[] command = { Util.KILL_JAVA_PROCESSES_SH, Util.getOwnPID() };
-			p = Runtime.getRuntime().exec(command);
+			p = Runtime.getRuntime().exec(command.toArray(new String[command.size()]));
 			p.waitFor();
 		} catch (Exception e) {
 			System.err.println("Warning: " + Util.KILL_JAVA_PROCESSES_SH 
@@ -192,6 +379,31 @@ public class Util {
 	}
 }
 
+final class StreamGobbler implements Runnable {
+	
+	private final InputStream inputStream;
+	private final LineProcessor lineProcessor;
+	volatile IOException exception = null;
+	
+	/**
+	 * @param inputStream the stream to be drained
+	 * @param lineProcessor receives each line of inputStream; may be null
+	 */
+	StreamGobbler(InputStream inputStream, LineProcessor lineProcessor) {
+		this.inputStream = inputStream;
+		this.lineProcessor = lineProcessor;
+	}
+	
+	@Override
+	public void run() {
+		try {
+			Util.processLines(inputStream, lineProcessor);
+		} catch (IOException e) {
+			exception = e;
+		}
+	}
+}
+
 final class ProcessKillTimer implements Runnable {
 
 	private Process proc;
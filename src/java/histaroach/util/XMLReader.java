@@ -48,8 +48,13 @@ public abstract class XMLReader<T> {
 	public abstract T read() throws IOException, InterruptedException;
 	
 	public Compilable parseCompilableElement(Element compilableElement) { // <Compilable>
-		String compilableStr = getString(compilableElement);
-		
+		return parseCompilable(getString(compilableElement));
+	}
+	
+	/**
+	 * @return the Compilable state written as compilableStr.
+	 */
+	public static Compilable parseCompilable(String compilableStr) {
 		if (compilableStr.equals(Compilable.YES.toString())) {
 			return Compilable.YES;
 		} else if (compilableStr.equals(Compilable.NO.toString())) {
@@ -62,8 +67,13 @@ public abstract class XMLReader<T> {
 	}
 	
 	public boolean parseTestAbortedElement(Element testAbortedElement) { // <testAborted>
-		String testAbortedStr = getString(testAbortedElement);
-		
+		return parseTestAborted(getString(testAbortedElement));
+	}
+	
+	/**
+	 * @return the testAborted flag written as testAbortedStr.
+	 */
+	public static boolean parseTestAborted(String testAbortedStr) {
 		return testAbortedStr.equals(Boolean.TRUE.toString());
 	}
 	
@@ -122,8 +132,13 @@ public abstract class XMLReader<T> {
 	}
 	
 	public DiffType parseDiffTypeElement(Element diffTypeElement) { // <DiffType>
-		String diffTypeStr = getString(diffTypeElement);
-		
+		return parseDiffType(getString(diffTypeElement));
+	}
+	
+	/**
+	 * @return the DiffType written as diffTypeStr.
+	 */
+	public static DiffType parseDiffType(String diffTypeStr) {
 		if (diffTypeStr.equals(DiffType.ADDED.toString())) {
 			return DiffType.ADDED;
 		} else if (diffTypeStr.equals(DiffType.MODIFIED.toString())) {
@@ -0,0 +1,87 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.algorithm.DeltaDebugger.Outcome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class DeltaDebuggerTest {
+	
+	private static final int NUM_CHANGES = 50;
+	
+	/**
+	 * Fails iff all of causes are in the subset.
+	 */
+	private static class CauseTester implements IDeltaTester<Integer> {
+		
+		private final List<Integer> causes;
+		private final /*@Nullable*/ Integer unresolvedChange;
+		
+		private CauseTester(Integer unresolvedChange, Integer... causes) {
+			this.causes = Arrays.asList(causes);
+			this.unresolvedChange = unresolvedChange;
+		}
+		
+		@Override
+		public Outcome test(List<Integer> subset) {
+			if (unresolvedChange != null && subset.contains(unresolvedChange) 
+					&& !subset.containsAll(causes)) {
+				return Outcome.UNRESOLVED;
+			}
+			
+			return subset.containsAll(causes) ? Outcome.FAIL : Outcome.PASS;
+		}
+	}
+	
+	private static List<Integer> createChanges() {
+		List<Integer> changes = new ArrayList<Integer>();
+		
+		for (int i = 0; i < NUM_CHANGES; i++) {
+			changes.add(i);
+		}
+		
+		return changes;
+	}
+	
+	@Test
+	public void testSingleCause() throws Exception {
+		DeltaDebugger<Integer> deltaDebugger = new DeltaDebugger<Integer>(
+				new CauseTester(null, 37));
+		
+		assertEquals(Arrays.asList(37), deltaDebugger.minimize(createChanges()));
+		// about 2 log2(n)
+		assertTrue(deltaDebugger.getNumTests() <= 15);
+	}
+	
+	@Test
+	public void testTwoCauses() throws Exception {
+		DeltaDebugger<Integer> deltaDebugger = new DeltaDebugger<Integer>(
+				new CauseTester(null, 3, 42));
+		
+		assertEquals(Arrays.asList(3, 42), deltaDebugger.minimize(createChanges()));
+		assertTrue(deltaDebugger.getNumTests() < 2 * NUM_CHANGES);
+	}
+	
+	@Test
+	public void testUnresolved() throws Exception {
+		DeltaDebugger<Integer> deltaDebugger = new DeltaDebugger<Integer>(
+				new CauseTester(20, 10, 11));
+		
+		assertEquals(Arrays.asList(10, 11), deltaDebugger.minimize(createChanges()));
+	}
+	
+	@Test
+	public void testAllChangesNeeded() throws Exception {
+		List<Integer> changes = Arrays.asList(0, 1, 2);
+		DeltaDebugger<Integer> deltaDebugger = new DeltaDebugger<Integer>(
+				new CauseTester(null, 0, 1, 2));
+		
+		assertEquals(changes, deltaDebugger.minimize(changes));
+	}
+}
@@ -0,0 +1,74 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class IndexCombinationGeneratorTest {
+	
+	@Test
+	public void testFourChooseTwoInOrder() {
+		int[][] expectedIndices = { {0, 1}, {0, 2}, {0, 3}, {1, 2}, {1, 3}, {2, 3} };
+		IndexCombinationGenerator combinations = new IndexCombinationGenerator(4, 2);
+		
+		for (int[] expected : expectedIndices) {
+			assertTrue(combinations.hasNext());
+			combinations.next();
+			assertArrayEquals(expected, combinations.getIndices());
+		}
+		
+		assertFalse(combinations.hasNext());
+	}
+	
+	@Test
+	public void testMasks() {
+		IndexCombinationGenerator combinations = new IndexCombinationGenerator(20, 10);
+		Set<Long> masks = new HashSet<Long>();
+		
+		while (combinations.hasNext()) {
+			combinations.next();
+			long mask = combinations.getMask();
+			
+			assertEquals(10, Long.bitCount(mask));
+			assertEquals(0, mask >>> 20);
+			masks.add(mask);
+		}
+		
+		assertEquals(184756, masks.size());
+	}
+	
+	@Test
+	public void testAllChosen() {
+		IndexCombinationGenerator combinations = new IndexCombinationGenerator(64, 64);
+		
+		combinations.next();
+		assertEquals(-1L, combinations.getMask());
+		assertFalse(combinations.hasNext());
+	}
+	
+	@Test
+	public void testGetNumCombinations() {
+		assertEquals(1, IndexCombinationGenerator.getNumCombinations(1, 1));
+		assertEquals(6, IndexCombinationGenerator.getNumCombinations(4, 2));
+		assertEquals(184756, IndexCombinationGenerator.getNumCombinations(20, 10));
+		assertEquals(0, IndexCombinationGenerator.getNumCombinations(3, 4));
+		assertEquals(Long.parseLong("7219428434016265740"), 
+				IndexCombinationGenerator.getNumCombinations(66, 33));
+	}
+	
+	@Test(expected = ArithmeticException.class)
+	public void testGetNumCombinationsOverflow() {
+		IndexCombinationGenerator.getNumCombinations(68, 34);
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testChooseZero() {
+		new IndexCombinationGenerator(3, 0);
+	}
+}
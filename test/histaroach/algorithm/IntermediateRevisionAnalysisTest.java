@@ -0,0 +1,399 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import histaroach.buildstrategy.IBuildStrategy;
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.HistoryGraph;
+import histaroach.model.IRepository;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.ResultCache;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+import histaroach.util.Pair;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class IntermediateRevisionAnalysisTest {
+
+	private static final File TEST_DIR = new File("test-data/analysis_test");
+	private static final int NUM_WORKERS = 3;
+
+	private static final String[] FILENAMES = { "f1", "f2", "f3", "f4" };
+	private static final String[] TESTS = { "t1", "t2", "t3", "t4" };
+
+	private List<Pair<Revision, Revision>> pairs;
+
+	@Before
+	public void setUp() throws Exception {
+		FileUtils.forceMkdir(TEST_DIR);
+
+		Set<String> allTests = new HashSet<String>();
+
+		for (String test : TESTS) {
+			allTests.add(test);
+		}
+
+		// a chain of Revisions, each changing some of the files
+		int[] diffMasks = { 15, 7, 12, 11, 6 };
+		Revision base = new Revision("0000000", new HashMap<Revision, Set<DiffFile>>(),
+				Compilable.YES, false, new TestResult(allTests, allTests));
+		pairs = new ArrayList<Pair<Revision, Revision>>();
+
+		for (int i = 0; i < diffMasks.length; i++) {
+			Map<Revision, Set<DiffFile>> parents = new HashMap<Revision, Set<DiffFile>>();
+			parents.put(base, getDiffFiles(diffMasks[i]));
+
+			Revision successor = new Revision(i + 1 + "000000", parents, Compilable.YES,
+					false, new TestResult(allTests, new HashSet<String>()));
+			pairs.add(new Pair<Revision, Revision>(base, successor));
+			base = successor;
+		}
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testParallelOutputMatchesSerial() throws Exception {
+		int numIntermediateRevisions = createIntermediateRevisions().size();
+		List<String> lines = checkParallelOutput(0, numIntermediateRevisions);
+
+		// a header and at least a line per IntermediateRevision
+		assertTrue(lines.size() > numIntermediateRevisions);
+	}
+
+	@Test
+	public void testParallelOutputOfRangeMatchesSerial() throws Exception {
+		int numIntermediateRevisions = createIntermediateRevisions().size();
+		checkParallelOutput(5, numIntermediateRevisions - 10);
+	}
+
+	@Test
+	public void testResumeFromJournal() throws Exception {
+		int numIntermediateRevisions = createIntermediateRevisions().size();
+		int numRecorded = 17;
+
+		File expectedFile1 = new File(TEST_DIR, "expected1.csv");
+		File expectedFile2 = new File(TEST_DIR, "expected2.csv");
+
+		new IntermediateRevisionAnalysis(createIntermediateRevisions(), expectedFile1,
+				expectedFile2).runTestOnIntermediateRevisions();
+
+		File outputFile1 = new File(TEST_DIR, "output1.csv");
+		File outputFile2 = new File(TEST_DIR, "output2.csv");
+		File journalFile = new File(TEST_DIR, "journal");
+
+		IRepository interruptedRepository = new StubRepository(
+				new File(TEST_DIR, "interrupted"), numRecorded);
+
+		try {
+			new IntermediateRevisionAnalysis(createIntermediateRevisions(interruptedRepository),
+					outputFile1, outputFile2, journalFile).runTestOnIntermediateRevisions();
+			fail("the run is not interrupted");
+		} catch (IOException e) {
+			// as expected
+		}
+
+		// kept for the next run to resume from
+		assertTrue(journalFile.exists());
+
+		StubRepository resumedRepository = new StubRepository(new File(TEST_DIR, "resumed"));
+
+		new IntermediateRevisionAnalysis(createIntermediateRevisions(resumedRepository),
+				outputFile1, outputFile2, journalFile).runTestOnIntermediateRevisions();
+
+		// the recorded IntermediateRevisions are not run again, but
+		// their rows are still in the output file, in order
+		assertEquals(numIntermediateRevisions - numRecorded, resumedRepository.getNumBuilds());
+		assertEquals(FileUtils.readLines(expectedFile1), FileUtils.readLines(outputFile1));
+		assertEquals(FileUtils.readLines(expectedFile2), FileUtils.readLines(outputFile2));
+		assertFalse(journalFile.exists());
+	}
+
+	/**
+	 * Checks that running NUM_WORKERS workers over the range gives the
+	 * same output files, line for line, as running over it serially.
+	 *
+	 * @return the lines of the first output file.
+	 * @throws Exception
+	 */
+	private List<String> checkParallelOutput(int startIndex, int numElements)
+			throws Exception {
+		File serialFile1 = new File(TEST_DIR, "serial1.csv");
+		File serialFile2 = new File(TEST_DIR, "serial2.csv");
+
+		new IntermediateRevisionAnalysis(createIntermediateRevisions(), serialFile1,
+				serialFile2).runTestOnIntermediateRevisions(startIndex, numElements);
+
+		List<Pair<IRepository, IRepository>> workingTrees =
+			new ArrayList<Pair<IRepository, IRepository>>();
+
+		for (int i = 0; i < NUM_WORKERS; i++) {
+			IRepository workingTree = new StubRepository(new File(TEST_DIR, "worker" + i));
+			workingTrees.add(new Pair<IRepository, IRepository>(workingTree, null));
+		}
+
+		File parallelFile1 = new File(TEST_DIR, "parallel1.csv");
+		File parallelFile2 = new File(TEST_DIR, "parallel2.csv");
+
+		new IntermediateRevisionAnalysis(createIntermediateRevisions(), parallelFile1,
+				parallelFile2).runTestOnIntermediateRevisions(startIndex, numElements,
+						workingTrees);
+
+		List<String> lines = FileUtils.readLines(serialFile1);
+
+		assertEquals(lines, FileUtils.readLines(parallelFile1));
+		assertEquals(FileUtils.readLines(serialFile2), FileUtils.readLines(parallelFile2));
+
+		return lines;
+	}
+
+	/**
+	 * @return the IntermediateRevisions of all proper subsets of the
+	 *         total delta of each pair, interleaved, so that neither a
+	 *         group nor its results come in one piece.
+	 * @throws Exception
+	 */
+	private List<IntermediateRevision> createIntermediateRevisions() throws Exception {
+		return createIntermediateRevisions(new StubRepository(
+				new File(TEST_DIR, "repository")));
+	}
+
+	/**
+	 * @return the IntermediateRevisions of createIntermediateRevisions(),
+	 *         created in repository.
+	 * @throws Exception
+	 */
+	private List<IntermediateRevision> createIntermediateRevisions(IRepository repository)
+			throws Exception {
+		List<IntermediateRevision> intermediateRevisions = new ArrayList<IntermediateRevision>();
+
+		for (int mask = 1; mask < 15; mask++) {
+			for (Pair<Revision, Revision> pair : pairs) {
+				Revision successor = pair.getSecond();
+				Set<DiffFile> totalDelta = successor.getDiffFiles(pair.getFirst());
+				Set<DiffFile> delta = getDiffFiles(mask);
+
+				if (delta.size() < totalDelta.size() && totalDelta.containsAll(delta)) {
+					IntermediateRevision intermediateRevision = new IntermediateRevision(
+							pair.getFirst(), successor, repository, null);
+					intermediateRevision.setDelta(delta);
+					intermediateRevisions.add(intermediateRevision);
+				}
+			}
+		}
+
+		return intermediateRevisions;
+	}
+
+	/**
+	 * @return MODIFIED DiffFiles of the FILENAMES at the bits set in mask.
+	 */
+	private static Set<DiffFile> getDiffFiles(int mask) {
+		Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+
+		for (int i = 0; i < FILENAMES.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				diffFiles.add(new DiffFile(DiffType.MODIFIED, FILENAMES[i]));
+			}
+		}
+
+		return diffFiles;
+	}
+
+	/**
+	 * StubRepository is a working directory in which checking out a commit
+	 * removes all files, and writing a file of a commit creates it. Its
+	 * StubBuildStrategy decides the results from the files there.
+	 */
+	private static class StubRepository implements IRepository {
+
+		private final File directory;
+		private final StubBuildStrategy buildStrategy;
+
+		StubRepository(File directory) throws IOException {
+			this(directory, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Creates a StubRepository whose build fails with an IOException
+		 * after maxBuilds builds, as if the run were interrupted.
+		 */
+		StubRepository(File directory, int maxBuilds) throws IOException {
+			this.directory = directory;
+			buildStrategy = new StubBuildStrategy(directory, maxBuilds);
+			FileUtils.forceMkdir(directory);
+		}
+
+		/**
+		 * @return the number of builds started in this repository.
+		 */
+		int getNumBuilds() {
+			return buildStrategy.numBuilds;
+		}
+
+		@Override
+		public File getDirectory() {
+			return directory;
+		}
+
+		@Override
+		public IBuildStrategy getBuildStrategy() {
+			return buildStrategy;
+		}
+
+		@Override
+		public ResultCache getResultCache() {
+			return null;
+		}
+
+		@Override
+		public boolean checkoutCommit(String commitID) throws IOException {
+			FileUtils.cleanDirectory(directory);
+			return true;
+		}
+
+		@Override
+		public boolean discardFileChange(String filename) throws IOException {
+			FileUtils.forceDelete(new File(directory, filename));
+			return true;
+		}
+
+		@Override
+		public boolean materializeFile(String commitID, String filename)
+				throws IOException {
+			FileUtils.writeStringToFile(new File(directory, filename), commitID);
+			return true;
+		}
+
+		@Override
+		public Map<String, String> getFileObjectIDs(String commitID) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Set<DiffFile> getDiffFiles(String referenceCommitID, String otherCommitID) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public IRepository createWorkingTree(File directory, IBuildStrategy buildStrategy) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HistoryGraph buildHistoryGraph(String startCommitID, String endCommitID,
+				List<IRepository> workingTrees) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID,
+				String endCommitID) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public HistoryGraph buildHistoryGraph(HistoryGraph hGraph, String startCommitID,
+				String endCommitID, List<IRepository> workingTrees) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * StubBuildStrategy fails to compile a directory that has f3 but
+	 * not f1, and otherwise fails test t<i> unless f<i> is there.
+	 */
+	private static class StubBuildStrategy implements IBuildStrategy {
+
+		private final File directory;
+		private final int maxBuilds;
+		private int numBuilds;
+
+		StubBuildStrategy(File directory, int maxBuilds) {
+			this.directory = directory;
+			this.maxBuilds = maxBuilds;
+			numBuilds = 0;
+		}
+
+		@Override
+		public synchronized Compilable build() throws IOException {
+			if (numBuilds++ == maxBuilds) {
+				throw new IOException("build interrupted");
+			}
+
+			boolean hasFile1 = new File(directory, FILENAMES[0]).exists();
+			boolean hasFile3 = new File(directory, FILENAMES[2]).exists();
+
+			return hasFile3 && !hasFile1 ? Compilable.NO : Compilable.YES;
+		}
+
+		@Override
+		public TestResult runTest() {
+			Set<String> allTests = new HashSet<String>();
+			Set<String> failedTests = new HashSet<String>();
+
+			for (int i = 0; i < TESTS.length; i++) {
+				allTests.add(TESTS[i]);
+
+				if (!new File(directory, FILENAMES[i]).exists()) {
+					failedTests.add(TESTS[i]);
+				}
+			}
+
+			return new TestResult(allTests, failedTests);
+		}
+
+		@Override
+		public List<String> getTestNames() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public TestResult runTests(Collection<String> testNames) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<TestResult> runTests(Collection<String> testNames, int repetitions) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean runSingleTest(String testname) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isTestFile(DiffFile diffFile) {
+			return false;
+		}
+	}
+}
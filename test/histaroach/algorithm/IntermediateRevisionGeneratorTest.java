@@ -0,0 +1,128 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.buildstrategy.VoldemortBuildStrategy;
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.Flip;
+import histaroach.model.GitRepository;
+import histaroach.model.HistoryGraph;
+import histaroach.model.IRepository;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class IntermediateRevisionGeneratorTest {
+	
+	private static final String TEST_1 = "test1";
+	private static final String TEST_2 = "test2";
+	
+	private static final DiffFile TEST_DIFF_FILE = 
+		new DiffFile(DiffType.MODIFIED, "test/FooTest.java");
+	
+	private IntermediateRevisionGenerator generator;
+	
+	@Before
+	public void setUp() {
+		Set<String> allTests = new HashSet<String>();
+		allTests.add(TEST_1);
+		allTests.add(TEST_2);
+		
+		Set<String> failedTests = new HashSet<String>();
+		failedTests.add(TEST_2);
+		
+		Revision root = new Revision("1111111", new HashMap<Revision, Set<DiffFile>>(), 
+				Compilable.YES, false, new TestResult(allTests, new HashSet<String>()));
+		
+		// 3 non-test DiffFiles and a test DiffFile
+		Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+		diffFiles.add(new DiffFile(DiffType.MODIFIED, "src/Foo.java"));
+		diffFiles.add(new DiffFile(DiffType.ADDED, "src/Bar.java"));
+		diffFiles.add(new DiffFile(DiffType.DELETED, "src/Baz.java"));
+		diffFiles.add(TEST_DIFF_FILE);
+		
+		Map<Revision, Set<DiffFile>> parents = new HashMap<Revision, Set<DiffFile>>();
+		parents.put(root, diffFiles);
+		Revision child = new Revision("2222222", parents, Compilable.YES, false, 
+				new TestResult(allTests, failedTests));
+		
+		HistoryGraph hGraph = new HistoryGraph();
+		hGraph.addRevision(root);
+		hGraph.addRevision(child);
+		
+		// the child is a child of the base, so git is never run
+		File directory = new File(".");
+		IRepository repository = new GitRepository(directory, 
+				new VoldemortBuildStrategy(directory, "ant"));
+		
+		generator = new IntermediateRevisionGenerator(hGraph, repository, null);
+	}
+	
+	@Test
+	public void testGenerateIntermediateRevisions() throws Exception {
+		List<IntermediateRevision> intermediateRevisions = 
+			generator.generateIntermediateRevisions();
+		
+		// C(3, 1) + C(3, 2)
+		assertEquals(6, intermediateRevisions.size());
+		
+		Set<Set<DiffFile>> deltas = new HashSet<Set<DiffFile>>();
+		
+		for (IntermediateRevision intermediateRevision : intermediateRevisions) {
+			assertTrue(intermediateRevision.getDelta().contains(TEST_DIFF_FILE));
+			deltas.add(intermediateRevision.getDelta());
+		}
+		
+		assertEquals(6, deltas.size());
+	}
+	
+	@Test
+	public void testIteratorMatchesList() throws Exception {
+		List<IntermediateRevision> expected = generator.generateIntermediateRevisions();
+		List<IntermediateRevision> actual = new ArrayList<IntermediateRevision>();
+		
+		for (IntermediateRevision intermediateRevision : generator) {
+			actual.add(intermediateRevision);
+		}
+		
+		assertEquals(expected, actual);
+	}
+	
+	@Test
+	public void testIteratorSharesTotalDelta() throws Exception {
+		Iterator<IntermediateRevision> iterator = generator.iterator();
+		Set<DiffFile> totalDelta = iterator.next().getTotalDelta();
+		
+		while (iterator.hasNext()) {
+			assertSame(totalDelta, iterator.next().getTotalDelta());
+		}
+		
+		assertFalse(iterator.hasNext());
+	}
+	
+	@Test
+	public void testIteratorOfNoFlips() {
+		Iterator<IntermediateRevision> iterator = 
+			generator.iterator(new ArrayList<Flip>());
+		
+		assertFalse(iterator.hasNext());
+	}
+}
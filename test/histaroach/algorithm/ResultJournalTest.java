@@ -0,0 +1,144 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class ResultJournalTest {
+
+	private static final File TEST_DIR = new File("test-data/result_journal_test");
+	private static final File JOURNAL_FILE = new File(TEST_DIR, "journal");
+
+	private static final String RESULT_0 = "0;a;b;\n";
+	private static final String RESULT_1 = "1;a;b;f\u00e9\n";
+	private static final String RESULT_2 = "2;a;b;g\n";
+
+	@Before
+	public void setUp() throws IOException {
+		FileUtils.forceMkdir(TEST_DIR);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(TEST_DIR);
+	}
+
+	@Test
+	public void testReadRecords() throws IOException {
+		ResultJournal journal = new ResultJournal(JOURNAL_FILE);
+		journal.record(0, RESULT_0);
+		journal.record(1, RESULT_1);
+		journal.close();
+
+		journal = new ResultJournal(JOURNAL_FILE);
+
+		assertEquals(RESULT_0, journal.getResult(0));
+		assertEquals(RESULT_1, journal.getResult(1));
+		assertNull(journal.getResult(2));
+
+		journal.close();
+	}
+
+	@Test
+	public void testTruncatedLastRecord() throws IOException {
+		ResultJournal journal = new ResultJournal(JOURNAL_FILE);
+		journal.record(0, RESULT_0);
+		journal.record(1, RESULT_1);
+		journal.close();
+
+		// a crash in the middle of the last record
+		RandomAccessFile raf = new RandomAccessFile(JOURNAL_FILE, "rw");
+		raf.setLength(raf.length() - 3);
+		raf.close();
+
+		journal = new ResultJournal(JOURNAL_FILE);
+
+		assertEquals(RESULT_0, journal.getResult(0));
+		assertNull(journal.getResult(1));
+
+		journal.record(2, RESULT_2);
+		journal.close();
+
+		// the records appended after the dropped one are readable
+		checkRecordsAfterGarbage();
+	}
+
+	@Test
+	public void testLengthPastEndOfJournal() throws IOException {
+		writeGarbledRecord(Integer.MAX_VALUE);
+		checkRecordsAfterGarbage();
+	}
+
+	@Test
+	public void testNegativeLength() throws IOException {
+		writeGarbledRecord(-1);
+		checkRecordsAfterGarbage();
+	}
+
+	@Test
+	public void testDelete() throws IOException {
+		ResultJournal journal = new ResultJournal(JOURNAL_FILE);
+		journal.record(0, RESULT_0);
+		journal.delete();
+
+		assertFalse(JOURNAL_FILE.exists());
+	}
+
+	/**
+	 * Writes a journal with RESULT_0, followed by a record of index 1
+	 * whose length is length.
+	 *
+	 * @throws IOException
+	 */
+	private static void writeGarbledRecord(int length) throws IOException {
+		ResultJournal journal = new ResultJournal(JOURNAL_FILE);
+		journal.record(0, RESULT_0);
+		journal.close();
+
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(JOURNAL_FILE, true));
+
+		try {
+			out.writeInt(1);
+			out.writeInt(length);
+			out.write(RESULT_1.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+
+		journal = new ResultJournal(JOURNAL_FILE);
+
+		assertEquals(RESULT_0, journal.getResult(0));
+		assertNull(journal.getResult(1));
+
+		journal.record(2, RESULT_2);
+		journal.close();
+	}
+
+	/**
+	 * Checks that the journal has RESULT_0 and RESULT_2, but not RESULT_1,
+	 * which was cut off.
+	 *
+	 * @throws IOException
+	 */
+	private static void checkRecordsAfterGarbage() throws IOException {
+		ResultJournal journal = new ResultJournal(JOURNAL_FILE);
+
+		assertEquals(RESULT_0, journal.getResult(0));
+		assertNull(journal.getResult(1));
+		assertEquals(RESULT_2, journal.getResult(2));
+
+		journal.close();
+	}
+}
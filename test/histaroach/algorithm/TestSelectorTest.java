@@ -0,0 +1,87 @@
+package histaroach.algorithm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.DiffFile;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSelectorTest {
+	
+	private static final int NUM_TESTS = 20;
+	
+	private static final String TO_FAIL_TEST = "test00";
+	private static final String TO_PASS_TEST = "test01";
+	
+	private Revision base;
+	private Revision successor;
+	private Set<String> allTests;
+	
+	@Before
+	public void setUp() {
+		allTests = new HashSet<String>();
+		
+		for (int i = 0; i < NUM_TESTS; i++) {
+			allTests.add(String.format("test%02d", i));
+		}
+		
+		Set<String> baseFailedTests = new HashSet<String>();
+		baseFailedTests.add(TO_PASS_TEST);
+		
+		Set<String> successorFailedTests = new HashSet<String>();
+		successorFailedTests.add(TO_FAIL_TEST);
+		
+		base = new Revision("1111111", new HashMap<Revision, Set<DiffFile>>(), 
+				Compilable.YES, false, new TestResult(allTests, baseFailedTests));
+		
+		Map<Revision, Set<DiffFile>> parents = new HashMap<Revision, Set<DiffFile>>();
+		parents.put(base, new HashSet<DiffFile>());
+		successor = new Revision("2222222", parents, Compilable.YES, false, 
+				new TestResult(allTests, successorFailedTests));
+	}
+	
+	@Test
+	public void testFlippedTestsFirst() {
+		List<String> selectedTests = new ArrayList<String>(
+				new TestSelector(3).selectTests(base, successor));
+		
+		assertEquals(5, selectedTests.size());
+		assertEquals(TO_FAIL_TEST, selectedTests.get(0));
+		assertEquals(TO_PASS_TEST, selectedTests.get(1));
+		assertTrue(allTests.containsAll(selectedTests));
+	}
+	
+	@Test
+	public void testNoControlTests() {
+		Set<String> selectedTests = new TestSelector(0).selectTests(base, successor);
+		
+		assertEquals(2, selectedTests.size());
+	}
+	
+	@Test
+	public void testMoreControlTestsThanTests() {
+		Set<String> selectedTests = new TestSelector(100).selectTests(base, successor);
+		
+		assertEquals(allTests, selectedTests);
+	}
+	
+	@Test
+	public void testSameSelectionForPair() {
+		TestSelector testSelector = new TestSelector(5);
+		
+		assertEquals(new ArrayList<String>(testSelector.selectTests(base, successor)), 
+				new ArrayList<String>(new TestSelector(5).selectTests(base, successor)));
+	}
+}
@@ -0,0 +1,159 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class AntBuildStrategyTest {
+	
+	// its classpath has no classes here, so the fixtures are 
+	// loaded from where JUnitBatchRunner is
+	private static final IBuildStrategy BUILD_STRATEGY = 
+		new MyBuildStrategy(new File("."), "ant");
+	
+	private static final String PASSING = BatchRunnerFixtures.Passing.class.getName();
+	private static final String FAILING = BatchRunnerFixtures.Failing.class.getName();
+	private static final String ALTERNATING = 
+		BatchRunnerFixtures.Alternating.class.getName();
+	
+	private static final File PROJECT_DIR = new File("test-data/ant_project_test");
+	private static final File LOG_ARCHIVE_DIR = new File("test-data/ant_logs_test");
+	
+	@After
+	public void tearDown() throws IOException {
+		AntBuildStrategy.setLogArchiveDir(null);
+		FileUtils.deleteDirectory(PROJECT_DIR);
+		FileUtils.deleteDirectory(LOG_ARCHIVE_DIR);
+	}
+	
+	@Test
+	public void testRunTests() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(PASSING);
+		testNames.add(FAILING);
+		testNames.add("histaroach.NoSuchTest");
+		
+		TestResult testResult = BUILD_STRATEGY.runTests(testNames);
+		
+		assertEquals(2, testResult.getAllTests().size());
+		assertTrue(testResult.pass(PASSING));
+		assertTrue(testResult.fail(FAILING));
+		assertFalse(testResult.getAllTests().contains("histaroach.NoSuchTest"));
+	}
+	
+	@Test
+	public void testRepetitionsInOneJVM() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(ALTERNATING);
+		testNames.add(PASSING);
+		
+		List<TestResult> testResults = BUILD_STRATEGY.runTests(testNames, 4);
+		
+		assertEquals(4, testResults.size());
+		
+		for (int r = 0; r < testResults.size(); r++) {
+			TestResult testResult = testResults.get(r);
+			
+			// the fixture keeps its state from one repetition to the next
+			assertEquals(r % 2 == 0, testResult.pass(ALTERNATING));
+			assertTrue(testResult.pass(PASSING));
+		}
+	}
+	
+	@Test
+	public void testRunSingleTest() throws Exception {
+		assertTrue(BUILD_STRATEGY.runSingleTest(PASSING));
+		assertFalse(BUILD_STRATEGY.runSingleTest(FAILING));
+	}
+	
+	@Test
+	public void testRunTestsInRelativeDirectory() throws Exception {
+		// PROJECT_DIR is relative to the working directory
+		IBuildStrategy buildStrategy = new MyBuildStrategy(PROJECT_DIR, "ant");
+		String fixture = "ProjectFixture";
+		BatchRunnerFixtures.compileProjectFixture(
+				new File(PROJECT_DIR, MyBuildStrategy.TEST_CLASSPATH[0]), fixture);
+		
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(fixture);
+		
+		TestResult testResult = buildStrategy.runTests(testNames);
+		
+		assertEquals(1, testResult.getAllTests().size());
+		assertTrue(testResult.pass(fixture));
+	}
+	
+	@Test
+	public void testBuildArchivesLogs() throws Exception {
+		IBuildStrategy buildStrategy = new MyBuildStrategy(PROJECT_DIR, "ant");
+		AntBuildStrategy.setLogArchiveDir(LOG_ARCHIVE_DIR);
+		
+		writeBuildFile("<echo message=\"compiled\"/>");
+		assertEquals(Compilable.YES, buildStrategy.build());
+		
+		writeBuildFile("<fail message=\"does not compile\"/>");
+		assertEquals(Compilable.NO, buildStrategy.build());
+		
+		// a directory of its own for each run
+		File[] runDirs = LOG_ARCHIVE_DIR.listFiles();
+		assertEquals(2, runDirs.length);
+		
+		List<String> lines = new ArrayList<String>();
+		
+		for (File runDir : runDirs) {
+			lines.addAll(readLog(new File(runDir, "stdout.gz")));
+			lines.addAll(readLog(new File(runDir, "stderr.gz")));
+		}
+		
+		assertTrue(lines.contains("BUILD SUCCESSFUL"));
+		assertTrue(lines.contains("BUILD FAILED"));
+	}
+	
+	private static void writeBuildFile(String task) throws IOException {
+		PROJECT_DIR.mkdirs();
+		FileWriter writer = new FileWriter(new File(PROJECT_DIR, AntBuildStrategy.BUILD_XML));
+		
+		try {
+			writer.write("<project name=\"test\" default=\"build\">"
+					+ "<target name=\"build\">" + task + "</target></project>");
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private static List<String> readLog(File log) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(new FileInputStream(log))));
+		
+		try {
+			String line;
+			
+			while ((line = reader.readLine()) != null) {
+				lines.add(line.trim());
+			}
+		} finally {
+			reader.close();
+		}
+		
+		return lines;
+	}
+}
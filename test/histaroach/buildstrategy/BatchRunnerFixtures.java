@@ -0,0 +1,92 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Test;
+
+
+/**
+ * Test classes for AntBuildStrategyTest and WarmTestRunnerTest to run 
+ * in another JVM. 
+ * Their names do not end in "Test", so that the test suite does 
+ * not run them itself.
+ * 
+ * A project of its own may be given passing test classes with 
+ * compileProjectFixture, so that they can only be loaded from 
+ * the classpath of the project.
+ */
+public class BatchRunnerFixtures {
+	
+	public static class Passing {
+		@Test
+		public void testPasses() {
+		}
+	}
+	
+	public static class Failing {
+		@Test
+		public void testFails() {
+			assertTrue(false);
+		}
+	}
+	
+	/**
+	 * Fails every other run in the same JVM.
+	 */
+	public static class Alternating {
+		private static int numRuns = 0;
+		
+		@Test
+		public void testAlternates() {
+			numRuns++;
+			assertTrue(numRuns % 2 == 1);
+		}
+	}
+	
+	/**
+	 * Runs longer than the timeout of WarmTestRunnerTest.
+	 */
+	public static class Sleeping {
+		@Test
+		public void testSleeps() throws InterruptedException {
+			Thread.sleep(60 * 1000);
+		}
+	}
+	
+	/**
+	 * Compiles a passing test class named className, in the default 
+	 * package, into classDir.
+	 * 
+	 * @throws IOException
+	 */
+	public static void compileProjectFixture(File classDir, String className) 
+			throws IOException {
+		File sourceFile = new File(classDir, className + ".java");
+		
+		classDir.mkdirs();
+		FileWriter writer = new FileWriter(sourceFile);
+		
+		try {
+			writer.write("public class " + className + " {"
+					+ " @org.junit.Test public void testPasses() {} }");
+		} finally {
+			writer.close();
+		}
+		
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		int exitValue = compiler.run(null, null, null, "-cp", 
+				JUnitBatchRunner.getLocation(Test.class), "-d", classDir.getPath(), 
+				sourceFile.getPath());
+		
+		if (exitValue != 0) {
+			throw new IOException("compile " + sourceFile + " unsuccessful");
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class DaemonBuildStrategyTest {
+	
+	private static final File PROJECT_DIR = new File("test-data/daemon_project_test");
+	
+	private DaemonBuildStrategy buildStrategy;
+	
+	@Before
+	public void setUp() {
+		buildStrategy = new DaemonBuildStrategy(new MyBuildStrategy(PROJECT_DIR, "ant"), 
+				PROJECT_DIR, MyBuildStrategy.TEST_CLASSPATH);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		buildStrategy.stop();
+		FileUtils.deleteDirectory(PROJECT_DIR);
+	}
+	
+	@Test
+	public void testRunTestInWarmTestRunner() throws Exception {
+		File testClassDir = new File(PROJECT_DIR, MyBuildStrategy.TEST_CLASSPATH[0]);
+		
+		BatchRunnerFixtures.compileProjectFixture(testClassDir, "FixtureTest");
+		// not named as a test
+		BatchRunnerFixtures.compileProjectFixture(testClassDir, "Fixture");
+		
+		// the project has no build file, so its test target cannot run
+		TestResult testResult = buildStrategy.runTest();
+		
+		assertEquals(1, testResult.getAllTests().size());
+		assertTrue(testResult.pass("FixtureTest"));
+	}
+}
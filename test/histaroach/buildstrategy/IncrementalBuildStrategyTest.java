@@ -0,0 +1,236 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.DiffFile;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class IncrementalBuildStrategyTest {
+
+	private static final File PROJECT_DIR = new File("test-data/incremental_project_test");
+	private static final String SOURCE_DIR = "src";
+	private static final String CLASS_DIR = "classes";
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(PROJECT_DIR);
+	}
+
+	@Test
+	public void testEditedSource() throws Exception {
+		File sourceA = writeSource("A", "public class A { public int f() { return 1; } }");
+		writeSource("B", "public class B { int g() { return new A().f(); } }");
+		writeSource("Other", "public class Other { }");
+
+		JavacBuildStrategy javac = new JavacBuildStrategy(true);
+		IBuildStrategy buildStrategy = createBuildStrategy(javac);
+		assertEquals(Compilable.YES, buildStrategy.build());
+
+		// the same length and modification time
+		long lastModified = sourceA.lastModified();
+		writeSource("A", "public class A { public int f() { return 2; } }");
+		sourceA.setLastModified(lastModified);
+
+		assertEquals(Compilable.YES, buildStrategy.build());
+		assertEquals(createSet("A.java", "B.java"), javac.getLastCompiled());
+	}
+
+	@Test
+	public void testDeletedSource() throws Exception {
+		File sourceA = writeSource("A", "public class A { public int f() { return 1; } }");
+		writeSource("B", "public class B { int g() { return new A().f(); } }");
+
+		IBuildStrategy buildStrategy = createBuildStrategy(new JavacBuildStrategy(true));
+		assertEquals(Compilable.YES, buildStrategy.build());
+
+		sourceA.delete();
+
+		assertEquals(Compilable.NO, buildStrategy.build());
+		assertFalse(new File(PROJECT_DIR, CLASS_DIR + "/A.class").exists());
+	}
+
+	@Test
+	public void testSubtypeOfChangedSupertype() throws Exception {
+		writeSource("I", "public interface I { }");
+		writeSource("B", "public abstract class B implements I { }");
+		writeSource("C", "public class C extends B { }");
+
+		IBuildStrategy buildStrategy = createBuildStrategy(new JavacBuildStrategy(true));
+		assertEquals(Compilable.YES, buildStrategy.build());
+
+		// C inherits m() from I through B, without naming I
+		writeSource("I", "public interface I { void m(); }");
+
+		assertEquals(Compilable.NO, buildStrategy.build());
+	}
+
+	@Test
+	public void testUnchangedSources() throws Exception {
+		writeSource("A", "public class A { }");
+
+		JavacBuildStrategy javac = new JavacBuildStrategy(true);
+		IBuildStrategy buildStrategy = createBuildStrategy(javac);
+		assertEquals(Compilable.YES, buildStrategy.build());
+		assertEquals(Compilable.YES, buildStrategy.build());
+
+		assertTrue(javac.getLastCompiled().isEmpty());
+	}
+
+	@Test
+	public void testFullBuildWithoutDebugInformation() throws Exception {
+		writeSource("A", "public class A { }");
+		writeSource("B", "public class B { A a; }");
+
+		// classes cannot be traced to their source files
+		JavacBuildStrategy javac = new JavacBuildStrategy(false);
+		IBuildStrategy buildStrategy = createBuildStrategy(javac);
+		assertEquals(Compilable.YES, buildStrategy.build());
+		assertEquals(Compilable.YES, buildStrategy.build());
+
+		assertEquals(createSet("A.java", "B.java"), javac.getLastCompiled());
+	}
+
+	private static IBuildStrategy createBuildStrategy(IBuildStrategy buildStrategy) {
+		return new IncrementalBuildStrategy(buildStrategy, PROJECT_DIR,
+				new String[] { SOURCE_DIR }, new String[] { CLASS_DIR });
+	}
+
+	private static File writeSource(String className, String source) throws IOException {
+		File dir = new File(PROJECT_DIR, SOURCE_DIR);
+		dir.mkdirs();
+
+		File file = new File(dir, className + ".java");
+		FileWriter writer = new FileWriter(file);
+
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+
+	private static Set<String> createSet(String... elements) {
+		Set<String> set = new HashSet<String>();
+
+		for (String element : elements) {
+			set.add(element);
+		}
+
+		return set;
+	}
+
+	/**
+	 * JavacBuildStrategy compiles, as ant's javac task does, only the
+	 * source files in the default package that are newer than their
+	 * class files.
+	 */
+	private static class JavacBuildStrategy implements IBuildStrategy {
+
+		private final boolean debug;
+		private final Set<String> lastCompiled;
+
+		JavacBuildStrategy(boolean debug) {
+			this.debug = debug;
+			lastCompiled = new HashSet<String>();
+		}
+
+		/**
+		 * @return the names of the source files the last build compiled.
+		 */
+		Set<String> getLastCompiled() {
+			return lastCompiled;
+		}
+
+		@Override
+		public Compilable build() throws IOException {
+			File sourceDir = new File(PROJECT_DIR, SOURCE_DIR);
+			File classDir = new File(PROJECT_DIR, CLASS_DIR);
+			classDir.mkdirs();
+
+			List<String> arguments = new ArrayList<String>();
+			arguments.add("-cp");
+			arguments.add(classDir.getPath());
+			arguments.add("-sourcepath");
+			arguments.add(sourceDir.getPath());
+			arguments.add("-d");
+			arguments.add(classDir.getPath());
+			arguments.add(debug ? "-g" : "-g:none");
+
+			lastCompiled.clear();
+
+			for (File sourceFile : sourceDir.listFiles()) {
+				String name = sourceFile.getName();
+				File classFile = new File(classDir,
+						name.substring(0, name.length() - ".java".length()) + ".class");
+
+				if (!classFile.exists() || sourceFile.lastModified() > classFile.lastModified()) {
+					lastCompiled.add(name);
+					arguments.add(sourceFile.getPath());
+				}
+			}
+
+			if (lastCompiled.isEmpty()) {
+				return Compilable.YES;
+			}
+
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			int exitValue = compiler.run(null, null, new ByteArrayOutputStream(),
+					arguments.toArray(new String[arguments.size()]));
+
+			return exitValue == 0 ? Compilable.YES : Compilable.NO;
+		}
+
+		@Override
+		public TestResult runTest() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<String> getTestNames() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public TestResult runTests(Collection<String> testNames) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<TestResult> runTests(Collection<String> testNames, int repetitions) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean runSingleTest(String testname) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isTestFile(DiffFile diffFile) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class JodatimeBuildStrateygyTest {
+	
+	private static final File PROJECT_DIR = new File("test-data/joda_project_test");
+	
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(PROJECT_DIR);
+	}
+	
+	@Test
+	public void testRunTestRunsTestClasses() throws Exception {
+		IBuildStrategy buildStrategy = new JodatimeBuildStrateygy(PROJECT_DIR, "ant");
+		File testClassDir = new File(PROJECT_DIR, JodatimeBuildStrateygy.CLASS_DIRS[1]);
+		
+		BatchRunnerFixtures.compileProjectFixture(testClassDir, "TestFixture");
+		// a suite only runs the other test classes
+		BatchRunnerFixtures.compileProjectFixture(testClassDir, "TestAllFixture");
+		BatchRunnerFixtures.compileProjectFixture(testClassDir, "Fixture");
+		
+		TestResult testResult = buildStrategy.runTest();
+		
+		assertEquals(1, testResult.getAllTests().size());
+		assertTrue(testResult.pass("TestFixture"));
+	}
+}
@@ -0,0 +1,151 @@
+package histaroach.buildstrategy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import histaroach.model.GitRepository;
+import histaroach.model.IRepository;
+import histaroach.model.TestResult;
+import histaroach.util.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class WarmTestRunnerTest {
+	
+	private static final int TIMEOUT = 5;
+	
+	private static final String PASSING = BatchRunnerFixtures.Passing.class.getName();
+	private static final String FAILING = BatchRunnerFixtures.Failing.class.getName();
+	private static final String ALTERNATING = 
+		BatchRunnerFixtures.Alternating.class.getName();
+	private static final String SLEEPING = BatchRunnerFixtures.Sleeping.class.getName();
+	
+	private static final File PROJECT_DIR = new File("test-data/warm_project_test");
+	
+	private static final String TEST_DATA_PATH = "test-data/";
+	private static final File SAMPLE_REPOSITORIES = 
+		new File(TEST_DATA_PATH + "sample_repositories");
+	private static final String SAMPLE_REPOSITORIES_TAR = 
+		TEST_DATA_PATH + "sample_repositories.tar";
+	
+	private WarmTestRunner testRunner;
+	
+	@Before
+	public void setUp() {
+		testRunner = new WarmTestRunner(new File("."), TIMEOUT);
+	}
+	
+	@After
+	public void tearDown() throws IOException {
+		testRunner.stop();
+		FileUtils.deleteDirectory(PROJECT_DIR);
+		FileUtils.deleteDirectory(SAMPLE_REPOSITORIES);
+	}
+	
+	@Test
+	public void testRunTests() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(PASSING);
+		testNames.add(FAILING);
+		testNames.add("histaroach.NoSuchTest");
+		
+		List<TestResult> testResults = testRunner.runTests(MyBuildStrategy.TEST_CLASSPATH, 
+				testNames, 2);
+		
+		assertEquals(2, testResults.size());
+		
+		for (TestResult testResult : testResults) {
+			assertEquals(2, testResult.getAllTests().size());
+			assertTrue(testResult.pass(PASSING));
+			assertTrue(testResult.fail(FAILING));
+		}
+	}
+	
+	@Test
+	public void testFreshClassLoader() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(ALTERNATING);
+		
+		for (int i = 0; i < 3; i++) {
+			List<TestResult> testResults = testRunner.runTests(
+					MyBuildStrategy.TEST_CLASSPATH, testNames, 2);
+			
+			// the fixture keeps its state from one repetition to the next, 
+			// but not from one request to the next
+			assertTrue(testResults.get(0).pass(ALTERNATING));
+			assertTrue(testResults.get(1).fail(ALTERNATING));
+		}
+	}
+	
+	@Test
+	public void testRestartAfterTimeout() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(SLEEPING);
+		
+		try {
+			testRunner.runTests(MyBuildStrategy.TEST_CLASSPATH, testNames, 1);
+			fail("request did not time out");
+		} catch (InterruptedException e) {
+			// expected
+		}
+		
+		testNames.clear();
+		testNames.add(PASSING);
+		
+		TestResult testResult = testRunner.runTests(MyBuildStrategy.TEST_CLASSPATH, 
+				testNames, 1).get(0);
+		
+		assertTrue(testResult.pass(PASSING));
+	}
+	
+	@Test
+	public void testSurvivesCheckout() throws Exception {
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(PASSING);
+		
+		assertTrue(testRunner.runTests(MyBuildStrategy.TEST_CLASSPATH, testNames, 1)
+				.get(0).pass(PASSING));
+		
+		// checking out a commit kills the other java processes
+		Util.untar(SAMPLE_REPOSITORIES_TAR, TEST_DATA_PATH);
+		IRepository repo = new GitRepository(new File(SAMPLE_REPOSITORIES, "repo1"), 
+				new MyBuildStrategy(PROJECT_DIR, "ant"));
+		assertTrue(repo.checkoutCommit("HEAD"));
+		
+		assertTrue("daemon killed by checkout", testRunner.isRunning());
+		assertTrue(testRunner.runTests(MyBuildStrategy.TEST_CLASSPATH, testNames, 1)
+				.get(0).pass(PASSING));
+	}
+	
+	@Test
+	public void testRunTestsInRelativeDirectory() throws Exception {
+		// PROJECT_DIR is relative to the working directory
+		WarmTestRunner projectTestRunner = new WarmTestRunner(PROJECT_DIR, TIMEOUT);
+		String fixture = "ProjectFixture";
+		BatchRunnerFixtures.compileProjectFixture(
+				new File(PROJECT_DIR, MyBuildStrategy.TEST_CLASSPATH[0]), fixture);
+		
+		List<String> testNames = new ArrayList<String>();
+		testNames.add(fixture);
+		
+		try {
+			TestResult testResult = projectTestRunner.runTests(
+					MyBuildStrategy.TEST_CLASSPATH, testNames, 1).get(0);
+			
+			assertEquals(1, testResult.getAllTests().size());
+			assertTrue(testResult.pass(fixture));
+		} finally {
+			projectTestRunner.stop();
+		}
+	}
+}
@@ -1,7 +1,12 @@
 package histaroach.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import histaroach.buildstrategy.AntBuildStrategy;
 import histaroach.buildstrategy.IBuildStrategy;
@@ -30,6 +35,7 @@ public class GitRepositoryTest {
 	
 	private static final String TEST_DATA_PATH = "test-data/";
 	private static final String ANT_COMMAND = "ant";
+	private static final String WORKING_TREE_SUFFIX = "_worker";
 	
 	/****************************/
 	/** in sample_repositories **/
@@ -868,7 +874,7 @@ public class GitRepositoryTest {
 	public void testBuildFullHistoryGraph() throws Exception {
 		
 		for (int i = 0; i < REPO_DIRS.length; i++) {
-			IRepository repo = new GitRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			IRepository repo = createRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
 	
 			HistoryGraph actualHGraph = null;
 			actualHGraph = repo.buildHistoryGraph(START_COMMIT_IDS[i], END_COMMIT_IDS[i]);
@@ -882,7 +888,7 @@ public class GitRepositoryTest {
 	public void testBuildPartialHistoryGraph() throws Exception {
 		
 		for (int i = 2; i < REPO_DIRS_PARTIAL.length; i++) {
-			IRepository repo = new GitRepository(REPO_DIRS_PARTIAL[i], BUILD_STRATEGIES_PARTIAL[i]);
+			IRepository repo = createRepository(REPO_DIRS_PARTIAL[i], BUILD_STRATEGIES_PARTIAL[i]);
 	
 			HistoryGraph actualHGraph = null;
 			actualHGraph = repo.buildHistoryGraph(START_COMMIT_IDS_PARTIAL[i], END_COMMIT_IDS_PARTIAL[i]);
@@ -893,6 +899,294 @@ public class GitRepositoryTest {
 		}		
 	}
 	
+	@Test
+	public void testBuildFullHistoryGraphInParallel() throws Exception {
+		
+		for (int i = 0; i < REPO_DIRS.length; i++) {
+			IRepository repo = createRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			
+			List<IRepository> workingTrees = new ArrayList<IRepository>();
+			workingTrees.add(repo);
+			
+			File workingTreeDir = new File(REPO_PATHS[i] + WORKING_TREE_SUFFIX);
+			IBuildStrategy buildStrategy = new VoldemortBuildStrategy(workingTreeDir, 
+					ANT_COMMAND);
+			workingTrees.add(repo.createWorkingTree(workingTreeDir, buildStrategy));
+	
+			HistoryGraph actualHGraph = null;
+			actualHGraph = repo.buildHistoryGraph(START_COMMIT_IDS[i], END_COMMIT_IDS[i], 
+					workingTrees);
+			
+			assertNotNull("constructor returns null on " + REPO_DIRS[i], actualHGraph);
+			assertEquals("result mismatched on " + REPO_DIRS[i], EXPECTED_HGRAPHS[i], actualHGraph);
+		}		
+	}
+	
+	@Test
+	public void testExtendHistoryGraph() throws Exception {
+		
+		for (int i = 0; i < REPO_DIRS.length; i++) {
+			IRepository repo = createRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			
+			// the older half of the expected Revisions
+			List<Revision> oldRevisions = new ArrayList<Revision>();
+			
+			for (Revision revision : EXPECTED_HGRAPHS[i]) {
+				oldRevisions.add(revision);
+			}
+			
+			oldRevisions = oldRevisions.subList(0, oldRevisions.size() / 2);
+			
+			HistoryGraph oldHGraph = new HistoryGraph();
+			buildHistoryGraph(oldHGraph, oldRevisions);
+			
+			HistoryGraph actualHGraph = repo.buildHistoryGraph(oldHGraph, 
+					START_COMMIT_IDS[i], END_COMMIT_IDS[i]);
+			
+			assertEquals("result mismatched on " + REPO_DIRS[i], EXPECTED_HGRAPHS[i], actualHGraph);
+			
+			for (Revision revision : oldRevisions) {
+				assertSame("Revision re-created on " + REPO_DIRS[i], revision, 
+						actualHGraph.lookUpRevision(revision.getCommitID()));
+			}
+		}		
+	}
+	
+	@Test
+	public void testExtendHistoryGraphBackwards() throws Exception {
+		
+		for (int i = 0; i < REPO_DIRS.length; i++) {
+			IRepository repo = createRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			
+			List<Revision> revisions = new ArrayList<Revision>();
+			
+			for (Revision revision : EXPECTED_HGRAPHS[i]) {
+				revisions.add(revision);
+			}
+			
+			if (revisions.size() < 2) {
+				continue;
+			}
+			
+			// the newer half of the expected Revisions
+			List<Revision> newRevisions = revisions.subList(revisions.size() / 2, 
+					revisions.size());
+			String olderCommitID = revisions.get(revisions.size() / 2 - 1).getCommitID();
+			
+			HistoryGraph newHGraph = new HistoryGraph();
+			buildHistoryGraph(newHGraph, newRevisions);
+			
+			// the range overlaps newHGraph, and lies wholly below it
+			String[] startCommitIDs = { START_COMMIT_IDS[i], olderCommitID };
+			
+			for (String startCommitID : startCommitIDs) {
+				try {
+					repo.buildHistoryGraph(newHGraph, startCommitID, END_COMMIT_IDS[i]);
+					fail("extended backwards from " + startCommitID + " on " + REPO_DIRS[i]);
+				} catch (Exception e) {
+					assertTrue("unexpected failure on " + REPO_DIRS[i] + ": " + e.getMessage(), 
+							e.getMessage().contains("cannot be extended backwards"));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testResultCacheKeyOfDelta() throws Exception {
+		ResultCache resultCache = new ResultCache(new File(SAMPLE_REPOSITORIES), 
+				ANT_COMMAND);
+		
+		for (int i = 0; i < REPO_DIRS.length; i++) {
+			IRepository repo = createRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			
+			for (Revision revision : EXPECTED_HGRAPHS[i]) {
+				String commitID = revision.getCommitID();
+				
+				for (Revision parent : revision.getParents()) {
+					// applying all DiffFiles to parent gives the tree of revision
+					assertEquals("key mismatched on " + commitID + " in " + REPO_DIRS[i], 
+							resultCache.getKey(repo, commitID), 
+							resultCache.getKey(repo, parent.getCommitID(), commitID, 
+									revision.getDiffFiles(parent)));
+					assertEquals("key mismatched on " + parent.getCommitID() + " in " + REPO_DIRS[i], 
+							resultCache.getKey(repo, parent.getCommitID()), 
+							resultCache.getKey(repo, parent.getCommitID(), commitID, 
+									new HashSet<DiffFile>()));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void testResultCacheSkipsAbortedResult() throws Exception {
+		ResultCache resultCache = new ResultCache(new File(SAMPLE_REPOSITORIES, "cache"), 
+				ANT_COMMAND);
+		final int[] numTestRuns = { 0 };
+		
+		IBuildStrategy abortingStrategy = new VoldemortBuildStrategy(REPO_DIRS[0], 
+				ANT_COMMAND) {
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			public Compilable build() {
+				return Compilable.YES;
+			}
+			
+			@Override
+			public TestResult runTest() throws InterruptedException {
+				numTestRuns[0]++;
+				throw new InterruptedException("Process had to be killed");
+			}
+		};
+		IRepository repo = createRepository(REPO_DIRS[0], abortingStrategy);
+		String key = resultCache.getKey(repo, START_COMMIT_IDS[0]);
+		
+		assertTrue(resultCache.evaluate(repo, key).hasTestAborted());
+		assertTrue(resultCache.evaluate(repo, key).hasTestAborted());
+		
+		// an aborted result is never returned from the cache
+		assertEquals(2, numTestRuns[0]);
+		assertNull(resultCache.get(key));
+	}
+	
+	@Test
+	public void testReadCommitGraphOfEveryRange() throws Exception {
+		
+		for (int i = 0; i < REPO_DIRS.length; i++) {
+			GitRepository repo = (GitRepository) createRepository(REPO_DIRS[i], 
+					BUILD_STRATEGIES[i]);
+			GitRepository gitRepo = new GitRepository(REPO_DIRS[i], BUILD_STRATEGIES[i]);
+			
+			for (Revision end : EXPECTED_HGRAPHS[i]) {
+				List<String> expectedCommitIDs = new ArrayList<String>(gitRepo.readCommitGraph(
+						START_COMMIT_IDS[i], end.getCommitID()).keySet());
+				List<String> actualCommitIDs = new ArrayList<String>(repo.readCommitGraph(
+						START_COMMIT_IDS[i], end.getCommitID()).keySet());
+				
+				assertEquals("order mismatched up to " + end.getCommitID() + " on " 
+						+ REPO_DIRS[i], expectedCommitIDs, actualCommitIDs);
+			}
+		}
+	}
+	
+	@Test
+	public void testMaterializeFileAsCheckedOut() throws Exception {
+		File dir = REPO_DIRS[0];
+		GitRepository repo = new GitRepository(dir, BUILD_STRATEGIES[0]);
+		
+		// a commit with an executable file and a file with CRLF line endings
+		FileUtils.writeStringToFile(new File(dir, ".gitattributes"), "*.txt eol=crlf\n");
+		FileUtils.writeStringToFile(new File(dir, "notes.txt"), "a\nb\n");
+		File script = new File(dir, "run.sh");
+		FileUtils.writeStringToFile(script, "echo run\n");
+		script.setExecutable(true, false);
+		
+		Util.runProcess(new String[] { "git", "add", "." }, dir);
+		Util.runProcess(new String[] { "git", "-c", "user.name=test", 
+				"-c", "user.email=test@example.com", "commit", "-m", "attributes" }, dir);
+		
+		Process revParseProcess = Util.runProcess(new String[] { "git", "rev-parse", 
+				"--short=7", "HEAD" }, dir);
+		String commitID = Util.getInputStreamContent(
+				revParseProcess.getInputStream()).get(0);
+		
+		// as "git checkout" writes them
+		new File(dir, "notes.txt").delete();
+		Util.runProcess(new String[] { "git", "checkout", "--", "notes.txt" }, dir);
+		String checkedOutNotes = FileUtils.readFileToString(new File(dir, "notes.txt"));
+		assertEquals("a\r\nb\r\n", checkedOutNotes);
+		
+		new File(dir, "notes.txt").delete();
+		script.delete();
+		
+		assertTrue(repo.materializeFile(commitID, "notes.txt"));
+		assertTrue(repo.materializeFile(commitID, "run.sh"));
+		assertFalse(repo.materializeFile(commitID, "no_such_file"));
+		
+		assertEquals(checkedOutNotes, FileUtils.readFileToString(new File(dir, "notes.txt")));
+		assertEquals("echo run\n", FileUtils.readFileToString(script));
+		assertTrue(script.canExecute());
+		assertFalse(new File(dir, "notes.txt").canExecute());
+	}
+	
+	@Test
+	public void testCheckoutSymlink() throws Exception {
+		File dir = REPO_DIRS[0];
+		IRepository repo = createRepository(dir, BUILD_STRATEGIES[0]);
+		File target = new File(dir, "target.txt");
+		File link = new File(dir, "link");
+
+		FileUtils.writeStringToFile(target, "target\n");
+		Util.runProcess(new String[] { "ln", "-s", "target.txt", "link" }, dir);
+		Util.runProcess(new String[] { "git", "add", "." }, dir);
+		Util.runProcess(new String[] { "git", "-c", "user.name=test",
+				"-c", "user.email=test@example.com", "commit", "-m", "symlink" }, dir);
+
+		Process revParseProcess = Util.runProcess(new String[] { "git", "rev-parse",
+				"--short=7", "HEAD" }, dir);
+		String commitID = Util.getInputStreamContent(
+				revParseProcess.getInputStream()).get(0);
+
+		assertTrue(repo.checkoutCommit(START_COMMIT_IDS[0]));
+		assertFalse(link.exists());
+
+		assertTrue(repo.checkoutCommit(commitID));
+		assertEquals(target.getCanonicalFile(), link.getCanonicalFile());
+
+		// rewriting the link leaves its target alone
+		assertTrue(repo.discardFileChange("link"));
+		assertEquals("target\n", FileUtils.readFileToString(target));
+
+		Process statusProcess = Util.runProcess(new String[] { "git", "status",
+				"--porcelain", "--", "link", "target.txt" }, dir);
+		assertTrue(Util.getInputStreamContent(statusProcess.getInputStream()).isEmpty());
+	}
+
+	@Test
+	public void testFileObjectIDsOfSpecialPaths() throws Exception {
+		File dir = REPO_DIRS[0];
+		IRepository repo = createRepository(dir, BUILD_STRATEGIES[0]);
+		GitRepository gitRepo = new GitRepository(dir, BUILD_STRATEGIES[0]);
+
+		// "git ls-tree" quotes both paths unless run with -z
+		String[] paths = { "back\\slash.txt", "say \"hi\".txt" };
+
+		for (String path : paths) {
+			FileUtils.writeStringToFile(new File(dir, path), path + "\n");
+		}
+
+		Util.runProcess(new String[] { "git", "add", "." }, dir);
+		Util.runProcess(new String[] { "git", "-c", "user.name=test",
+				"-c", "user.email=test@example.com", "commit", "-m", "special paths" }, dir);
+
+		Map<String, String> fileObjectIDs = repo.getFileObjectIDs("HEAD");
+
+		for (String path : paths) {
+			assertTrue(path + " missing", fileObjectIDs.containsKey(path));
+		}
+
+		assertEquals(gitRepo.getFileObjectIDs("HEAD"), fileObjectIDs);
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadParentDiffFilesOfFailedLog() throws Exception {
+		GitRepository repo = new GitRepository(REPO_DIRS[0], BUILD_STRATEGIES[0]);
+		
+		Map<String, List<String>> commitIDToParentsIDs = new HashMap<String, List<String>>();
+		commitIDToParentsIDs.put(END_COMMIT_IDS[0], new ArrayList<String>());
+		
+		// "git log" of an unknown commit fails without any output
+		repo.readParentDiffFiles("0000000000000000000000000000000000000000", 
+				commitIDToParentsIDs);
+	}
+	
+	/**
+	 * Creates the Repository under test.
+	 */
+	protected IRepository createRepository(File directory, IBuildStrategy buildStrategy) {
+		return new GitRepository(directory, buildStrategy);
+	}
+	
 	/**
 	 * Adds orderedRevisions into hGraph.
 	 */
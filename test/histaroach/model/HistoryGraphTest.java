@@ -0,0 +1,130 @@
+package histaroach.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.Flip.FlipType;
+import histaroach.model.Revision.Compilable;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+public class HistoryGraphTest {
+
+	private static final int NUM_REVISIONS = 2000;
+	private static final int NUM_TESTS = 100;
+	private static final long SEED = 42;
+
+	private static final DiffFile DIFF_FILE = new DiffFile(DiffType.MODIFIED, "src/Foo.java");
+
+	@Test
+	public void testGetAllFlipsOfLinearHistory() {
+		HistoryGraph hGraph = new HistoryGraph();
+
+		Revision root = createRevision("1111111", null, Compilable.YES, "FooTest");
+		Revision toFail = createRevision("2222222", root, Compilable.YES, "FooTest", "BarTest");
+		Revision notCompilable = createRevision("3333333", toFail, Compilable.NO);
+		Revision toPass = createRevision("4444444", toFail, Compilable.YES);
+
+		hGraph.addRevision(root);
+		hGraph.addRevision(toFail);
+		hGraph.addRevision(notCompilable);
+		hGraph.addRevision(toPass);
+
+		Set<Flip> flips = hGraph.getAllFlips();
+
+		assertEquals(2, flips.size());
+		assertEquals(1, hGraph.getToFailFlips().size());
+		assertEquals(FlipType.TO_FAIL, hGraph.getToFailFlips().iterator().next().getFlipType());
+		assertSame(flips, hGraph.getAllFlips());
+	}
+
+	@Test
+	public void testFindAllFlipsInParallel() {
+		HistoryGraph hGraph = createRandomHistoryGraph();
+
+		Set<Flip> expectedFlips = hGraph.findAllFlips(1);
+		Set<Flip> actualFlips = hGraph.findAllFlips(4);
+
+		assertEquals(expectedFlips, actualFlips);
+	}
+
+	/**
+	 * @return a Revision whose tests are FooTest, BarTest and BazTest,
+	 *         of which failedTests fail.
+	 */
+	private static Revision createRevision(String commitID, Revision parent,
+			Compilable compilable, String... failedTests) {
+		Map<Revision, Set<DiffFile>> parentToDiffFiles = new HashMap<Revision, Set<DiffFile>>();
+
+		if (parent != null) {
+			Set<DiffFile> diffFiles = new HashSet<DiffFile>();
+			diffFiles.add(DIFF_FILE);
+			parentToDiffFiles.put(parent, diffFiles);
+		}
+
+		Set<String> allTests = new HashSet<String>();
+		allTests.add("FooTest");
+		allTests.add("BarTest");
+		allTests.add("BazTest");
+
+		Set<String> failed = new HashSet<String>();
+		for (String test : failedTests) {
+			failed.add(test);
+		}
+
+		TestResult testResult = compilable == Compilable.YES
+				? new TestResult(allTests, failed) : null;
+
+		return new Revision(commitID, parentToDiffFiles, compilable, false, testResult);
+	}
+
+	/**
+	 * @return a HistoryGraph of NUM_REVISIONS Revisions, some of which are
+	 *         merges, with random results of NUM_TESTS tests.
+	 */
+	private static HistoryGraph createRandomHistoryGraph() {
+		Random random = new Random(SEED);
+		HistoryGraph hGraph = new HistoryGraph();
+		Revision[] revisions = new Revision[NUM_REVISIONS];
+
+		Set<String> allTests = new HashSet<String>();
+		for (int t = 0; t < NUM_TESTS; t++) {
+			allTests.add("voldemort.store.Test" + t);
+		}
+
+		for (int r = 0; r < NUM_REVISIONS; r++) {
+			Map<Revision, Set<DiffFile>> parentToDiffFiles =
+				new HashMap<Revision, Set<DiffFile>>();
+
+			if (r > 0) {
+				parentToDiffFiles.put(revisions[r - 1], new HashSet<DiffFile>());
+			}
+
+			if (r > 10 && random.nextInt(10) == 0) {
+				parentToDiffFiles.put(revisions[random.nextInt(r - 1)],
+						new HashSet<DiffFile>());
+			}
+
+			Set<String> failedTests = new HashSet<String>();
+			for (String test : allTests) {
+				if (random.nextInt(50) == 0) {
+					failedTests.add(test);
+				}
+			}
+
+			revisions[r] = new Revision("c" + r, parentToDiffFiles, Compilable.YES,
+					random.nextInt(100) == 0, new TestResult(allTests, failedTests));
+			hGraph.addRevision(revisions[r]);
+		}
+
+		return hGraph;
+	}
+}
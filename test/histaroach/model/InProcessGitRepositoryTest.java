@@ -0,0 +1,17 @@
+package histaroach.model;
+
+import histaroach.buildstrategy.IBuildStrategy;
+
+import java.io.File;
+
+
+/**
+ * Runs the GitRepository tests against InProcessGitRepository.
+ */
+public class InProcessGitRepositoryTest extends GitRepositoryTest {
+	
+	@Override
+	protected IRepository createRepository(File directory, IBuildStrategy buildStrategy) {
+		return new InProcessGitRepository(directory, buildStrategy);
+	}
+}
@@ -8,6 +8,7 @@ import histaroach.buildstrategy.IBuildStrategy;
 import histaroach.buildstrategy.MyBuildStrategy;
 import histaroach.model.DiffFile;
 import histaroach.model.GitRepository;
+import histaroach.model.InProcessGitRepository;
 import histaroach.model.IntermediateRevision;
 import histaroach.model.IRepository;
 import histaroach.model.Revision;
@@ -21,10 +22,13 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.io.FileUtils;
 import org.junit.After;
@@ -54,6 +58,8 @@ public class IntermediateRevisionTest {
 	
 	private static final IRepository REPOSITORY = new GitRepository(DIR, BUILD_STRATEGY);
 	private static final IRepository REPOSITORY_CLONE = new GitRepository(DIR_CLONE, BUILD_STRATEGY_CLONE);
+	private static final IRepository IN_PROCESS_REPOSITORY = new InProcessGitRepository(DIR, 
+			BUILD_STRATEGY);
 	
 	private static final String FILENAME_1 = "f1";
 	private static final String FILENAME_2 = "f2";
@@ -125,6 +131,120 @@ public class IntermediateRevisionTest {
 		FileUtils.deleteDirectory(DIR_CLONE);
 	}
 
+	@Test
+	public void testApplyDeltaFromCommitRestoreBase() throws Exception {
+		IRepository[] repositories = { REPOSITORY, IN_PROCESS_REPOSITORY };
+		
+		for (IRepository repository : repositories) {
+			Util.untar(TAR_FILE, DEST_PATH);
+			
+			// no cloned repository: delta files are written from the successor commit
+			IntermediateRevision imr = new IntermediateRevision(REVISION_1, REVISION_2, 
+					repository, null);
+			imr.checkoutBaseSuccessorRevisions();
+			imr.setDelta(COMBINATION);
+			imr.applyDelta();
+			
+			checkFile(FILE_1, FILE_1_CONTENT_VERSION_2);
+			assertFalse(FILENAME_2 + " exists", FILE_2.exists());
+			assertTrue(FILENAME_3 + " does not exist", FILE_3.exists());
+			
+			imr.restoreBaseRevision();
+			
+			checkFile(FILE_1, FILE_1_CONTENT_VERSION_1);
+			assertTrue(FILENAME_2 + " does not exist", FILE_2.exists());
+			assertFalse(FILENAME_3 + " exists", FILE_3.exists());
+			
+			FileUtils.deleteDirectory(DIR);
+		}
+	}
+
+	@Test
+	public void testApplyDeltaIncrementally() throws Exception {
+		IRepository[][] repositories = { { REPOSITORY, REPOSITORY_CLONE }, 
+				{ REPOSITORY, null }, { IN_PROCESS_REPOSITORY, null } };
+		
+		// every subset of DIFF_FILES, each differing from the previous one 
+		// by ADDED, DELETED and MODIFIED files coming and going
+		int[] masks = { 0, 7, 2, 4, 5, 1, 6, 3, 0 };
+		DiffFile[] diffFiles = { DIFF_FILE_1, DIFF_FILE_2, DIFF_FILE_3 };
+		
+		for (IRepository[] pair : repositories) {
+			Util.untar(TAR_FILE, DEST_PATH);
+			Util.untar(TAR_FILE_CLONE, DEST_PATH);
+			
+			IntermediateRevision imr = new IntermediateRevision(REVISION_1, REVISION_2, 
+					pair[0], pair[1]);
+			List<Map<String, String>> expectedTrees = new ArrayList<Map<String, String>>();
+			
+			for (int mask : masks) {
+				IntermediateRevision fresh = imr.makeSibling(getSubset(diffFiles, mask));
+				fresh.checkoutBaseSuccessorRevisions();
+				fresh.applyDelta();
+				expectedTrees.add(readWorkingTree(DIR));
+				fresh.restoreBaseRevision();
+			}
+			
+			IntermediateRevision previous = null;
+			
+			for (int i = 0; i < masks.length; i++) {
+				IntermediateRevision intermediateRevision = imr.makeSibling(
+						getSubset(diffFiles, masks[i]));
+				
+				// as IntermediateRevisionAnalysis applies the deltas of a group
+				if (previous == null) {
+					intermediateRevision.checkoutBaseSuccessorRevisions();
+					intermediateRevision.applyDelta(new HashSet<DiffFile>());
+				} else {
+					intermediateRevision.applyDelta(previous.getDelta());
+				}
+				
+				assertEquals("working tree mismatched on " + intermediateRevision.getDelta(), 
+						expectedTrees.get(i), readWorkingTree(DIR));
+				
+				previous = intermediateRevision;
+			}
+			
+			FileUtils.deleteDirectory(DIR);
+			FileUtils.deleteDirectory(DIR_CLONE);
+		}
+	}
+	
+	/**
+	 * @return the elements of elements at the bits set in mask.
+	 */
+	private static Set<DiffFile> getSubset(DiffFile[] elements, int mask) {
+		Set<DiffFile> subset = new HashSet<DiffFile>();
+		
+		for (int i = 0; i < elements.length; i++) {
+			if ((mask & (1 << i)) != 0) {
+				subset.add(elements[i]);
+			}
+		}
+		
+		return subset;
+	}
+	
+	/**
+	 * @return a map from path relative to dir to content, of all files 
+	 *         in dir outside of the git directory.
+	 * @throws IOException
+	 */
+	private static Map<String, String> readWorkingTree(File dir) throws IOException {
+		Map<String, String> files = new TreeMap<String, String>();
+		String prefix = dir.getPath() + File.separatorChar;
+		
+		for (File file : FileUtils.listFiles(dir, null, true)) {
+			String path = file.getPath().substring(prefix.length());
+			
+			if (!path.startsWith(".git" + File.separatorChar)) {
+				files.put(path, FileUtils.readFileToString(file));
+			}
+		}
+		
+		return files;
+	}
+
 	/**
 	 * Checks if the file exists and contains the content.
 	 * 
@@ -0,0 +1,124 @@
+package histaroach.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+
+public class TestResultTest {
+
+	private static final String TEST_1 = "voldemort.store.FooTest";
+	private static final String TEST_2 = "voldemort.store.BarTest";
+	private static final String TEST_3 = "voldemort.store.BazTest";
+	private static final String TEST_4 = "voldemort.store.QuxTest";
+	private static final String UNKNOWN_TEST = "voldemort.store.UnknownTest";
+
+	// parent: 1 passes, 2 fails, 3 passes
+	private static final TestResult PARENT_RESULT = new TestResult(
+			createSet(TEST_1, TEST_2, TEST_3), createSet(TEST_2));
+	// child: 1 fails, 2 passes, 4 fails
+	private static final TestResult CHILD_RESULT = new TestResult(
+			createSet(TEST_1, TEST_2, TEST_4), createSet(TEST_1, TEST_4));
+
+	@Test
+	public void testPassFail() {
+		assertTrue(PARENT_RESULT.pass(TEST_1));
+		assertFalse(PARENT_RESULT.fail(TEST_1));
+		assertTrue(PARENT_RESULT.fail(TEST_2));
+		assertFalse(PARENT_RESULT.pass(TEST_2));
+		assertFalse(PARENT_RESULT.pass(TEST_4));
+		assertFalse(PARENT_RESULT.fail(TEST_4));
+		assertFalse(PARENT_RESULT.pass(UNKNOWN_TEST));
+		assertFalse(PARENT_RESULT.fail(UNKNOWN_TEST));
+	}
+
+	@Test
+	public void testEncodeAsString() {
+		assertEquals("1", PARENT_RESULT.encodeAsString(TEST_1));
+		assertEquals("0", PARENT_RESULT.encodeAsString(TEST_2));
+		assertEquals("-1", PARENT_RESULT.encodeAsString(TEST_4));
+		assertEquals("-1", PARENT_RESULT.encodeAsString(UNKNOWN_TEST));
+	}
+
+	@Test
+	public void testGetTests() {
+		assertEquals(createSet(TEST_1, TEST_2, TEST_4), CHILD_RESULT.getAllTests());
+		assertEquals(createSet(TEST_1, TEST_4), CHILD_RESULT.getFailedTests());
+		assertTrue(CHILD_RESULT.getAllTests().contains(TEST_4));
+		assertFalse(CHILD_RESULT.getAllTests().contains(TEST_3));
+	}
+
+	@Test
+	public void testGetFlippedTests() {
+		assertEquals(createSet(TEST_2), CHILD_RESULT.getToPassTests(PARENT_RESULT));
+		// TEST_4 is not in parent
+		assertEquals(createSet(TEST_1), CHILD_RESULT.getToFailTests(PARENT_RESULT));
+	}
+
+	@Test
+	public void testDiff() {
+		assertEquals(createSet(TEST_3, TEST_4), PARENT_RESULT.diff(CHILD_RESULT));
+		assertEquals(createSet(TEST_3, TEST_4), CHILD_RESULT.diff(PARENT_RESULT));
+	}
+
+	@Test
+	public void testGetNondeterministicTests() throws Exception {
+		TestResult rerun = new TestResult(createSet(TEST_1, TEST_2, TEST_3),
+				createSet(TEST_3));
+
+		assertEquals(createSet(TEST_2, TEST_3),
+				PARENT_RESULT.getNondeterministicTests(rerun));
+	}
+
+	@Test(expected = Exception.class)
+	public void testGetNondeterministicTestsOfDifferentTests() throws Exception {
+		PARENT_RESULT.getNondeterministicTests(CHILD_RESULT);
+	}
+
+	@Test
+	public void testEquals() {
+		TestResult copy = new TestResult(PARENT_RESULT.getAllTests(),
+				PARENT_RESULT.getFailedTests());
+		TestResult other = new TestResult(createSet(TEST_3, TEST_2, TEST_1),
+				createSet(TEST_2));
+
+		assertEquals(PARENT_RESULT, copy);
+		assertEquals(PARENT_RESULT, other);
+		assertEquals(PARENT_RESULT.hashCode(), other.hashCode());
+		assertFalse(PARENT_RESULT.equals(CHILD_RESULT));
+	}
+
+	@Test
+	public void testSerialize() throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(CHILD_RESULT);
+		out.close();
+
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		TestResult actualResult = (TestResult) in.readObject();
+		in.close();
+
+		assertEquals(CHILD_RESULT, actualResult);
+	}
+
+	private static Set<String> createSet(String... tests) {
+		Set<String> set = new HashSet<String>();
+
+		for (String test : tests) {
+			set.add(test);
+		}
+
+		return set;
+	}
+}
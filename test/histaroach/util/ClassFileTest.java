@@ -0,0 +1,125 @@
+package histaroach.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Test;
+
+
+public class ClassFileTest {
+
+	private static final File CLASS_DIR = new File("test-data/class_file_test");
+
+	@After
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(CLASS_DIR);
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		compile("p/Base", "package p; public abstract class Base { }", true);
+		compile("p/Shape", "package p; public interface Shape { }", true);
+		compile("p/Square", "package p; import java.util.List; "
+				+ "public class Square extends Base implements Shape, Comparable<Square> { "
+				+ "List<Base> parts; "
+				+ "public int compareTo(Square other) { return new Helper().compare(); } } "
+				+ "class Helper { int compare() { return 0; } }", true);
+
+		ClassFile classFile = ClassFile.read(new File(CLASS_DIR, "p/Square.class"));
+
+		assertEquals("p/Square", classFile.getClassName());
+		assertEquals("Square.java", classFile.getSourceFileName());
+		assertEquals("p/Square.java", classFile.getSourcePath());
+		assertEquals(createSet("p/Base", "p/Shape", "java/lang/Comparable"),
+				classFile.getSupertypeNames());
+
+		Set<String> referencedClassNames = classFile.getReferencedClassNames();
+
+		// in the constant pool, and in a generic signature only
+		assertTrue(referencedClassNames.contains("p/Helper"));
+		assertTrue(referencedClassNames.contains("p/Base"));
+		assertTrue(referencedClassNames.contains("java/util/List"));
+		assertFalse(referencedClassNames.contains("p/Square"));
+
+		// a class in the source file of another class
+		ClassFile helper = ClassFile.read(new File(CLASS_DIR, "p/Helper.class"));
+		assertEquals("p/Square.java", helper.getSourcePath());
+		assertEquals(createSet("java/lang/Object"), helper.getSupertypeNames());
+	}
+
+	@Test
+	public void testReadWithoutDebugInformation() throws Exception {
+		compile("A", "public class A { }", false);
+
+		ClassFile classFile = ClassFile.read(new File(CLASS_DIR, "A.class"));
+
+		assertEquals("A", classFile.getClassName());
+		assertNull(classFile.getSourceFileName());
+		assertNull(classFile.getSourcePath());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotClassFile() throws Exception {
+		CLASS_DIR.mkdirs();
+		File file = new File(CLASS_DIR, "A.class");
+		FileWriter writer = new FileWriter(file);
+
+		try {
+			writer.write("public class A { }");
+		} finally {
+			writer.close();
+		}
+
+		ClassFile.read(file);
+	}
+
+	/**
+	 * Compiles the source of className into CLASS_DIR,
+	 * with debug information if debug is set.
+	 */
+	private static void compile(String className, String source, boolean debug)
+			throws IOException {
+		File sourceFile = new File(CLASS_DIR, className + ".java");
+		sourceFile.getParentFile().mkdirs();
+		FileWriter writer = new FileWriter(sourceFile);
+
+		try {
+			writer.write(source);
+		} finally {
+			writer.close();
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		int exitValue = compiler.run(null, null, new ByteArrayOutputStream(),
+				"-cp", CLASS_DIR.getPath(), "-d", CLASS_DIR.getPath(),
+				debug ? "-g" : "-g:none", sourceFile.getPath());
+
+		if (exitValue != 0) {
+			throw new IOException("compile " + sourceFile + " unsuccessful");
+		}
+	}
+
+	private static Set<String> createSet(String... elements) {
+		Set<String> set = new HashSet<String>();
+
+		for (String element : elements) {
+			set.add(element);
+		}
+
+		return set;
+	}
+}
@@ -0,0 +1,67 @@
+package histaroach.util;
+
+import static org.junit.Assert.assertEquals;
+
+import histaroach.model.HistoryGraph;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+public class HistoryGraphBinaryReaderTest {
+
+	private static final File BINARY_FILE = new File("test-data/historyGraph_test.hgb");
+	private static final File XML_FILE = new File("test-data/historyGraph_test.xml");
+
+	@After
+	public void tearDown() {
+		BINARY_FILE.delete();
+		XML_FILE.delete();
+	}
+
+	@Test
+	public void testReadWrittenHistoryGraph() throws Exception {
+		HistoryGraph hGraph = HistoryGraphXMLReaderTest.createHistoryGraph();
+
+		new HistoryGraphBinaryWriter(BINARY_FILE, hGraph).write();
+		HistoryGraph actualHGraph = new HistoryGraphBinaryReader(BINARY_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testReadEmptyHistoryGraph() throws Exception {
+		HistoryGraph hGraph = new HistoryGraph();
+
+		new HistoryGraphBinaryWriter(BINARY_FILE, hGraph).write();
+		HistoryGraph actualHGraph = new HistoryGraphBinaryReader(BINARY_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testConvertXMLToBinary() throws Exception {
+		HistoryGraph hGraph = HistoryGraphXMLReaderTest.createHistoryGraph();
+
+		HistoryGraphStreamingXMLWriter.write(XML_FILE, hGraph);
+		HistoryGraph xmlHGraph = new HistoryGraphXMLReader(XML_FILE).read();
+
+		new HistoryGraphBinaryWriter(BINARY_FILE, xmlHGraph).write();
+		HistoryGraph actualHGraph = new HistoryGraphBinaryReader(BINARY_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotBinaryFile() throws Exception {
+		FileOutputStream out = new FileOutputStream(BINARY_FILE);
+		out.write("<?xml version=\"1.0\"?>".getBytes("UTF-8"));
+		out.close();
+
+		new HistoryGraphBinaryReader(BINARY_FILE).read();
+	}
+}
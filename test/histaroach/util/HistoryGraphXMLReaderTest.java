@@ -0,0 +1,154 @@
+package histaroach.util;
+
+import static org.junit.Assert.assertEquals;
+
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.HistoryGraph;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.Revision;
+import histaroach.model.Revision.Compilable;
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Test;
+
+
+public class HistoryGraphXMLReaderTest {
+
+	private static final File XML_FILE = new File("test-data/historyGraph_test.xml");
+	private static final File IR_XML_FILE = new File("test-data/intermediateRevision_test.xml");
+
+	private static final String TEST_1 = "voldemort.store.FooTest";
+	private static final String TEST_2 = "voldemort.store.BarTest";
+
+	private static final DiffFile DIFF_FILE_1 = new DiffFile(DiffType.ADDED, "src/Foo.java");
+	private static final DiffFile DIFF_FILE_2 = new DiffFile(DiffType.MODIFIED, "src/Bar.java");
+	private static final DiffFile DIFF_FILE_3 = new DiffFile(DiffType.DELETED, "test/BarTest.java");
+
+	@After
+	public void tearDown() {
+		XML_FILE.delete();
+		IR_XML_FILE.delete();
+	}
+
+	@Test
+	public void testReadWrittenHistoryGraph() throws Exception {
+		HistoryGraph hGraph = createHistoryGraph();
+
+		new HistoryGraphXMLWriter(XML_FILE, hGraph).buildDocument();
+		HistoryGraph actualHGraph = new HistoryGraphXMLReader(XML_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testReadEmptyHistoryGraph() throws Exception {
+		HistoryGraph hGraph = new HistoryGraph();
+
+		new HistoryGraphXMLWriter(XML_FILE, hGraph).buildDocument();
+		HistoryGraph actualHGraph = new HistoryGraphXMLReader(XML_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testReadStreamedHistoryGraph() throws Exception {
+		HistoryGraph hGraph = createHistoryGraph();
+
+		HistoryGraphStreamingXMLWriter.write(XML_FILE, hGraph);
+		HistoryGraph actualHGraph = new HistoryGraphXMLReader(XML_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testReadStreamedEmptyHistoryGraph() throws Exception {
+		HistoryGraph hGraph = new HistoryGraph();
+
+		HistoryGraphStreamingXMLWriter.write(XML_FILE, hGraph);
+		HistoryGraph actualHGraph = new HistoryGraphXMLReader(XML_FILE).read();
+
+		assertEquals(hGraph, actualHGraph);
+	}
+
+	@Test
+	public void testReadStreamedIntermediateRevisions() throws Exception {
+		HistoryGraph hGraph = createHistoryGraph();
+		Revision root = hGraph.lookUpRevision("1111111");
+		Revision testAborted = hGraph.lookUpRevision("3333333");
+
+		// successor is a child of base, so no repository is needed
+		List<IntermediateRevision> intermediateRevisions = new ArrayList<IntermediateRevision>();
+
+		Set<DiffFile> delta = new HashSet<DiffFile>();
+		delta.add(DIFF_FILE_2);
+		IntermediateRevision ir1 = new IntermediateRevision(root, testAborted, null, null);
+		ir1.setDelta(delta);
+		intermediateRevisions.add(ir1);
+
+		IntermediateRevision ir2 = new IntermediateRevision(root, testAborted, null, null);
+		ir2.setDelta(new HashSet<DiffFile>());
+		intermediateRevisions.add(ir2);
+
+		IntermediateRevisionStreamingXMLWriter.write(IR_XML_FILE, intermediateRevisions);
+		List<IntermediateRevision> actualIntermediateRevisions =
+			new IntermediateRevisionXMLReader(IR_XML_FILE, null, null, hGraph).read();
+
+		assertEquals(intermediateRevisions, actualIntermediateRevisions);
+	}
+
+	/**
+	 * @return a HistoryGraph with a root, a Revision that does not compile,
+	 *         a Revision whose tests are aborted, and a merge of the two.
+	 */
+	static HistoryGraph createHistoryGraph() {
+		HistoryGraph hGraph = new HistoryGraph();
+
+		Set<String> allTests = new HashSet<String>();
+		allTests.add(TEST_1);
+		allTests.add(TEST_2);
+
+		Set<String> failedTests = new HashSet<String>();
+		failedTests.add(TEST_2);
+
+		Revision root = new Revision("1111111", new HashMap<Revision, Set<DiffFile>>(),
+				Compilable.YES, false, new TestResult(allTests, new HashSet<String>()));
+
+		Set<DiffFile> diffFiles1 = new HashSet<DiffFile>();
+		diffFiles1.add(DIFF_FILE_1);
+		Map<Revision, Set<DiffFile>> parents1 = new HashMap<Revision, Set<DiffFile>>();
+		parents1.put(root, diffFiles1);
+		Revision notCompilable = new Revision("2222222", parents1, Compilable.NO,
+				false, null);
+
+		Set<DiffFile> diffFiles2 = new HashSet<DiffFile>();
+		diffFiles2.add(DIFF_FILE_2);
+		diffFiles2.add(DIFF_FILE_3);
+		Map<Revision, Set<DiffFile>> parents2 = new HashMap<Revision, Set<DiffFile>>();
+		parents2.put(root, diffFiles2);
+		Revision testAborted = new Revision("3333333", parents2, Compilable.YES,
+				true, null);
+
+		Map<Revision, Set<DiffFile>> parents3 = new HashMap<Revision, Set<DiffFile>>();
+		parents3.put(notCompilable, diffFiles2);
+		parents3.put(testAborted, new HashSet<DiffFile>());
+		Revision merge = new Revision("4444444", parents3, Compilable.YES,
+				false, new TestResult(allTests, failedTests));
+
+		hGraph.addRevision(root);
+		hGraph.addRevision(notCompilable);
+		hGraph.addRevision(testAborted);
+		hGraph.addRevision(merge);
+
+		return hGraph;
+	}
+}
@@ -0,0 +1,117 @@
+package histaroach.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import histaroach.model.DiffFile;
+import histaroach.model.DiffFile.DiffType;
+import histaroach.model.HistoryGraph;
+import histaroach.model.IntermediateRevision;
+import histaroach.model.Revision;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class IntermediateRevisionIndexedFileTest {
+
+	private static final File INDEXED_FILE = new File("test-data/intermediateRevision_test.irx");
+
+	private HistoryGraph hGraph;
+	private List<IntermediateRevision> intermediateRevisions;
+
+	@Before
+	public void setUp() throws Exception {
+		hGraph = HistoryGraphXMLReaderTest.createHistoryGraph();
+		Revision root = hGraph.lookUpRevision("1111111");
+		Revision notCompilable = hGraph.lookUpRevision("2222222");
+		Revision testAborted = hGraph.lookUpRevision("3333333");
+
+		// successors are children of bases, so no repository is needed
+		intermediateRevisions = new ArrayList<IntermediateRevision>();
+		intermediateRevisions.add(createIntermediateRevision(root, testAborted,
+				new DiffFile(DiffType.MODIFIED, "src/Bar.java")));
+		intermediateRevisions.add(createIntermediateRevision(root, testAborted,
+				new DiffFile(DiffType.DELETED, "test/BarTest.java")));
+		intermediateRevisions.add(createIntermediateRevision(root, notCompilable));
+	}
+
+	@After
+	public void tearDown() {
+		INDEXED_FILE.delete();
+	}
+
+	@Test
+	public void testReadWrittenIntermediateRevisions() throws Exception {
+		IntermediateRevisionIndexedWriter.write(INDEXED_FILE, intermediateRevisions);
+		List<IntermediateRevision> actualIntermediateRevisions =
+			new IntermediateRevisionIndexedFile(INDEXED_FILE, null, null, hGraph);
+
+		assertEquals(intermediateRevisions, actualIntermediateRevisions);
+	}
+
+	@Test
+	public void testGetOutOfOrder() throws Exception {
+		IntermediateRevisionIndexedWriter.write(INDEXED_FILE, intermediateRevisions);
+		List<IntermediateRevision> actualIntermediateRevisions =
+			new IntermediateRevisionIndexedFile(INDEXED_FILE, null, null, hGraph);
+
+		assertEquals(3, actualIntermediateRevisions.size());
+
+		IntermediateRevision last = actualIntermediateRevisions.get(2);
+		assertEquals(intermediateRevisions.get(2), last);
+		assertEquals(intermediateRevisions.get(1), actualIntermediateRevisions.get(1));
+
+		// results set on one IntermediateRevision are not kept by the list
+		Set<DiffFile> otherDelta = new HashSet<DiffFile>();
+		otherDelta.add(new DiffFile(DiffType.ADDED, "src/Baz.java"));
+		last.setDelta(otherDelta);
+
+		IntermediateRevision again = actualIntermediateRevisions.get(2);
+		assertNotSame(last, again);
+		assertEquals(intermediateRevisions.get(2), again);
+	}
+
+	@Test
+	public void testReadEmptyFile() throws Exception {
+		IntermediateRevisionIndexedWriter.write(INDEXED_FILE,
+				new ArrayList<IntermediateRevision>());
+		List<IntermediateRevision> actualIntermediateRevisions =
+			new IntermediateRevisionIndexedFile(INDEXED_FILE, null, null, hGraph);
+
+		assertEquals(0, actualIntermediateRevisions.size());
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadNotIndexedFile() throws Exception {
+		FileOutputStream out = new FileOutputStream(INDEXED_FILE);
+		out.write("<?xml version=\"1.0\"?>".getBytes("UTF-8"));
+		out.close();
+
+		new IntermediateRevisionIndexedFile(INDEXED_FILE, null, null, hGraph);
+	}
+
+	private static IntermediateRevision createIntermediateRevision(Revision base,
+			Revision successor, DiffFile... diffFiles) throws Exception {
+		Set<DiffFile> delta = new HashSet<DiffFile>();
+
+		for (DiffFile diffFile : diffFiles) {
+			delta.add(diffFile);
+		}
+
+		IntermediateRevision intermediateRevision = new IntermediateRevision(base,
+				successor, null, null);
+		intermediateRevision.setDelta(delta);
+
+		return intermediateRevision;
+	}
+}
@@ -0,0 +1,173 @@
+package histaroach.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import histaroach.model.TestCaseResult;
+import histaroach.model.TestCaseResult.Status;
+import histaroach.model.TestResult;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class JUnitXMLReportReaderTest {
+
+	private static final File REPORT_DIR = new File("test-data/junit_reports_test");
+
+	private static final String FOO_TEST = "voldemort.store.FooTest";
+	private static final String BAR_TEST = "voldemort.store.BarTest";
+	private static final String BAZ_TEST = "voldemort.store.BazTest";
+
+	private static final String FOO_REPORT =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+		+ "<testsuite errors=\"1\" failures=\"1\" name=\"" + FOO_TEST + "\" tests=\"4\" time=\"1,234.5\">\n"
+		+ "  <properties><property name=\"java.version\" value=\"1.6\" /></properties>\n"
+		+ "  <testcase classname=\"" + FOO_TEST + "\" name=\"testPass\" time=\"0.25\" />\n"
+		+ "  <testcase classname=\"" + FOO_TEST + "\" name=\"testFail\" time=\"1,200.5\">\n"
+		+ "    <failure message=\"expected\" type=\"junit.framework.AssertionFailedError\">trace</failure>\n"
+		+ "  </testcase>\n"
+		+ "  <testcase classname=\"" + FOO_TEST + "\" name=\"testError\" time=\"0.5\">\n"
+		+ "    <error message=\"npe\" type=\"java.lang.NullPointerException\">trace</error>\n"
+		+ "  </testcase>\n"
+		+ "  <testcase classname=\"" + FOO_TEST + "\" name=\"testSkip\" time=\"0\">\n"
+		+ "    <skipped />\n"
+		+ "  </testcase>\n"
+		+ "  <system-out><![CDATA[lots of output]]></system-out>\n"
+		+ "  <system-err><![CDATA[]]></system-err>\n"
+		+ "</testsuite>\n";
+
+	// a class that could not be initialized has no test cases
+	private static final String BAR_REPORT =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+		+ "<testsuite errors=\"1\" failures=\"0\" name=\"" + BAR_TEST + "\" tests=\"1\" time=\"0\">\n"
+		+ "  <error message=\"init\" type=\"java.lang.ExceptionInInitializerError\">trace</error>\n"
+		+ "</testsuite>\n";
+
+	// the run was killed while the report was written
+	private static final String BAZ_REPORT =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+		+ "<testsuite errors=\"0\" failures=\"0\" name=\"" + BAZ_TEST + "\" tests=\"1\" time=\"0\">\n"
+		+ "  <testcase classname=\"" + BAZ_TEST + "\" name=\"testPass\" ";
+
+	@Before
+	public void setUp() throws IOException {
+		REPORT_DIR.mkdir();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = REPORT_DIR.listFiles();
+
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+
+		REPORT_DIR.delete();
+	}
+
+	@Test
+	public void testRead() throws Exception {
+		List<TestCaseResult> results = JUnitXMLReportReader.read(
+				writeReport(FOO_TEST, FOO_REPORT));
+
+		assertEquals(4, results.size());
+
+		assertEquals(new TestCaseResult(FOO_TEST, "testPass", Status.PASS, 0.25, null),
+				results.get(0));
+		assertEquals(new TestCaseResult(FOO_TEST, "testFail", Status.FAILURE, 1200.5,
+				"junit.framework.AssertionFailedError"), results.get(1));
+		assertEquals(new TestCaseResult(FOO_TEST, "testError", Status.ERROR, 0.5,
+				"java.lang.NullPointerException"), results.get(2));
+		assertEquals(new TestCaseResult(FOO_TEST, "testSkip", Status.SKIPPED, 0, null),
+				results.get(3));
+	}
+
+	@Test
+	public void testReadClassError() throws Exception {
+		List<TestCaseResult> results = JUnitXMLReportReader.read(
+				writeReport(BAR_TEST, BAR_REPORT));
+
+		assertEquals(1, results.size());
+
+		TestCaseResult result = results.get(0);
+		assertEquals(BAR_TEST, result.getClassName());
+		assertNull(result.getMethodName());
+		assertEquals(Status.ERROR, result.getStatus());
+	}
+
+	@Test
+	public void testReadReports() throws Exception {
+		writeReport(FOO_TEST, FOO_REPORT);
+		writeReport(BAR_TEST, BAR_REPORT);
+		writeReport(BAZ_TEST, BAZ_REPORT);
+		new File(REPORT_DIR, "TESTS-TestSuites.txt").createNewFile();
+
+		List<TestCaseResult> results = JUnitXMLReportReader.readReports(REPORT_DIR);
+
+		// BarTest, BazTest, FooTest
+		assertEquals(6, results.size());
+		assertEquals(new TestCaseResult(BAZ_TEST, null, Status.ERROR, 0, null),
+				results.get(1));
+
+		TestResult testResult = JUnitXMLReportReader.toTestResult(results);
+
+		assertEquals(3, testResult.getAllTests().size());
+		assertTrue(testResult.fail(FOO_TEST));
+		assertTrue(testResult.fail(BAR_TEST));
+		assertTrue(testResult.fail(BAZ_TEST));
+	}
+
+	@Test
+	public void testToTestResult() throws Exception {
+		// a skipped test does not fail its class
+		writeReport(FOO_TEST, "<testsuite errors=\"0\" failures=\"0\" name=\"" + FOO_TEST + "\">"
+				+ "<testcase classname=\"" + FOO_TEST + "\" name=\"testPass\" />"
+				+ "<testcase classname=\"" + FOO_TEST + "\" name=\"testSkip\"><skipped /></testcase>"
+				+ "</testsuite>");
+
+		TestResult testResult = JUnitXMLReportReader.toTestResult(
+				JUnitXMLReportReader.readReports(REPORT_DIR));
+
+		assertTrue(testResult.pass(FOO_TEST));
+	}
+
+	@Test
+	public void testDeleteReports() throws Exception {
+		writeReport(FOO_TEST, FOO_REPORT);
+		File other = new File(REPORT_DIR, "other.xml");
+		other.createNewFile();
+
+		JUnitXMLReportReader.deleteReports(REPORT_DIR);
+
+		assertEquals(0, JUnitXMLReportReader.listReports(REPORT_DIR).length);
+		assertTrue(other.exists());
+		assertFalse(new File(REPORT_DIR, "no_such_dir").exists());
+		assertEquals(0, JUnitXMLReportReader.listReports(
+				new File(REPORT_DIR, "no_such_dir")).length);
+	}
+
+	private static File writeReport(String className, String content) throws IOException {
+		File report = new File(REPORT_DIR, JUnitXMLReportReader.REPORT_PREFIX + className
+				+ JUnitXMLReportReader.REPORT_EXTENSION);
+		FileWriter writer = new FileWriter(report);
+
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+
+		return report;
+	}
+}